@@ -0,0 +1,58 @@
+package com.winterhaven_mc.deathchest;
+
+import org.bukkit.Server;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+
+
+/**
+ * Creates plugin instances outside a server, using the plugin description from the plugin jar.
+ */
+public final class HeadlessPlugin {
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private HeadlessPlugin() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Create a plugin instance; the caller enables it by calling {@code onEnable}
+	 * @param server the server the plugin runs in
+	 * @param dataFolder the plugin data folder
+	 * @return PluginMain - the plugin instance
+	 * @throws IOException if the plugin description could not be read
+	 * @throws InvalidDescriptionException if the plugin description is not valid
+	 */
+	@SuppressWarnings("deprecation")
+	public static PluginMain create(final Server server, final File dataFolder)
+			throws IOException, InvalidDescriptionException {
+
+		final PluginDescriptionFile description;
+		try (InputStream inputStream = PluginMain.class.getResourceAsStream("/plugin.yml")) {
+			if (inputStream == null) {
+				throw new IOException("plugin.yml not found on class path");
+			}
+			description = new PluginDescriptionFile(inputStream);
+		}
+
+		final File file;
+		try {
+			file = new File(PluginMain.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		}
+		catch (URISyntaxException e) {
+			throw new IOException(e);
+		}
+
+		return new PluginMain(new JavaPluginLoader(server), description, dataFolder, file);
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.winterhaven_mc.deathchest.benchmark;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.inventory.ItemFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.logging.Logger;
+
+
+/**
+ * A minimal Server stub installed as the Bukkit server, so that API classes that call
+ * static {@code Bukkit} methods, such as {@code ItemStack.isSimilar}, can run outside a server.
+ * Item stacks never have item meta.
+ */
+public final class FakeServer {
+
+	private static final Logger LOGGER = Logger.getLogger("FakeServer");
+
+	private static Server server;
+
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private FakeServer() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Install the fake server as the Bukkit server, if it has not already been installed
+	 * @return Server - the installed server
+	 */
+	public static synchronized Server install() {
+
+		if (server != null) {
+			return server;
+		}
+
+		final ItemFactory itemFactory = createItemFactory();
+
+		server = (Server) Proxy.newProxyInstance(Server.class.getClassLoader(),
+				new Class<?>[] { Server.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getLogger":
+							return LOGGER;
+						case "getName":
+							return "FakeServer";
+						case "getVersion":
+							return "benchmark";
+						case "getBukkitVersion":
+							return "1.13.2-R0.1-SNAPSHOT";
+						case "getItemFactory":
+							return itemFactory;
+						case "isPrimaryThread":
+							return true;
+						case "equals":
+							return proxy == args[0];
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "toString":
+							return "FakeServer";
+						default:
+							throw new UnsupportedOperationException("Server." + method.getName());
+					}
+				});
+
+		Bukkit.setServer(server);
+		return server;
+	}
+
+
+	/**
+	 * Create an item factory for which item stacks never have item meta
+	 * @return ItemFactory - the item factory
+	 */
+	static ItemFactory createItemFactory() {
+
+		return (ItemFactory) Proxy.newProxyInstance(ItemFactory.class.getClassLoader(),
+				new Class<?>[] { ItemFactory.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "equals":
+							if (args.length == 2) {
+								return args[0] == null ? args[1] == null : args[0].equals(args[1]);
+							}
+							return proxy == args[0];
+						case "getItemMeta":
+						case "asMetaFor":
+							return null;
+						case "isApplicable":
+							return true;
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						default:
+							throw new UnsupportedOperationException("ItemFactory." + method.getName());
+					}
+				});
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.winterhaven_mc.deathchest.benchmark;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+
+/**
+ * Helpers for the proxy based stubs of the headless server. Methods a stub does not implement
+ * return a default value for their return type instead of throwing, so that plugin code that
+ * touches unrelated parts of the API keeps running.
+ */
+final class Fakes {
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private Fakes() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Create a proxy for an interface
+	 * @param type the interface to implement
+	 * @param handler the invocation handler
+	 * @param <T> the interface type
+	 * @return T - the proxy
+	 */
+	static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+
+	/**
+	 * Answer the Object methods of a proxy by identity, or any other method with a default value
+	 * @param proxy the proxy
+	 * @param method the invoked method
+	 * @param args the method arguments
+	 * @return Object - the method result
+	 */
+	static Object answer(final Object proxy, final Method method, final Object[] args) {
+
+		switch (method.getName()) {
+			case "equals":
+				if (args != null && args.length == 1) {
+					return proxy == args[0];
+				}
+				break;
+			case "hashCode":
+				if (args == null || args.length == 0) {
+					return System.identityHashCode(proxy);
+				}
+				break;
+			case "toString":
+				if (args == null || args.length == 0) {
+					return method.getDeclaringClass().getSimpleName() + "@"
+							+ Integer.toHexString(System.identityHashCode(proxy));
+				}
+				break;
+		}
+
+		return defaultValue(method.getReturnType());
+	}
+
+
+	/**
+	 * Get the default value for a return type: zero, false, an empty collection or array, or null
+	 * @param type the return type
+	 * @return Object - the default value
+	 */
+	static Object defaultValue(final Class<?> type) {
+
+		if (type == boolean.class) {
+			return false;
+		}
+		if (type == int.class) {
+			return 0;
+		}
+		if (type == long.class) {
+			return 0L;
+		}
+		if (type == double.class) {
+			return 0.0;
+		}
+		if (type == float.class) {
+			return 0.0f;
+		}
+		if (type == short.class) {
+			return (short) 0;
+		}
+		if (type == byte.class) {
+			return (byte) 0;
+		}
+		if (type == char.class) {
+			return (char) 0;
+		}
+		if (type.isArray()) {
+			return Array.newInstance(type.getComponentType(), 0);
+		}
+		if (type == List.class || type == Collection.class) {
+			return new ArrayList<>();
+		}
+		if (type == Set.class) {
+			return new HashSet<>();
+		}
+		if (type == Map.class || type == HashMap.class) {
+			return new HashMap<>();
+		}
+		return null;
+	}
+
+}
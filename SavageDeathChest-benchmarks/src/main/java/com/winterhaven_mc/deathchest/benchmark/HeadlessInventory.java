@@ -0,0 +1,246 @@
+package com.winterhaven_mc.deathchest.benchmark;
+
+import org.bukkit.Location;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+
+/**
+ * An in-memory inventory, backing an Inventory or PlayerInventory proxy.
+ * Adding items merges into similar partial stacks before filling empty slots, as the server does.
+ */
+public final class HeadlessInventory implements InvocationHandler {
+
+	private final InventoryType type;
+	private final ItemStack[] slots;
+	private final List<HumanEntity> viewers = new ArrayList<>();
+	private final Inventory inventory;
+
+	private InventoryHolder holder;
+	private Location location;
+
+
+	/**
+	 * Class constructor
+	 * @param inventoryClass the inventory interface to implement
+	 * @param type the inventory type
+	 * @param size the number of slots
+	 */
+	HeadlessInventory(final Class<? extends Inventory> inventoryClass, final InventoryType type, final int size) {
+		this.type = type;
+		this.slots = new ItemStack[size];
+		this.inventory = Fakes.proxy(inventoryClass, this);
+	}
+
+
+	/**
+	 * Get the inventory proxy
+	 * @return Inventory - the inventory proxy
+	 */
+	public Inventory getInventory() {
+		return inventory;
+	}
+
+
+	/**
+	 * Set the inventory holder and location
+	 * @param holder the inventory holder
+	 * @param location the inventory location
+	 */
+	void setHolder(final InventoryHolder holder, final Location location) {
+		this.holder = holder;
+		this.location = location;
+	}
+
+
+	/**
+	 * Get the live list of inventory viewers
+	 * @return List of HumanEntity - the viewers
+	 */
+	List<HumanEntity> getViewers() {
+		return viewers;
+	}
+
+
+	/**
+	 * Count the non-empty slots
+	 * @return int - the number of non-empty slots
+	 */
+	int countStacks() {
+		int stacks = 0;
+		for (ItemStack itemStack : slots) {
+			if (itemStack != null) {
+				stacks++;
+			}
+		}
+		return stacks;
+	}
+
+
+	/**
+	 * Empty all slots
+	 */
+	void clear() {
+		for (int i = 0; i < slots.length; i++) {
+			slots[i] = null;
+		}
+	}
+
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+		switch (method.getName()) {
+			case "getType":
+				return type;
+			case "getSize":
+				return slots.length;
+			case "getHolder":
+				return holder;
+			case "getLocation":
+				return location == null ? null : location.clone();
+			case "getViewers":
+				return viewers;
+			case "getContents":
+			case "getStorageContents":
+				return slots.clone();
+			case "setContents":
+			case "setStorageContents":
+				ItemStack[] contents = (ItemStack[]) args[0];
+				for (int i = 0; i < slots.length; i++) {
+					slots[i] = i < contents.length ? contents[i] : null;
+				}
+				return null;
+			case "getItem":
+				return slots[(Integer) args[0]];
+			case "setItem":
+				if (args[0] instanceof Integer) {
+					slots[(Integer) args[0]] = (ItemStack) args[1];
+				}
+				return null;
+			case "firstEmpty":
+				return firstEmpty();
+			case "isEmpty":
+				return countStacks() == 0;
+			case "addItem":
+				return addItem((ItemStack[]) args[0]);
+			case "removeItem":
+				return removeItem((ItemStack[]) args[0]);
+			case "clear":
+				if (args == null || args.length == 0) {
+					clear();
+				}
+				else {
+					slots[(Integer) args[0]] = null;
+				}
+				return null;
+			default:
+				return Fakes.answer(proxy, method, args);
+		}
+	}
+
+
+	private int firstEmpty() {
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i] == null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
+	private HashMap<Integer, ItemStack> addItem(final ItemStack[] itemStacks) {
+
+		final HashMap<Integer, ItemStack> leftover = new HashMap<>();
+
+		for (int i = 0; i < itemStacks.length; i++) {
+
+			final ItemStack itemStack = itemStacks[i];
+			if (itemStack == null) {
+				continue;
+			}
+
+			int remaining = itemStack.getAmount();
+			final int maxStackSize = itemStack.getMaxStackSize();
+
+			// merge into similar partial stacks
+			for (int slot = 0; slot < slots.length && remaining > 0; slot++) {
+				ItemStack slotStack = slots[slot];
+				if (slotStack != null && slotStack.getAmount() < maxStackSize && slotStack.isSimilar(itemStack)) {
+					int moved = Math.min(remaining, maxStackSize - slotStack.getAmount());
+					slotStack.setAmount(slotStack.getAmount() + moved);
+					remaining -= moved;
+				}
+			}
+
+			// fill empty slots
+			while (remaining > 0) {
+				int slot = firstEmpty();
+				if (slot == -1) {
+					break;
+				}
+				ItemStack placed = itemStack.clone();
+				placed.setAmount(Math.min(remaining, maxStackSize));
+				slots[slot] = placed;
+				remaining -= placed.getAmount();
+			}
+
+			if (remaining > 0) {
+				ItemStack rest = itemStack.clone();
+				rest.setAmount(remaining);
+				leftover.put(i, rest);
+			}
+		}
+
+		return leftover;
+	}
+
+
+	private HashMap<Integer, ItemStack> removeItem(final ItemStack[] itemStacks) {
+
+		final HashMap<Integer, ItemStack> leftover = new HashMap<>();
+
+		for (int i = 0; i < itemStacks.length; i++) {
+
+			final ItemStack itemStack = itemStacks[i];
+			if (itemStack == null) {
+				continue;
+			}
+
+			int remaining = itemStack.getAmount();
+
+			for (int slot = 0; slot < slots.length && remaining > 0; slot++) {
+				ItemStack slotStack = slots[slot];
+				if (slotStack != null && slotStack.isSimilar(itemStack)) {
+					if (slotStack.getAmount() <= remaining) {
+						remaining -= slotStack.getAmount();
+						slots[slot] = null;
+					}
+					else {
+						slotStack.setAmount(slotStack.getAmount() - remaining);
+						remaining = 0;
+					}
+				}
+			}
+
+			if (remaining > 0) {
+				ItemStack rest = itemStack.clone();
+				rest.setAmount(remaining);
+				leftover.put(i, rest);
+			}
+		}
+
+		return leftover;
+	}
+
+}
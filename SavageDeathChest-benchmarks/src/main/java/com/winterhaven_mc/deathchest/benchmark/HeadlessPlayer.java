@@ -0,0 +1,213 @@
+package com.winterhaven_mc.deathchest.benchmark;
+
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.UUID;
+
+
+/**
+ * An online survival mode player with every permission, backing a Player proxy.
+ * Opening an inventory adds the player to its viewers until {@code closeInventory} is called.
+ */
+public final class HeadlessPlayer implements InvocationHandler {
+
+	private final UUID uuid;
+	private final String name;
+	private final Player player;
+	private final HeadlessInventory inventory;
+
+	private Location location;
+	private boolean sneaking;
+	private InventoryView openView;
+	private long messageCount;
+
+
+	/**
+	 * Class constructor
+	 * @param uuid the player UUID
+	 * @param name the player name
+	 * @param location the initial player location
+	 */
+	public HeadlessPlayer(final UUID uuid, final String name, final Location location) {
+		this.uuid = uuid;
+		this.name = name;
+		this.location = location;
+		this.player = Fakes.proxy(Player.class, this);
+		this.inventory = new HeadlessInventory(PlayerInventory.class, InventoryType.PLAYER, 41);
+		this.inventory.setHolder(player, null);
+	}
+
+
+	/**
+	 * Get the player proxy
+	 * @return Player - the player proxy
+	 */
+	public Player getPlayer() {
+		return player;
+	}
+
+
+	/**
+	 * Get the player UUID
+	 * @return UUID - the player UUID
+	 */
+	public UUID getUniqueId() {
+		return uuid;
+	}
+
+
+	/**
+	 * Set the player location
+	 * @param location the new location
+	 */
+	public void setLocation(final Location location) {
+		this.location = location;
+	}
+
+
+	/**
+	 * Set whether the player is sneaking
+	 * @param sneaking {@code true} if the player is sneaking
+	 */
+	public void setSneaking(final boolean sneaking) {
+		this.sneaking = sneaking;
+	}
+
+
+	/**
+	 * Get the inventory view opened by the player, if any
+	 * @return InventoryView - the open view, or null if no inventory is open
+	 */
+	public InventoryView getOpenView() {
+		return openView;
+	}
+
+
+	/**
+	 * Close the open inventory view, removing the player from its viewers
+	 */
+	public void closeInventory() {
+		if (openView != null) {
+			openView.getTopInventory().getViewers().remove(player);
+			openView = null;
+		}
+	}
+
+
+	/**
+	 * Empty the player inventory
+	 */
+	public void clearInventory() {
+		inventory.clear();
+	}
+
+
+	/**
+	 * Get the number of messages sent to the player
+	 * @return long - the number of messages
+	 */
+	public long getMessageCount() {
+		return messageCount;
+	}
+
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+		switch (method.getName()) {
+			case "getUniqueId":
+				return uuid;
+			case "getName":
+			case "getDisplayName":
+			case "getPlayerListName":
+				return name;
+			case "getLocation":
+				return location.clone();
+			case "getEyeLocation":
+				return location.clone().add(0, 1.62, 0);
+			case "getWorld":
+				return location.getWorld();
+			case "getInventory":
+				return inventory.getInventory();
+			case "getGameMode":
+				return GameMode.SURVIVAL;
+			case "isSneaking":
+				return sneaking;
+			case "hasPermission":
+			case "isPermissionSet":
+			case "isOnline":
+			case "isValid":
+				return true;
+			case "isOp":
+			case "isDead":
+				return false;
+			case "getKiller":
+				return null;
+			case "sendMessage":
+			case "sendRawMessage":
+				messageCount++;
+				return null;
+			case "openInventory":
+				if (args[0] instanceof Inventory) {
+					closeInventory();
+					Inventory top = (Inventory) args[0];
+					top.getViewers().add(player);
+					openView = new HeadlessView(top);
+					return openView;
+				}
+				return null;
+			case "closeInventory":
+				closeInventory();
+				return null;
+			case "getOpenInventory":
+				return openView;
+			case "hashCode":
+				return uuid.hashCode();
+			default:
+				return Fakes.answer(proxy, method, args);
+		}
+	}
+
+
+	/**
+	 * An inventory view of a container above the player inventory
+	 */
+	private final class HeadlessView extends InventoryView {
+
+		private final Inventory top;
+
+		private HeadlessView(final Inventory top) {
+			this.top = top;
+		}
+
+		@Override
+		public Inventory getTopInventory() {
+			return top;
+		}
+
+		@Override
+		public Inventory getBottomInventory() {
+			return inventory.getInventory();
+		}
+
+		@Override
+		public HumanEntity getPlayer() {
+			return player;
+		}
+
+		@Override
+		public InventoryType getType() {
+			return top.getType();
+		}
+	}
+
+}
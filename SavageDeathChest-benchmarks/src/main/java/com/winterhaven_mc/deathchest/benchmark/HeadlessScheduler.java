@@ -0,0 +1,320 @@
+package com.winterhaven_mc.deathchest.benchmark;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+
+/**
+ * A BukkitScheduler stub driven by explicit ticks. Sync tasks run on the thread that calls {@code tick},
+ * which acts as the server main thread; the run time of each sync task is recorded by task class name.
+ * Async tasks run on a thread pool, with delays and periods converted to wall clock time at 50 ms per tick.
+ */
+public final class HeadlessScheduler implements InvocationHandler {
+
+	private final BukkitScheduler scheduler;
+
+	private final AtomicInteger nextTaskId = new AtomicInteger(1);
+
+	// sync tasks ordered by due tick, then by task id
+	private final PriorityQueue<Task> syncQueue = new PriorityQueue<>(
+			Comparator.comparingLong((Task task) -> task.dueTick).thenComparingInt(task -> task.taskId));
+
+	// sync tasks scheduled from other threads, moved to sync queue at start of next tick
+	private final ConcurrentLinkedQueue<Task> incoming = new ConcurrentLinkedQueue<>();
+
+	// all tasks by task id, for cancellation
+	private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+
+	// sync task run times by task class name
+	private final Map<String, LatencyRecorder> taskLatencies = new TreeMap<>();
+
+	private final ScheduledExecutorService asyncExecutor;
+
+	private volatile long currentTick;
+
+	private volatile Thread mainThread;
+
+
+	/**
+	 * Class constructor
+	 */
+	HeadlessScheduler() {
+		this.scheduler = Fakes.proxy(BukkitScheduler.class, this);
+		this.asyncExecutor = Executors.newScheduledThreadPool(4, runnable -> {
+			Thread thread = new Thread(runnable, "Headless Scheduler Async");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+
+	/**
+	 * Get the scheduler proxy
+	 * @return BukkitScheduler - the scheduler proxy
+	 */
+	BukkitScheduler getScheduler() {
+		return scheduler;
+	}
+
+
+	/**
+	 * Test if the current thread is the thread running ticks
+	 * @return {@code true} if the current thread is the main thread, {@code false} if not
+	 */
+	boolean isPrimaryThread() {
+		return Thread.currentThread() == mainThread;
+	}
+
+
+	/**
+	 * Set the current thread as the main thread
+	 */
+	public void claimMainThread() {
+		mainThread = Thread.currentThread();
+	}
+
+
+	/**
+	 * Get the current tick
+	 * @return long - the number of ticks run
+	 */
+	public long getCurrentTick() {
+		return currentTick;
+	}
+
+
+	/**
+	 * Get the run times of sync tasks, by task class name
+	 * @return Map of task class name to LatencyRecorder
+	 */
+	public Map<String, LatencyRecorder> getTaskLatencies() {
+		return taskLatencies;
+	}
+
+
+	/**
+	 * Advance one tick, running all sync tasks that are due
+	 */
+	public void tick() {
+
+		final long tick = ++currentTick;
+
+		// move tasks scheduled since last tick to sync queue
+		Task added;
+		while ((added = incoming.poll()) != null) {
+			syncQueue.add(added);
+		}
+
+		while (!syncQueue.isEmpty() && syncQueue.peek().dueTick <= tick) {
+
+			final Task task = syncQueue.poll();
+
+			if (task.cancelled) {
+				continue;
+			}
+
+			final long start = System.nanoTime();
+			try {
+				task.runnable.run();
+			}
+			catch (Throwable t) {
+				t.printStackTrace();
+			}
+			taskLatencies.computeIfAbsent(task.name, k -> new LatencyRecorder())
+					.record(System.nanoTime() - start, 0L);
+
+			// reschedule repeating task, or forget finished task
+			if (task.period > 0 && !task.cancelled) {
+				task.dueTick = tick + task.period;
+				syncQueue.add(task);
+			}
+			else {
+				tasks.remove(task.taskId);
+			}
+		}
+	}
+
+
+	/**
+	 * Cancel all tasks and stop the async thread pool
+	 */
+	public void shutdown() {
+		for (Task task : tasks.values()) {
+			task.cancel();
+		}
+		asyncExecutor.shutdown();
+		try {
+			asyncExecutor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+		switch (method.getName()) {
+			case "runTask":
+				return schedule(args[0], args[1], 0L, 0L, true);
+			case "runTaskLater":
+				return schedule(args[0], args[1], (Long) args[2], 0L, true);
+			case "runTaskTimer":
+				return schedule(args[0], args[1], (Long) args[2], (Long) args[3], true);
+			case "runTaskAsynchronously":
+				return schedule(args[0], args[1], 0L, 0L, false);
+			case "runTaskLaterAsynchronously":
+				return schedule(args[0], args[1], (Long) args[2], 0L, false);
+			case "runTaskTimerAsynchronously":
+				return schedule(args[0], args[1], (Long) args[2], (Long) args[3], false);
+			case "scheduleSyncDelayedTask":
+				return idOf(schedule(args[0], args[1], args.length > 2 ? (Long) args[2] : 0L, 0L, true));
+			case "scheduleSyncRepeatingTask":
+				return idOf(schedule(args[0], args[1], (Long) args[2], (Long) args[3], true));
+			case "scheduleAsyncDelayedTask":
+				return idOf(schedule(args[0], args[1], args.length > 2 ? (Long) args[2] : 0L, 0L, false));
+			case "scheduleAsyncRepeatingTask":
+				return idOf(schedule(args[0], args[1], (Long) args[2], (Long) args[3], false));
+			case "callSyncMethod":
+				FutureTask<?> future = new FutureTask<>((Callable<?>) args[1]);
+				schedule(args[0], future, 0L, 0L, true);
+				return future;
+			case "cancelTask":
+				Task task = tasks.get((Integer) args[0]);
+				if (task != null) {
+					task.cancel();
+				}
+				return null;
+			case "cancelTasks":
+				for (Task each : tasks.values()) {
+					each.cancel();
+				}
+				return null;
+			case "isQueued":
+			case "isCurrentlyRunning":
+				return tasks.containsKey((Integer) args[0]);
+			default:
+				return Fakes.answer(proxy, method, args);
+		}
+	}
+
+
+	/**
+	 * Schedule a task
+	 * @param plugin the plugin scheduling the task
+	 * @param work the task, a Runnable or a Consumer of BukkitTask
+	 * @param delay the delay in ticks
+	 * @param period the period in ticks, or zero for a task that runs once
+	 * @param sync {@code true} to run the task on the main thread, {@code false} to run it on the thread pool
+	 * @return BukkitTask - the scheduled task
+	 */
+	@SuppressWarnings("unchecked")
+	private BukkitTask schedule(final Object plugin, final Object work,
+								final long delay, final long period, final boolean sync) {
+
+		final Task task = new Task(nextTaskId.getAndIncrement(), (Plugin) plugin, sync, period);
+
+		if (work instanceof Runnable) {
+			task.runnable = (Runnable) work;
+			task.name = work.getClass().getSimpleName().isEmpty()
+					? work.getClass().getName()
+					: work.getClass().getSimpleName();
+		}
+		else {
+			task.runnable = () -> ((Consumer<BukkitTask>) work).accept(task.proxy);
+			task.name = work.getClass().getName();
+		}
+
+		tasks.put(task.taskId, task);
+
+		if (sync) {
+			task.dueTick = currentTick + Math.max(1L, delay);
+			incoming.add(task);
+		}
+		else if (period > 0) {
+			task.future = asyncExecutor.scheduleAtFixedRate(task.runnable, delay * 50, period * 50, TimeUnit.MILLISECONDS);
+		}
+		else {
+			task.future = asyncExecutor.schedule(() -> {
+				try {
+					task.runnable.run();
+				}
+				finally {
+					tasks.remove(task.taskId);
+				}
+			}, delay * 50, TimeUnit.MILLISECONDS);
+		}
+
+		return task.proxy;
+	}
+
+
+	private static int idOf(final BukkitTask task) {
+		return task.getTaskId();
+	}
+
+
+	/**
+	 * A scheduled task, and the handler for its BukkitTask proxy
+	 */
+	private final class Task implements InvocationHandler {
+
+		private final int taskId;
+		private final Plugin owner;
+		private final boolean sync;
+		private final long period;
+		private final BukkitTask proxy;
+
+		private Runnable runnable;
+		private String name;
+		private long dueTick;
+		private Future<?> future;
+		private volatile boolean cancelled;
+
+		private Task(final int taskId, final Plugin owner, final boolean sync, final long period) {
+			this.taskId = taskId;
+			this.owner = owner;
+			this.sync = sync;
+			this.period = period;
+			this.proxy = Fakes.proxy(BukkitTask.class, this);
+		}
+
+		private void cancel() {
+			cancelled = true;
+			if (future != null) {
+				future.cancel(false);
+			}
+			tasks.remove(taskId);
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+			switch (method.getName()) {
+				case "getTaskId":
+					return taskId;
+				case "getOwner":
+					return owner;
+				case "isSync":
+					return sync;
+				case "isCancelled":
+					return cancelled;
+				case "cancel":
+					cancel();
+					return null;
+				default:
+					return Fakes.answer(proxy, method, args);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,281 @@
+package com.winterhaven_mc.deathchest.benchmark;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.logging.Logger;
+
+
+/**
+ * A Server stub for running the plugin outside a server, installed as the Bukkit server.
+ * It holds worlds and online players, provides a tick driven scheduler, and dispatches events
+ * to registered listeners by reflection, in priority order. A single plugin may be registered;
+ * lookups of any other plugin, such as protection plugins, return null.
+ */
+public final class HeadlessServer implements InvocationHandler {
+
+	private static final Logger LOGGER = Logger.getLogger("HeadlessServer");
+
+	private final Server server;
+	private final PluginManager pluginManager;
+	private final HeadlessScheduler scheduler;
+	private final ItemFactory itemFactory;
+
+	private final List<World> worlds = new ArrayList<>();
+	private final Map<UUID, Player> players = new LinkedHashMap<>();
+	private final List<Listener> listeners = new ArrayList<>();
+
+	// registered handlers by event class, in priority order
+	private final Map<Class<?>, List<RegisteredHandler>> handlers = new HashMap<>();
+
+	private Plugin plugin;
+
+
+	/**
+	 * Class constructor; installs the server as the Bukkit server
+	 */
+	public HeadlessServer() {
+		this.scheduler = new HeadlessScheduler();
+		this.itemFactory = FakeServer.createItemFactory();
+		this.pluginManager = Fakes.proxy(PluginManager.class, this::invokePluginManager);
+		this.server = Fakes.proxy(Server.class, this);
+		Bukkit.setServer(server);
+	}
+
+
+	/**
+	 * Get the server proxy
+	 * @return Server - the server proxy
+	 */
+	public Server getServer() {
+		return server;
+	}
+
+
+	/**
+	 * Get the scheduler
+	 * @return HeadlessScheduler - the scheduler
+	 */
+	public HeadlessScheduler getScheduler() {
+		return scheduler;
+	}
+
+
+	/**
+	 * Set the plugin returned by plugin manager lookups
+	 * @param plugin the plugin
+	 */
+	public void setPlugin(final Plugin plugin) {
+		this.plugin = plugin;
+	}
+
+
+	/**
+	 * Add a world
+	 * @param world the world to add
+	 */
+	public void addWorld(final World world) {
+		worlds.add(world);
+	}
+
+
+	/**
+	 * Add an online player
+	 * @param player the player to add
+	 */
+	public void addPlayer(final Player player) {
+		players.put(player.getUniqueId(), player);
+	}
+
+
+	/**
+	 * Get a registered listener by class
+	 * @param listenerClass the listener class
+	 * @param <T> the listener type
+	 * @return T - the first registered listener of the class, or null if none is registered
+	 */
+	public <T extends Listener> T getListener(final Class<T> listenerClass) {
+		for (Listener listener : listeners) {
+			if (listenerClass.isInstance(listener)) {
+				return listenerClass.cast(listener);
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Dispatch an event to the handlers registered for its class and superclasses, in priority order,
+	 * skipping handlers that ignore cancelled events once the event is cancelled
+	 * @param event the event to dispatch
+	 */
+	public void callEvent(final Event event) {
+
+		final List<RegisteredHandler> eventHandlers = handlers.computeIfAbsent(event.getClass(), this::collectHandlers);
+
+		for (RegisteredHandler handler : eventHandlers) {
+
+			if (handler.ignoreCancelled && event instanceof Cancellable && ((Cancellable) event).isCancelled()) {
+				continue;
+			}
+
+			try {
+				handler.method.invoke(handler.listener, event);
+			}
+			catch (InvocationTargetException e) {
+				LOGGER.warning("Could not pass " + event.getEventName() + " to " + handler.listener.getClass().getSimpleName());
+				e.getCause().printStackTrace();
+			}
+			catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+
+	private List<RegisteredHandler> collectHandlers(final Class<?> eventClass) {
+
+		final List<RegisteredHandler> result = new ArrayList<>();
+
+		for (Listener listener : listeners) {
+			for (Method method : listener.getClass().getMethods()) {
+				EventHandler annotation = method.getAnnotation(EventHandler.class);
+				if (annotation != null
+						&& method.getParameterCount() == 1
+						&& method.getParameterTypes()[0].isAssignableFrom(eventClass)) {
+					result.add(new RegisteredHandler(listener, method, annotation));
+				}
+			}
+		}
+
+		// stable sort keeps registration order within a priority
+		result.sort(Comparator.comparingInt(handler -> handler.priority));
+		return result;
+	}
+
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+		switch (method.getName()) {
+			case "getLogger":
+				return LOGGER;
+			case "getName":
+				return "HeadlessServer";
+			case "getVersion":
+				return "headless";
+			case "getBukkitVersion":
+				return "1.13.2-R0.1-SNAPSHOT";
+			case "getItemFactory":
+				return itemFactory;
+			case "isPrimaryThread":
+				return scheduler.isPrimaryThread();
+			case "getScheduler":
+				return scheduler.getScheduler();
+			case "getPluginManager":
+				return pluginManager;
+			case "getWorlds":
+				return new ArrayList<>(worlds);
+			case "getWorld":
+				for (World world : worlds) {
+					if (args[0].equals(world.getUID()) || args[0].equals(world.getName())) {
+						return world;
+					}
+				}
+				return null;
+			case "getPlayer":
+			case "getPlayerExact":
+				if (args[0] instanceof UUID) {
+					return players.get(args[0]);
+				}
+				for (Player player : players.values()) {
+					if (player.getName().equals(args[0])) {
+						return player;
+					}
+				}
+				return null;
+			case "getOfflinePlayer":
+				if (args[0] instanceof UUID && players.containsKey(args[0])) {
+					return players.get(args[0]);
+				}
+				return Fakes.proxy(OfflinePlayer.class, (offline, offlineMethod, offlineArgs) ->
+						offlineMethod.getName().equals("getUniqueId") && args[0] instanceof UUID
+								? args[0]
+								: Fakes.answer(offline, offlineMethod, offlineArgs));
+			case "getOnlinePlayers":
+				return Collections.unmodifiableCollection(new ArrayList<>(players.values()));
+			case "getOfflinePlayers":
+				return players.values().toArray(new OfflinePlayer[0]);
+			case "getSpawnRadius":
+				return 0;
+			case "getPluginCommand":
+				return new PluginCommand((String) args[0], plugin) { };
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "HeadlessServer";
+			default:
+				return Fakes.answer(proxy, method, args);
+		}
+	}
+
+
+	private Object invokePluginManager(final Object proxy, final Method method, final Object[] args) {
+
+		switch (method.getName()) {
+			case "registerEvents":
+				listeners.add((Listener) args[0]);
+				handlers.clear();
+				return null;
+			case "getPlugin":
+				return plugin != null && plugin.getName().equals(args[0]) ? plugin : null;
+			case "isPluginEnabled":
+				return plugin != null && (plugin == args[0] || plugin.getName().equals(args[0]));
+			case "getPlugins":
+				return plugin == null ? new Plugin[0] : new Plugin[] { plugin };
+			case "callEvent":
+				callEvent((Event) args[0]);
+				return null;
+			default:
+				return Fakes.answer(proxy, method, args);
+		}
+	}
+
+
+	/**
+	 * An event handler method of a registered listener
+	 */
+	private static final class RegisteredHandler {
+
+		private final Listener listener;
+		private final Method method;
+		private final int priority;
+		private final boolean ignoreCancelled;
+
+		private RegisteredHandler(final Listener listener, final Method method, final EventHandler annotation) {
+			this.listener = listener;
+			this.method = method;
+			this.priority = annotation.priority().ordinal();
+			this.ignoreCancelled = annotation.ignoreCancelled();
+			this.method.setAccessible(true);
+		}
+	}
+
+}
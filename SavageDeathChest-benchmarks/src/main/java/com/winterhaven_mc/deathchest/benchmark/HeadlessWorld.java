@@ -0,0 +1,460 @@
+package com.winterhaven_mc.deathchest.benchmark;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Chest;
+import org.bukkit.block.Sign;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.material.MaterialData;
+import org.bukkit.metadata.MetadataValue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+
+/**
+ * A synthetic world with the block state support that death chest deployment needs:
+ * chest states with block data and inventories, sign states with lines and legacy material data,
+ * and block metadata. Double chests share one 54 slot inventory, held by the right chest.
+ * Replacing a chest block drops its contents, which are counted rather than spawned.
+ * All chunks are loaded. Not thread safe; used from the main thread only.
+ */
+public final class HeadlessWorld extends SyntheticWorld {
+
+	private static final BlockFace[] HORIZONTAL = { BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST };
+
+	private final int sizeX;
+	private final int sizeZ;
+
+	// per block state, keyed by packed block position
+	private final Map<Long, org.bukkit.block.data.type.Chest.Type> chestTypes = new HashMap<>();
+	private final Map<Long, MaterialData> materialData = new HashMap<>();
+	private final Map<Long, String[]> signLines = new HashMap<>();
+	private final Map<Long, HeadlessInventory> inventories = new HashMap<>();
+	private final Map<Long, Map<String, MetadataValue>> metadata = new HashMap<>();
+
+	private long droppedItemStacks;
+
+
+	/**
+	 * Class constructor
+	 * @param name the world name
+	 * @param sizeX the world size on the x axis, starting at x = 0
+	 * @param height the world height, starting at y = 0
+	 * @param sizeZ the world size on the z axis, starting at z = 0
+	 * @param fill the material initially filling the world
+	 */
+	public HeadlessWorld(final String name, final int sizeX, final int height, final int sizeZ, final Material fill) {
+		super(name, sizeX, height, sizeZ, fill);
+		this.sizeX = sizeX;
+		this.sizeZ = sizeZ;
+	}
+
+
+	/**
+	 * Get the number of item stacks dropped into the world, from destroyed chests or full inventories
+	 * @return long - the number of dropped item stacks
+	 */
+	public long getDroppedItemStacks() {
+		return droppedItemStacks;
+	}
+
+
+	/**
+	 * Create an inventory that is not a death chest, such as a hopper or a plain chest
+	 * @param type the inventory type
+	 * @param size the number of slots
+	 * @return Inventory - the inventory
+	 */
+	public Inventory createInventory(final InventoryType type, final int size) {
+		return new HeadlessInventory(Inventory.class, type, size).getInventory();
+	}
+
+
+	@Override
+	public void setType(final int x, final int y, final int z, final Material material) {
+
+		final Material previous = getType(x, y, z);
+
+		if (previous != material) {
+
+			final long key = key(x, y, z);
+
+			// replacing a chest drops its contents
+			HeadlessInventory inventory = inventories.remove(key);
+			if (inventory != null) {
+				droppedItemStacks += inventory.countStacks();
+				inventory.clear();
+			}
+
+			chestTypes.remove(key);
+			materialData.remove(key);
+			signLines.remove(key);
+		}
+
+		super.setType(x, y, z, material);
+	}
+
+
+	@Override
+	protected Object invokeWorld(final Object proxy, final Method method, final Object[] args) {
+
+		switch (method.getName()) {
+			case "getSpawnLocation":
+				return new Location(getWorld(), sizeX / 2, 65, sizeZ / 2);
+			case "getChunkAt":
+				if (args.length == 2) {
+					return getChunk((Integer) args[0], (Integer) args[1]);
+				}
+				if (args[0] instanceof Location) {
+					return getChunk(((Location) args[0]).getBlockX() >> 4, ((Location) args[0]).getBlockZ() >> 4);
+				}
+				return getChunk(((Block) args[0]).getX() >> 4, ((Block) args[0]).getZ() >> 4);
+			case "isChunkGenerated":
+			case "loadChunk":
+				return true;
+			case "dropItem":
+			case "dropItemNaturally":
+				droppedItemStacks++;
+				return null;
+			default:
+				return Fakes.answer(proxy, method, args);
+		}
+	}
+
+
+	@Override
+	protected Object invokeBlock(final Block block, final int x, final int y, final int z,
+								 final Method method, final Object[] args) {
+
+		switch (method.getName()) {
+			case "getState":
+				return createState(x, y, z);
+			case "getBlockData":
+				return getType(x, y, z) == Material.CHEST ? createChestData(getChestType(x, y, z)) : null;
+			case "getChunk":
+				return getChunk(x >> 4, z >> 4);
+			case "isEmpty":
+				return getType(x, y, z) == Material.AIR;
+			case "setMetadata":
+			case "getMetadata":
+			case "hasMetadata":
+			case "removeMetadata":
+				return invokeMetadata(x, y, z, method, args);
+			default:
+				return Fakes.answer(block, method, args);
+		}
+	}
+
+
+	private Object invokeMetadata(final int x, final int y, final int z, final Method method, final Object[] args) {
+
+		final long key = key(x, y, z);
+		final String metadataKey = (String) args[0];
+
+		switch (method.getName()) {
+			case "setMetadata":
+				metadata.computeIfAbsent(key, k -> new HashMap<>()).put(metadataKey, (MetadataValue) args[1]);
+				return null;
+			case "getMetadata":
+				Map<String, MetadataValue> values = metadata.get(key);
+				List<MetadataValue> list = new ArrayList<>();
+				if (values != null && values.containsKey(metadataKey)) {
+					list.add(values.get(metadataKey));
+				}
+				return list;
+			case "hasMetadata":
+				return metadata.containsKey(key) && metadata.get(key).containsKey(metadataKey);
+			default:
+				Map<String, MetadataValue> blockValues = metadata.get(key);
+				if (blockValues != null) {
+					blockValues.remove(metadataKey);
+					if (blockValues.isEmpty()) {
+						metadata.remove(key);
+					}
+				}
+				return null;
+		}
+	}
+
+
+	/**
+	 * Create a chunk proxy; all chunks are loaded
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @return Chunk - the chunk
+	 */
+	private Chunk getChunk(final int chunkX, final int chunkZ) {
+		return Fakes.proxy(Chunk.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getX":
+					return chunkX;
+				case "getZ":
+					return chunkZ;
+				case "getWorld":
+					return getWorld();
+				case "isLoaded":
+				case "load":
+					return true;
+				case "getBlock":
+					return getBlockAt((chunkX << 4) + (Integer) args[0], (Integer) args[1], (chunkZ << 4) + (Integer) args[2]);
+				case "equals":
+					if (!(args[0] instanceof Chunk)) {
+						return false;
+					}
+					Chunk other = (Chunk) args[0];
+					return other.getWorld() == getWorld() && other.getX() == chunkX && other.getZ() == chunkZ;
+				case "hashCode":
+					return chunkX * 31 + chunkZ;
+				default:
+					return Fakes.answer(proxy, method, args);
+			}
+		});
+	}
+
+
+	private org.bukkit.block.data.type.Chest.Type getChestType(final int x, final int y, final int z) {
+		return chestTypes.getOrDefault(key(x, y, z), org.bukkit.block.data.type.Chest.Type.SINGLE);
+	}
+
+
+	/**
+	 * Get the inventory of a chest block, creating it if necessary
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param z the z coordinate
+	 * @return Inventory - the chest inventory, shared with the other half of a double chest
+	 */
+	private Inventory getChestInventory(final int x, final int y, final int z) {
+
+		int holderX = x;
+		int holderZ = z;
+		int size = 27;
+
+		switch (getChestType(x, y, z)) {
+			case RIGHT:
+				size = 54;
+				break;
+			case LEFT:
+				for (BlockFace face : HORIZONTAL) {
+					int nx = x + face.getModX();
+					int nz = z + face.getModZ();
+					if (getType(nx, y, nz) == Material.CHEST
+							&& getChestType(nx, y, nz) == org.bukkit.block.data.type.Chest.Type.RIGHT) {
+						holderX = nx;
+						holderZ = nz;
+						size = 54;
+						break;
+					}
+				}
+				break;
+			default:
+				break;
+		}
+
+		final long key = key(holderX, y, holderZ);
+		HeadlessInventory inventory = inventories.get(key);
+
+		// create inventory, keeping contents of a single chest that became a double chest
+		if (inventory == null || inventory.getInventory().getSize() != size) {
+			HeadlessInventory created = new HeadlessInventory(Inventory.class, InventoryType.CHEST, size);
+			created.setHolder((Chest) createState(holderX, y, holderZ), new Location(getWorld(), holderX, y, holderZ));
+			if (inventory != null) {
+				created.getInventory().addItem(inventory.getInventory().getContents());
+			}
+			inventories.put(key, created);
+			inventory = created;
+		}
+
+		return inventory.getInventory();
+	}
+
+
+	/**
+	 * Create a block state snapshot
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param z the z coordinate
+	 * @return BlockState - a Chest, Sign or plain BlockState, depending on the block type
+	 */
+	private BlockState createState(final int x, final int y, final int z) {
+
+		final Material type = getType(x, y, z);
+		final Class<? extends BlockState> stateClass;
+
+		if (type == Material.CHEST) {
+			stateClass = Chest.class;
+		}
+		else if (type == Material.SIGN || type == Material.WALL_SIGN) {
+			stateClass = Sign.class;
+		}
+		else {
+			stateClass = BlockState.class;
+		}
+
+		return Fakes.proxy(stateClass, new StateHandler(x, y, z, type));
+	}
+
+
+	private BlockData createChestData(final org.bukkit.block.data.type.Chest.Type type) {
+		return Fakes.proxy(org.bukkit.block.data.type.Chest.class, new ChestDataHandler(type));
+	}
+
+
+	private static MaterialData defaultData(final Material type) {
+		switch (type) {
+			case WALL_SIGN:
+				return new org.bukkit.material.Sign(Material.LEGACY_WALL_SIGN);
+			case SIGN:
+				return new org.bukkit.material.Sign(Material.LEGACY_SIGN_POST);
+			case CHEST:
+				return new org.bukkit.material.Chest();
+			default:
+				return new MaterialData(type);
+		}
+	}
+
+
+	private static long key(final int x, final int y, final int z) {
+		return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+	}
+
+
+	/**
+	 * Invocation handler for chest block data proxies
+	 */
+	private final class ChestDataHandler implements InvocationHandler {
+
+		private org.bukkit.block.data.type.Chest.Type type;
+
+		private ChestDataHandler(final org.bukkit.block.data.type.Chest.Type type) {
+			this.type = type;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+			switch (method.getName()) {
+				case "getType":
+					return type;
+				case "setType":
+					type = (org.bukkit.block.data.type.Chest.Type) args[0];
+					return null;
+				case "getMaterial":
+					return Material.CHEST;
+				case "clone":
+					return createChestData(type);
+				default:
+					return Fakes.answer(proxy, method, args);
+			}
+		}
+	}
+
+
+	/**
+	 * Invocation handler for block state proxies; changes are applied to the world on update
+	 */
+	private final class StateHandler implements InvocationHandler {
+
+		private final int x;
+		private final int y;
+		private final int z;
+
+		private Material type;
+		private MaterialData data;
+		private org.bukkit.block.data.type.Chest.Type chestType;
+		private final String[] lines;
+
+		private StateHandler(final int x, final int y, final int z, final Material type) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.type = type;
+			long key = key(x, y, z);
+			this.data = materialData.containsKey(key) ? materialData.get(key).clone() : defaultData(type);
+			this.chestType = getChestType(x, y, z);
+			String[] stored = signLines.get(key);
+			this.lines = stored == null ? new String[] { "", "", "", "" } : stored.clone();
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+			switch (method.getName()) {
+				case "getType":
+					return type;
+				case "setType":
+					type = (Material) args[0];
+					return null;
+				case "getData":
+					return data;
+				case "setData":
+					data = (MaterialData) args[0];
+					return null;
+				case "getBlockData":
+					return type == Material.CHEST ? createChestData(chestType) : null;
+				case "setBlockData":
+					if (args[0] != null && Proxy.getInvocationHandler(args[0]) instanceof ChestDataHandler) {
+						chestType = ((ChestDataHandler) Proxy.getInvocationHandler(args[0])).type;
+					}
+					return null;
+				case "update":
+					return update();
+				case "getBlock":
+					return getBlockAt(x, y, z);
+				case "getLocation":
+					return new Location(getWorld(), x, y, z);
+				case "getWorld":
+					return getWorld();
+				case "getX":
+					return x;
+				case "getY":
+					return y;
+				case "getZ":
+					return z;
+				case "getInventory":
+				case "getBlockInventory":
+					return type == Material.CHEST ? getChestInventory(x, y, z) : null;
+				case "getLine":
+					return lines[(Integer) args[0]];
+				case "setLine":
+					lines[(Integer) args[0]] = (String) args[1];
+					return null;
+				case "getLines":
+					return lines.clone();
+				case "setMetadata":
+				case "getMetadata":
+				case "hasMetadata":
+				case "removeMetadata":
+					return invokeMetadata(x, y, z, method, args);
+				default:
+					return Fakes.answer(proxy, method, args);
+			}
+		}
+
+		private boolean update() {
+
+			HeadlessWorld.this.setType(x, y, z, type);
+
+			final long key = key(x, y, z);
+			materialData.put(key, data);
+
+			if (type == Material.CHEST) {
+				chestTypes.put(key, chestType);
+			}
+			else if (type == Material.SIGN || type == Material.WALL_SIGN) {
+				signLines.put(key, lines.clone());
+			}
+			return true;
+		}
+	}
+
+}
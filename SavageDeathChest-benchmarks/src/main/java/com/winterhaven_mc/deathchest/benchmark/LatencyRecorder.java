@@ -0,0 +1,85 @@
+package com.winterhaven_mc.deathchest.benchmark;
+
+import java.util.Arrays;
+
+
+/**
+ * Records every sample of a latency and the bytes allocated with it, for exact percentiles at report time.
+ * Not thread safe; each recorder is used by one thread.
+ */
+public final class LatencyRecorder {
+
+	private long[] samples = new long[1024];
+	private int count;
+	private long allocatedBytes;
+
+
+	/**
+	 * Record a sample
+	 * @param nanos the latency in nanoseconds
+	 * @param bytes the bytes allocated, or zero if not measured
+	 */
+	public void record(final long nanos, final long bytes) {
+		if (count == samples.length) {
+			samples = Arrays.copyOf(samples, count * 2);
+		}
+		samples[count++] = nanos;
+		allocatedBytes += bytes;
+	}
+
+
+	/**
+	 * Get the number of samples
+	 * @return int - the number of samples
+	 */
+	public int getCount() {
+		return count;
+	}
+
+
+	/**
+	 * Get the mean bytes allocated per sample
+	 * @return long - the mean bytes allocated, or zero if there are no samples
+	 */
+	public long getMeanAllocation() {
+		return count == 0 ? 0L : allocatedBytes / count;
+	}
+
+
+	/**
+	 * Get the mean of the samples
+	 * @return double - the mean, or zero if there are no samples
+	 */
+	public double getMean() {
+		long sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += samples[i];
+		}
+		return count == 0 ? 0.0 : (double) sum / count;
+	}
+
+
+	/**
+	 * Get percentiles of the samples
+	 * @param percentiles the percentiles to compute, from 0 to 100
+	 * @return long[] - the sample at each percentile, or zeros if there are no samples
+	 */
+	public long[] getPercentiles(final double... percentiles) {
+
+		final long[] result = new long[percentiles.length];
+
+		if (count == 0) {
+			return result;
+		}
+
+		final long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+
+		for (int i = 0; i < percentiles.length; i++) {
+			int index = (int) Math.ceil(percentiles[i] / 100.0 * count) - 1;
+			result[i] = sorted[Math.max(0, Math.min(count - 1, index))];
+		}
+		return result;
+	}
+
+}
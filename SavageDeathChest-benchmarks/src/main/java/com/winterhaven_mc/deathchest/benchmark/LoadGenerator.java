@@ -0,0 +1,634 @@
+package com.winterhaven_mc.deathchest.benchmark;
+
+import com.winterhaven_mc.deathchest.HeadlessPlugin;
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.Event;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.*;
+
+
+/**
+ * Headless load generator. Runs the plugin against a headless server and a synthetic world,
+ * and replays a configurable workload of player deaths, chest looting, hopper traffic and explosions
+ * through the plugin's event listeners, one simulated server tick at a time. Chests that are not looted
+ * expire through the scheduler. Reports per event latency percentiles, bytes allocated per event,
+ * sync task run times, tick times and datastore write queue depth.
+ * <p>
+ * Options are given as {@code key=value} arguments; {@code config.<path>=value} overrides a plugin
+ * configuration setting. Commands are not exercised. Example:
+ * <pre>
+ *     java -cp target/benchmarks.jar com.winterhaven_mc.deathchest.benchmark.LoadGenerator \
+ *         players=500 deathsPerMinute=120 ticks=12000 loot=open:0.5,quick:0.3,none:0.2
+ * </pre>
+ */
+public final class LoadGenerator {
+
+	private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+	static {
+		// number of online players
+		DEFAULTS.put("players", "500");
+		// number of ticks to simulate
+		DEFAULTS.put("ticks", "6000");
+		// minimum wall clock time per tick; 0 runs ticks back to back
+		DEFAULTS.put("tickMillis", "50");
+		// world size in blocks on the x and z axes
+		DEFAULTS.put("worldSize", "512");
+		// player deaths per minute, across all players
+		DEFAULTS.put("deathsPerMinute", "60");
+		// item stacks dropped per death
+		DEFAULTS.put("drops", "36");
+		// weighted share of chests looted by opening, sneak punch quick loot, breaking, or left to expire
+		DEFAULTS.put("loot", "open:0.5,quick:0.3,break:0.1,none:0.1");
+		// mean ticks between death and looting
+		DEFAULTS.put("lootDelay", "200");
+		// hopper item moves per tick
+		DEFAULTS.put("hoppersPerTick", "100");
+		// share of hopper item moves that take from or put into a death chest
+		DEFAULTS.put("hopperDeathChestShare", "0.5");
+		// explosions per minute
+		DEFAULTS.put("explosionsPerMinute", "30");
+		// explosion radius in blocks
+		DEFAULTS.put("explosionRadius", "3");
+		// share of explosions centered on a death chest
+		DEFAULTS.put("explosionChestShare", "0.5");
+		// chest expire time in minutes
+		DEFAULTS.put("expireMinutes", "5");
+		// random seed
+		DEFAULTS.put("seed", "42");
+		// plugin data folder; a temporary folder if empty
+		DEFAULTS.put("dataFolder", "");
+	}
+
+	private static final Material[] DROP_MATERIALS = {
+			Material.COBBLESTONE, Material.DIRT, Material.GRAVEL, Material.OAK_LOG, Material.OAK_PLANKS,
+			Material.TORCH, Material.ARROW, Material.BREAD, Material.COOKED_BEEF, Material.COAL,
+			Material.IRON_INGOT, Material.GOLD_INGOT, Material.DIAMOND, Material.REDSTONE, Material.STRING,
+			Material.BONE, Material.ROTTEN_FLESH, Material.GUNPOWDER, Material.STICK, Material.FLINT,
+			Material.IRON_SWORD, Material.IRON_PICKAXE, Material.IRON_AXE, Material.BOW, Material.SHIELD };
+
+	private static final int GROUND_LEVEL = 64;
+
+	private final Map<String, String> options;
+	private final Random random;
+
+	private final com.sun.management.ThreadMXBean threadBean =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	// event latencies by workload event name, in report order
+	private final Map<String, LatencyRecorder> eventLatencies = new LinkedHashMap<>();
+	private final LatencyRecorder tickTimes = new LatencyRecorder();
+	private final LatencyRecorder queueDepths = new LatencyRecorder();
+
+	// scheduled loot actions, by due tick
+	private final PriorityQueue<LootAction> lootActions =
+			new PriorityQueue<>(Comparator.comparingLong((LootAction action) -> action.tick));
+
+	// chests deployed during the run that may still exist
+	private final List<UUID> liveChests = new ArrayList<>();
+	private final Set<UUID> seenChests = new HashSet<>();
+
+	private final Map<String, Long> counters = new LinkedHashMap<>();
+
+	private HeadlessServer server;
+	private HeadlessWorld world;
+	private PluginMain plugin;
+	private HeadlessPlayer[] players;
+	private Inventory[] plainInventories;
+	private Inventory hopperInventory;
+	private Entity explosionSource;
+
+	private String[] lootModes;
+	private double[] lootWeights;
+
+	private long wallNanos;
+	private int slowTicks;
+	private long mainThreadBytes;
+
+
+	/**
+	 * Class constructor
+	 * @param options the workload options
+	 */
+	private LoadGenerator(final Map<String, String> options) {
+		this.options = options;
+		this.random = new Random(getLong("seed"));
+		for (String name : new String[] { "death", "open", "close", "quick-loot", "break", "hopper", "explode" }) {
+			eventLatencies.put(name, new LatencyRecorder());
+		}
+	}
+
+
+	/**
+	 * Run the load generator
+	 * @param args workload options as {@code key=value} arguments
+	 * @throws Exception if the plugin could not be created
+	 */
+	public static void main(final String[] args) throws Exception {
+
+		final Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (separator < 1 || (!DEFAULTS.containsKey(arg.substring(0, separator)) && !arg.startsWith("config."))) {
+				System.err.println("Unknown option: " + arg);
+				System.err.println("Options: " + DEFAULTS);
+				System.exit(2);
+			}
+			options.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+
+		LoadGenerator loadGenerator = new LoadGenerator(options);
+		loadGenerator.setUp();
+		loadGenerator.run();
+		loadGenerator.report(System.out);
+		System.exit(0);
+	}
+
+
+	/**
+	 * Create the server, world, plugin and players
+	 * @throws Exception if the plugin could not be created
+	 */
+	private void setUp() throws Exception {
+
+		final int worldSize = getInt("worldSize");
+
+		server = new HeadlessServer();
+		world = new HeadlessWorld("world", worldSize, 128, worldSize, Material.AIR);
+		world.fillLayers(0, GROUND_LEVEL - 1, Material.STONE);
+		server.addWorld(world.getWorld());
+
+		File dataFolder = options.get("dataFolder").isEmpty()
+				? Files.createTempDirectory("deathchest-loadgen").toFile()
+				: new File(options.get("dataFolder"));
+
+		plugin = HeadlessPlugin.create(server.getServer(), dataFolder);
+		server.setPlugin(plugin);
+
+		// apply configuration overrides
+		plugin.getConfig().set("expire-time", getInt("expireMinutes"));
+		for (Map.Entry<String, String> entry : options.entrySet()) {
+			if (entry.getKey().startsWith("config.")) {
+				plugin.getConfig().set(entry.getKey().substring("config.".length()), parseValue(entry.getValue()));
+			}
+		}
+
+		server.getScheduler().claimMainThread();
+		plugin.onEnable();
+
+		// let the async chest load complete and its sync callback run
+		for (int i = 0; i < 40; i++) {
+			server.getScheduler().tick();
+			Thread.sleep(50);
+		}
+
+		players = new HeadlessPlayer[getInt("players")];
+		for (int i = 0; i < players.length; i++) {
+			players[i] = new HeadlessPlayer(new UUID(getLong("seed"), i), "Player" + i, randomLocation());
+			server.addPlayer(players[i].getPlayer());
+		}
+
+		plainInventories = new Inventory[64];
+		for (int i = 0; i < plainInventories.length; i++) {
+			plainInventories[i] = world.createInventory(InventoryType.CHEST, 27);
+			plainInventories[i].addItem(new ItemStack(Material.COBBLESTONE, 64));
+		}
+		hopperInventory = world.createInventory(InventoryType.HOPPER, 5);
+
+		explosionSource = Fakes.proxy(Entity.class, Fakes::answer);
+
+		// parse loot pattern
+		String[] entries = options.get("loot").split(",");
+		lootModes = new String[entries.length];
+		lootWeights = new double[entries.length];
+		double total = 0;
+		for (int i = 0; i < entries.length; i++) {
+			String[] pair = entries[i].split(":");
+			lootModes[i] = pair[0].trim();
+			total += Double.parseDouble(pair[1]);
+			lootWeights[i] = total;
+		}
+		for (int i = 0; i < lootWeights.length; i++) {
+			lootWeights[i] /= total;
+		}
+	}
+
+
+	/**
+	 * Run the workload for the configured number of ticks, then disable the plugin
+	 * @throws InterruptedException if interrupted while pacing ticks
+	 */
+	private void run() throws InterruptedException {
+
+		final int ticks = getInt("ticks");
+		final long tickNanos = getLong("tickMillis") * 1_000_000L;
+		final long threadId = Thread.currentThread().getId();
+		final HeadlessScheduler scheduler = server.getScheduler();
+
+		final long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+		final long startNanos = System.nanoTime();
+
+		for (int i = 0; i < ticks; i++) {
+
+			final long tickStart = System.nanoTime();
+
+			for (int n = occurrences(getDouble("deathsPerMinute") / 1200.0); n > 0; n--) {
+				killPlayer();
+			}
+
+			while (!lootActions.isEmpty() && lootActions.peek().tick <= scheduler.getCurrentTick()) {
+				loot(lootActions.poll());
+			}
+
+			for (int n = occurrences(getDouble("hoppersPerTick")); n > 0; n--) {
+				moveHopperItem();
+			}
+
+			for (int n = occurrences(getDouble("explosionsPerMinute") / 1200.0); n > 0; n--) {
+				explode();
+			}
+
+			scheduler.tick();
+
+			final long tickElapsed = System.nanoTime() - tickStart;
+			tickTimes.record(tickElapsed, 0L);
+			if (tickElapsed > 50_000_000L) {
+				slowTicks++;
+			}
+			queueDepths.record(plugin.dataStore.getPendingWriteCount(), 0L);
+
+			if (tickElapsed < tickNanos) {
+				long sleepNanos = tickNanos - tickElapsed;
+				Thread.sleep(sleepNanos / 1_000_000L, (int) (sleepNanos % 1_000_000L));
+			}
+		}
+
+		wallNanos = System.nanoTime() - startNanos;
+		mainThreadBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+		plugin.onDisable();
+		scheduler.shutdown();
+	}
+
+
+	/**
+	 * Kill a random player, deploying a death chest, and schedule looting of the chest
+	 */
+	private void killPlayer() {
+
+		final HeadlessPlayer victim = players[random.nextInt(players.length)];
+
+		victim.closeInventory();
+		victim.setLocation(randomLocation());
+
+		final List<ItemStack> drops = new ArrayList<>();
+		for (int i = 0; i < getInt("drops"); i++) {
+			Material material = DROP_MATERIALS[random.nextInt(DROP_MATERIALS.length)];
+			drops.add(new ItemStack(material, 1 + random.nextInt(material.getMaxStackSize())));
+		}
+
+		timed("death", new PlayerDeathEvent(victim.getPlayer(), drops, 0, "died"));
+		count("deaths");
+
+		// find the chest deployed for this death
+		UUID chestUUID = null;
+		for (DeathChest deathChest : plugin.chestManager.getChestList()) {
+			if (deathChest.getOwnerUUID().equals(victim.getUniqueId()) && seenChests.add(deathChest.getChestUUID())) {
+				chestUUID = deathChest.getChestUUID();
+			}
+		}
+
+		if (chestUUID == null) {
+			count("deaths without chest");
+			return;
+		}
+
+		count("chests deployed");
+		liveChests.add(chestUUID);
+
+		final String mode = pickLootMode();
+		if (!mode.equals("none")) {
+			int lootDelay = getInt("lootDelay");
+			long delay = lootDelay / 2 + random.nextInt(lootDelay + 1);
+			lootActions.add(new LootAction(server.getScheduler().getCurrentTick() + delay, victim, chestUUID, mode));
+		}
+	}
+
+
+	/**
+	 * Loot a chest as its owner
+	 * @param action the loot action
+	 */
+	private void loot(final LootAction action) {
+
+		final DeathChest deathChest = plugin.chestManager.getDeathChest(action.chestUUID);
+		final Location location = deathChest == null ? null : deathChest.getLocation();
+
+		if (location == null) {
+			count("loots missed");
+			return;
+		}
+
+		final HeadlessPlayer player = action.player;
+		final Block block = location.getBlock();
+
+		player.closeInventory();
+		player.clearInventory();
+		count("loots " + action.mode);
+
+		switch (action.mode) {
+			case "open":
+				timed("open", new PlayerInteractEvent(player.getPlayer(), Action.RIGHT_CLICK_BLOCK,
+						null, block, BlockFace.UP));
+
+				InventoryView view = player.getOpenView();
+				if (view != null) {
+
+					// take items until the player inventory is full
+					Inventory chestInventory = view.getTopInventory();
+					for (ItemStack itemStack : chestInventory.getContents()) {
+						if (itemStack != null && view.getBottomInventory().addItem(itemStack.clone()).isEmpty()) {
+							chestInventory.removeItem(itemStack);
+						}
+					}
+
+					timed("close", new InventoryCloseEvent(view));
+					player.closeInventory();
+				}
+				break;
+
+			case "quick":
+				player.setSneaking(true);
+				timed("quick-loot", new PlayerInteractEvent(player.getPlayer(), Action.LEFT_CLICK_BLOCK,
+						null, block, BlockFace.UP));
+				player.setSneaking(false);
+				break;
+
+			case "break":
+				timed("break", new BlockBreakEvent(block, player.getPlayer()));
+				break;
+
+			default:
+				throw new IllegalArgumentException("Unknown loot mode: " + action.mode);
+		}
+	}
+
+
+	/**
+	 * Move an item with a hopper, from or into a death chest, or between plain inventories
+	 */
+	private void moveHopperItem() {
+
+		Inventory source = plainInventories[random.nextInt(plainInventories.length)];
+		Inventory destination = hopperInventory;
+
+		if (random.nextDouble() < getDouble("hopperDeathChestShare")) {
+			DeathChest deathChest = randomLiveChest();
+			Inventory chestInventory = deathChest == null ? null : deathChest.getInventory();
+			if (chestInventory != null) {
+				if (random.nextBoolean()) {
+					source = chestInventory;
+				}
+				else {
+					destination = chestInventory;
+				}
+			}
+		}
+
+		timed("hopper", new InventoryMoveItemEvent(source, new ItemStack(Material.COBBLESTONE, 1), destination, true));
+	}
+
+
+	/**
+	 * Explode at a death chest or a random location; blocks are not destroyed afterwards
+	 */
+	private void explode() {
+
+		Location center = null;
+
+		if (random.nextDouble() < getDouble("explosionChestShare")) {
+			DeathChest deathChest = randomLiveChest();
+			center = deathChest == null ? null : deathChest.getLocation();
+		}
+		if (center == null) {
+			center = randomLocation();
+		}
+
+		final int radius = getInt("explosionRadius");
+		final List<Block> blocks = new ArrayList<>();
+		for (int x = -radius; x <= radius; x++) {
+			for (int y = -radius; y <= radius; y++) {
+				for (int z = -radius; z <= radius; z++) {
+					Block block = world.getBlockAt(center.getBlockX() + x, center.getBlockY() + y, center.getBlockZ() + z);
+					if (block.getType() != Material.AIR) {
+						blocks.add(block);
+					}
+				}
+			}
+		}
+
+		timed("explode", new EntityExplodeEvent(explosionSource, center, blocks, 0.3f));
+	}
+
+
+	/**
+	 * Dispatch an event, recording its latency and the bytes allocated on this thread
+	 * @param name the workload event name
+	 * @param event the event to dispatch
+	 */
+	private void timed(final String name, final Event event) {
+
+		final long threadId = Thread.currentThread().getId();
+		final long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+		final long start = System.nanoTime();
+
+		server.callEvent(event);
+
+		final long elapsed = System.nanoTime() - start;
+		eventLatencies.get(name).record(elapsed, threadBean.getThreadAllocatedBytes(threadId) - startBytes);
+	}
+
+
+	/**
+	 * Get a random death chest deployed during the run that still exists
+	 * @return DeathChest - a live chest, or null if none was found
+	 */
+	private DeathChest randomLiveChest() {
+
+		while (!liveChests.isEmpty()) {
+			int index = random.nextInt(liveChests.size());
+			DeathChest deathChest = plugin.chestManager.getDeathChest(liveChests.get(index));
+			if (deathChest != null) {
+				return deathChest;
+			}
+
+			// forget removed chest
+			liveChests.set(index, liveChests.get(liveChests.size() - 1));
+			liveChests.remove(liveChests.size() - 1);
+		}
+		return null;
+	}
+
+
+	private Location randomLocation() {
+		int margin = 16;
+		int span = getInt("worldSize") - margin * 2;
+		return new Location(world.getWorld(),
+				margin + random.nextInt(span) + 0.5,
+				GROUND_LEVEL,
+				margin + random.nextInt(span) + 0.5,
+				random.nextFloat() * 360.0f, 0.0f);
+	}
+
+
+	private String pickLootMode() {
+		double pick = random.nextDouble();
+		for (int i = 0; i < lootWeights.length; i++) {
+			if (pick < lootWeights[i]) {
+				return lootModes[i];
+			}
+		}
+		return lootModes[lootModes.length - 1];
+	}
+
+
+	/**
+	 * Get the number of occurrences this tick of an event with a mean rate per tick
+	 * @param perTick the mean number of occurrences per tick
+	 * @return int - the number of occurrences
+	 */
+	private int occurrences(final double perTick) {
+		int whole = (int) perTick;
+		return whole + (random.nextDouble() < perTick - whole ? 1 : 0);
+	}
+
+
+	private void count(final String counter) {
+		counters.merge(counter, 1L, Long::sum);
+	}
+
+
+	/**
+	 * Print the report
+	 * @param out the stream to print to
+	 */
+	private void report(final PrintStream out) {
+
+		final double seconds = wallNanos / 1e9;
+		final long[] tickPercentiles = tickTimes.getPercentiles(50, 99, 100);
+
+		out.println();
+		out.println("SavageDeathChest load generator");
+		out.println("options: " + options);
+		out.printf("ran %d ticks in %.1f s; tick p50 %.2f ms, p99 %.2f ms, max %.2f ms; ticks over 50 ms: %d%n",
+				tickTimes.getCount(), seconds,
+				tickPercentiles[0] / 1e6, tickPercentiles[1] / 1e6, tickPercentiles[2] / 1e6, slowTicks);
+		for (Map.Entry<String, Long> entry : counters.entrySet()) {
+			out.printf("  %-22s %d%n", entry.getKey(), entry.getValue());
+		}
+		out.printf("  %-22s %d%n", "dropped item stacks", world.getDroppedItemStacks());
+
+		out.println();
+		out.printf("%-24s %8s %9s %9s %9s %9s %9s %9s %12s%n",
+				"event (us)", "count", "mean", "p50", "p90", "p99", "p99.9", "max", "bytes/event");
+		for (Map.Entry<String, LatencyRecorder> entry : eventLatencies.entrySet()) {
+			printLatencies(out, entry.getKey(), entry.getValue(), true);
+		}
+		for (Map.Entry<String, LatencyRecorder> entry : server.getScheduler().getTaskLatencies().entrySet()) {
+			printLatencies(out, "task " + entry.getKey(), entry.getValue(), false);
+		}
+
+		final long[] depths = queueDepths.getPercentiles(50, 99, 100);
+		out.println();
+		out.printf("datastore write queue depth per tick: mean %.1f, p50 %d, p99 %d, max %d%n",
+				queueDepths.getMean(), depths[0], depths[1], depths[2]);
+		out.printf("main thread allocation: %.1f MB/s, %.1f KB/tick%n",
+				mainThreadBytes / 1e6 / seconds, mainThreadBytes / 1e3 / Math.max(1, tickTimes.getCount()));
+	}
+
+
+	private static void printLatencies(final PrintStream out, final String name,
+									   final LatencyRecorder recorder, final boolean allocation) {
+
+		if (recorder.getCount() == 0) {
+			return;
+		}
+
+		long[] percentiles = recorder.getPercentiles(50, 90, 99, 99.9, 100);
+		out.printf("%-24s %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f %12s%n",
+				name, recorder.getCount(), recorder.getMean() / 1e3,
+				percentiles[0] / 1e3, percentiles[1] / 1e3, percentiles[2] / 1e3,
+				percentiles[3] / 1e3, percentiles[4] / 1e3,
+				allocation ? String.valueOf(recorder.getMeanAllocation()) : "-");
+	}
+
+
+	private static Object parseValue(final String value) {
+		if (value.equals("true") || value.equals("false")) {
+			return Boolean.parseBoolean(value);
+		}
+		try {
+			return Integer.parseInt(value);
+		}
+		catch (NumberFormatException e) {
+			return value;
+		}
+	}
+
+
+	private int getInt(final String key) {
+		return Integer.parseInt(options.get(key));
+	}
+
+
+	private long getLong(final String key) {
+		return Long.parseLong(options.get(key));
+	}
+
+
+	private double getDouble(final String key) {
+		return Double.parseDouble(options.get(key));
+	}
+
+
+	/**
+	 * A scheduled loot of a death chest by its owner
+	 */
+	private static final class LootAction {
+
+		private final long tick;
+		private final HeadlessPlayer player;
+		private final UUID chestUUID;
+		private final String mode;
+
+		private LootAction(final long tick, final HeadlessPlayer player, final UUID chestUUID, final String mode) {
+			this.tick = tick;
+			this.player = player;
+			this.chestUUID = chestUUID;
+			this.mode = mode;
+		}
+	}
+
+}
@@ -0,0 +1,254 @@
+package com.winterhaven_mc.deathchest.benchmark;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.UUID;
+
+
+/**
+ * A World stub backed by an in-memory array of block materials, for running plugin code outside a server.
+ * Only the methods used by the plugin's block and location code are implemented;
+ * other methods are passed to {@code invokeWorld} and {@code invokeBlock}, which throw
+ * {@code UnsupportedOperationException} unless overridden by a subclass.
+ */
+public class SyntheticWorld implements InvocationHandler {
+
+	private final String name;
+	private final UUID uid;
+	private final int sizeX;
+	private final int height;
+	private final int sizeZ;
+
+	// block materials indexed by (y * sizeZ + z) * sizeX + x
+	private final Material[] materials;
+
+	// world proxy
+	private final World world;
+
+
+	/**
+	 * Class constructor
+	 * @param name the world name
+	 * @param sizeX the world size on the x axis, starting at x = 0
+	 * @param height the world height, starting at y = 0
+	 * @param sizeZ the world size on the z axis, starting at z = 0
+	 * @param fill the material initially filling the world
+	 */
+	public SyntheticWorld(final String name, final int sizeX, final int height, final int sizeZ, final Material fill) {
+		this.name = name;
+		this.uid = UUID.nameUUIDFromBytes(name.getBytes());
+		this.sizeX = sizeX;
+		this.height = height;
+		this.sizeZ = sizeZ;
+		this.materials = new Material[sizeX * height * sizeZ];
+		Arrays.fill(materials, fill);
+		this.world = (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] { World.class }, this);
+	}
+
+
+	/**
+	 * Get the world proxy
+	 * @return World - the world backed by this synthetic world
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+
+	/**
+	 * Get the material at a position; positions outside the world are air
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param z the z coordinate
+	 * @return Material - the material at the position
+	 */
+	public Material getType(final int x, final int y, final int z) {
+		if (!contains(x, y, z)) {
+			return Material.AIR;
+		}
+		return materials[(y * sizeZ + z) * sizeX + x];
+	}
+
+
+	/**
+	 * Set the material at a position; positions outside the world are ignored
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param z the z coordinate
+	 * @param material the material to set
+	 */
+	public void setType(final int x, final int y, final int z, final Material material) {
+		if (contains(x, y, z)) {
+			materials[(y * sizeZ + z) * sizeX + x] = material;
+		}
+	}
+
+
+	/**
+	 * Fill a horizontal layer range with a material
+	 * @param fromY the lowest layer to fill
+	 * @param toY the highest layer to fill, inclusive
+	 * @param material the material to fill
+	 */
+	public void fillLayers(final int fromY, final int toY, final Material material) {
+		for (int y = Math.max(0, fromY); y <= Math.min(height - 1, toY); y++) {
+			Arrays.fill(materials, y * sizeZ * sizeX, (y + 1) * sizeZ * sizeX, material);
+		}
+	}
+
+
+	/**
+	 * Test if a position is inside the world
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param z the z coordinate
+	 * @return {@code true} if the position is inside the world, {@code false} if not
+	 */
+	private boolean contains(final int x, final int y, final int z) {
+		return x >= 0 && x < sizeX && y >= 0 && y < height && z >= 0 && z < sizeZ;
+	}
+
+
+	/**
+	 * Create a block proxy for a position
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param z the z coordinate
+	 * @return Block - the block at the position
+	 */
+	public Block getBlockAt(final int x, final int y, final int z) {
+		return (Block) Proxy.newProxyInstance(Block.class.getClassLoader(), new Class<?>[] { Block.class },
+				new BlockHandler(x, y, z));
+	}
+
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+		switch (method.getName()) {
+			case "getName":
+				return name;
+			case "getUID":
+				return uid;
+			case "getMaxHeight":
+				return height;
+			case "isChunkLoaded":
+				return true;
+			case "getBlockAt":
+				if (args.length == 1) {
+					Location location = (Location) args[0];
+					return getBlockAt(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+				}
+				return getBlockAt((Integer) args[0], (Integer) args[1], (Integer) args[2]);
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return uid.hashCode();
+			case "toString":
+				return "SyntheticWorld{name=" + name + "}";
+			default:
+				return invokeWorld(proxy, method, args);
+		}
+	}
+
+
+	/**
+	 * Handle a world method not implemented by this class
+	 * @param proxy the world proxy
+	 * @param method the invoked method
+	 * @param args the method arguments
+	 * @return Object - the method result
+	 */
+	protected Object invokeWorld(final Object proxy, final Method method, final Object[] args) {
+		throw new UnsupportedOperationException("World." + method.getName());
+	}
+
+
+	/**
+	 * Handle a block method not implemented by this class
+	 * @param block the block proxy
+	 * @param x the block x coordinate
+	 * @param y the block y coordinate
+	 * @param z the block z coordinate
+	 * @param method the invoked method
+	 * @param args the method arguments
+	 * @return Object - the method result
+	 */
+	protected Object invokeBlock(final Block block, final int x, final int y, final int z,
+								 final Method method, final Object[] args) {
+		throw new UnsupportedOperationException("Block." + method.getName());
+	}
+
+
+	/**
+	 * Invocation handler for block proxies
+	 */
+	private final class BlockHandler implements InvocationHandler {
+
+		private final int x;
+		private final int y;
+		private final int z;
+
+		private BlockHandler(final int x, final int y, final int z) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+			switch (method.getName()) {
+				case "getType":
+					return SyntheticWorld.this.getType(x, y, z);
+				case "setType":
+					SyntheticWorld.this.setType(x, y, z, (Material) args[0]);
+					return null;
+				case "getX":
+					return x;
+				case "getY":
+					return y;
+				case "getZ":
+					return z;
+				case "getWorld":
+					return world;
+				case "getLocation":
+					return new Location(world, x, y, z);
+				case "getRelative":
+					if (args.length == 1) {
+						BlockFace face = (BlockFace) args[0];
+						return getBlockAt(x + face.getModX(), y + face.getModY(), z + face.getModZ());
+					}
+					if (args.length == 2) {
+						BlockFace face = (BlockFace) args[0];
+						int distance = (Integer) args[1];
+						return getBlockAt(x + face.getModX() * distance,
+								y + face.getModY() * distance,
+								z + face.getModZ() * distance);
+					}
+					return getBlockAt(x + (Integer) args[0], y + (Integer) args[1], z + (Integer) args[2]);
+				case "equals":
+					if (!(args[0] instanceof Block)) {
+						return false;
+					}
+					Block other = (Block) args[0];
+					return other.getWorld() == world && other.getX() == x && other.getY() == y && other.getZ() == z;
+				case "hashCode":
+					return (y * 31 + z) * 31 + x;
+				case "toString":
+					return "SyntheticBlock{x=" + x + ",y=" + y + ",z=" + z + "}";
+				default:
+					return invokeBlock((Block) proxy, x, y, z, method, args);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+package com.winterhaven_mc.deathchest.chests;
+
+import com.winterhaven_mc.deathchest.benchmark.SyntheticWorld;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks for BlockIndex lookups and mutations. Each chest has a chest block and a sign block,
+ * laid out on a grid; lookups use fresh Location objects in shuffled order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class BlockIndexBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int size;
+
+	private BlockIndex blockIndex;
+
+	// locations of indexed chest blocks
+	private Location[] hitLocations;
+
+	// locations with no chest block
+	private Location[] missLocations;
+
+	// UUIDs of indexed chests
+	private UUID[] chestUUIDs;
+
+	// chest blocks not in index, for mutation benchmarks
+	private ChestBlock[] spareBlocks;
+
+	private int cursor;
+
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		World world = new SyntheticWorld("benchmark", 1, 1, 1, Material.AIR).getWorld();
+		Random random = new Random(42);
+
+		blockIndex = new BlockIndex();
+		hitLocations = new Location[size];
+		missLocations = new Location[size];
+		chestUUIDs = new UUID[size];
+		spareBlocks = new ChestBlock[size];
+
+		for (int i = 0; i < size; i++) {
+
+			int x = (i % 1000) * 4;
+			int z = (i / 1000) * 4;
+
+			UUID chestUUID = new UUID(random.nextLong(), random.nextLong());
+			chestUUIDs[i] = chestUUID;
+
+			blockIndex.addChestBlock(ChestBlockType.RIGHT_CHEST, new ChestBlock(chestUUID, new Location(world, x, 64, z)));
+			blockIndex.addChestBlock(ChestBlockType.SIGN, new ChestBlock(chestUUID, new Location(world, x, 64, z + 1)));
+
+			hitLocations[i] = new Location(world, x, 64, z);
+			missLocations[i] = new Location(world, x, 65, z);
+			spareBlocks[i] = new ChestBlock(new UUID(random.nextLong(), random.nextLong()),
+					new Location(world, x, 66, z));
+		}
+
+		shuffle(hitLocations, random);
+		shuffle(missLocations, random);
+		shuffle(chestUUIDs, random);
+		shuffle(spareBlocks, random);
+	}
+
+
+	@Benchmark
+	public ChestBlock getChestBlockHit() {
+		return blockIndex.getChestBlock(hitLocations[next()]);
+	}
+
+
+	@Benchmark
+	public ChestBlock getChestBlockMiss() {
+		return blockIndex.getChestBlock(missLocations[next()]);
+	}
+
+
+	@Benchmark
+	public boolean containsKeyHit() {
+		return blockIndex.containsKey(hitLocations[next()]);
+	}
+
+
+	@Benchmark
+	public boolean containsKeyMiss() {
+		return blockIndex.containsKey(missLocations[next()]);
+	}
+
+
+	@Benchmark
+	public Map<ChestBlockType, ChestBlock> getChestBlockMap() {
+		return blockIndex.getChestBlockMap(chestUUIDs[next()]);
+	}
+
+
+	@Benchmark
+	public Set<ChestBlock> getChestBlockSet() {
+		return blockIndex.getChestBlockSet(chestUUIDs[next()]);
+	}
+
+
+	@Benchmark
+	public ChestBlock addAndRemove() {
+		ChestBlock chestBlock = spareBlocks[next()];
+		blockIndex.addChestBlock(ChestBlockType.RIGHT_CHEST, chestBlock);
+		blockIndex.removeChestBlock(chestBlock);
+		return chestBlock;
+	}
+
+
+	private int next() {
+		int index = cursor;
+		cursor = (index + 1 == size) ? 0 : index + 1;
+		return index;
+	}
+
+
+	static <T> void shuffle(final T[] array, final Random random) {
+		for (int i = array.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			T temp = array[i];
+			array[i] = array[j];
+			array[j] = temp;
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.winterhaven_mc.deathchest.chests;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks for ChestIndex lookups, mutations and full iteration.
+ * Chests never expire, so no expire tasks are scheduled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class ChestIndexBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int size;
+
+	private ChestIndex chestIndex;
+
+	// world UID of all indexed chests
+	private final UUID worldUID = new UUID(0L, 1L);
+
+	// UUIDs of indexed chests
+	private UUID[] hitUUIDs;
+
+	// UUIDs with no chest
+	private UUID[] missUUIDs;
+
+	// chests not in index, for mutation benchmarks
+	private DeathChest[] spareChests;
+
+	private int cursor;
+
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		Random random = new Random(42);
+		long now = System.currentTimeMillis();
+
+		chestIndex = new ChestIndex();
+		hitUUIDs = new UUID[size];
+		missUUIDs = new UUID[size];
+		spareChests = new DeathChest[size];
+
+		for (int i = 0; i < size; i++) {
+
+			UUID chestUUID = new UUID(random.nextLong(), random.nextLong());
+			UUID ownerUUID = new UUID(random.nextLong(), random.nextLong());
+
+			chestIndex.addChest(worldUID, new DeathChest(chestUUID, ownerUUID, null, 0, now, 0L));
+			hitUUIDs[i] = chestUUID;
+			missUUIDs[i] = new UUID(random.nextLong(), random.nextLong());
+			spareChests[i] = new DeathChest(new UUID(random.nextLong(), random.nextLong()),
+					ownerUUID, null, 0, now, 0L);
+		}
+
+		BlockIndexBenchmark.shuffle(hitUUIDs, random);
+	}
+
+
+	@Benchmark
+	public DeathChest getDeathChestHit() {
+		return chestIndex.getDeathChest(hitUUIDs[next()]);
+	}
+
+
+	@Benchmark
+	public DeathChest getDeathChestMiss() {
+		return chestIndex.getDeathChest(missUUIDs[next()]);
+	}
+
+
+	@Benchmark
+	public boolean containsKeyHit() {
+		return chestIndex.containsKey(hitUUIDs[next()]);
+	}
+
+
+	@Benchmark
+	public DeathChest addAndRemove() {
+		DeathChest deathChest = spareChests[next()];
+		chestIndex.addChest(worldUID, deathChest);
+		chestIndex.removeDeathChest(deathChest);
+		return deathChest;
+	}
+
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void iterateAll(final Blackhole blackhole) {
+		for (DeathChest deathChest : chestIndex.getChests()) {
+			blackhole.consume(deathChest.getOwnerUUID());
+		}
+	}
+
+
+	private int next() {
+		int index = cursor;
+		cursor = (index + 1 == size) ? 0 : index + 1;
+		return index;
+	}
+
+}
@@ -0,0 +1,139 @@
+package com.winterhaven_mc.deathchest.chests;
+
+import com.winterhaven_mc.deathchest.benchmark.FakeServer;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks for Deployment.consolidateItemStacks on full player inventories (41 slots).
+ * Consolidation changes stack amounts, so each invocation consolidates fresh copies of the drops;
+ * the copyOnly benchmark measures the copy cost alone.
+ * <ul>
+ *     <li>survival - a typical mid game inventory: armor, tools and partial stacks of common blocks</li>
+ *     <li>fragmented - partial stacks of a few materials, the most merging</li>
+ *     <li>unique - one stack of each of 41 materials, no merging and the most comparisons</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsolidateItemStacksBenchmark {
+
+	@Param({ "survival", "fragmented", "unique" })
+	public String drops;
+
+	private List<ItemStack> template;
+
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		FakeServer.install();
+
+		template = new ArrayList<>();
+
+		switch (drops) {
+			case "survival":
+				add(Material.IRON_HELMET, 1);
+				add(Material.IRON_CHESTPLATE, 1);
+				add(Material.IRON_LEGGINGS, 1);
+				add(Material.IRON_BOOTS, 1);
+				add(Material.SHIELD, 1);
+				add(Material.IRON_SWORD, 1);
+				add(Material.IRON_PICKAXE, 1);
+				add(Material.IRON_AXE, 1);
+				add(Material.IRON_SHOVEL, 1);
+				add(Material.BOW, 1);
+				add(Material.ARROW, 64);
+				add(Material.ARROW, 33);
+				add(Material.TORCH, 40);
+				add(Material.TORCH, 30);
+				add(Material.BREAD, 12);
+				add(Material.COOKED_BEEF, 7);
+				add(Material.COBBLESTONE, 64);
+				add(Material.COBBLESTONE, 37);
+				add(Material.COBBLESTONE, 12);
+				add(Material.DIRT, 50);
+				add(Material.DIRT, 20);
+				add(Material.GRAVEL, 9);
+				add(Material.OAK_LOG, 16);
+				add(Material.OAK_PLANKS, 44);
+				add(Material.STICK, 23);
+				add(Material.COAL, 31);
+				add(Material.IRON_INGOT, 8);
+				add(Material.IRON_INGOT, 9);
+				add(Material.GOLD_INGOT, 5);
+				add(Material.DIAMOND, 3);
+				add(Material.REDSTONE, 40);
+				add(Material.STRING, 6);
+				add(Material.BONE, 11);
+				add(Material.ROTTEN_FLESH, 27);
+				add(Material.GUNPOWDER, 4);
+				add(Material.COBBLESTONE, 64);
+				add(Material.ANDESITE, 18);
+				add(Material.GRANITE, 22);
+				add(Material.DIORITE, 15);
+				add(Material.FLINT, 2);
+				add(Material.APPLE, 3);
+				break;
+
+			case "fragmented":
+				Material[] materials = { Material.COBBLESTONE, Material.DIRT, Material.TORCH, Material.ARROW };
+				for (int i = 0; i < 41; i++) {
+					add(materials[i % materials.length], 1 + (i * 7) % 32);
+				}
+				break;
+
+			case "unique":
+				for (Material material : Material.values()) {
+					if (template.size() == 41) {
+						break;
+					}
+					if (material.isItem() && !material.isLegacy() && material != Material.AIR) {
+						add(material, 1);
+					}
+				}
+				break;
+
+			default:
+				throw new IllegalArgumentException("Unknown drops: " + drops);
+		}
+	}
+
+
+	private void add(final Material material, final int amount) {
+		template.add(new ItemStack(material, amount));
+	}
+
+
+	private List<ItemStack> copyDrops() {
+		List<ItemStack> copy = new ArrayList<>(template.size());
+		for (ItemStack itemStack : template) {
+			copy.add(itemStack.clone());
+		}
+		return copy;
+	}
+
+
+	@Benchmark
+	public List<ItemStack> copyOnly() {
+		return copyDrops();
+	}
+
+
+	@Benchmark
+	public List<ItemStack> consolidate() {
+		return Deployment.consolidateItemStacks(copyDrops());
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.winterhaven_mc.deathchest.chests;
+
+import com.winterhaven_mc.deathchest.benchmark.SyntheticWorld;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.winterhaven_mc.deathchest.util.LocationUtilities.getLocationToRight;
+
+
+/**
+ * Benchmarks for the chest location search against a synthetic world, with a share of
+ * the blocks above ground obstructed by stone. The validator applies the replaceable block
+ * and grass path checks of Deployment.validateChestLocation; protection plugin and spawn radius
+ * checks need a running server and are not included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindChestLocationBenchmark {
+
+	// default replaceable blocks from config.yml
+	private final static Set<Material> REPLACEABLE = EnumSet.of(
+			Material.AIR,
+			Material.CAVE_AIR,
+			Material.GRASS,
+			Material.TALL_GRASS,
+			Material.SNOW,
+			Material.VINE,
+			Material.LILY_PAD,
+			Material.WATER,
+			Material.LAVA);
+
+	private final static int GROUND_LEVEL = 64;
+
+	@Param({ "0.0", "0.5", "0.9", "1.0" })
+	public double obstruction;
+
+	@Param({ "SINGLE", "DOUBLE" })
+	public String chestSize;
+
+	@Param({ "10" })
+	public int radius;
+
+	private Location origin;
+
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		SyntheticWorld syntheticWorld = new SyntheticWorld("benchmark", 64, 128, 64, Material.AIR);
+		syntheticWorld.fillLayers(0, GROUND_LEVEL - 1, Material.STONE);
+
+		// obstruct blocks above ground within search area
+		Random random = new Random(42);
+		for (int y = GROUND_LEVEL; y < GROUND_LEVEL + radius + 1; y++) {
+			for (int x = 0; x < 64; x++) {
+				for (int z = 0; z < 64; z++) {
+					if (random.nextDouble() < obstruction) {
+						syntheticWorld.setType(x, y, z, Material.STONE);
+					}
+				}
+			}
+		}
+
+		origin = new Location(syntheticWorld.getWorld(), 32, GROUND_LEVEL, 32, 0, 0);
+	}
+
+
+	@Benchmark
+	public Result search() {
+
+		final boolean doubleChest = chestSize.equals("DOUBLE");
+
+		return Deployment.searchChestLocation(origin.clone(), radius, location -> {
+			Result result = validate(location);
+			if (doubleChest && result.getResultCode().equals(ResultCode.SUCCESS)) {
+				result = validate(getLocationToRight(location));
+			}
+			return result;
+		});
+	}
+
+
+	private static Result validate(final Location location) {
+
+		Block block = location.getBlock();
+
+		if (!REPLACEABLE.contains(block.getType())) {
+			return new Result(ResultCode.NON_REPLACEABLE_BLOCK);
+		}
+
+		if (block.getRelative(0, -1, 0).getType().equals(Material.GRASS_PATH)) {
+			return new Result(ResultCode.ABOVE_GRASS_PATH);
+		}
+
+		return new Result(ResultCode.SUCCESS, location);
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.winterhaven_mc.deathchest;
+
+import org.bukkit.block.Block;
+
+import java.util.UUID;
+
+
+/**
+ * A service for other plugins to look up the death chest at a block, registered with the server services manager.
+ * Lookups are answered from the plugin's in-memory chest index, without reading block metadata.
+ * Chests in unloaded chunks may be evicted from the index and are then not found until their chunk loads.
+ * <p>
+ * Get the service with
+ * {@code Bukkit.getServicesManager().load(DeathChestService.class)}
+ */
+public interface DeathChestService {
+
+	/**
+	 * Test if a block is part of a death chest
+	 * @param block the block to test
+	 * @return {@code true} if the block is a death chest chest or sign block, {@code false} if not
+	 */
+	boolean isDeathChest(final Block block);
+
+
+	/**
+	 * Get the UUID of the death chest at a block
+	 * @param block the block
+	 * @return UUID - the chest UUID, or null if the block is not part of a death chest
+	 */
+	UUID getChestUUID(final Block block);
+
+
+	/**
+	 * Get the UUID of the owner of the death chest at a block
+	 * @param block the block
+	 * @return UUID - the owner UUID, or null if the block is not part of a death chest or the chest has no owner
+	 */
+	UUID getOwnerUUID(final Block block);
+
+
+	/**
+	 * Get the UUID of the player who killed the owner of the death chest at a block
+	 * @param block the block
+	 * @return UUID - the killer UUID, or null if the block is not part of a death chest or the owner had no killer
+	 */
+	UUID getKillerUUID(final Block block);
+
+}
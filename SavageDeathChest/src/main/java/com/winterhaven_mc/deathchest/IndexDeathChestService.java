@@ -0,0 +1,87 @@
+package com.winterhaven_mc.deathchest;
+
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import org.bukkit.block.Block;
+
+import java.util.UUID;
+
+
+/**
+ * A DeathChestService that answers lookups from the chest manager block and chest indexes
+ */
+final class IndexDeathChestService implements DeathChestService {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 */
+	IndexDeathChestService(final PluginMain plugin) {
+		this.plugin = plugin;
+	}
+
+
+	@Override
+	public final boolean isDeathChest(final Block block) {
+		return getDeathChest(block) != null;
+	}
+
+
+	@Override
+	public final UUID getChestUUID(final Block block) {
+
+		DeathChest deathChest = getDeathChest(block);
+
+		if (deathChest == null) {
+			return null;
+		}
+
+		return deathChest.getChestUUID();
+	}
+
+
+	@Override
+	public final UUID getOwnerUUID(final Block block) {
+
+		DeathChest deathChest = getDeathChest(block);
+
+		if (deathChest == null) {
+			return null;
+		}
+
+		return deathChest.getOwnerUUID();
+	}
+
+
+	@Override
+	public final UUID getKillerUUID(final Block block) {
+
+		DeathChest deathChest = getDeathChest(block);
+
+		if (deathChest == null) {
+			return null;
+		}
+
+		return deathChest.getKillerUUID();
+	}
+
+
+	/**
+	 * Get the DeathChest at a block from the chest manager indexes
+	 * @param block the block
+	 * @return DeathChest - the DeathChest containing the block, or null if none
+	 */
+	private DeathChest getDeathChest(final Block block) {
+
+		// if block is null or chest manager is not yet loaded, return null
+		if (block == null || plugin.chestManager == null) {
+			return null;
+		}
+
+		return plugin.chestManager.getDeathChest(block);
+	}
+
+}
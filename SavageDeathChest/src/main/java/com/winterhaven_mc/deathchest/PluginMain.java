@@ -4,13 +4,24 @@ import com.winterhaven_mc.deathchest.chests.ChestManager;
 import com.winterhaven_mc.deathchest.listeners.BlockEventListener;
 import com.winterhaven_mc.deathchest.listeners.InventoryEventListener;
 import com.winterhaven_mc.deathchest.listeners.PlayerEventListener;
+import com.winterhaven_mc.deathchest.listeners.WorldEventListener;
+import com.winterhaven_mc.deathchest.metrics.Metrics;
+import com.winterhaven_mc.deathchest.metrics.MetricsExporter;
 import com.winterhaven_mc.deathchest.storage.DataStore;
 import com.winterhaven_mc.deathchest.storage.DataStoreFactory;
+import com.winterhaven_mc.deathchest.storage.DataStoreMaintenance;
+import com.winterhaven_mc.deathchest.storage.DeploymentJournal;
+import com.winterhaven_mc.deathchest.storage.RemoteChestView;
 import com.winterhaven_mc.deathchest.commands.CommandManager;
 import com.winterhaven_mc.deathchest.messages.MessageManager;
 import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
 
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
 
 
 /**
@@ -22,12 +33,40 @@ public final class PluginMain extends JavaPlugin {
 
 	public WorldManager worldManager;
 	public MessageManager messageManager;
+	public Metrics metrics;
+	public MetricsExporter metricsExporter;
+	public RemoteChestView remoteChestView;
+	public DataStoreMaintenance dataStoreMaintenance;
 	public DataStore dataStore;
+	public DeploymentJournal deploymentJournal;
 	public ChestManager chestManager;
 
 	public boolean debug = getConfig().getBoolean("debug");
 
 
+	/**
+	 * Class constructor used by the server plugin loader
+	 */
+	public PluginMain() {
+		super();
+	}
+
+
+	/**
+	 * Class constructor for running the plugin outside a server, such as in the load generator
+	 * @param loader the plugin loader
+	 * @param description the plugin description
+	 * @param dataFolder the plugin data folder
+	 * @param file the plugin jar file
+	 */
+	PluginMain(final JavaPluginLoader loader,
+			   final PluginDescriptionFile description,
+			   final File dataFolder,
+			   final File file) {
+		super(loader, description, dataFolder, file);
+	}
+
+
 	@Override
 	public void onEnable() {
 
@@ -45,6 +84,12 @@ public final class PluginMain extends JavaPlugin {
 
 		// instantiate sound configuration
 
+		// instantiate metrics before datastore so startup load can be timed
+		metrics = new Metrics(this);
+
+		// open deployment journal
+		deploymentJournal = new DeploymentJournal(this);
+
 		// instantiate datastore
 		dataStore = DataStoreFactory.create();
 
@@ -54,6 +99,19 @@ public final class PluginMain extends JavaPlugin {
 		// load all chests from datastore
 		chestManager.loadDeathChests();
 
+		// register death chest lookup service for other plugins; unregistered by the server when disabled
+		getServer().getServicesManager().register(DeathChestService.class,
+				new IndexDeathChestService(this), this, ServicePriority.Normal);
+
+		// start metrics export if enabled
+		metricsExporter = new MetricsExporter(this);
+
+		// start refreshing view of chests on other servers if datastore is shared
+		remoteChestView = new RemoteChestView(this);
+
+		// start scheduled datastore backups and maintenance if enabled
+		dataStoreMaintenance = new DataStoreMaintenance(this);
+
 		// instantiate command manager
 		new CommandManager(this);
 
@@ -61,6 +119,7 @@ public final class PluginMain extends JavaPlugin {
 		new PlayerEventListener(this);
 		new BlockEventListener(this);
 		new InventoryEventListener(this);
+		new WorldEventListener(this);
 
 		// log detected protection plugins
 		ProtectionPlugin.reportInstalled();
@@ -70,8 +129,25 @@ public final class PluginMain extends JavaPlugin {
 	@Override
 	public void onDisable() {
 
+		// stop metrics export
+		metricsExporter.cancel();
+
+		// stop remote chest view refresh
+		remoteChestView.cancel();
+
+		// stop datastore maintenance
+		dataStoreMaintenance.cancel();
+
+		// flush pending datastore writes; if all writes were saved, write index snapshot for next startup
+		if (dataStore.flush()) {
+			chestManager.saveIndexSnapshot();
+		}
+
 		// close datastore
 		dataStore.close();
+
+		// close deployment journal
+		deploymentJournal.close();
 	}
 
 }
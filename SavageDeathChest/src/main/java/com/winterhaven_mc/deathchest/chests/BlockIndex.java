@@ -1,18 +1,30 @@
 package com.winterhaven_mc.deathchest.chests;
 
+import com.winterhaven_mc.deathchest.util.LocationUtilities;
+
 import org.bukkit.Location;
+import org.bukkit.block.Block;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static com.winterhaven_mc.deathchest.util.LocationUtilities.getChunkKey;
+
 
 final class BlockIndex {
 
-	// map of ChestBlocks indexed by location
-	private final Map<Location,ChestBlock> locationMap;
+	// nested map of ChestBlocks indexed by world UID, block key of coordinates
+	private final Map<UUID, Map<Long,ChestBlock>> locationMap;
+
+	// immutable block records indexed by ChestUUID, replaced by copy-on-write so readers on any thread
+	// see a consistent set of blocks for each chest without locking or copying
+	private final Map<UUID, ChestBlocks> uuidMap;
 
-	// nested map of ChestBlocks indexed by ChestUUID, ChestBlockType
-	private final Map<UUID, EnumMap<ChestBlockType,ChestBlock>> uuidMap;
+	// number of ChestBlocks in each chunk, indexed by world UID and chunk key
+	private final Map<UUID, Map<Long, Integer>> chunkMap;
+
+	// bitmap of chunks that may contain ChestBlocks, indexed by world UID
+	private final Map<UUID, ChunkBitmap> bitmapMap;
 
 
 	/**
@@ -21,6 +33,8 @@ final class BlockIndex {
 	BlockIndex() {
 		locationMap = new ConcurrentHashMap<>();
 		uuidMap = new ConcurrentHashMap<>();
+		chunkMap = new ConcurrentHashMap<>();
+		bitmapMap = new ConcurrentHashMap<>();
 	}
 
 
@@ -35,16 +49,17 @@ final class BlockIndex {
 			return;
 		}
 
-		// add chestBlock to locationMap
-		this.locationMap.put(chestBlock.getLocation(), chestBlock);
-
-		// if chestUUID key does not exist in map, add entry with chestUUID key and empty map as value
-		if (!uuidMap.containsKey(chestBlock.getChestUUID())) {
-			uuidMap.put(chestBlock.getChestUUID(), new EnumMap<>(ChestBlockType.class));
+		// add chestBlock to world segment of locationMap; if location is new, count block in its chunk
+		if (this.locationMap.computeIfAbsent(chestBlock.getWorldUID(), k -> new ConcurrentHashMap<>())
+				.put(getBlockKey(chestBlock), chestBlock) == null) {
+			updateChunkCount(chestBlock, 1);
 		}
 
-		// add new entry to map with chestUUID as key
-		uuidMap.get(chestBlock.getChestUUID()).put(chestBlockType, chestBlock);
+		// atomically replace block record of chest with a copy that includes chestBlock
+		uuidMap.compute(chestBlock.getChestUUID(),
+				(key, chestBlocks) -> chestBlocks == null
+						? ChestBlocks.EMPTY.with(chestBlockType, chestBlock)
+						: chestBlocks.with(chestBlockType, chestBlock));
 	}
 
 
@@ -54,43 +69,74 @@ final class BlockIndex {
 	 * @return ChestBlock object, or null if no ChestBlock exists in map with passed location
 	 */
 	final ChestBlock getChestBlock(final Location location) {
-		return this.locationMap.get(location);
+
+		Map<Long, ChestBlock> worldBlocks = getWorldBlocks(location);
+		return worldBlocks == null ? null : worldBlocks.get(getBlockKey(location));
 	}
 
 
 	/**
-	 * Getter method for DeathChest chestBlocks
-	 * @param chestUUID the UUID of the chest of which to retrieve a set of chest blocks
-	 * @return Set of Blocks in uuidMap, or empty set if no blocks exist for chest UUID
+	 * Get ChestBlock object by in game block, without creating a Location
+	 * @param block the in game block
+	 * @return ChestBlock object, or null if no ChestBlock exists in map at the block position
 	 */
-	final Set<ChestBlock> getChestBlockSet(final UUID chestUUID) {
+	final ChestBlock getChestBlock(final Block block) {
 
-		// create empty Set for return
-		Set<ChestBlock> returnSet = new HashSet<>();
+		// check for null block
+		if (block == null) {
+			return null;
+		}
 
-		// if chestUUID key exists in map, add map values to returnSet
-		if (chestUUID != null && uuidMap.containsKey(chestUUID)) {
-			returnSet.addAll((uuidMap.get(chestUUID)).values());
+		Map<Long, ChestBlock> worldBlocks = this.locationMap.get(block.getWorld().getUID());
+		return worldBlocks == null ? null : worldBlocks.get(getBlockKey(block));
+	}
+
+
+	/**
+	 * Get the world segment of locationMap containing a location
+	 * @param location the location
+	 * @return Map of block key to ChestBlock, or null if location world is null or has no chest blocks
+	 */
+	private Map<Long, ChestBlock> getWorldBlocks(final Location location) {
+
+		if (location == null || location.getWorld() == null) {
+			return null;
 		}
-		return returnSet;
+		return this.locationMap.get(location.getWorld().getUID());
 	}
 
 
 	/**
-	 * Getter method for DeathChest chestBlocks
-	 * @param chestUUID the UUID of the chest of which to retrieve a map of chest blocks
-	 * @return Map of Blocks in uuidMap, or empty map if no blocks exist for chest UUID
+	 * Get the block record of a chest
+	 * @param chestUUID the chest UUID
+	 * @return ChestBlocks - the immutable block record, or an empty record if no blocks exist for chest UUID
 	 */
-	final Map<ChestBlockType,ChestBlock> getChestBlockMap(final UUID chestUUID) {
+	private ChestBlocks getChestBlocks(final UUID chestUUID) {
 
-		// create empty map for return
-		Map<ChestBlockType,ChestBlock> returnMap = new EnumMap<>(ChestBlockType.class);
+		ChestBlocks chestBlocks = chestUUID == null ? null : uuidMap.get(chestUUID);
+		return chestBlocks == null ? ChestBlocks.EMPTY : chestBlocks;
+	}
 
-		// if chestUUID exists in map, add values to returnMap
-		if (chestUUID != null && this.uuidMap.containsKey(chestUUID)) {
-			returnMap.putAll(this.uuidMap.get(chestUUID));
-		}
-		return returnMap;
+
+	/**
+	 * Getter method for DeathChest chestBlocks. Safe to call from any thread.
+	 * @param chestUUID the UUID of the chest of which to retrieve a set of chest blocks
+	 * @return Set of Blocks - a read-only snapshot that is not changed by later index updates,
+	 * or empty set if no blocks exist for chest UUID
+	 */
+	final Set<ChestBlock> getChestBlockSet(final UUID chestUUID) {
+		return getChestBlocks(chestUUID).blockSet;
+	}
+
+
+	/**
+	 * Getter method for DeathChest chestBlocks. Safe to call from any thread.
+	 * @param chestUUID the UUID of the chest of which to retrieve a map of chest blocks
+	 * @return Map of Blocks - a read-only snapshot that is not changed by later index updates,
+	 * or empty map if no blocks exist for chest UUID
+	 */
+	final Map<ChestBlockType,ChestBlock> getChestBlockMap(final UUID chestUUID) {
+		return getChestBlocks(chestUUID).blockMap;
 	}
 
 
@@ -105,32 +151,72 @@ final class BlockIndex {
 			return;
 		}
 
-		// get chest location
-		Location location = chestBlock.getLocation();
+		// remove chest block from location map; if location was present, uncount block in its chunk
+		Map<Long, ChestBlock> worldBlocks = this.locationMap.get(chestBlock.getWorldUID());
+		if (worldBlocks != null && worldBlocks.remove(getBlockKey(chestBlock)) != null) {
+			updateChunkCount(chestBlock, -1);
 
-		// remove chest block from location map
-		this.locationMap.remove(location);
+			// if world segment is now empty, remove it
+			this.locationMap.computeIfPresent(chestBlock.getWorldUID(),
+					(key, blocks) -> blocks.isEmpty() ? null : blocks);
+		}
 
-		// if passed chest block UUID is not null, remove chest block from uuid map
-		if (chestBlock.getChestUUID() != null) {
+		removeFromUUIDMap(chestBlock);
+	}
 
-			// get chest UUID
-			UUID chestUUID = chestBlock.getChestUUID();
 
-			// iterate over inner map
-			for (ChestBlockType chestBlockType : this.uuidMap.get(chestUUID).keySet()) {
+	/**
+	 * Remove ChestBlock object from uuid map
+	 * @param chestBlock the ChestBlock object to remove from map
+	 */
+	private void removeFromUUIDMap(final ChestBlock chestBlock) {
 
-				// if passed chest block location equals mapped chest block location, remove block from inner map
-				if (this.uuidMap.get(chestUUID).get(chestBlockType).getLocation().equals(location)) {
-					this.uuidMap.get(chestUUID).remove(chestBlockType);
+		// if passed chest block UUID is null, do nothing and return
+		if (chestBlock.getChestUUID() == null) {
+			return;
+		}
 
-					// if inner map is now empty, remove from outer map
-					if (this.uuidMap.get(chestUUID).isEmpty()) {
-						this.uuidMap.remove(chestUUID);
-					}
-				}
+		// atomically replace block record of chest with a copy without the block at chestBlock location;
+		// if no blocks remain, the entry is removed
+		uuidMap.computeIfPresent(chestBlock.getChestUUID(),
+				(key, chestBlocks) -> chestBlocks.without(chestBlock));
+	}
+
+
+	/**
+	 * Remove all ChestBlock objects in a world from maps, releasing all references to the world
+	 * @param worldUID the world UID
+	 * @return Set of UUID - the chest UUIDs of the removed blocks, or empty set if none
+	 */
+	final Set<UUID> removeWorld(final UUID worldUID) {
+
+		Set<UUID> chestUUIDs = new HashSet<>();
+
+		Map<Long, ChestBlock> worldBlocks = this.locationMap.remove(worldUID);
+
+		if (worldBlocks != null) {
+			for (ChestBlock chestBlock : worldBlocks.values()) {
+				chestUUIDs.add(chestBlock.getChestUUID());
+				removeFromUUIDMap(chestBlock);
 			}
 		}
+
+		this.chunkMap.remove(worldUID);
+		this.bitmapMap.remove(worldUID);
+
+		return chestUUIDs;
+	}
+
+
+	/**
+	 * Get the world UID of a chest from any one of its blocks
+	 * @param chestUUID the chest UUID
+	 * @return UUID - the world UID, or null if no blocks exist for chest UUID
+	 */
+	final UUID getWorldUID(final UUID chestUUID) {
+
+		Set<ChestBlock> blockSet = getChestBlocks(chestUUID).blockSet;
+		return blockSet.isEmpty() ? null : blockSet.iterator().next().getWorldUID();
 	}
 
 
@@ -146,7 +232,215 @@ final class BlockIndex {
 			return false;
 		}
 
-		return locationMap.containsKey(location);
+		Map<Long, ChestBlock> worldBlocks = getWorldBlocks(location);
+		return worldBlocks != null && worldBlocks.containsKey(getBlockKey(location));
+	}
+
+
+	/**
+	 * Check for in game block position in map, without creating a Location
+	 * @param block the in game block to check
+	 * @return {@code true} if a ChestBlock exists in map at the block position, {@code false} if not
+	 */
+	final boolean containsBlock(final Block block) {
+		return getChestBlock(block) != null;
+	}
+
+
+	/**
+	 * Check if any chest blocks are in a world
+	 * @param worldUID the world UID
+	 * @return {@code true} if the world contains chest blocks, {@code false} if it does not
+	 */
+	final boolean containsWorld(final UUID worldUID) {
+		return chunkMap.containsKey(worldUID);
+	}
+
+
+	/**
+	 * Check if any chest blocks are in a chunk
+	 * @param worldUID the world UID
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @return {@code true} if the chunk contains chest blocks, {@code false} if it does not
+	 */
+	final boolean containsChunk(final UUID worldUID, final int chunkX, final int chunkZ) {
+		Map<Long, Integer> worldChunks = chunkMap.get(worldUID);
+		return worldChunks != null && worldChunks.containsKey(getChunkKey(chunkX, chunkZ));
+	}
+
+
+	/**
+	 * Get the chunk bitmap for a world, for fast rejection of chunks without chest blocks
+	 * @param worldUID the world UID
+	 * @return ChunkBitmap - the world chunk bitmap, or null if the world has never contained chest blocks
+	 */
+	final ChunkBitmap getChunkBitmap(final UUID worldUID) {
+		return bitmapMap.get(worldUID);
+	}
+
+
+	/**
+	 * Get the block key of a location
+	 * @param location the location
+	 * @return the block key of the location block coordinates
+	 */
+	private static long getBlockKey(final Location location) {
+		return LocationUtilities.getBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+
+
+	/**
+	 * Get the block key of an in game block
+	 * @param block the in game block
+	 * @return the block key of the block coordinates
+	 */
+	private static long getBlockKey(final Block block) {
+		return LocationUtilities.getBlockKey(block.getX(), block.getY(), block.getZ());
+	}
+
+
+	/**
+	 * Get the block key of a chest block
+	 * @param chestBlock the chest block
+	 * @return the block key of the chest block coordinates
+	 */
+	private static long getBlockKey(final ChestBlock chestBlock) {
+		return LocationUtilities.getBlockKey(chestBlock.getX(), chestBlock.getY(), chestBlock.getZ());
+	}
+
+
+	/**
+	 * Add to the count of chest blocks in the chunk containing a chest block,
+	 * removing chunk and world entries whose count reaches zero.
+	 * The world chunk bitmap is updated when a chunk becomes occupied or empty.
+	 * @param chestBlock the chest block
+	 * @param delta the amount to add to the count
+	 */
+	private void updateChunkCount(final ChestBlock chestBlock, final int delta) {
+
+		final UUID worldUID = chestBlock.getWorldUID();
+		final int chunkX = chestBlock.getX() >> 4;
+		final int chunkZ = chestBlock.getZ() >> 4;
+
+		Map<Long, Integer> worldChunks = chunkMap.computeIfAbsent(worldUID, k -> new ConcurrentHashMap<>());
+
+		// bitmap is kept after world becomes empty, until the world is unloaded
+		ChunkBitmap bitmap = bitmapMap.computeIfAbsent(worldUID, k -> new ChunkBitmap());
+
+		worldChunks.compute(getChunkKey(chunkX, chunkZ),
+				(key, count) -> {
+					int newCount = (count == null ? 0 : count) + delta;
+					if (count == null && newCount > 0) {
+						bitmap.add(chunkX, chunkZ);
+					}
+					else if (count != null && newCount <= 0) {
+						bitmap.remove(chunkX, chunkZ);
+					}
+					return newCount > 0 ? newCount : null;
+				});
+
+		if (worldChunks.isEmpty()) {
+			chunkMap.remove(worldUID);
+		}
+	}
+
+
+	/**
+	 * Get number of chest blocks in map
+	 * @return the number of chest blocks in map
+	 */
+	final int size() {
+
+		int size = 0;
+
+		for (Map<Long, ChestBlock> worldBlocks : locationMap.values()) {
+			size += worldBlocks.size();
+		}
+		return size;
+	}
+
+
+	/**
+	 * Count chests in map by world
+	 * @return Map of world name to number of chests with blocks in that world
+	 */
+	final Map<String, Integer> getChestCountByWorld() {
+
+		Map<String, Integer> returnMap = new TreeMap<>();
+
+		// count each chest once, by the world of any one of its blocks
+		for (ChestBlocks chestBlocks : uuidMap.values()) {
+			for (ChestBlock chestBlock : chestBlocks.blockSet) {
+				returnMap.merge(chestBlock.getWorldName(), 1, Integer::sum);
+				break;
+			}
+		}
+		return returnMap;
+	}
+
+
+
+	/**
+	 * An immutable record of the blocks of one chest, with read-only map and set views.
+	 * Changes create a new record, so a record read by any thread never changes.
+	 */
+	private static final class ChestBlocks {
+
+		// the record of a chest without blocks
+		private static final ChestBlocks EMPTY =
+				new ChestBlocks(new EnumMap<>(ChestBlockType.class));
+
+		// read-only views of the blocks of the chest
+		private final Map<ChestBlockType, ChestBlock> blockMap;
+		private final Set<ChestBlock> blockSet;
+
+
+		/**
+		 * Class constructor
+		 * @param blockMap a new map of the chest blocks, not shared with any other record
+		 */
+		private ChestBlocks(final EnumMap<ChestBlockType, ChestBlock> blockMap) {
+			this.blockMap = Collections.unmodifiableMap(blockMap);
+			this.blockSet = Collections.unmodifiableSet(new LinkedHashSet<>(blockMap.values()));
+		}
+
+
+		/**
+		 * Create a copy of this record with a block added or replaced
+		 * @param chestBlockType the type of the block
+		 * @param chestBlock the block
+		 * @return ChestBlocks - the new record
+		 */
+		private ChestBlocks with(final ChestBlockType chestBlockType, final ChestBlock chestBlock) {
+
+			EnumMap<ChestBlockType, ChestBlock> newMap = new EnumMap<>(ChestBlockType.class);
+			newMap.putAll(blockMap);
+			newMap.put(chestBlockType, chestBlock);
+			return new ChestBlocks(newMap);
+		}
+
+
+		/**
+		 * Create a copy of this record without the blocks at the position of a chest block
+		 * @param chestBlock the chest block at the position of the blocks to remove
+		 * @return ChestBlocks - the new record, this record if no block is at the position,
+		 * or null if no blocks remain
+		 */
+		private ChestBlocks without(final ChestBlock chestBlock) {
+
+			EnumMap<ChestBlockType, ChestBlock> newMap = new EnumMap<>(ChestBlockType.class);
+			for (Map.Entry<ChestBlockType, ChestBlock> entry : blockMap.entrySet()) {
+				if (!entry.getValue().isSameBlock(chestBlock)) {
+					newMap.put(entry.getKey(), entry.getValue());
+				}
+			}
+
+			if (newMap.size() == blockMap.size()) {
+				return this;
+			}
+			return newMap.isEmpty() ? null : new ChestBlocks(newMap);
+		}
 	}
 
 }
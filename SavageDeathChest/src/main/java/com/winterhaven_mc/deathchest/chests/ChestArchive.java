@@ -0,0 +1,347 @@
+package com.winterhaven_mc.deathchest.chests;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.*;
+
+import static com.winterhaven_mc.deathchest.util.LocationUtilities.getChunkKey;
+
+
+/**
+ * A class that holds non-expiring death chests evicted from the chest and block indexes
+ * as compact records of primitive values, indexed by world and by each chunk containing one of their blocks.
+ * Archived chests are restored to the indexes when one of their chunks is loaded.
+ * Accessed only from the main thread.
+ */
+final class ChestArchive {
+
+	// archived chests by chest UUID
+	private final Map<UUID, ArchivedChest> chestMap;
+
+	// archived chests by world UID and chunk key
+	private final Map<UUID, Map<Long, List<ArchivedChest>>> chunkMap;
+
+
+	/**
+	 * Constructor
+	 */
+	ChestArchive() {
+		chestMap = new HashMap<>();
+		chunkMap = new HashMap<>();
+	}
+
+
+	/**
+	 * Add a chest and its blocks to the archive
+	 * @param deathChest the chest to archive
+	 * @param chestBlockMap the blocks of the chest
+	 * @return {@code true} if the chest was archived, {@code false} if it has no blocks in a loaded world
+	 */
+	final boolean add(final DeathChest deathChest, final Map<ChestBlockType, ChestBlock> chestBlockMap) {
+
+		// pack block types and coordinates
+		int[] blocks = new int[chestBlockMap.size() * 4];
+		UUID worldUID = null;
+		int index = 0;
+
+		for (Map.Entry<ChestBlockType, ChestBlock> entry : chestBlockMap.entrySet()) {
+			ChestBlock chestBlock = entry.getValue();
+			worldUID = chestBlock.getWorldUID();
+			blocks[index++] = entry.getKey().ordinal();
+			blocks[index++] = chestBlock.getX();
+			blocks[index++] = chestBlock.getY();
+			blocks[index++] = chestBlock.getZ();
+		}
+
+		// if chest has no blocks, do not archive
+		if (worldUID == null) {
+			return false;
+		}
+
+		ArchivedChest archivedChest = new ArchivedChest(deathChest, worldUID, blocks);
+
+		chestMap.put(deathChest.getChestUUID(), archivedChest);
+
+		// index archived chest under every chunk containing one of its blocks
+		Map<Long, List<ArchivedChest>> worldChunks = chunkMap.computeIfAbsent(worldUID, k -> new HashMap<>());
+		for (long chunkKey : archivedChest.getChunkKeys()) {
+			worldChunks.computeIfAbsent(chunkKey, k -> new ArrayList<>(1)).add(archivedChest);
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Remove and return all archived chests with a block in a chunk
+	 * @param worldUID the world UID of the chunk
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @return List of ArchivedChest - the removed chests, or empty list if none
+	 */
+	final List<ArchivedChest> removeChunk(final UUID worldUID, final int chunkX, final int chunkZ) {
+
+		Map<Long, List<ArchivedChest>> worldChunks = chunkMap.get(worldUID);
+
+		// if no archived chests in world, return empty list
+		if (worldChunks == null) {
+			return Collections.emptyList();
+		}
+
+		List<ArchivedChest> chunkChests = worldChunks.get(getChunkKey(chunkX, chunkZ));
+
+		// if no archived chests in chunk, return empty list
+		if (chunkChests == null) {
+			return Collections.emptyList();
+		}
+
+		List<ArchivedChest> removed = new ArrayList<>(chunkChests);
+		for (ArchivedChest archivedChest : removed) {
+			remove(archivedChest);
+		}
+		return removed;
+	}
+
+
+	/**
+	 * Remove and return all archived chests of an owner
+	 * @param ownerUUID the owner UUID, or null to remove all archived chests
+	 * @return List of ArchivedChest - the removed chests, or empty list if none
+	 */
+	final List<ArchivedChest> removeOwner(final UUID ownerUUID) {
+
+		List<ArchivedChest> removed = new ArrayList<>();
+
+		for (ArchivedChest archivedChest : chestMap.values()) {
+			if (ownerUUID == null || ownerUUID.equals(archivedChest.getOwnerUUID())) {
+				removed.add(archivedChest);
+			}
+		}
+
+		for (ArchivedChest archivedChest : removed) {
+			remove(archivedChest);
+		}
+		return removed;
+	}
+
+
+	/**
+	 * Remove and return all archived chests in a world
+	 * @param worldUID the world UID
+	 * @return List of ArchivedChest - the removed chests, or empty list if none
+	 */
+	final List<ArchivedChest> removeWorld(final UUID worldUID) {
+
+		List<ArchivedChest> removed = new ArrayList<>();
+
+		// if no archived chests in world, return empty list
+		if (!chunkMap.containsKey(worldUID)) {
+			return removed;
+		}
+
+		for (ArchivedChest archivedChest : chestMap.values()) {
+			if (worldUID.equals(archivedChest.getWorldUID())) {
+				removed.add(archivedChest);
+			}
+		}
+
+		for (ArchivedChest archivedChest : removed) {
+			remove(archivedChest);
+		}
+		return removed;
+	}
+
+
+	/**
+	 * Remove an archived chest from chest map and all of its chunk lists
+	 * @param archivedChest the archived chest to remove
+	 */
+	final void remove(final ArchivedChest archivedChest) {
+
+		chestMap.remove(archivedChest.getChestUUID());
+
+		Map<Long, List<ArchivedChest>> worldChunks = chunkMap.get(archivedChest.getWorldUID());
+		if (worldChunks == null) {
+			return;
+		}
+
+		for (long chunkKey : archivedChest.getChunkKeys()) {
+			List<ArchivedChest> chunkChests = worldChunks.get(chunkKey);
+			if (chunkChests != null) {
+				chunkChests.remove(archivedChest);
+				if (chunkChests.isEmpty()) {
+					worldChunks.remove(chunkKey);
+				}
+			}
+		}
+
+		if (worldChunks.isEmpty()) {
+			chunkMap.remove(archivedChest.getWorldUID());
+		}
+	}
+
+
+	/**
+	 * Get all archived chests
+	 * @return Collection of ArchivedChest
+	 */
+	final Collection<ArchivedChest> getChests() {
+		return Collections.unmodifiableCollection(chestMap.values());
+	}
+
+
+	/**
+	 * Get the number of archived chests
+	 * @return the number of archived chests
+	 */
+	final int size() {
+		return chestMap.size();
+	}
+
+
+	/**
+	 * A compact record of an archived chest, holding UUIDs as pairs of longs
+	 * and block types and coordinates in a packed int array
+	 */
+	static final class ArchivedChest {
+
+		private final long chestMost;
+		private final long chestLeast;
+		private final long ownerMost;
+		private final long ownerLeast;
+		private final long killerMost;
+		private final long killerLeast;
+		private final boolean hasOwner;
+		private final boolean hasKiller;
+		private final int itemCount;
+		private final long placementTime;
+		private final long worldMost;
+		private final long worldLeast;
+
+		// block type ordinal, x, y, z for each block
+		private final int[] blocks;
+
+
+		/**
+		 * Class constructor
+		 * @param deathChest the chest to archive
+		 * @param worldUID the UID of the world containing the chest blocks
+		 * @param blocks the packed block types and coordinates
+		 */
+		private ArchivedChest(final DeathChest deathChest, final UUID worldUID, final int[] blocks) {
+			this.chestMost = deathChest.getChestUUID().getMostSignificantBits();
+			this.chestLeast = deathChest.getChestUUID().getLeastSignificantBits();
+			this.hasOwner = deathChest.getOwnerUUID() != null;
+			this.ownerMost = hasOwner ? deathChest.getOwnerUUID().getMostSignificantBits() : 0L;
+			this.ownerLeast = hasOwner ? deathChest.getOwnerUUID().getLeastSignificantBits() : 0L;
+			this.hasKiller = deathChest.getKillerUUID() != null;
+			this.killerMost = hasKiller ? deathChest.getKillerUUID().getMostSignificantBits() : 0L;
+			this.killerLeast = hasKiller ? deathChest.getKillerUUID().getLeastSignificantBits() : 0L;
+			this.itemCount = deathChest.getItemCount();
+			this.placementTime = deathChest.getPlacementTime();
+			this.worldMost = worldUID.getMostSignificantBits();
+			this.worldLeast = worldUID.getLeastSignificantBits();
+			this.blocks = blocks;
+		}
+
+
+		/**
+		 * Get the chest UUID
+		 * @return UUID - the chest UUID
+		 */
+		final UUID getChestUUID() {
+			return new UUID(chestMost, chestLeast);
+		}
+
+
+		/**
+		 * Get the owner UUID
+		 * @return UUID - the owner UUID, or null if the chest has no owner
+		 */
+		final UUID getOwnerUUID() {
+			return hasOwner ? new UUID(ownerMost, ownerLeast) : null;
+		}
+
+
+		/**
+		 * Get the placement time
+		 * @return the placement time, in milliseconds since epoch
+		 */
+		final long getPlacementTime() {
+			return placementTime;
+		}
+
+
+		/**
+		 * Get the UID of the world containing the chest blocks
+		 * @return UUID - the world UID
+		 */
+		final UUID getWorldUID() {
+			return new UUID(worldMost, worldLeast);
+		}
+
+
+		/**
+		 * Get the location of this chest, at its right chest, left chest or sign block in that order,
+		 * as for a resident chest
+		 * @param world the world containing the chest blocks
+		 * @return Location - the chest location
+		 */
+		final Location getLocation(final World world) {
+			// block type ordinals are in order sign, left chest, right chest
+			int anchor = 0;
+			for (int i = 0; i < blocks.length; i += 4) {
+				if (blocks[i] > blocks[anchor]) {
+					anchor = i;
+				}
+			}
+			return new Location(world, blocks[anchor + 1], blocks[anchor + 2], blocks[anchor + 3]);
+		}
+
+
+		/**
+		 * Get the keys of all chunks containing a block of this chest
+		 * @return Set of chunk keys
+		 */
+		final Set<Long> getChunkKeys() {
+			Set<Long> chunkKeys = new HashSet<>(2);
+			for (int i = 0; i < blocks.length; i += 4) {
+				chunkKeys.add(getChunkKey(blocks[i + 1] >> 4, blocks[i + 3] >> 4));
+			}
+			return chunkKeys;
+		}
+
+
+		/**
+		 * Create a death chest from this record. Archived chests never expire, so no expire task is created.
+		 * @return DeathChest - the restored death chest
+		 */
+		final DeathChest toDeathChest() {
+			return new DeathChest(getChestUUID(),
+					getOwnerUUID(),
+					hasKiller ? new UUID(killerMost, killerLeast) : null,
+					itemCount,
+					placementTime,
+					0L);
+		}
+
+
+		/**
+		 * Create the chest blocks of this record
+		 * @param world the world containing the chest blocks
+		 * @return Map of ChestBlockType to ChestBlock - the restored chest blocks
+		 */
+		final Map<ChestBlockType, ChestBlock> toChestBlocks(final World world) {
+			Map<ChestBlockType, ChestBlock> chestBlockMap = new EnumMap<>(ChestBlockType.class);
+			ChestBlockType[] types = ChestBlockType.values();
+			UUID chestUUID = getChestUUID();
+			for (int i = 0; i < blocks.length; i += 4) {
+				chestBlockMap.put(types[blocks[i]],
+						new ChestBlock(chestUUID, world, blocks[i + 1], blocks[i + 2], blocks[i + 3]));
+			}
+			return chestBlockMap;
+		}
+	}
+
+}
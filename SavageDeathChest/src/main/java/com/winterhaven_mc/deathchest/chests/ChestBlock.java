@@ -5,6 +5,7 @@ import com.winterhaven_mc.deathchest.sounds.SoundId;
 
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Chest;
@@ -31,8 +32,14 @@ public final class ChestBlock {
 	// chest UUID
 	private final UUID chestUUID;
 
-	// chest block location
-	private final Location location;
+	// chest block world; the name is kept for datastore writes off the main thread
+	private final UUID worldUID;
+	private final String worldName;
+
+	// chest block coordinates
+	private final int x;
+	private final int y;
+	private final int z;
 
 
 	/**
@@ -41,33 +48,116 @@ public final class ChestBlock {
 	 * @param location the location of the in game block this ChestBlock object represents
 	 */
 	public ChestBlock(final UUID chestUUID, final Location location) {
+		this(chestUUID, location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+
+
+	/**
+	 * Class constructor
+	 * @param chestUUID the UUID of the chest that this ChestBlock is member
+	 * @param world the world of the in game block this ChestBlock object represents
+	 * @param x the block x coordinate
+	 * @param y the block y coordinate
+	 * @param z the block z coordinate
+	 */
+	public ChestBlock(final UUID chestUUID, final World world, final int x, final int y, final int z) {
 
 		// set ChestUUID for this ChestBlock
 		this.chestUUID = chestUUID;
 
-		// set location for this ChestBlock with defensive copy of passed location
-		this.location = new Location(location.getWorld(),
-									 location.getX(),
-									 location.getY(),
-									 location.getZ(),
-									 location.getYaw(),
-									 location.getPitch());
+		// set world and coordinates for this ChestBlock
+		this.worldUID = world.getUID();
+		this.worldName = world.getName();
+		this.x = x;
+		this.y = y;
+		this.z = z;
 	}
 
 
 	/**
-	 * Getter method for chest block location
-	 * @return Location - the in game location of this chest block
+	 * Getter method for chest block location. A new Location is created on every call,
+	 * so callers that need only the world or coordinates should use their getters instead.
+	 * @return Location - the in game location of this chest block; its world is null if the world is not loaded
 	 */
 	public final Location getLocation() {
+		return new Location(this.getWorld(), x, y, z);
+	}
+
+
+	/**
+	 * Get the world of this chest block
+	 * @return World - the world, or null if the world is not loaded
+	 */
+	public final World getWorld() {
+		return plugin.getServer().getWorld(worldUID);
+	}
+
+
+	/**
+	 * Get the in game block of this chest block, without creating a Location
+	 * @return Block - the in game block, or null if the world is not loaded
+	 */
+	public final Block getBlock() {
+
+		World world = this.getWorld();
+		return world == null ? null : world.getBlockAt(x, y, z);
+	}
+
+
+	/**
+	 * Getter method for chest block world UID
+	 * @return UUID - the UID of the world of this chest block
+	 */
+	public final UUID getWorldUID() {
+		return worldUID;
+	}
+
+
+	/**
+	 * Getter method for chest block world name
+	 * @return String - the name of the world of this chest block
+	 */
+	public final String getWorldName() {
+		return worldName;
+	}
+
+
+	/**
+	 * Getter method for chest block x coordinate
+	 * @return the block x coordinate
+	 */
+	public final int getX() {
+		return x;
+	}
+
+
+	/**
+	 * Getter method for chest block y coordinate
+	 * @return the block y coordinate
+	 */
+	public final int getY() {
+		return y;
+	}
 
-		// return defensive copy of location
-		return new Location(this.location.getWorld(),
-				this.location.getX(),
-				this.location.getY(),
-				this.location.getZ(),
-				this.location.getYaw(),
-				this.location.getPitch());
+
+	/**
+	 * Getter method for chest block z coordinate
+	 * @return the block z coordinate
+	 */
+	public final int getZ() {
+		return z;
+	}
+
+
+	/**
+	 * Check if this chest block is at the same block position as another chest block
+	 * @param other the other chest block
+	 * @return {@code true} if both are at the same world and coordinates, {@code false} if not
+	 */
+	final boolean isSameBlock(final ChestBlock other) {
+		return other != null
+				&& x == other.x && y == other.y && z == other.z
+				&& worldUID.equals(other.worldUID);
 	}
 
 
@@ -88,7 +178,7 @@ public final class ChestBlock {
 	private Block getAttachedBlock() {
 
 		// get block represented by this DeathChestBlock
-		final Block block = this.getLocation().getBlock();
+		final Block block = this.getBlock();
 
 		// if block is null return null
 		if (block == null) {
@@ -123,8 +213,16 @@ public final class ChestBlock {
 	 */
 	Inventory getInventory() {
 
+		// get block represented by this ChestBlock
+		Block chestBlock = this.getBlock();
+
+		// if world is not loaded, return null
+		if (chestBlock == null) {
+			return null;
+		}
+
 		// get the block state of block represented by this ChestBlock
-		BlockState blockState = this.getLocation().getBlock().getState();
+		BlockState blockState = chestBlock.getState();
 
 		// if block is a sign or wall sign, get attached block
 		if (blockState.getType().equals(Material.SIGN) || blockState.getType().equals((Material.WALL_SIGN))) {
@@ -184,10 +282,10 @@ public final class ChestBlock {
 		if (player != null) {
 
 			// get in game block at deathBlock location
-			Block block = this.getLocation().getBlock();
+			Block block = this.getBlock();
 
 			// confirm block is still death chest block
-			if (plugin.chestManager.isChestBlockChest(block)) {
+			if (block != null && plugin.chestManager.isChestBlockChest(block)) {
 
 				// get player inventory object
 				final PlayerInventory playerinventory = player.getInventory();
@@ -220,21 +318,27 @@ public final class ChestBlock {
 
 
 	/**
-	 * Set block metadata
+	 * Set block metadata, if block metadata is enabled for compatibility with plugins that read it.
+	 * Other plugins should use the DeathChestService instead.
 	 * @param deathChest the DeathChest whose metadata will be set on this chest block
 	 */
 	final void setMetadata(final DeathChest deathChest) {
 
+		// if block metadata is not enabled, do nothing and return
+		if (!plugin.getConfig().getBoolean("block-metadata", false)) {
+			return;
+		}
+
 		// check for null object
 		if (deathChest == null || deathChest.getChestUUID() == null) {
 			return;
 		}
 
 		// get in game block at chest block location
-		Block block = this.getLocation().getBlock();
+		Block block = this.getBlock();
 
-		// if block is not death chest material, do nothing and return
-		if (!ChestManager.deathChestMaterials.contains(block.getType())) {
+		// if world is not loaded or block is not death chest material, do nothing and return
+		if (block == null || !ChestManager.deathChestMaterials.contains(block.getType())) {
 			return;
 		}
 
@@ -256,12 +360,18 @@ public final class ChestBlock {
 
 
 	/**
-	 * Remove metadata from this chest block
+	 * Remove metadata from this chest block. Removed whether or not block metadata is enabled,
+	 * so metadata set before it was disabled by a reload is not left behind.
 	 */
 	private void removeMetadata() {
 
 		// get in game block at this chestBlock location
-		Block block = this.getLocation().getBlock();
+		Block block = this.getBlock();
+
+		// if world is not loaded, there is no metadata to remove
+		if (block == null) {
+			return;
+		}
 
 		block.removeMetadata("deathchest-uuid", plugin);
 		block.removeMetadata("deathchest-owner", plugin);
@@ -272,29 +382,39 @@ public final class ChestBlock {
 	/**
 	 * Destroy chest block, dropping any contents on ground.
 	 * Removes block metadata and deletes corresponding block record from block index and datastore.
+	 * If the chunk is not loaded, removal of the in game block is deferred until the chunk is loaded.
+	 * @param deleteRecord if {@code false}, the block record is left to be removed with its chest record
 	 */
-	final void destroy() {
+	final void destroy(final boolean deleteRecord) {
 
-		// get in game block at this chestBlock location
-		Block block = this.getLocation().getBlock();
+		// check chunk without loading it; if world is not loaded, only the records are removed
+		final World world = this.getWorld();
+		final boolean chunkLoaded = world != null && world.isChunkLoaded(x >> 4, z >> 4);
 
-		// load chunk if necessary
-		if (!block.getChunk().isLoaded()) {
-			block.getChunk().load();
+		// if chunk is not loaded, save pending removal before block record is deleted
+		if (!chunkLoaded) {
+			plugin.chestManager.deferBlockRemoval(this);
 		}
 
 		// remove metadata from block
 		this.removeMetadata();
 
 		// remove ChestBlock record from datastore
-		plugin.dataStore.deleteBlockRecord(this);
+		if (deleteRecord) {
+			plugin.dataStore.deleteBlockRecord(this);
+		}
 
 		// remove ChestBlock from block map
 		plugin.chestManager.removeChestBlock(this);
 
+		// if chunk is not loaded, block is removed when chunk is next loaded
+		if (!chunkLoaded) {
+			return;
+		}
+
 		// set block material to air; this will drop chest contents, but not the block itself
 		// this must be performed last, because above methods do checks for valid in-game chest material block
-		block.setType(Material.AIR);
+		world.getBlockAt(x, y, z).setType(Material.AIR);
 	}
 
 }
@@ -1,6 +1,9 @@
 package com.winterhaven_mc.deathchest.chests;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -8,15 +11,19 @@ import java.util.concurrent.ConcurrentHashMap;
 
 final class ChestIndex {
 
-	// map of DeathChests
-	private final Map<UUID, DeathChest> deathChestMap;
+	// map of DeathChests indexed by world UID, chestUUID
+	private final Map<UUID, Map<UUID, DeathChest>> worldMap;
+
+	// map of world UIDs indexed by chestUUID
+	private final Map<UUID, UUID> chestWorldMap;
 
 
 	/**
 	 * Constructor
 	 */
 	ChestIndex() {
-		deathChestMap = new ConcurrentHashMap<>();
+		worldMap = new ConcurrentHashMap<>();
+		chestWorldMap = new ConcurrentHashMap<>();
 	}
 
 
@@ -32,22 +39,32 @@ final class ChestIndex {
 			return null;
 		}
 
-		return this.deathChestMap.get(chestUUID);
+		// get world of chest
+		UUID worldUID = this.chestWorldMap.get(chestUUID);
+		if (worldUID == null) {
+			return null;
+		}
+
+		Map<UUID, DeathChest> worldChests = this.worldMap.get(worldUID);
+		return worldChests == null ? null : worldChests.get(chestUUID);
 	}
 
 
 	/**
 	 * Put DeathChest object in map
+	 * @param worldUID the UID of the world containing the chest blocks
 	 * @param deathChest the DeathChest object to put in map
 	 */
-	final void addChest(final DeathChest deathChest) {
+	final void addChest(final UUID worldUID, final DeathChest deathChest) {
 
 		// check for null key
-		if (deathChest == null || deathChest.getChestUUID() == null) {
+		if (worldUID == null || deathChest == null || deathChest.getChestUUID() == null) {
 			return;
 		}
 
-		this.deathChestMap.put(deathChest.getChestUUID(),deathChest);
+		this.worldMap.computeIfAbsent(worldUID, k -> new ConcurrentHashMap<>())
+				.put(deathChest.getChestUUID(), deathChest);
+		this.chestWorldMap.put(deathChest.getChestUUID(), worldUID);
 	}
 
 
@@ -62,7 +79,37 @@ final class ChestIndex {
 			return;
 		}
 
-		this.deathChestMap.remove(deathChest.getChestUUID());
+		UUID worldUID = this.chestWorldMap.remove(deathChest.getChestUUID());
+		if (worldUID == null) {
+			return;
+		}
+
+		// remove chest from world segment, removing segment if it is now empty
+		this.worldMap.computeIfPresent(worldUID, (key, worldChests) -> {
+			worldChests.remove(deathChest.getChestUUID());
+			return worldChests.isEmpty() ? null : worldChests;
+		});
+	}
+
+
+	/**
+	 * Remove all DeathChest objects in a world from map
+	 * @param worldUID the world UID
+	 * @return Collection of DeathChest - the removed chests, or empty collection if none
+	 */
+	final Collection<DeathChest> removeWorld(final UUID worldUID) {
+
+		Map<UUID, DeathChest> worldChests = this.worldMap.remove(worldUID);
+
+		// if world has no chests, return empty collection
+		if (worldChests == null) {
+			return Collections.emptyList();
+		}
+
+		for (UUID chestUUID : worldChests.keySet()) {
+			this.chestWorldMap.remove(chestUUID);
+		}
+		return worldChests.values();
 	}
 
 
@@ -78,7 +125,16 @@ final class ChestIndex {
 			return false;
 		}
 
-		return deathChestMap.containsKey(chestUUID);
+		return chestWorldMap.containsKey(chestUUID);
+	}
+
+
+	/**
+	 * Get number of chests in map
+	 * @return the number of chests in map
+	 */
+	final int size() {
+		return chestWorldMap.size();
 	}
 
 
@@ -87,8 +143,13 @@ final class ChestIndex {
 	 * @return Collection of DeathChests in map
 	 */
 	final Collection<DeathChest> getChests() {
-		return deathChestMap.values();
+
+		List<DeathChest> returnList = new ArrayList<>(chestWorldMap.size());
+
+		for (Map<UUID, DeathChest> worldChests : worldMap.values()) {
+			returnList.addAll(worldChests.values());
+		}
+		return returnList;
 	}
 
 }
-
@@ -1,15 +1,24 @@
 package com.winterhaven_mc.deathchest.chests;
 
 import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.metrics.MetricId;
+import com.winterhaven_mc.deathchest.storage.DeploymentJournal;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.Chest;
 import org.bukkit.block.DoubleChest;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.scheduler.BukkitRunnable;
 
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.winterhaven_mc.deathchest.util.LocationUtilities.getChunkKey;
 
 
 /**
@@ -24,8 +33,29 @@ public final class ChestManager {
 
 	private final BlockIndex blockIndex;
 
+	// expired chest blocks in unloaded chunks, keyed by world UID and chunk key
+	private final Map<UUID, Map<Long, List<ChestBlock>>> pendingRemovals;
+
+	// chests waiting to be expired under per-tick budget
+	private final ExpirationQueue expirationQueue;
+
+	// non-expiring chests evicted from indexes while their chunks are not loaded
+	private final ChestArchive chestArchive;
+
+	// resident non-expiring chest UUIDs in least recently used order, for eviction
+	private final Map<UUID, Boolean> residentOrder;
+
+	// true while a working set trim is scheduled
+	private boolean trimScheduled;
+
+	// UIDs of worlds whose chests have been loaded into the indexes
+	private final Set<UUID> loadedWorlds;
+
 	public final ReplaceableBlocks replaceableBlocks;
 
+	// maximum number of chests in loaded chunks skipped by one working set trim
+	private final static int MAX_TRIM_SKIPS = 256;
+
 	// DeathChest material types
 	final static Set<Material> deathChestMaterials =
 			Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
@@ -50,29 +80,311 @@ public final class ChestManager {
 
 		// initialize blockIndex
 		blockIndex = new BlockIndex();
+
+		// initialize pending removals
+		pendingRemovals = new ConcurrentHashMap<>();
+
+		// initialize expiration queue
+		expirationQueue = new ExpirationQueue(plugin);
+
+		// initialize chest archive
+		chestArchive = new ChestArchive();
+
+		// initialize resident chest order, with iteration in access order
+		residentOrder = new LinkedHashMap<>(16, 0.75f, true);
+
+		// initialize loaded worlds
+		loadedWorlds = ConcurrentHashMap.newKeySet();
 	}
 
 
 	/**
-	 * Load death chest blocks from datastore.
-	 * Expire death chest blocks whose time has passed.
-	 * schedule tasks to expire remaining loaded chests.
+	 * Load death chest blocks in loaded worlds from datastore.
+	 * Expired and orphaned records are deleted from the datastore asynchronously,
+	 * then the chest and block indexes are built on the main thread.
+	 * If the index snapshot written at the last clean shutdown matches the datastore generation,
+	 * chests and blocks in worlds the snapshot covers are read from the snapshot instead of the datastore.
+	 * Chests in worlds loaded later are loaded by {@link #loadWorld(World)}.
 	 */
 	public final void loadDeathChests() {
 
-		// populate chestIndex with all death chest records retrieved from datastore
-		for (DeathChest deathChest : plugin.dataStore.getAllChestRecords()) {
-			this.addDeathChest(deathChest);
+		// get worlds loaded at startup
+		final List<World> worlds = new ArrayList<>(plugin.getServer().getWorlds());
+
+		new BukkitRunnable() {
+			@Override
+			public void run() {
+
+				// read index snapshot if it matches datastore generation before maintenance changes it
+				final IndexSnapshot snapshot = plugin.getConfig().getBoolean("index-snapshot", true)
+						? IndexSnapshot.read(plugin, plugin.dataStore.getGeneration())
+						: null;
+
+				// delete expired and orphaned records, retaining block records of expired chests for cleanup
+				final long deleteStartTime = plugin.metrics.start();
+				final List<ChestBlock> expiredBlocks =
+						plugin.dataStore.deleteExpiredRecords(System.currentTimeMillis());
+				plugin.metrics.stop(MetricId.DATASTORE_DELETE_EXPIRED, deleteStartTime);
+
+				final long loadStartTime = plugin.metrics.start();
+
+				final List<DeathChest> chestRecords = new ArrayList<>();
+				final Map<ChestBlock, ChestBlockType> blockRecords = new LinkedHashMap<>();
+
+				// worlds not covered by snapshot are read from datastore
+				final List<World> datastoreWorlds = new ArrayList<>(worlds);
+
+				if (snapshot != null) {
+
+					// get UUIDs of chests deleted by maintenance
+					Set<UUID> expiredChestUUIDs = new HashSet<>();
+					for (ChestBlock chestBlock : expiredBlocks) {
+						expiredChestUUIDs.add(chestBlock.getChestUUID());
+					}
+
+					// use snapshot blocks in loaded worlds, excluding chests deleted by maintenance
+					Set<UUID> snapshotChestUUIDs = new HashSet<>();
+					for (Map.Entry<ChestBlock, ChestBlockType> entry : snapshot.getBlocks().entrySet()) {
+						if (!expiredChestUUIDs.contains(entry.getKey().getChestUUID())) {
+							blockRecords.put(entry.getKey(), entry.getValue());
+							snapshotChestUUIDs.add(entry.getKey().getChestUUID());
+						}
+					}
+
+					// use snapshot chests with blocks in loaded worlds; others are loaded with their world
+					for (DeathChest deathChest : snapshot.getChests()) {
+						if (snapshotChestUUIDs.contains(deathChest.getChestUUID())) {
+							chestRecords.add(deathChest);
+						}
+						else {
+							deathChest.cancelExpireTask();
+						}
+					}
+
+					datastoreWorlds.removeIf(world -> snapshot.getWorldNames().contains(world.getName()));
+
+					plugin.getLogger().info("Loaded " + chestRecords.size() + " death chests from index snapshot.");
+				}
+
+				// fetch remaining records from datastore; block types are read from world when indexed
+				for (World world : datastoreWorlds) {
+					chestRecords.addAll(plugin.dataStore.getChestRecords(world));
+					for (ChestBlock chestBlock : plugin.dataStore.getBlockRecords(world)) {
+						blockRecords.put(chestBlock, null);
+					}
+				}
+				plugin.metrics.stop(MetricId.DATASTORE_LOAD, loadStartTime);
+
+				// get blocks of expired chests not yet removed from game, including those expired above
+				final List<ChestBlock> pendingBlocks = plugin.dataStore.getPendingRemovals();
+
+				// get deployments left incomplete in journal by previous run
+				final List<DeploymentJournal.Entry> journalEntries = plugin.deploymentJournal.getRecoveredEntries();
+
+				// remove expired blocks and build indexes on main thread
+				new BukkitRunnable() {
+					@Override
+					public void run() {
+
+						// record startup worlds that are still loaded as having their chests loaded
+						for (World world : worlds) {
+							if (isLoaded(world)) {
+								loadedWorlds.add(world.getUID());
+							}
+						}
+						removeExpiredBlocks(pendingBlocks);
+						buildIndexes(chestRecords, blockRecords, journalEntries);
+					}
+				}.runTask(plugin);
+			}
+		}.runTaskAsynchronously(plugin);
+	}
+
+
+	/**
+	 * Load death chests in a world from datastore, when the world is loaded after startup.
+	 * Records are read asynchronously and indexed on the main thread, unless the world has been
+	 * unloaded or its chests loaded in the meantime.
+	 * @param world the world that has been loaded
+	 */
+	public final void loadWorld(final World world) {
+
+		// if world chests are already loaded, do nothing and return
+		if (loadedWorlds.contains(world.getUID())) {
+			return;
+		}
+
+		new BukkitRunnable() {
+			@Override
+			public void run() {
+
+				final long loadStartTime = plugin.metrics.start();
+
+				final List<DeathChest> chestRecords = plugin.dataStore.getChestRecords(world);
+				final Map<ChestBlock, ChestBlockType> blockRecords = new LinkedHashMap<>();
+				for (ChestBlock chestBlock : plugin.dataStore.getBlockRecords(world)) {
+					blockRecords.put(chestBlock, null);
+				}
+
+				plugin.metrics.stop(MetricId.DATASTORE_LOAD, loadStartTime);
+
+				final List<ChestBlock> pendingBlocks = plugin.dataStore.getPendingRemovals(world);
+
+				// remove expired blocks and build indexes on main thread
+				new BukkitRunnable() {
+					@Override
+					public void run() {
+
+						// if world was unloaded or its chests loaded while reading records, discard records
+						if (!isLoaded(world) || !loadedWorlds.add(world.getUID())) {
+							for (DeathChest deathChest : chestRecords) {
+								deathChest.cancelExpireTask();
+							}
+							return;
+						}
+
+						removeExpiredBlocks(pendingBlocks);
+						buildIndexes(chestRecords, blockRecords,
+								plugin.deploymentJournal.getRecoveredEntries(world.getName()));
+
+						if (plugin.debug) {
+							plugin.getLogger().info("Loaded " + chestRecords.size()
+									+ " death chests in world " + world.getName() + ".");
+						}
+					}
+				}.runTask(plugin);
+			}
+		}.runTaskAsynchronously(plugin);
+	}
+
+
+	/**
+	 * Remove all chests, chest blocks, archived chests and pending removals in a world from memory
+	 * when the world is unloaded, so the world is not kept reachable through the indexes.
+	 * Records remain in the datastore, and are loaded again if the world is loaded.
+	 * @param world the world being unloaded
+	 */
+	public final void unloadWorld(final World world) {
+
+		final UUID worldUID = world.getUID();
+
+		loadedWorlds.remove(worldUID);
+
+		blockIndex.removeWorld(worldUID);
+
+		Collection<DeathChest> removedChests = chestIndex.removeWorld(worldUID);
+		for (DeathChest deathChest : removedChests) {
+			deathChest.cancelExpireTask();
+			synchronized (residentOrder) {
+				residentOrder.remove(deathChest.getChestUUID());
+			}
+		}
+
+		chestArchive.removeWorld(worldUID);
+		pendingRemovals.remove(worldUID);
+
+		if (plugin.debug) {
+			plugin.getLogger().info("Unloaded " + removedChests.size()
+					+ " death chests in world " + world.getName() + ".");
+		}
+	}
+
+
+	/**
+	 * Test if a world is still loaded
+	 * @param world the world to test
+	 * @return {@code true} if the server has this world loaded, {@code false} if not
+	 */
+	private boolean isLoaded(final World world) {
+		return plugin.getServer().getWorld(world.getUID()) == world;
+	}
+
+
+	/**
+	 * Get the UIDs of worlds whose chests have been loaded into the indexes
+	 * @return Set of world UIDs
+	 */
+	final Set<UUID> getLoadedWorlds() {
+		return Collections.unmodifiableSet(loadedWorlds);
+	}
+
+
+	/**
+	 * Write index snapshot for the next startup. Must be called after the datastore has been flushed,
+	 * so the datastore generation corresponds to the indexes.
+	 */
+	public final void saveIndexSnapshot() {
+
+		// if index snapshot is disabled, do nothing and return
+		if (!plugin.getConfig().getBoolean("index-snapshot", true)) {
+			return;
 		}
 
+		// get datastore generation
+		long generation = plugin.dataStore.getGeneration();
+
+		// if generation could not be read, do not write snapshot
+		if (generation < 0) {
+			return;
+		}
+
+		IndexSnapshot.write(plugin, generation, this);
+	}
+
+
+	/**
+	 * Populate chest and block indexes from datastore records and replay incomplete journal entries.
+	 * Expire death chests whose time has passed, which can occur between fetching and indexing.
+	 * Chests are indexed in the world segment of their blocks; chests left without blocks are deleted.
+	 * Records of chests already indexed, such as chests placed while the records were read, are skipped.
+	 * @param chestRecords the chest records retrieved from the datastore
+	 * @param blockRecords the block records retrieved from the datastore, with their chest block types
+	 *                     if known; blocks with a null type are checked against the in game block
+	 * @param journalEntries the incomplete deployment journal entries from the previous run
+	 */
+	private void buildIndexes(final Collection<DeathChest> chestRecords,
+							  final Map<ChestBlock, ChestBlockType> blockRecords,
+							  final Collection<DeploymentJournal.Entry> journalEntries) {
+
+		// map chest records by chest UUID, skipping chests already indexed
+		Map<UUID, DeathChest> chestMap = new LinkedHashMap<>();
+		for (DeathChest deathChest : chestRecords) {
+			if (chestIndex.containsKey(deathChest.getChestUUID())) {
+				deathChest.cancelExpireTask();
+			}
+			else {
+				chestMap.put(deathChest.getChestUUID(), deathChest);
+			}
+		}
+
+		// UUIDs of chests with blocks in worlds unloaded while the records were read
+		Set<UUID> unloadedChestUUIDs = new HashSet<>();
+
 		// populate chest block map with all valid chest blocks retrieved from datastore
-		for (ChestBlock chestBlock : plugin.dataStore.getAllBlockRecords()) {
+		for (Map.Entry<ChestBlock, ChestBlockType> entry : blockRecords.entrySet()) {
+
+			ChestBlock chestBlock = entry.getKey();
+
+			// if parent chest is already indexed, skip block
+			if (chestIndex.containsKey(chestBlock.getChestUUID())) {
+				continue;
+			}
+
+			// if block world has been unloaded, skip block; its chest is loaded with the world
+			World world = chestBlock.getWorld();
+			if (world == null || !isLoaded(world)) {
+				unloadedChestUUIDs.add(chestBlock.getChestUUID());
+				continue;
+			}
 
-			// get chest block type from in game block
-			ChestBlockType chestBlockType = ChestBlockType.getType(chestBlock.getLocation().getBlock());
+			// get chest block type from record, or from in game block if unknown
+			ChestBlockType chestBlockType = entry.getValue();
+			if (chestBlockType == null) {
+				chestBlockType = ChestBlockType.getType(world.getBlockAt(chestBlock.getX(), chestBlock.getY(), chestBlock.getZ()));
+			}
 
-			// if chest block type is null or parent chest not in chest map, delete block record
-			if (chestBlockType == null || !chestIndex.containsKey(chestBlock.getChestUUID())) {
+			// if chest block type is null or parent chest not in chest records, delete block record
+			if (chestBlockType == null || !chestMap.containsKey(chestBlock.getChestUUID())) {
 				plugin.dataStore.deleteBlockRecord(chestBlock);
 			}
 			else {
@@ -81,34 +393,599 @@ public final class ChestManager {
 			}
 		}
 
+		List<DeathChest> indexedChests = new ArrayList<>();
+
+		// populate chestIndex with death chest records that have blocks
+		for (DeathChest deathChest : chestMap.values()) {
+
+			// if DeathChest is in an unloaded world, skip chest
+			if (unloadedChestUUIDs.contains(deathChest.getChestUUID())) {
+				deathChest.cancelExpireTask();
+			}
+
+			// if DeathChest has no children, delete from datastore
+			else if (this.getBlockSet(deathChest.getChestUUID()).isEmpty()) {
+				deathChest.cancelExpireTask();
+				plugin.dataStore.deleteChestRecord(deathChest, null);
+			}
+			else {
+				this.addDeathChest(deathChest);
+				indexedChests.add(deathChest);
+			}
+		}
+
+		// replay deployments that did not complete before the previous shutdown
+		for (DeploymentJournal.Entry entry : journalEntries) {
+			DeathChest deathChest = replayDeployment(entry);
+			if (deathChest != null) {
+				indexedChests.add(deathChest);
+			}
+		}
+
 		// get current time
 		long currentTime = System.currentTimeMillis();
 
-		// expire chests with no blocks or past expiration
-		for (DeathChest deathChest : chestIndex.getChests()) {
+		// expire chests past expiration
+		for (DeathChest deathChest : indexedChests) {
 
-			// if DeathChest has no children, remove from map and datastore
-			if (this.getBlockSet(deathChest.getChestUUID()).isEmpty()) {
-				chestIndex.removeDeathChest(deathChest);
-				plugin.dataStore.deleteChestRecord(deathChest);
-			}
-			else if (deathChest.getExpirationTime() < currentTime) {
-				deathChest.expire();
+			if (deathChest.getExpirationTime() > 0 && deathChest.getExpirationTime() < currentTime) {
+				queueExpiration(deathChest);
 			}
 			else {
 				// set chest metadata
 				deathChest.setMetadata();
 			}
 		}
+
+		// evict chests in unloaded chunks if over resident limit
+		trimWorkingSet();
 	}
 
 
 	/**
-	 * Put DeathChest object in map
+	 * Replay an incomplete deployment journal entry. Chests that were placed in game but not saved
+	 * in the datastore are added to the indexes and saved; deployments that did not place a chest
+	 * are reported in the log. Entries of chests placed in a world whose chests are not loaded are kept,
+	 * and replayed when the world is loaded.
+	 * @param entry the incomplete journal entry
+	 * @return DeathChest - the recovered chest, or null if no chest was recovered
+	 */
+	private DeathChest replayDeployment(final DeploymentJournal.Entry entry) {
+
+		// if chest was already saved in datastore, discard entry
+		if (chestIndex.containsKey(entry.getChestUUID())) {
+			plugin.deploymentJournal.discard(entry.getChestUUID());
+			return null;
+		}
+
+		// if chest was never placed, report possible item loss and discard entry
+		if (!entry.isPlaced()) {
+			plugin.getLogger().warning("A death chest deployment for player "
+					+ plugin.getServer().getOfflinePlayer(entry.getOwnerUUID()).getName()
+					+ " at " + entry.getLocationString() + " did not complete before shutdown; "
+					+ entry.getItemCount() + " dropped items may have been lost.");
+			plugin.deploymentJournal.discard(entry.getChestUUID());
+			return null;
+		}
+
+		// if chest was placed in a world whose chests are not loaded, keep entry until they are loaded
+		World world = plugin.getServer().getWorld(entry.getBlockWorldName());
+		if (world == null || !loadedWorlds.contains(world.getUID())) {
+
+			// if world no longer exists, report possible untracked chest and discard entry
+			if (!new File(plugin.getServer().getWorldContainer(), entry.getBlockWorldName()).isDirectory()) {
+				plugin.getLogger().warning("An unsaved death chest at " + entry.getLocationString()
+						+ " is in a world that no longer exists and was not recovered.");
+				plugin.deploymentJournal.discard(entry.getChestUUID());
+			}
+			else if (plugin.debug) {
+				plugin.getLogger().info("An unsaved death chest at " + entry.getLocationString()
+						+ " will be recovered when world " + entry.getBlockWorldName() + " is loaded.");
+			}
+			return null;
+		}
+
+		// create death chest from journal entry
+		DeathChest deathChest = new DeathChest(entry.getChestUUID(),
+				entry.getOwnerUUID(),
+				entry.getKillerUUID(),
+				entry.getItemCount(),
+				entry.getPlacementTime(),
+				entry.getExpirationTime());
+
+		// add placed blocks that are still in game to block index
+		for (Location location : entry.getBlockLocations()) {
+
+			ChestBlockType chestBlockType = ChestBlockType.getType(location.getBlock());
+
+			if (chestBlockType != null && !blockIndex.containsKey(location)) {
+				this.addChestBlock(chestBlockType, new ChestBlock(entry.getChestUUID(), location));
+			}
+		}
+
+		// if no blocks remain in game, discard entry
+		if (this.getBlockSet(entry.getChestUUID()).isEmpty()) {
+			deathChest.cancelExpireTask();
+			plugin.deploymentJournal.discard(entry.getChestUUID());
+			return null;
+		}
+
+		// add chest to index and save in datastore; journal entry is removed when save completes
+		this.addDeathChest(deathChest);
+		plugin.dataStore.putChestRecord(deathChest);
+
+		plugin.getLogger().info("Recovered an unsaved death chest at "
+				+ entry.getLocationString() + " from the deployment journal.");
+
+		return deathChest;
+	}
+
+
+	/**
+	 * Remove in game blocks of chests whose records were deleted as expired.
+	 * Blocks in loaded chunks are removed immediately and their pending removal records deleted;
+	 * blocks in unloaded chunks are removed when their chunk is next loaded.
+	 * @param expiredBlocks the pending removal records of expired chest blocks
+	 */
+	private void removeExpiredBlocks(final Collection<ChestBlock> expiredBlocks) {
+
+		for (ChestBlock chestBlock : expiredBlocks) {
+
+			World world = chestBlock.getWorld();
+
+			// if world is no longer loaded, skip block
+			if (world == null) {
+				continue;
+			}
+
+			int chunkX = chestBlock.getX() >> 4;
+			int chunkZ = chestBlock.getZ() >> 4;
+
+			// if chunk is loaded, remove block now
+			if (world.isChunkLoaded(chunkX, chunkZ)) {
+				removeExpiredBlock(world.getBlockAt(chestBlock.getX(), chestBlock.getY(), chestBlock.getZ()));
+				plugin.dataStore.deletePendingRemoval(chestBlock);
+			}
+			// otherwise defer removal until chunk is loaded
+			else {
+				addPendingRemoval(world, chunkX, chunkZ, chestBlock);
+			}
+		}
+	}
+
+
+	/**
+	 * Defer removal of the in game block of an expired chest block in an unloaded chunk
+	 * until the chunk is next loaded, saving the pending removal in the datastore.
+	 * The chunk is not loaded.
+	 * @param chestBlock the chest block to remove
+	 */
+	final void deferBlockRemoval(final ChestBlock chestBlock) {
+
+		World world = chestBlock.getWorld();
+
+		// if world is no longer loaded, do nothing and return
+		if (world == null) {
+			return;
+		}
+
+		addPendingRemoval(world, chestBlock.getX() >> 4, chestBlock.getZ() >> 4, chestBlock);
+		plugin.dataStore.putPendingRemoval(chestBlock);
+	}
+
+
+	/**
+	 * Add a chest block to the pending removals of its chunk
+	 * @param world the world of the chest block
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @param chestBlock the chest block
+	 */
+	private void addPendingRemoval(final World world, final int chunkX, final int chunkZ, final ChestBlock chestBlock) {
+		pendingRemovals.computeIfAbsent(world.getUID(), k -> new ConcurrentHashMap<>())
+				.computeIfAbsent(getChunkKey(chunkX, chunkZ), k -> new ArrayList<>())
+				.add(chestBlock);
+	}
+
+
+	/**
+	 * Remove in game blocks of expired chests that were deferred until chunk load
+	 * @param chunk the chunk that has been loaded
+	 */
+	public final void removePendingBlocks(final Chunk chunk) {
+
+		// get pending removals for chunk world
+		Map<Long, List<ChestBlock>> worldRemovals = pendingRemovals.get(chunk.getWorld().getUID());
+
+		// if no pending removals in world, do nothing and return
+		if (worldRemovals == null) {
+			return;
+		}
+
+		// remove pending removals for chunk
+		List<ChestBlock> chunkRemovals = worldRemovals.remove(getChunkKey(chunk.getX(), chunk.getZ()));
+
+		// if no pending removals in chunk, do nothing and return
+		if (chunkRemovals == null) {
+			return;
+		}
+
+		for (ChestBlock chestBlock : chunkRemovals) {
+			removeExpiredBlock(chunk.getWorld().getBlockAt(chestBlock.getX(), chestBlock.getY(), chestBlock.getZ()));
+			plugin.dataStore.deletePendingRemoval(chestBlock);
+		}
+
+		// if world has no remaining pending removals, remove world entry
+		if (worldRemovals.isEmpty()) {
+			pendingRemovals.remove(chunk.getWorld().getUID());
+		}
+	}
+
+
+	/**
+	 * Set block of expired chest to air if it is still a death chest material
+	 * and has not been claimed by a current chest
+	 * @param block the block to remove
+	 */
+	private void removeExpiredBlock(final Block block) {
+
+		if (deathChestMaterials.contains(block.getType())
+				&& !blockIndex.containsBlock(block)) {
+			block.setType(Material.AIR);
+		}
+	}
+
+
+	/**
+	 * Get the configured limit on resident death chests
+	 * @return the resident chest limit, or zero or less if unlimited
+	 */
+	private int getResidentLimit() {
+		return plugin.getConfig().getInt("resident-chest-limit");
+	}
+
+
+	/**
+	 * Mark a chest as most recently used, if it is a resident non-expiring chest
+	 * @param chestUUID the chest UUID
+	 */
+	private void touchResident(final UUID chestUUID) {
+
+		// if resident chests are unlimited, do nothing and return
+		if (getResidentLimit() <= 0 || chestUUID == null) {
+			return;
+		}
+
+		synchronized (residentOrder) {
+			residentOrder.get(chestUUID);
+		}
+	}
+
+
+	/**
+	 * Schedule a working set trim on the next tick, if one is not already scheduled.
+	 * Called on chunk unload, when the unloading chunk is still loaded.
+	 */
+	public final void scheduleTrimWorkingSet() {
+
+		// if resident chests are unlimited or trim is already scheduled, do nothing and return
+		if (getResidentLimit() <= 0 || trimScheduled) {
+			return;
+		}
+
+		trimScheduled = true;
+
+		new BukkitRunnable() {
+			@Override
+			public void run() {
+				trimScheduled = false;
+				trimWorkingSet();
+			}
+		}.runTask(plugin);
+	}
+
+
+	/**
+	 * Evict least recently used non-expiring chests from the indexes to the chest archive,
+	 * while the number of resident chests is over the configured limit.
+	 * Chests with a block in a loaded chunk are not evicted. Chests that expire are always resident.
+	 */
+	public final void trimWorkingSet() {
+
+		int limit = getResidentLimit();
+
+		// if resident chests are unlimited, do nothing and return
+		if (limit <= 0) {
+			return;
+		}
+
+		int excess = chestIndex.size() - limit;
+
+		// if not over limit, do nothing and return
+		if (excess <= 0) {
+			return;
+		}
+
+		List<DeathChest> evictList = new ArrayList<>();
+		List<UUID> inUseList = new ArrayList<>();
+
+		// select least recently used chests that have no blocks in loaded chunks,
+		// scanning a bounded number of chests in loaded chunks per trim
+		synchronized (residentOrder) {
+			for (UUID chestUUID : residentOrder.keySet()) {
+
+				if (evictList.size() >= excess || inUseList.size() >= MAX_TRIM_SKIPS) {
+					break;
+				}
+
+				DeathChest deathChest = chestIndex.getDeathChest(chestUUID);
+
+				if (deathChest != null && !isInLoadedChunk(deathChest)) {
+					evictList.add(deathChest);
+				}
+				else {
+					inUseList.add(chestUUID);
+				}
+			}
+
+			// move chests in loaded chunks to most recently used, so they are not scanned again first
+			for (UUID chestUUID : inUseList) {
+				residentOrder.get(chestUUID);
+			}
+		}
+
+		// move selected chests to archive
+		for (DeathChest deathChest : evictList) {
+			archiveDeathChest(deathChest);
+		}
+
+		if (plugin.debug && !evictList.isEmpty()) {
+			plugin.getLogger().info("Archived " + evictList.size() + " death chests; "
+					+ chestIndex.size() + " resident, " + chestArchive.size() + " archived.");
+		}
+	}
+
+
+	/**
+	 * Test if any block of a chest is in a loaded chunk
+	 * @param deathChest the chest to test
+	 * @return {@code true} if a chest block is in a loaded chunk, {@code false} if not
+	 */
+	private boolean isInLoadedChunk(final DeathChest deathChest) {
+
+		for (ChestBlock chestBlock : getBlockSet(deathChest.getChestUUID())) {
+			World world = chestBlock.getWorld();
+			if (world != null && world.isChunkLoaded(chestBlock.getX() >> 4, chestBlock.getZ() >> 4)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Move a chest and its blocks from the indexes to the chest archive
+	 * @param deathChest the chest to archive
+	 */
+	private void archiveDeathChest(final DeathChest deathChest) {
+
+		Map<ChestBlockType, ChestBlock> chestBlockMap = getChestBlockMap(deathChest.getChestUUID());
+
+		// if chest could not be archived, leave it resident
+		if (!chestArchive.add(deathChest, chestBlockMap)) {
+			return;
+		}
+
+		for (ChestBlock chestBlock : chestBlockMap.values()) {
+			blockIndex.removeChestBlock(chestBlock);
+		}
+		removeDeathChest(deathChest);
+	}
+
+
+	/**
+	 * Restore a collection of archived chests to the indexes
+	 * @param archivedChests the archived chests to restore
+	 */
+	private void restoreArchivedChests(final Collection<ChestArchive.ArchivedChest> archivedChests) {
+
+		for (ChestArchive.ArchivedChest archivedChest : archivedChests) {
+
+			World world = plugin.getServer().getWorld(archivedChest.getWorldUID());
+
+			// if world is no longer loaded, chest cannot be restored
+			if (world == null) {
+				continue;
+			}
+
+			for (Map.Entry<ChestBlockType, ChestBlock> entry : archivedChest.toChestBlocks(world).entrySet()) {
+				addChestBlock(entry.getKey(), entry.getValue());
+			}
+			addDeathChest(archivedChest.toDeathChest());
+		}
+	}
+
+
+	/**
+	 * Restore archived chests with a block in a chunk that has been loaded
+	 * @param chunk the chunk that has been loaded
+	 */
+	public final void restoreArchivedChests(final Chunk chunk) {
+		restoreArchivedChests(chestArchive.removeChunk(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ()));
+	}
+
+
+	/**
+	 * Get the number of resident and archived chests of an owner, without restoring archived chests
+	 * @param ownerUUID the owner UUID, or null to count chests of all owners
+	 * @return the number of chests
+	 */
+	public final int getChestCount(final UUID ownerUUID) {
+		return getListEntries(ownerUUID).size();
+	}
+
+
+	/**
+	 * Get a range of the resident and archived chests of an owner, in order of expiration time then placement time.
+	 * Only archived chests in the range are restored, so they can be shown; the working set is trimmed
+	 * again on the next tick.
+	 * @param ownerUUID the owner UUID, or null to get chests of all owners
+	 * @param fromIndex the index of the first chest in the range, inclusive
+	 * @param toIndex the index of the last chest in the range, exclusive
+	 * @return List of DeathChest - the chests in the range that could be restored
+	 */
+	public final List<DeathChest> getChestRange(final UUID ownerUUID, final int fromIndex, final int toIndex) {
+
+		List<ListEntry> entries = getListEntries(ownerUUID);
+		List<DeathChest> range = new ArrayList<>();
+
+		boolean restored = false;
+
+		for (ListEntry entry : entries.subList(Math.max(0, fromIndex), Math.min(toIndex, entries.size()))) {
+
+			// if chest is resident, add it to range
+			if (entry.deathChest != null) {
+				range.add(entry.deathChest);
+				continue;
+			}
+
+			// restore archived chest; if its world is no longer loaded, it is not restored
+			chestArchive.remove(entry.archivedChest);
+			restoreArchivedChests(Collections.singletonList(entry.archivedChest));
+			restored = true;
+
+			DeathChest deathChest = chestIndex.getDeathChest(entry.archivedChest.getChestUUID());
+			if (deathChest != null) {
+				range.add(deathChest);
+			}
+		}
+
+		// evict restored chests again if over resident limit
+		if (restored) {
+			scheduleTrimWorkingSet();
+		}
+
+		return range;
+	}
+
+
+	/**
+	 * Get the locations of the archived chests of an owner, without restoring them. Archived chests never expire.
+	 * @param ownerUUID the owner UUID
+	 * @return List of Location - the locations of the archived chests of the owner
+	 */
+	public final List<Location> getArchivedChestLocations(final UUID ownerUUID) {
+
+		List<Location> locations = new ArrayList<>();
+
+		for (ChestArchive.ArchivedChest archivedChest : chestArchive.getChests()) {
+			if (ownerUUID.equals(archivedChest.getOwnerUUID())) {
+				World world = plugin.getServer().getWorld(archivedChest.getWorldUID());
+				if (world != null) {
+					locations.add(archivedChest.getLocation(world));
+				}
+			}
+		}
+		return locations;
+	}
+
+
+	/**
+	 * Get the resident and archived chests of an owner, in order of expiration time then placement time
+	 * @param ownerUUID the owner UUID, or null to get chests of all owners
+	 * @return List of ListEntry - the chests of the owner
+	 */
+	private List<ListEntry> getListEntries(final UUID ownerUUID) {
+
+		List<ListEntry> entries = new ArrayList<>();
+
+		for (DeathChest deathChest : chestIndex.getChests()) {
+			if (ownerUUID == null || ownerUUID.equals(deathChest.getOwnerUUID())) {
+				entries.add(new ListEntry(deathChest.getExpirationTime(), deathChest.getPlacementTime(),
+						deathChest, null));
+			}
+		}
+
+		// archived chests never expire
+		for (ChestArchive.ArchivedChest archivedChest : chestArchive.getChests()) {
+			if (ownerUUID == null || ownerUUID.equals(archivedChest.getOwnerUUID())) {
+				entries.add(new ListEntry(0L, archivedChest.getPlacementTime(), null, archivedChest));
+			}
+		}
+
+		entries.sort(Comparator.comparingLong((ListEntry entry) -> entry.expirationTime)
+				.thenComparingLong(entry -> entry.placementTime));
+
+		return entries;
+	}
+
+
+	/**
+	 * A resident or archived chest in a chest listing
+	 */
+	private static final class ListEntry {
+
+		private final long expirationTime;
+		private final long placementTime;
+
+		// the resident chest, or null if archived
+		private final DeathChest deathChest;
+
+		// the archived chest, or null if resident
+		private final ChestArchive.ArchivedChest archivedChest;
+
+		private ListEntry(final long expirationTime,
+						  final long placementTime,
+						  final DeathChest deathChest,
+						  final ChestArchive.ArchivedChest archivedChest) {
+			this.expirationTime = expirationTime;
+			this.placementTime = placementTime;
+			this.deathChest = deathChest;
+			this.archivedChest = archivedChest;
+		}
+	}
+
+
+	/**
+	 * Queue a death chest to be expired under the per-tick expiration budget
+	 * @param deathChest the death chest to expire
+	 */
+	public final void queueExpiration(final DeathChest deathChest) {
+		expirationQueue.add(deathChest);
+	}
+
+
+	/**
+	 * Get all archived chests
+	 * @return Collection of ArchivedChest
+	 */
+	final Collection<ChestArchive.ArchivedChest> getArchivedChests() {
+		return chestArchive.getChests();
+	}
+
+
+	/**
+	 * Put DeathChest object in map. The chest blocks must already be in the block index.
 	 * @param deathChest the DeathChest object to put in map
 	 */
 	final void addDeathChest(final DeathChest deathChest) {
-		this.chestIndex.addChest(deathChest);
+
+		// get world of chest blocks; chests are indexed in the world segment of their blocks
+		UUID worldUID = this.blockIndex.getWorldUID(deathChest.getChestUUID());
+
+		// if chest has no blocks in a loaded world, do nothing and return
+		if (worldUID == null) {
+			return;
+		}
+
+		this.chestIndex.addChest(worldUID, deathChest);
+
+		// track non-expiring chests for eviction
+		if (getResidentLimit() > 0 && deathChest.getExpirationTime() < 1) {
+			synchronized (residentOrder) {
+				residentOrder.put(deathChest.getChestUUID(), Boolean.TRUE);
+			}
+		}
 	}
 
 
@@ -118,6 +995,7 @@ public final class ChestManager {
 	 * @return DeathChest object, or null if no DeathChest exists in map with passed chestUUID
 	 */
 	public final DeathChest getDeathChest(final UUID chestUUID) {
+		touchResident(chestUUID);
 		return this.chestIndex.getDeathChest(chestUUID);
 	}
 
@@ -129,7 +1007,7 @@ public final class ChestManager {
 	 */
 	public final DeathChest getDeathChest(final Block block) {
 
-		ChestBlock chestBlock = this.blockIndex.getChestBlock(block.getLocation());
+		ChestBlock chestBlock = this.blockIndex.getChestBlock(block);
 
 		if (chestBlock == null) {
 			return null;
@@ -144,7 +1022,12 @@ public final class ChestManager {
 	 * @param deathChest the DeathChest object to remove from map
 	 */
 	final void removeDeathChest(final DeathChest deathChest) {
+
 		this.chestIndex.removeDeathChest(deathChest);
+
+		synchronized (residentOrder) {
+			residentOrder.remove(deathChest.getChestUUID());
+		}
 	}
 
 
@@ -168,9 +1051,9 @@ public final class ChestManager {
 
 
 	/**
-	 * Get chestBlock set from block index by chest uuid
+	 * Get chestBlock set from block index by chest uuid. Safe to call from any thread.
 	 * @param chestUUID the UUID of the chest of which to retrieve a set of chest blocks
-	 * @return Set of Blocks in uuidBlockMap, or empty set if no blocks exist for chest UUID
+	 * @return Set of Blocks - a read-only snapshot, or empty set if no blocks exist for chest UUID
 	 */
 	public final Set<ChestBlock> getBlockSet(final UUID chestUUID) {
 		return this.blockIndex.getChestBlockSet(chestUUID);
@@ -178,9 +1061,9 @@ public final class ChestManager {
 
 
 	/**
-	 * Get chestBlock map from block index by chest uuid
+	 * Get chestBlock map from block index by chest uuid. Safe to call from any thread.
 	 * @param chestUUID the UUID of the chest of which to retrieve a map of chest blocks
-	 * @return Map of Blocks in uuidBlockMap, or empty map if no blocks exist for chest UUID
+	 * @return Map of Blocks - a read-only snapshot, or empty map if no blocks exist for chest UUID
 	 */
 	final Map<ChestBlockType,ChestBlock> getChestBlockMap(final UUID chestUUID) {
 		return this.blockIndex.getChestBlockMap(chestUUID);
@@ -215,7 +1098,68 @@ public final class ChestManager {
 		}
 
 		// if passed block location is in chest block map return true, else return false
-		return this.blockIndex.containsKey(block.getLocation());
+		return this.blockIndex.containsBlock(block);
+	}
+
+
+	/**
+	 * Test if a block may be a DeathChest component in a world whose chests are still being loaded.
+	 * Until the chests of a world are in the indexes, every block of death chest material in it
+	 * is treated as a possible DeathChest component, so it is not broken or moved before it can be identified.
+	 * @param block the block to check
+	 * @return {@code true} if the block is of death chest material in a world whose chests are not yet indexed,
+	 * {@code false} if not
+	 */
+	public final boolean isUnindexed(final Block block) {
+
+		// if passed block is null, return false
+		if (block == null) {
+			return false;
+		}
+
+		return !loadedWorlds.contains(block.getWorld().getUID())
+				&& deathChestMaterials.contains(block.getType());
+	}
+
+
+	/**
+	 * Check if any death chest blocks are in a world, without accessing the world
+	 * @param world the world to check
+	 * @return {@code true} if the world contains death chest blocks, {@code false} if it does not
+	 */
+	public final boolean hasChestBlocks(final World world) {
+		return world != null && this.blockIndex.containsWorld(world.getUID());
+	}
+
+
+	/**
+	 * Check if any death chest blocks are in a chunk, without accessing the chunk
+	 * @param world the world of the chunk
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @return {@code true} if the chunk contains death chest blocks, {@code false} if it does not
+	 */
+	public final boolean hasChestBlocks(final World world, final int chunkX, final int chunkZ) {
+		return world != null && this.blockIndex.containsChunk(world.getUID(), chunkX, chunkZ);
+	}
+
+
+	/**
+	 * Check if a chunk may contain death chest blocks, using the world chunk bitmap.
+	 * A {@code false} result is exact; a {@code true} result must be confirmed against the block index.
+	 * @param world the world of the chunk
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @return {@code false} if the chunk contains no death chest blocks, {@code true} if it may
+	 */
+	public final boolean mayHaveChestBlocks(final World world, final int chunkX, final int chunkZ) {
+
+		if (world == null) {
+			return false;
+		}
+
+		ChunkBitmap bitmap = this.blockIndex.getChunkBitmap(world.getUID());
+		return bitmap != null && bitmap.mayContain(chunkX, chunkZ);
 	}
 
 
@@ -232,7 +1176,7 @@ public final class ChestManager {
 		}
 
 		// if passed block is chest and is in block map, return true; else return false
-		return (block.getType().equals(Material.CHEST) && blockIndex.containsKey(block.getLocation()));
+		return (block.getType().equals(Material.CHEST) && blockIndex.containsBlock(block));
 	}
 
 
@@ -252,7 +1196,7 @@ public final class ChestManager {
 		// if block is sign or wall sign material and exists in block map, return true
 		return ((block.getType().equals(Material.SIGN)
 				|| block.getType().equals(Material.WALL_SIGN))
-				&& blockIndex.containsKey(block.getLocation()));
+				&& blockIndex.containsBlock(block));
 	}
 
 
@@ -263,14 +1207,37 @@ public final class ChestManager {
 	 */
 	public final boolean isDeathChestInventory(final Inventory inventory) {
 
-		// if inventory type is not a chest inventory, return false
+		// if inventory holder block is a DeathChest return true, else return false
+		return this.isChestBlockChest(getInventoryBlock(inventory));
+	}
+
+
+	/**
+	 * Test if an inventory may be a death chest inventory in a world whose chests are still being loaded
+	 * @param inventory the inventory to test
+	 * @return {@code true} if the inventory's holder is a chest in a world whose chests are not yet indexed,
+	 * {@code false} if not
+	 */
+	public final boolean isUnindexedInventory(final Inventory inventory) {
+		return this.isUnindexed(getInventoryBlock(inventory));
+	}
+
+
+	/**
+	 * Get the block of a chest inventory holder
+	 * @param inventory the inventory
+	 * @return Block - the inventory holder block, or null if the inventory is not held by a chest block
+	 */
+	private Block getInventoryBlock(final Inventory inventory) {
+
+		// if inventory type is not a chest inventory, return null
 		if (!inventory.getType().equals(InventoryType.CHEST)) {
-			return false;
+			return null;
 		}
 
-		// if inventory holder is null, return false
+		// if inventory holder is null, return null
 		if (inventory.getHolder() == null) {
-			return false;
+			return null;
 		}
 
 		// try to get inventory holder block
@@ -293,11 +1260,9 @@ public final class ChestManager {
 						+ "while trying to get inventory holder block.");
 				plugin.getLogger().warning(e.getMessage());
 			}
-			return false;
+			return null;
 		}
-
-		// if inventory holder block is a DeathChest return true, else return false
-		return this.isChestBlockChest(block);
+		return block;
 	}
 
 
@@ -305,4 +1270,39 @@ public final class ChestManager {
 		return this.chestIndex.getChests();
 	}
 
+
+	/**
+	 * Get number of resident chests in each world
+	 * @return Map of world name to number of chests in indexes
+	 */
+	public final Map<String, Integer> getChestCountByWorld() {
+		return this.blockIndex.getChestCountByWorld();
+	}
+
+
+	/**
+	 * Get number of archived chests in each world
+	 * @return Map of world name, or world UID if the world is not loaded, to number of archived chests
+	 */
+	public final Map<String, Integer> getArchivedChestCountByWorld() {
+
+		Map<String, Integer> returnMap = new TreeMap<>();
+
+		for (ChestArchive.ArchivedChest archivedChest : chestArchive.getChests()) {
+			World world = plugin.getServer().getWorld(archivedChest.getWorldUID());
+			String worldName = world == null ? archivedChest.getWorldUID().toString() : world.getName();
+			returnMap.merge(worldName, 1, Integer::sum);
+		}
+		return returnMap;
+	}
+
+
+	/**
+	 * Get number of chest blocks in block index
+	 * @return the number of indexed chest blocks
+	 */
+	public final int getChestBlockCount() {
+		return this.blockIndex.size();
+	}
+
 }
@@ -0,0 +1,65 @@
+package com.winterhaven_mc.deathchest.chests;
+
+
+/**
+ * A per-world map of chunks that may contain death chest blocks, for rejecting frequent world events
+ * with one array probe. Chunks are mapped to a 64 by 64 grid of slots by their coordinates modulo 64,
+ * so nearby chunks never share a slot; each slot counts the occupied chunks mapped to it.
+ * A zero slot means no chunk mapped to it contains chest blocks. A non-zero slot must be confirmed
+ * against the block index.
+ */
+final class ChunkBitmap {
+
+	// number of bits of each chunk coordinate used for slot index
+	private final static int COORDINATE_BITS = 6;
+	private final static int COORDINATE_MASK = (1 << COORDINATE_BITS) - 1;
+
+	// count of occupied chunks mapped to each slot
+	private final int[] slots = new int[1 << (COORDINATE_BITS * 2)];
+
+
+	/**
+	 * Record that a chunk now contains chest blocks
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 */
+	final synchronized void add(final int chunkX, final int chunkZ) {
+		slots[index(chunkX, chunkZ)]++;
+	}
+
+
+	/**
+	 * Record that a chunk no longer contains chest blocks
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 */
+	final synchronized void remove(final int chunkX, final int chunkZ) {
+		int index = index(chunkX, chunkZ);
+		if (slots[index] > 0) {
+			slots[index]--;
+		}
+	}
+
+
+	/**
+	 * Check if a chunk may contain chest blocks
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @return {@code false} if the chunk contains no chest blocks, {@code true} if it may
+	 */
+	final boolean mayContain(final int chunkX, final int chunkZ) {
+		return slots[index(chunkX, chunkZ)] != 0;
+	}
+
+
+	/**
+	 * Get the slot index of a chunk
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @return int - the slot index
+	 */
+	private static int index(final int chunkX, final int chunkZ) {
+		return ((chunkX & COORDINATE_MASK) << COORDINATE_BITS) | (chunkZ & COORDINATE_MASK);
+	}
+
+}
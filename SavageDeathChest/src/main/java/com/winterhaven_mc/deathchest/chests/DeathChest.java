@@ -3,23 +3,25 @@ package com.winterhaven_mc.deathchest.chests;
 import com.winterhaven_mc.deathchest.PluginMain;
 import com.winterhaven_mc.deathchest.messages.MessageId;
 import com.winterhaven_mc.deathchest.sounds.SoundId;
+import com.winterhaven_mc.deathchest.storage.RemovalReason;
 import com.winterhaven_mc.deathchest.tasks.ExpireChestTask;
 
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.scheduler.BukkitTask;
 
-import javax.annotation.concurrent.Immutable;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 
 /**
- * A class that represents a death chest, which is comprised of a collection of chest blocks
+ * A class that represents a death chest, which is comprised of a collection of chest blocks.
+ * The resolved chest blocks, anchor block, inventory and viewer count are held for main thread use only.
  */
-@Immutable
 public final class DeathChest {
 
 	// reference to main class
@@ -46,6 +48,19 @@ public final class DeathChest {
 	// task id of expire task for this death chest block
 	private final int expireTaskId;
 
+	// chest block map last resolved from the block index; replaced by the index when chest blocks change
+	private Map<ChestBlockType,ChestBlock> resolvedBlocks;
+
+	// the chest block whose location is the chest location, resolved from resolvedBlocks
+	private ChestBlock anchorBlock;
+
+	// the chest block whose inventory is held, and its inventory; null until first requested
+	private ChestBlock inventoryBlock;
+	private Inventory inventory;
+
+	// number of players viewing the chest inventory, counted from inventory open and close events
+	private int viewerCount;
+
 
 	/**
 	 * Class constructor
@@ -190,19 +205,51 @@ public final class DeathChest {
 	 */
 	public final Location getLocation() {
 
+		// resolve chest blocks if changed since last resolved
+		resolveBlocks();
+
+		// if no chest blocks exist, return null
+		if (anchorBlock == null) {
+			return null;
+		}
+
+		return anchorBlock.getLocation();
+	}
+
+
+	/**
+	 * Resolve anchor block from chest block map, if the block index has replaced the map since last resolved.
+	 * The block index replaces the map whenever chest blocks are added or removed,
+	 * so an unchanged map means the anchor block and inventory are still current.
+	 * @return Map of ChestBlockType to ChestBlock - the current chest block map
+	 */
+	private Map<ChestBlockType,ChestBlock> resolveBlocks() {
+
 		Map<ChestBlockType,ChestBlock> chestBlockMap = plugin.chestManager.getChestBlockMap(this.chestUUID);
 
+		// if chest block map is unchanged, return it
+		if (chestBlockMap == resolvedBlocks) {
+			return chestBlockMap;
+		}
+
+		resolvedBlocks = chestBlockMap;
+
+		// get anchor block from right chest, left chest or sign in that order
 		if (chestBlockMap.containsKey(ChestBlockType.RIGHT_CHEST)) {
-			return chestBlockMap.get(ChestBlockType.RIGHT_CHEST).getLocation();
+			anchorBlock = chestBlockMap.get(ChestBlockType.RIGHT_CHEST);
 		}
 		else if (chestBlockMap.containsKey(ChestBlockType.LEFT_CHEST)) {
-			return chestBlockMap.get(ChestBlockType.LEFT_CHEST).getLocation();
+			anchorBlock = chestBlockMap.get(ChestBlockType.LEFT_CHEST);
 		}
-		else if (chestBlockMap.containsKey(ChestBlockType.SIGN)) {
-			return chestBlockMap.get(ChestBlockType.SIGN).getLocation();
+		else {
+			anchorBlock = chestBlockMap.get(ChestBlockType.SIGN);
 		}
 
-		return null;
+		// inventory is resolved again when next requested
+		inventoryBlock = null;
+		inventory = null;
+
+		return chestBlockMap;
 	}
 
 
@@ -294,12 +341,24 @@ public final class DeathChest {
 	 * Expire this death chest
 	 */
 	public final void expire() {
+		expire(true);
+	}
+
+
+	/**
+	 * Expire this death chest
+	 * @param deleteRecords if {@code false}, the caller is responsible for deleting the chest record
+	 */
+	final void expire(final boolean deleteRecords) {
 
 		// get player from ownerUUID
 		final Player player = plugin.getServer().getPlayer(this.ownerUUID);
 
 		// destroy DeathChest
-		this.destroy();
+		this.destroy(deleteRecords, RemovalReason.EXPIRED);
+
+		// count expiration
+		plugin.metrics.countExpiration();
 
 		// if player is not null, send player message
 		if (player != null) {
@@ -309,22 +368,35 @@ public final class DeathChest {
 
 
 	/**
-	 * Destroy this death chest, dropping chest contents
+	 * Destroy this death chest after it has been looted, dropping chest contents
 	 */
 	public final void destroy() {
+		destroy(true, RemovalReason.LOOTED);
+	}
+
+
+	/**
+	 * Destroy this death chest, dropping chest contents
+	 * @param deleteRecords if {@code false}, the caller is responsible for deleting the chest record
+	 * @param reason the reason the chest is removed, recorded in the datastore history
+	 */
+	final void destroy(final boolean deleteRecords, final RemovalReason reason) {
 
 		// play chest break sound at chest location
 
 		// get block map for this chest
-		Map<ChestBlockType,ChestBlock> chestBlockMap = plugin.chestManager.getChestBlockMap(this.chestUUID);
+		Map<ChestBlockType,ChestBlock> chestBlockMap = resolveBlocks();
 
-		// destroy DeathChest blocks (sign gets destroyed first due to enum order)
+		// destroy DeathChest blocks (sign gets destroyed first due to enum order);
+		// block records are kept until the chest record is deleted, so they can be copied to history
 		for (ChestBlock chestBlock : chestBlockMap.values()) {
-			chestBlock.destroy();
+			chestBlock.destroy(false);
 		}
 
-		// delete DeathChest record from datastore
-		plugin.dataStore.deleteChestRecord(this);
+		// delete DeathChest record from datastore; block records are removed by cascade
+		if (deleteRecords) {
+			plugin.dataStore.deleteChestRecord(this, reason);
+		}
 
 		// cancel expire block task
 		if (this.getExpireTaskId() > 0) {
@@ -333,25 +405,44 @@ public final class DeathChest {
 
 		// remove DeathChest from ChestManager DeathChest map
 		plugin.chestManager.removeDeathChest(this);
+
+		// release resolved blocks and inventory
+		resolvedBlocks = null;
+		anchorBlock = null;
+		inventoryBlock = null;
+		inventory = null;
+		viewerCount = 0;
 	}
 
 
 	/**
-	 * Get inventory associated with this death chest
+	 * Get inventory associated with this death chest. The inventory is held until the chest blocks change
+	 * or the chest block holding it is no longer a chest, so a block state is not taken on every call.
 	 * @return Inventory - the inventory associated with this death chest;
 	 * returns null if both right and left chest block inventories are invalid
 	 */
 	public final Inventory getInventory() {
 
-		// get chest block map
-		Map<ChestBlockType,ChestBlock> chestBlocks = plugin.chestManager.getChestBlockMap(this.chestUUID);
+		// resolve chest blocks if changed since last resolved
+		Map<ChestBlockType,ChestBlock> chestBlocks = resolveBlocks();
+
+		// if held inventory is still valid, return it
+		if (inventory != null && isChest(inventoryBlock)) {
+			return inventory;
+		}
+
+		inventory = null;
 
-		// get right chest inventory
-		Inventory inventory = chestBlocks.get(ChestBlockType.RIGHT_CHEST).getInventory();
+		// get right chest inventory, or left chest inventory if right chest inventory is invalid
+		for (ChestBlockType chestBlockType : new ChestBlockType[] { ChestBlockType.RIGHT_CHEST, ChestBlockType.LEFT_CHEST }) {
 
-		// if right chest inventory is null, try left chest
-		if (inventory == null) {
-			inventory = chestBlocks.get(ChestBlockType.LEFT_CHEST).getInventory();
+			inventoryBlock = chestBlocks.get(chestBlockType);
+			if (inventoryBlock != null) {
+				inventory = inventoryBlock.getInventory();
+			}
+			if (inventory != null) {
+				break;
+			}
 		}
 
 		// return the inventory, or null if right and left chest inventories were both invalid
@@ -359,22 +450,46 @@ public final class DeathChest {
 	}
 
 
+	/**
+	 * Test if the block represented by a chest block is a chest, without taking a block state snapshot
+	 * @param chestBlock the chest block to test
+	 * @return {@code true} if the block is loaded and is a chest, {@code false} if not
+	 */
+	private static boolean isChest(final ChestBlock chestBlock) {
+
+		if (chestBlock == null) {
+			return false;
+		}
+
+		Block block = chestBlock.getBlock();
+		return block != null && block.getType().equals(Material.CHEST);
+	}
+
+
 	/**
 	 * Get the number of players currently viewing a DeathChest inventory
 	 * @return The number of inventory viewers
-     */
+	 */
 	public final int getViewerCount() {
+		return viewerCount;
+	}
 
-		// get chest inventory
-		Inventory inventory = this.getInventory();
 
-		// if inventory is not null, return viewer count
-		if (inventory != null) {
-			return inventory.getViewers().size();
-		}
-		else {
-			// inventory is null, so return 0 for viewer count
-			return 0;
+	/**
+	 * Count a player opening the DeathChest inventory
+	 */
+	public final void addViewer() {
+		viewerCount++;
+	}
+
+
+	/**
+	 * Count a player closing the DeathChest inventory. Viewers who opened the inventory before
+	 * the count began, as across a plugin reload, are not counted below zero.
+	 */
+	public final void removeViewer() {
+		if (viewerCount > 0) {
+			viewerCount--;
 		}
 	}
 
@@ -19,6 +19,7 @@ import org.bukkit.inventory.ItemStack;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Function;
 
 import static com.winterhaven_mc.deathchest.util.LocationUtilities.*;
 
@@ -37,6 +38,9 @@ public final class Deployment {
 	// death chest object
 	private final DeathChest deathChest;
 
+	// number of locations tested in chest location searches
+	private int probeCount;
+
 
 	/**
 	 * Class constructor for DeathChest deployment
@@ -83,9 +87,20 @@ public final class Deployment {
 			return;
 		}
 
+		// record deployment intent in journal
+		plugin.deploymentJournal.recordIntent(deathChest, player.getLocation(), droppedItems.size());
+
 		// deploy chest, putting items that don't fit in chest into droppedItems list of ItemStack
 		Result result = deployChest(player, droppedItems);
 
+		// count deployment result
+		plugin.metrics.countDeployment(result.getResultCode().toString());
+
+		// describe death location and search effort for tick watchdog
+		if (plugin.metrics.isWatchdogEnabled()) {
+			plugin.metrics.describe(player.getLocation(), probeCount);
+		}
+
 		// clear dropped items
 		event.getDrops().clear();
 
@@ -138,9 +153,16 @@ public final class Deployment {
 
 			// cancel DeathChest expire task
 			deathChest.cancelExpireTask();
+
+			// record aborted deployment in journal
+			plugin.deploymentJournal.recordAbort(deathChest.getChestUUID());
 			return;
 		}
 
+		// record completed placement in journal
+		plugin.deploymentJournal.recordPlacement(deathChest,
+				plugin.chestManager.getBlockSet(deathChest.getChestUUID()));
+
 		// put DeathChest in DeathChest map
 		plugin.chestManager.addDeathChest(deathChest);
 
@@ -354,7 +376,7 @@ public final class Deployment {
 	 * @param itemStacks Collection of ItemStacks to combine
 	 * @return List of ItemStack with same materials combined
 	 */
-	private List<ItemStack> consolidateItemStacks(final Collection<ItemStack> itemStacks) {
+	static List<ItemStack> consolidateItemStacks(final Collection<ItemStack> itemStacks) {
 
 		final List<ItemStack> returnList = new ArrayList<>();
 
@@ -445,9 +467,6 @@ public final class Deployment {
 	 */
 	private Result findChestLocation(final Player player, final ChestSize chestSize) {
 
-		// count number of tests performed, for debugging purposes
-		int testCount = 0;
-
 		// get distance to search from config
 		int radius = plugin.getConfig().getInt("search-distance");
 
@@ -466,6 +485,38 @@ public final class Deployment {
 			testLocation.setY(player.getWorld().getMaxHeight() - plugin.getConfig().getInt("search-distance"));
 		}
 
+		// count number of tests performed, for debugging and tick watchdog reports
+		final int[] testCount = { 0 };
+
+		// search locations within radius, validating each for chest size
+		Result result = searchChestLocation(testLocation, radius, location -> {
+			testCount[0]++;
+			return validateChestLocation(player, location, chestSize);
+		});
+
+		if (plugin.debug) {
+			plugin.getLogger().info("Locations tested: " + testCount[0]);
+		}
+
+		// add to tests performed by this deployment
+		probeCount += testCount[0];
+
+		return result;
+	}
+
+
+	/**
+	 * Search locations within radius of a starting location, in order of increasing height
+	 * and distance, until the validator returns a successful result
+	 * @param testLocation the starting location; modified during the search
+	 * @param radius the search distance
+	 * @param validator the function that validates a location
+	 * @return Result - the first successful result, or the last unsuccessful result if no location was valid
+	 */
+	static Result searchChestLocation(final Location testLocation,
+									  final int radius,
+									  final Function<Location, Result> validator) {
+
 		// declare default search result object
 		Result result = new Result(ResultCode.NON_REPLACEABLE_BLOCK);
 
@@ -478,14 +529,10 @@ public final class Deployment {
 					testLocation.add(x,y,z);
 
 					// get result for test location
-					result = validateChestLocation(player, testLocation, chestSize);
-					testCount = testCount + 1;
+					result = validator.apply(testLocation);
 
 					// if test location is valid, return search result object
 					if (result.getResultCode().equals(ResultCode.SUCCESS)) {
-						if (plugin.debug) {
-							plugin.getLogger().info("Locations tested: " + testCount);
-						}
 						return result;
 					}
 					else {
@@ -502,14 +549,10 @@ public final class Deployment {
 					testLocation.add(-x,y,z);
 
 					// get result for test location
-					result = validateChestLocation(player, testLocation, chestSize);
-					testCount = testCount + 1;
+					result = validator.apply(testLocation);
 
 					// if location is valid, return search result object
 					if (result.getResultCode().equals(ResultCode.SUCCESS)) {
-						if (plugin.debug) {
-							plugin.getLogger().info("Locations tested: " + testCount);
-						}
 						return result;
 					}
 					else {
@@ -526,14 +569,10 @@ public final class Deployment {
 					testLocation.add(-x,y,-z);
 
 					// get result for test location
-					result = validateChestLocation(player, testLocation, chestSize);
-					testCount = testCount + 1;
+					result = validator.apply(testLocation);
 
 					// if location is valid, return search result object
 					if (result.getResultCode().equals(ResultCode.SUCCESS)) {
-						if (plugin.debug) {
-							plugin.getLogger().info("Locations tested: " + testCount);
-						}
 						return result;
 					}
 					else {
@@ -545,14 +584,10 @@ public final class Deployment {
 					testLocation.add(x,y,-z);
 
 					// get result for test location
-					result = validateChestLocation(player, testLocation, chestSize);
-					testCount = testCount + 1;
+					result = validator.apply(testLocation);
 
 					// if location is valid, return search result object
 					if (result.getResultCode().equals(ResultCode.SUCCESS)) {
-						if (plugin.debug) {
-							plugin.getLogger().info("Locations tested: " + testCount);
-						}
 						return result;
 					}
 					else {
@@ -564,10 +599,6 @@ public final class Deployment {
 		}
 
 		// no valid location could be found, so return result
-		if (plugin.debug) {
-			plugin.getLogger().info("Locations tested: " + testCount);
-		}
-
 		return result;
 	}
 
@@ -596,7 +627,8 @@ public final class Deployment {
 		blockState.update(true, false);
 
 		// create new ChestBlock object
-		ChestBlock chestBlock = new ChestBlock(deathChest.getChestUUID(), block.getLocation());
+		ChestBlock chestBlock = new ChestBlock(deathChest.getChestUUID(),
+				block.getWorld(), block.getX(), block.getY(), block.getZ());
 
 		// add this ChestBlock to block map
 		plugin.chestManager.addChestBlock(chestBlockType, chestBlock);
@@ -754,7 +786,8 @@ public final class Deployment {
 		sign.update();
 
 		// create ChestBlock for this sign block
-		ChestBlock signChestBlock = new ChestBlock(deathChest.getChestUUID(), signBlock.getLocation());
+		ChestBlock signChestBlock = new ChestBlock(deathChest.getChestUUID(),
+				signBlock.getWorld(), signBlock.getX(), signBlock.getY(), signBlock.getZ());
 
 		// add this ChestBlock to block map
 		plugin.chestManager.addChestBlock(ChestBlockType.SIGN, signChestBlock);
@@ -0,0 +1,123 @@
+package com.winterhaven_mc.deathchest.chests;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.metrics.MetricId;
+import com.winterhaven_mc.deathchest.storage.RemovalReason;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A class that expires death chests under a per-tick count and time budget, so chests
+ * expiring at the same time are spread over following ticks. The chest records expired
+ * in each tick are deleted from the datastore in one batch. All methods must be called on the main thread.
+ */
+final class ExpirationQueue {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// chests waiting to be expired, in order of expiration
+	private final Deque<DeathChest> queue = new ArrayDeque<>();
+
+	// task processing queue each tick, or null if queue is empty
+	private BukkitTask processTask;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 */
+	ExpirationQueue(final PluginMain plugin) {
+		this.plugin = plugin;
+	}
+
+
+	/**
+	 * Add a chest to be expired, starting queue processing if necessary
+	 * @param deathChest the chest to expire
+	 */
+	final void add(final DeathChest deathChest) {
+
+		queue.add(deathChest);
+
+		// if queue is not being processed, start processing on next tick
+		if (processTask == null) {
+			processTask = new BukkitRunnable() {
+				@Override
+				public void run() {
+					process();
+				}
+			}.runTaskTimer(plugin, 1L, 1L);
+		}
+	}
+
+
+	/**
+	 * Get the number of chests waiting to be expired
+	 * @return the number of queued chests
+	 */
+	final int size() {
+		return queue.size();
+	}
+
+
+	/**
+	 * Expire queued chests until the per-tick count or time budget is used,
+	 * then delete their records in one batch. Processing stops when the queue is empty.
+	 */
+	private void process() {
+
+		// get budgets from config; at least one chest is expired per tick
+		final int maxCount = Math.max(1, plugin.getConfig().getInt("expire-per-tick", 20));
+		final long maxTime = (long) (plugin.getConfig().getDouble("expire-tick-time", 2.0)
+				* TimeUnit.MILLISECONDS.toNanos(1));
+
+		final long startTime = System.nanoTime();
+
+		final List<DeathChest> expiredChests = new ArrayList<>();
+
+		while (!queue.isEmpty()
+				&& expiredChests.size() < maxCount
+				&& (expiredChests.isEmpty() || System.nanoTime() - startTime < maxTime)) {
+
+			DeathChest deathChest = queue.poll();
+
+			// if chest was removed while queued, such as by looting, skip it
+			if (plugin.chestManager.getDeathChest(deathChest.getChestUUID()) != deathChest) {
+				continue;
+			}
+
+			final long expireStartTime = plugin.metrics.start();
+
+			// describe chest location for tick watchdog
+			if (plugin.metrics.isWatchdogEnabled()) {
+				plugin.metrics.describe(deathChest.getLocation(), -1);
+			}
+
+			// expire chest, deferring datastore delete to batch
+			deathChest.expire(false);
+			expiredChests.add(deathChest);
+
+			plugin.metrics.stop(MetricId.EXPIRE_CHEST, expireStartTime);
+		}
+
+		// delete records of chests expired in this tick; block records are removed by cascade
+		if (!expiredChests.isEmpty()) {
+			plugin.dataStore.deleteChestRecords(expiredChests, RemovalReason.EXPIRED);
+		}
+
+		// if queue is empty, stop processing
+		if (queue.isEmpty()) {
+			processTask.cancel();
+			processTask = null;
+		}
+	}
+
+}
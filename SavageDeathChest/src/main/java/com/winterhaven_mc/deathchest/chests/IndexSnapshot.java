@@ -0,0 +1,416 @@
+package com.winterhaven_mc.deathchest.chests;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+
+import org.bukkit.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+
+/**
+ * A class that writes the chest and block indexes to a compact binary file on clean shutdown,
+ * and reads them back at startup in place of the datastore when the snapshot generation
+ * matches the datastore generation.
+ * <p>
+ * The file is a header (magic, version, generation), a table of world names, fixed size chest records,
+ * fixed size block records, and a CRC32 checksum of everything before it.
+ * The world table names every world whose chests were loaded when the snapshot was written;
+ * chests in other worlds are read from the datastore.
+ */
+final class IndexSnapshot {
+
+	// snapshot file name in plugin data folder
+	private final static String FILENAME = "index.snapshot";
+
+	// file identification and format version
+	private final static int MAGIC = 0x53444358;
+	private final static int VERSION = 1;
+
+	// record sizes in bytes
+	private final static int HEADER_SIZE = 4 + 4 + 8;
+	private final static int CHEST_RECORD_SIZE = 16 + 16 + 1 + 16 + 4 + 8 + 8;
+	private final static int BLOCK_RECORD_SIZE = 16 + 4 + 4 + 4 + 4 + 1;
+	private final static int CHECKSUM_SIZE = 8;
+
+	// chests read from snapshot
+	private final List<DeathChest> chests;
+
+	// blocks read from snapshot, with their chest block types
+	private final Map<ChestBlock, ChestBlockType> blocks;
+
+	// names of worlds whose chests are included in snapshot
+	private final Set<String> worldNames;
+
+
+	/**
+	 * Class constructor
+	 * @param chests the chests read from snapshot
+	 * @param blocks the blocks read from snapshot, with their chest block types
+	 * @param worldNames the names of worlds whose chests are included in snapshot
+	 */
+	private IndexSnapshot(final List<DeathChest> chests,
+						  final Map<ChestBlock, ChestBlockType> blocks,
+						  final Set<String> worldNames) {
+		this.chests = chests;
+		this.blocks = blocks;
+		this.worldNames = worldNames;
+	}
+
+
+	/**
+	 * Get the chests read from snapshot
+	 * @return List of DeathChest
+	 */
+	final List<DeathChest> getChests() {
+		return chests;
+	}
+
+
+	/**
+	 * Get the blocks read from snapshot
+	 * @return Map of ChestBlock to ChestBlockType
+	 */
+	final Map<ChestBlock, ChestBlockType> getBlocks() {
+		return blocks;
+	}
+
+
+	/**
+	 * Get the names of worlds whose chests are included in snapshot
+	 * @return Set of world names
+	 */
+	final Set<String> getWorldNames() {
+		return worldNames;
+	}
+
+
+	/**
+	 * Get the snapshot file in the plugin data folder
+	 * @param plugin reference to main class
+	 * @return File - the snapshot file
+	 */
+	static File getFile(final PluginMain plugin) {
+		return new File(plugin.getDataFolder(), FILENAME);
+	}
+
+
+	/**
+	 * Write the chest and block indexes to the snapshot file through a memory mapped buffer.
+	 * The snapshot is written to a temporary file and moved into place when complete.
+	 * @param plugin reference to main class
+	 * @param generation the datastore generation the indexes correspond to
+	 * @param chestManager the chest manager whose indexes are written
+	 * @return {@code true} if the snapshot was written, {@code false} if it was not
+	 */
+	static boolean write(final PluginMain plugin, final long generation, final ChestManager chestManager) {
+
+		// collect resident and archived chests with their blocks
+		List<DeathChest> chestList = new ArrayList<>();
+		List<Map<ChestBlockType, ChestBlock>> chestBlockMaps = new ArrayList<>();
+
+		for (DeathChest deathChest : chestManager.getChestList()) {
+			chestList.add(deathChest);
+			chestBlockMaps.add(chestManager.getChestBlockMap(deathChest.getChestUUID()));
+		}
+
+		for (ChestArchive.ArchivedChest archivedChest : chestManager.getArchivedChests()) {
+			World world = plugin.getServer().getWorld(archivedChest.getWorldUID());
+			if (world != null) {
+				chestList.add(archivedChest.toDeathChest());
+				chestBlockMaps.add(archivedChest.toChestBlocks(world));
+			}
+		}
+
+		// collect blocks and worlds
+		List<ChestBlock> blockList = new ArrayList<>();
+		List<ChestBlockType> typeList = new ArrayList<>();
+		Map<String, Integer> worldIndexes = new LinkedHashMap<>();
+		List<byte[]> worldNames = new ArrayList<>();
+
+		// include every world whose chests are loaded, including worlds without chests
+		for (UUID worldUID : chestManager.getLoadedWorlds()) {
+			World world = plugin.getServer().getWorld(worldUID);
+			if (world != null && !worldIndexes.containsKey(world.getName())) {
+				worldIndexes.put(world.getName(), worldNames.size());
+				worldNames.add(world.getName().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		for (Map<ChestBlockType, ChestBlock> chestBlockMap : chestBlockMaps) {
+			for (Map.Entry<ChestBlockType, ChestBlock> entry : chestBlockMap.entrySet()) {
+
+				World world = entry.getValue().getWorld();
+
+				// skip blocks in worlds that are not loaded
+				if (world == null) {
+					continue;
+				}
+
+				if (!worldIndexes.containsKey(world.getName())) {
+					worldIndexes.put(world.getName(), worldNames.size());
+					worldNames.add(world.getName().getBytes(StandardCharsets.UTF_8));
+				}
+
+				typeList.add(entry.getKey());
+				blockList.add(entry.getValue());
+			}
+		}
+
+		// compute file size
+		long size = HEADER_SIZE + 4 + 4 + 4 + CHECKSUM_SIZE
+				+ (long) chestList.size() * CHEST_RECORD_SIZE
+				+ (long) blockList.size() * BLOCK_RECORD_SIZE;
+		for (byte[] name : worldNames) {
+			size += 2 + name.length;
+		}
+
+		File file = getFile(plugin);
+		File tempFile = new File(file.getPath() + ".tmp");
+
+		try (FileChannel channel = FileChannel.open(tempFile.toPath(),
+				StandardOpenOption.CREATE,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+			// write header
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putLong(generation);
+
+			// write world table
+			buffer.putInt(worldNames.size());
+			for (byte[] name : worldNames) {
+				buffer.putShort((short) name.length);
+				buffer.put(name);
+			}
+
+			// write chest records
+			buffer.putInt(chestList.size());
+			for (DeathChest deathChest : chestList) {
+				putUUID(buffer, deathChest.getChestUUID());
+				putUUID(buffer, deathChest.getOwnerUUID());
+				buffer.put((byte) (deathChest.getKillerUUID() == null ? 0 : 1));
+				putUUID(buffer, deathChest.getKillerUUID());
+				buffer.putInt(deathChest.getItemCount());
+				buffer.putLong(deathChest.getPlacementTime());
+				buffer.putLong(deathChest.getExpirationTime());
+			}
+
+			// write block records
+			buffer.putInt(blockList.size());
+			for (int i = 0; i < blockList.size(); i++) {
+				ChestBlock chestBlock = blockList.get(i);
+				putUUID(buffer, chestBlock.getChestUUID());
+				buffer.putInt(worldIndexes.get(chestBlock.getWorldName()));
+				buffer.putInt(chestBlock.getX());
+				buffer.putInt(chestBlock.getY());
+				buffer.putInt(chestBlock.getZ());
+				buffer.put((byte) typeList.get(i).ordinal());
+			}
+
+			// write checksum of all preceding bytes
+			buffer.putLong(checksum(buffer, (int) size - CHECKSUM_SIZE));
+
+			// flush mapped buffer to disk
+			buffer.force();
+		}
+		catch (IOException | RuntimeException e) {
+			plugin.getLogger().warning("An error occurred while writing the index snapshot.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			//noinspection ResultOfMethodCallIgnored
+			tempFile.delete();
+			return false;
+		}
+
+		// move completed snapshot into place
+		try {
+			Files.move(tempFile.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("An error occurred while replacing the index snapshot.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			//noinspection ResultOfMethodCallIgnored
+			tempFile.delete();
+			return false;
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info("Wrote index snapshot of " + chestList.size() + " chests and "
+					+ blockList.size() + " blocks at generation " + generation + ".");
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Map the snapshot file and read its chests and blocks, if the snapshot generation matches
+	 * the datastore generation and the checksum is valid. Intended to be run asynchronously.
+	 * @param plugin reference to main class
+	 * @param generation the current datastore generation
+	 * @return IndexSnapshot - the snapshot, or null if it is missing, stale or invalid
+	 */
+	static IndexSnapshot read(final PluginMain plugin, final long generation) {
+
+		File file = getFile(plugin);
+
+		// if snapshot does not exist or datastore generation is unknown, return null
+		if (!file.exists() || generation < 0) {
+			return null;
+		}
+
+		List<DeathChest> chests = new ArrayList<>();
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			long size = channel.size();
+
+			// if file is too small or too large to be a snapshot, return null
+			if (size < HEADER_SIZE + CHECKSUM_SIZE || size > Integer.MAX_VALUE) {
+				return null;
+			}
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+			// check header
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				plugin.getLogger().info("Ignoring index snapshot with unrecognized format.");
+				return null;
+			}
+
+			long snapshotGeneration = buffer.getLong();
+
+			// if snapshot is stale, return null
+			if (snapshotGeneration != generation) {
+				if (plugin.debug) {
+					plugin.getLogger().info("Index snapshot generation " + snapshotGeneration
+							+ " does not match datastore generation " + generation + ".");
+				}
+				return null;
+			}
+
+			// check checksum
+			if (checksum(buffer, (int) size - CHECKSUM_SIZE) != buffer.getLong((int) size - CHECKSUM_SIZE)) {
+				plugin.getLogger().warning("Ignoring index snapshot with invalid checksum.");
+				return null;
+			}
+
+			// read world table
+			World[] worlds = new World[buffer.getInt()];
+			Set<String> worldNames = new HashSet<>();
+			for (int i = 0; i < worlds.length; i++) {
+				byte[] name = new byte[buffer.getShort() & 0xFFFF];
+				buffer.get(name);
+				String worldName = new String(name, StandardCharsets.UTF_8);
+				worlds[i] = plugin.getServer().getWorld(worldName);
+				worldNames.add(worldName);
+			}
+
+			// read chest records
+			int chestCount = buffer.getInt();
+			for (int i = 0; i < chestCount; i++) {
+				UUID chestUUID = getUUID(buffer);
+				UUID ownerUUID = getUUID(buffer);
+				boolean hasKiller = buffer.get() != 0;
+				UUID killerUUID = getUUID(buffer);
+				chests.add(new DeathChest(chestUUID,
+						ownerUUID,
+						hasKiller ? killerUUID : null,
+						buffer.getInt(),
+						buffer.getLong(),
+						buffer.getLong()));
+			}
+
+			// read block records, skipping blocks in worlds that are not loaded
+			int blockCount = buffer.getInt();
+			Map<ChestBlock, ChestBlockType> blocks = new LinkedHashMap<>(blockCount * 4 / 3 + 1);
+			ChestBlockType[] types = ChestBlockType.values();
+			for (int i = 0; i < blockCount; i++) {
+				UUID chestUUID = getUUID(buffer);
+				World world = worlds[buffer.getInt()];
+				int x = buffer.getInt();
+				int y = buffer.getInt();
+				int z = buffer.getInt();
+				ChestBlockType chestBlockType = types[buffer.get()];
+				if (world != null) {
+					blocks.put(new ChestBlock(chestUUID, world, x, y, z), chestBlockType);
+				}
+			}
+
+			return new IndexSnapshot(chests, blocks, worldNames);
+		}
+		catch (IOException | RuntimeException e) {
+
+			// cancel expire tasks of chests read before error
+			for (DeathChest deathChest : chests) {
+				deathChest.cancelExpireTask();
+			}
+
+			plugin.getLogger().warning("An error occurred while reading the index snapshot.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+	}
+
+
+	/**
+	 * Compute CRC32 checksum of buffer contents from start to limit, without changing buffer position
+	 * @param buffer the buffer
+	 * @param limit the number of bytes to include in checksum
+	 * @return the checksum value
+	 */
+	private static long checksum(final ByteBuffer buffer, final int limit) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(0);
+		view.limit(limit);
+		CRC32 crc = new CRC32();
+		crc.update(view);
+		return crc.getValue();
+	}
+
+
+	/**
+	 * Write a UUID to buffer as two longs; a null UUID is written as zeros
+	 * @param buffer the buffer
+	 * @param uuid the UUID to write
+	 */
+	private static void putUUID(final ByteBuffer buffer, final UUID uuid) {
+		buffer.putLong(uuid == null ? 0L : uuid.getMostSignificantBits());
+		buffer.putLong(uuid == null ? 0L : uuid.getLeastSignificantBits());
+	}
+
+
+	/**
+	 * Read a UUID from buffer as two longs
+	 * @param buffer the buffer
+	 * @return UUID - the UUID read from buffer
+	 */
+	private static UUID getUUID(final ByteBuffer buffer) {
+		return new UUID(buffer.getLong(), buffer.getLong());
+	}
+
+}
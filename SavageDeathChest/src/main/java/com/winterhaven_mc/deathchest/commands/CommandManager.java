@@ -5,10 +5,14 @@ import com.winterhaven_mc.deathchest.PluginMain;
 import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
 import com.winterhaven_mc.deathchest.messages.MessageId;
+import com.winterhaven_mc.deathchest.metrics.Histogram;
+import com.winterhaven_mc.deathchest.metrics.MetricId;
 import com.winterhaven_mc.deathchest.sounds.SoundId;
 import com.winterhaven_mc.deathchest.storage.DataStoreFactory;
+import com.winterhaven_mc.deathchest.storage.RemoteChest;
 
 import org.bukkit.ChatColor;
+import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -34,7 +38,7 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 	// constant List of subcommands
 	private final static List<String> subcommands =
 			Collections.unmodifiableList(new ArrayList<>(
-					Arrays.asList("help", "list", "reload", "status")));
+					Arrays.asList("help", "list", "metrics", "reload", "status", "where")));
 
 
 	public CommandManager(final PluginMain plugin) {
@@ -91,6 +95,10 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 						returnList.add(subcommand);
 					}
 				}
+			} else if (args[0].equalsIgnoreCase("metrics")
+					&& sender.hasPermission("deathchest.metrics")
+					&& "reset".startsWith(args[1].toLowerCase())) {
+				returnList.add("reset");
 			}
 		}
 
@@ -136,6 +144,16 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 			return listCommand(sender, args);
 		}
 
+		// metrics command
+		if (subcommand.equalsIgnoreCase("metrics")) {
+			return metricsCommand(sender, args);
+		}
+
+		// where command
+		if (subcommand.equalsIgnoreCase("where")) {
+			return whereCommand(sender);
+		}
+
 		// list command
 		if (subcommand.equalsIgnoreCase("help")) {
 			return helpCommand(sender, args);
@@ -244,6 +262,10 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 		// update debug field
 		plugin.debug = plugin.getConfig().getBoolean("debug");
 
+		// update metrics enabled setting and restart export
+		plugin.metrics.reload();
+		plugin.metricsExporter.reload();
+
 		// update enabledWorlds list
 
 		// reload messages
@@ -253,6 +275,12 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 		// reload datastore if changed
 		DataStoreFactory.reload();
 
+		// restart remote chest view for new datastore or interval
+		plugin.remoteChestView.reload();
+
+		// restart datastore maintenance with new settings
+		plugin.dataStoreMaintenance.reload();
+
 		// send success message
 		plugin.messageManager.sendMessage(sender, MessageId.COMMAND_SUCCESS_RELOAD);
 
@@ -261,6 +289,170 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 	}
 
 
+	/**
+	 * metrics command
+	 *
+	 * @param sender command sender
+	 * @param args additional command arguments
+	 * @return boolean - always returns {@code true}, to suppress bukkit builtin help message
+	 */
+	private boolean metricsCommand(final CommandSender sender, final String[] args) {
+
+		if (!sender.hasPermission("deathchest.metrics")) {
+			plugin.messageManager.sendMessage(sender, MessageId.COMMAND_FAIL_METRICS_PERMISSION);
+			return true;
+		}
+
+		// if reset argument passed, clear recorded timings and return
+		if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+			plugin.metrics.reset();
+			sender.sendMessage(ChatColor.DARK_AQUA + pluginName + ChatColor.AQUA + "Metrics reset.");
+			return true;
+		}
+
+		sender.sendMessage(ChatColor.DARK_AQUA + pluginName + ChatColor.AQUA + "Metrics: "
+				+ ChatColor.RESET + (plugin.metrics.isEnabled() ? "enabled" : "disabled"));
+
+		sender.sendMessage(ChatColor.GREEN + "Timings in microseconds: "
+				+ ChatColor.RESET + "count / mean / p50 / p99 / max");
+
+		int count = 0;
+		for (MetricId metricId : MetricId.values()) {
+
+			Histogram histogram = plugin.metrics.getHistogram(metricId);
+
+			// skip metrics with no recorded timings
+			if (histogram.getCount() == 0) {
+				continue;
+			}
+
+			count++;
+			sender.sendMessage(ChatColor.AQUA + "  " + metricId.getDisplayName() + ": " + ChatColor.RESET
+					+ String.format("%d / %.1f / %.1f / %.1f / %.1f",
+					histogram.getCount(),
+					histogram.getMean() / 1000.0,
+					histogram.getValueAtPercentile(50.0) / 1000.0,
+					histogram.getValueAtPercentile(99.0) / 1000.0,
+					histogram.getMax() / 1000.0));
+		}
+		if (count == 0) {
+			sender.sendMessage(ChatColor.AQUA + "  [ NO TIMINGS RECORDED ]");
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * where command; lists the sender's chests on this server from the chest indexes,
+	 * and on other servers sharing the datastore from the cached remote chest view
+	 *
+	 * @param sender command sender
+	 * @return boolean - always returns {@code true}, to suppress bukkit builtin help message
+	 */
+	private boolean whereCommand(final CommandSender sender) {
+
+		if (!sender.hasPermission("deathchest.where")) {
+			plugin.messageManager.sendMessage(sender, MessageId.COMMAND_FAIL_WHERE_PERMISSION);
+			return true;
+		}
+
+		// only players own chests
+		if (!(sender instanceof Player)) {
+			sender.sendMessage(ChatColor.DARK_AQUA + pluginName + ChatColor.AQUA
+					+ "This command can only be used by players.");
+			return true;
+		}
+
+		final Player player = (Player) sender;
+		final long currentTime = System.currentTimeMillis();
+
+		sender.sendMessage(ChatColor.DARK_AQUA + pluginName + ChatColor.AQUA + "Your death chests:");
+
+		int count = 0;
+
+		// list resident chests of player on this server
+		for (DeathChest deathChest : plugin.chestManager.getChestList()) {
+
+			if (!player.getUniqueId().equals(deathChest.getOwnerUUID()) || deathChest.getLocation() == null) {
+				continue;
+			}
+
+			count++;
+			sender.sendMessage(ChatColor.GREEN + "  this server: " + ChatColor.RESET
+					+ formatLocation(deathChest.getLocation().getWorld().getName(),
+					deathChest.getLocation().getBlockX(),
+					deathChest.getLocation().getBlockY(),
+					deathChest.getLocation().getBlockZ())
+					+ formatRemaining(deathChest.getExpirationTime(), currentTime));
+		}
+
+		// list archived chests of player on this server, without restoring them; archived chests never expire
+		for (Location location : plugin.chestManager.getArchivedChestLocations(player.getUniqueId())) {
+
+			count++;
+			sender.sendMessage(ChatColor.GREEN + "  this server: " + ChatColor.RESET
+					+ formatLocation(location.getWorld().getName(),
+					location.getBlockX(),
+					location.getBlockY(),
+					location.getBlockZ()));
+		}
+
+		// list chests on other servers from cached view
+		for (RemoteChest remoteChest : plugin.remoteChestView.getChests(player.getUniqueId())) {
+
+			count++;
+			sender.sendMessage(ChatColor.GREEN + "  " + remoteChest.getServerId() + ": " + ChatColor.RESET
+					+ formatLocation(remoteChest.getWorldName(), remoteChest.getX(), remoteChest.getY(), remoteChest.getZ())
+					+ formatRemaining(remoteChest.getExpirationTime(), currentTime));
+		}
+
+		if (count == 0) {
+			sender.sendMessage(ChatColor.AQUA + "  [ NONE FOUND ]");
+		}
+
+		// show age of remote view
+		if (plugin.remoteChestView.isEnabled()) {
+			long refreshTime = plugin.remoteChestView.getRefreshTime();
+			sender.sendMessage(ChatColor.GRAY + (refreshTime == 0
+					? "Other servers have not been checked yet."
+					: "Other servers checked " + TimeUnit.MILLISECONDS.toSeconds(currentTime - refreshTime)
+					+ " seconds ago."));
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Format a chest location for the where command
+	 * @param worldName the world name
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param z the z coordinate
+	 * @return String - the formatted location
+	 */
+	private static String formatLocation(final String worldName, final int x, final int y, final int z) {
+		return worldName + " < " + x + ", " + y + ", " + z + " >";
+	}
+
+
+	/**
+	 * Format the remaining time of a chest for the where command
+	 * @param expirationTime the chest expiration time in milliseconds since epoch, or 0 if it never expires
+	 * @param currentTime the current time in milliseconds since epoch
+	 * @return String - the formatted remaining time, or empty string if the chest never expires
+	 */
+	private static String formatRemaining(final long expirationTime, final long currentTime) {
+
+		if (expirationTime <= 0) {
+			return "";
+		}
+		return ChatColor.AQUA + " (" + Math.max(0, TimeUnit.MILLISECONDS.toMinutes(expirationTime - currentTime))
+				+ " minutes left)";
+	}
+
+
 	// > /deathchest list
 	// > /deathchest list [page]
 	// > /deathchest list [player]
@@ -342,51 +534,41 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 
 		int itemsPerPage = plugin.getConfig().getInt("list-page-size");
 
-		// get all records from chest manager
-		final Collection<DeathChest> chestList = plugin.chestManager.getChestList();
-
-		// create empty list of records
-		List<DeathChest> displayRecords = new ArrayList<>();
-
-		// add chests to displayRecords list
-		for (DeathChest deathChest : chestList) {
-
-			// if passed player name is wildcard, add chest to list
-			if ((passedPlayerName.equals("*")) && sender.hasPermission("deathchest.list.other")) {
-				displayRecords.add(deathChest);
-			}
-
-			// if passed player is valid player and matches chest owner, add chest to list
-			else if (targetPlayer != null
-					&& deathChest.getOwnerUUID().equals(targetPlayer.getUniqueId())
-					&& sender.hasPermission("deathchest.list.other")) {
-				displayRecords.add(deathChest);
-			}
-			// if message recipient is valid player and matches chest owner, add chest to list
-			else if (player != null && player.getUniqueId().equals(deathChest.getOwnerUUID())) {
-				displayRecords.add(deathChest);
-			}
-
+		// get owner of chests to list; null lists chests of all owners
+		final UUID ownerUUID;
+		if (passedPlayerName.equals("*") && sender.hasPermission("deathchest.list.other")) {
+			ownerUUID = null;
 		}
-
-		// if display list is empty, output list empty message and return
-		if (displayRecords.isEmpty()) {
+		else if (targetPlayer != null && sender.hasPermission("deathchest.list.other")) {
+			ownerUUID = targetPlayer.getUniqueId();
+		}
+		else if (player != null) {
+			ownerUUID = player.getUniqueId();
+		}
+		else {
 			plugin.messageManager.sendMessage(sender, MessageId.LIST_EMPTY);
 			return true;
 		}
 
-		// sort displayRecords
-		displayRecords.sort(Comparator.comparingLong(DeathChest::getExpirationTime));
+		// count resident and archived chests, without restoring archived chests
+		int chestCount = plugin.chestManager.getChestCount(ownerUUID);
+
+		// if there are no chests to list, output list empty message and return
+		if (chestCount == 0) {
+			plugin.messageManager.sendMessage(sender, MessageId.LIST_EMPTY);
+			return true;
+		}
 
 		// get page count
-		int pageCount = ((displayRecords.size() - 1) / itemsPerPage) + 1;
+		int pageCount = ((chestCount - 1) / itemsPerPage) + 1;
 		if (page > pageCount) {
 			page = pageCount;
 		}
 		int startIndex = ((page - 1) * itemsPerPage);
-		int endIndex = Math.min((page * itemsPerPage), displayRecords.size());
+		int endIndex = Math.min((page * itemsPerPage), chestCount);
 
-		List<DeathChest> displayRange = displayRecords.subList(startIndex, endIndex);
+		// get chests on page, in order of expiration time; only archived chests on this page are restored
+		List<DeathChest> displayRange = plugin.chestManager.getChestRange(ownerUUID, startIndex, endIndex);
 
 
 		int listCount = startIndex;
@@ -442,12 +624,18 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 		if (command.equalsIgnoreCase("list")) {
 			helpMessage = "Displays a list of DeathChests.";
 		}
+		if (command.equalsIgnoreCase("metrics")) {
+			helpMessage = "Displays event handler and datastore timings, or resets them.";
+		}
 		if (command.equalsIgnoreCase("reload")) {
 			helpMessage = "Reloads the configuration without needing to restart the server.";
 		}
 		if (command.equalsIgnoreCase("status")) {
 			helpMessage = "Displays current configuration settings.";
 		}
+		if (command.equalsIgnoreCase("where")) {
+			helpMessage = "Displays the locations of your DeathChests on this and other servers.";
+		}
 		sender.sendMessage(helpColor + helpMessage);
 		displayUsage(sender, command);
 		return true;
@@ -481,6 +669,11 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 				sender.sendMessage(usageColor + "/deathchest list [username] [page]");
 			}
 		}
+		if ((command.equalsIgnoreCase("metrics")
+				|| command.equalsIgnoreCase("all"))
+				&& sender.hasPermission("deathchest.metrics")) {
+			sender.sendMessage(usageColor + "/deathchest metrics [reset]");
+		}
 		if ((command.equalsIgnoreCase("reload")
 				|| command.equalsIgnoreCase("all"))
 				&& sender.hasPermission("deathchest.reload")) {
@@ -491,6 +684,11 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 				&& sender.hasPermission("deathchest.status")) {
 			sender.sendMessage(usageColor + "/deathchest status");
 		}
+		if ((command.equalsIgnoreCase("where")
+				|| command.equalsIgnoreCase("all"))
+				&& sender.hasPermission("deathchest.where")) {
+			sender.sendMessage(usageColor + "/deathchest where");
+		}
 	}
 
 }
@@ -1,6 +1,7 @@
 package com.winterhaven_mc.deathchest.listeners;
 
 import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.metrics.MetricId;
 import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
 import com.winterhaven_mc.deathchest.messages.MessageId;
@@ -9,18 +10,29 @@ import com.winterhaven_mc.deathchest.sounds.SoundId;
 import org.bukkit.GameMode;
 import org.bukkit.Material;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
 import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFromToEvent;
 import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.LeavesDecayEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 import static com.winterhaven_mc.deathchest.util.LocationUtilities.*;
 
@@ -33,6 +45,14 @@ public final class BlockEventListener implements Listener {
 	// reference to main class
 	private final PluginMain plugin;
 
+	// faces of blocks that may support an attached death chest sign
+	private final static BlockFace[] ADJACENT_FACES = {
+			BlockFace.UP, BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST };
+
+	// fading blocks that may support a death chest sign; fire is not included, so it still burns out
+	private final static Set<Material> FADING_SUPPORT_MATERIALS =
+			EnumSet.of(Material.ICE, Material.SNOW, Material.FROSTED_ICE);
+
 	
 	/**
 	 * Class constructor
@@ -81,9 +101,30 @@ public final class BlockEventListener implements Listener {
 	//TODO: Make sure we're using the right priority. Use NORMAL if possible.
 	public final void onBlockBreak(final BlockBreakEvent event) {
 
+		final long startTime = plugin.metrics.start();
+
+		// handle event
+		handleBlockBreak(event);
+
+		plugin.metrics.stop(MetricId.BLOCK_BREAK, startTime);
+	}
+
+
+	/**
+	 * Handle BlockBreakEvent, timed by {@code onBlockBreak}
+	 * @param event the event being handled by this method
+	 */
+	private void handleBlockBreak(final BlockBreakEvent event) {
+
 		final Block block = event.getBlock();
 		final Player player = event.getPlayer();
 
+		// if block may be a DeathChestBlock in a world whose chests are still being loaded, cancel event and return
+		if (plugin.chestManager.isUnindexed(block)) {
+			event.setCancelled(true);
+			return;
+		}
+
 		// if event block is not a DeathChestBlock, do nothing and return
 		if (!plugin.chestManager.isChestBlock(block)) {
 			return;
@@ -171,10 +212,10 @@ public final class BlockEventListener implements Listener {
 			return;
 		}
 		
-		// iterate through all blocks in explosion event and remove those that are DeathChest chests or signs
+		// iterate through all blocks in explosion event and remove those that are, or may be, DeathChest chests or signs
 		ArrayList<Block> blocks = new ArrayList<>(event.blockList());
 		for (Block block : blocks) {
-			if (plugin.chestManager.isChestBlock(block)) {
+			if (plugin.chestManager.isChestBlock(block) || plugin.chestManager.isUnindexed(block)) {
 				event.blockList().remove(block);
 			}
 		}
@@ -194,16 +235,201 @@ public final class BlockEventListener implements Listener {
 			return;
 		}
 		
-		// iterate through all blocks in explosion event and remove those that are DeathChest chests or signs
+		// iterate through all blocks in explosion event and remove those that are, or may be, DeathChest chests or signs
 		ArrayList<Block> blocks = new ArrayList<>(event.blockList());
 		for (Block block : blocks) {
-			if (plugin.chestManager.isChestBlock(block)) {
+			if (plugin.chestManager.isChestBlock(block) || plugin.chestManager.isUnindexed(block)) {
 				event.blockList().remove(block);
 			}
 		}
 	}
 
 
+	/**
+	 * Piston extend event handler<br>
+	 * prevent pistons from moving or breaking death chest blocks, which would desync the block index from the world
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(ignoreCancelled = true)
+	public final void onBlockPistonExtend(final BlockPistonExtendEvent event) {
+
+		final long startTime = plugin.metrics.start();
+
+		// if any moved or broken block is a DeathChest component, cancel event
+		if (containsChestBlock(event.getBlock(), event.getBlocks())) {
+			event.setCancelled(true);
+		}
+
+		plugin.metrics.stop(MetricId.BLOCK_PISTON, startTime);
+	}
+
+
+	/**
+	 * Piston retract event handler<br>
+	 * prevent sticky pistons from moving or breaking death chest blocks
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(ignoreCancelled = true)
+	public final void onBlockPistonRetract(final BlockPistonRetractEvent event) {
+
+		final long startTime = plugin.metrics.start();
+
+		// if any moved or broken block is a DeathChest component, cancel event
+		if (containsChestBlock(event.getBlock(), event.getBlocks())) {
+			event.setCancelled(true);
+		}
+
+		plugin.metrics.stop(MetricId.BLOCK_PISTON, startTime);
+	}
+
+
+	/**
+	 * Check if blocks affected by a piston include a DeathChest component. The world and chunk level
+	 * block index is checked before each block, so pistons away from death chests do not access the world.
+	 * @param piston the piston block
+	 * @param blocks the blocks moved or broken by the piston
+	 * @return {@code true} if any block is a DeathChest component, {@code false} if not
+	 */
+	private boolean containsChestBlock(final Block piston, final List<Block> blocks) {
+
+		final World world = piston.getWorld();
+
+		// while chests of world are being loaded, any block of death chest material may be a DeathChest component
+		for (Block block : blocks) {
+			if (plugin.chestManager.isUnindexed(block)) {
+				return true;
+			}
+		}
+
+		// if world contains no DeathChest blocks, return false
+		if (!plugin.chestManager.hasChestBlocks(world)) {
+			return false;
+		}
+
+		for (Block block : blocks) {
+
+			// skip blocks in chunks that contain no DeathChest blocks
+			if (!plugin.chestManager.hasChestBlocks(world, block.getX() >> 4, block.getZ() >> 4)) {
+				continue;
+			}
+
+			if (plugin.chestManager.isChestBlock(block)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Block from to event handler<br>
+	 * prevent flowing water and lava from destroying death chest blocks.
+	 * This event fires very frequently, so chunks without death chest blocks are rejected by the chunk bitmap
+	 * before the block is accessed.
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(ignoreCancelled = true)
+	public final void onBlockFromTo(final BlockFromToEvent event) {
+
+		final Block toBlock = event.getToBlock();
+
+		// if liquid flows into a DeathChest component, or a block that may be one not yet indexed, cancel event
+		if (plugin.chestManager.mayHaveChestBlocks(toBlock.getWorld(), toBlock.getX() >> 4, toBlock.getZ() >> 4)
+				&& plugin.chestManager.isChestBlock(toBlock)
+				|| plugin.chestManager.isUnindexed(toBlock)) {
+			event.setCancelled(true);
+		}
+	}
+
+
+	/**
+	 * Block burn event handler<br>
+	 * prevent fire from destroying death chest blocks
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(ignoreCancelled = true)
+	public final void onBlockBurn(final BlockBurnEvent event) {
+
+		final Block block = event.getBlock();
+
+		// if burning block is a DeathChest component, or may be one not yet indexed, cancel event
+		if (plugin.chestManager.mayHaveChestBlocks(block.getWorld(), block.getX() >> 4, block.getZ() >> 4)
+				&& plugin.chestManager.isChestBlock(block)
+				|| plugin.chestManager.isUnindexed(block)) {
+			event.setCancelled(true);
+		}
+	}
+
+
+	/**
+	 * Leaves decay event handler<br>
+	 * prevent decaying leaves from dropping attached death chest signs
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(ignoreCancelled = true)
+	public final void onLeavesDecay(final LeavesDecayEvent event) {
+
+		// if decaying block is or supports a DeathChest component, cancel event
+		if (supportsChestBlock(event.getBlock())) {
+			event.setCancelled(true);
+		}
+	}
+
+
+	/**
+	 * Block fade event handler<br>
+	 * prevent melting ice and snow from removing blocks supporting death chest signs
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(ignoreCancelled = true)
+	public final void onBlockFade(final BlockFadeEvent event) {
+
+		// if fading block cannot support a sign, such as fire, do nothing and return
+		if (!FADING_SUPPORT_MATERIALS.contains(event.getBlock().getType())) {
+			return;
+		}
+
+		// if fading block supports a DeathChest component, cancel event
+		if (supportsChestBlock(event.getBlock())) {
+			event.setCancelled(true);
+		}
+	}
+
+
+	/**
+	 * Check if a block is a DeathChest component, or is adjacent to a death chest sign it may support.
+	 * The chunk bitmap is checked for the chunks the block and its neighbours may occupy
+	 * before any block is accessed.
+	 * @param block the block to check
+	 * @return {@code true} if the block is or may support a DeathChest component, {@code false} if not
+	 */
+	private boolean supportsChestBlock(final Block block) {
+
+		final World world = block.getWorld();
+		final int x = block.getX();
+		final int z = block.getZ();
+
+		// if none of the chunks spanned by the block and its neighbours may contain DeathChest blocks, return false
+		if (!plugin.chestManager.mayHaveChestBlocks(world, (x - 1) >> 4, (z - 1) >> 4)
+				&& !plugin.chestManager.mayHaveChestBlocks(world, (x - 1) >> 4, (z + 1) >> 4)
+				&& !plugin.chestManager.mayHaveChestBlocks(world, (x + 1) >> 4, (z - 1) >> 4)
+				&& !plugin.chestManager.mayHaveChestBlocks(world, (x + 1) >> 4, (z + 1) >> 4)) {
+			return false;
+		}
+
+		if (plugin.chestManager.isChestBlock(block)) {
+			return true;
+		}
+
+		for (BlockFace face : ADJACENT_FACES) {
+			if (plugin.chestManager.isChestBlockSign(block.getRelative(face))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
 	/**
 	 * Block physics event handler<br>
 	 * remove detached death chest signs from game to prevent players gaining additional signs
@@ -212,10 +438,14 @@ public final class BlockEventListener implements Listener {
 	@EventHandler
 	public final void signDetachCheck(final BlockPhysicsEvent event) {
 
+		final long startTime = plugin.metrics.start();
+
 		// if event block is a DeathChest component, cancel event
 		if (plugin.chestManager.isChestBlockSign(event.getBlock())) {
 			event.setCancelled(true);
 		}
+
+		plugin.metrics.stop(MetricId.SIGN_DETACH_CHECK, startTime);
 	}
 
 }
@@ -2,6 +2,7 @@ package com.winterhaven_mc.deathchest.listeners;
 
 
 import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.metrics.MetricId;
 import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
 
@@ -99,6 +100,22 @@ public final class InventoryEventListener implements Listener {
 	}
 
 
+	/**
+	 * Count death chest viewer on inventory open event that was not cancelled
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(priority=EventPriority.MONITOR, ignoreCancelled=true)
+	public final void onInventoryOpenMonitor(final InventoryOpenEvent event) {
+
+		final DeathChest deathChest = getDeathChest(event.getInventory());
+
+		// if inventory is a DeathChest inventory, count viewer
+		if (deathChest != null) {
+			deathChest.addViewer();
+		}
+	}
+
+
 	/**
 	 * Remove empty death chest on inventory close event
 	 * @param event the event being handled by this method
@@ -109,35 +126,47 @@ public final class InventoryEventListener implements Listener {
 		// get event inventory
 		final Inventory inventory = event.getInventory();
 
-		// if inventory is null, do nothing and return
-		if (inventory == null) {
-			return;
-		}
+		final DeathChest deathChest = getDeathChest(inventory);
 
-		// if inventory type is not a chest, do nothing and return
-		if (!inventory.getType().equals(InventoryType.CHEST)) {
+		// if inventory is not a DeathChest inventory, return
+		if (deathChest == null) {
 			return;
 		}
 
-		// if inventory location is null, do nothing and return
-		if (inventory.getLocation() == null) {
-			return;
+		// count viewer closing inventory
+		deathChest.removeViewer();
+
+		// if inventory is empty, destroy chest(s) and sign
+		if (isEmpty(inventory)) {
+			deathChest.destroy();
 		}
+	}
 
-		// get inventory block from location
-		final Block block = inventory.getLocation().getBlock();
 
-		final DeathChest deathChest = plugin.chestManager.getDeathChest(block);
+	/**
+	 * Get the DeathChest whose inventory this is
+	 * @param inventory the inventory
+	 * @return DeathChest - the DeathChest at the inventory location, or null if the inventory is not a DeathChest inventory
+	 */
+	private DeathChest getDeathChest(final Inventory inventory) {
 
-		// if inventory is not a DeathChest inventory, return
-		if (deathChest == null) {
-			return;
+		// if inventory is null, return null
+		if (inventory == null) {
+			return null;
 		}
 
-		// if inventory is empty, destroy chest(s) and sign
-		if (isEmpty(inventory)) {
-			deathChest.destroy();
+		// if inventory type is not a chest, return null
+		if (!inventory.getType().equals(InventoryType.CHEST)) {
+			return null;
+		}
+
+		// if inventory location is null, return null
+		if (inventory.getLocation() == null) {
+			return null;
 		}
+
+		// get DeathChest from inventory block at location
+		return plugin.chestManager.getDeathChest(inventory.getLocation().getBlock());
 	}
 
 
@@ -148,6 +177,21 @@ public final class InventoryEventListener implements Listener {
 	@EventHandler
 	public final void onInventoryMoveItem(final InventoryMoveItemEvent event) {
 
+		final long startTime = plugin.metrics.start();
+
+		// handle event
+		handleInventoryMoveItem(event);
+
+		plugin.metrics.stop(MetricId.INVENTORY_MOVE_ITEM, startTime);
+	}
+
+
+	/**
+	 * Handle InventoryMoveItemEvent, timed by {@code onInventoryMoveItem}
+	 * @param event the event being handled by this method
+	 */
+	private void handleInventoryMoveItem(final InventoryMoveItemEvent event) {
+
 		// if event is already cancelled, do nothing and return
 		if (event.isCancelled()) {
 			return;
@@ -157,8 +201,8 @@ public final class InventoryEventListener implements Listener {
 		final Inventory destination = event.getDestination();
 		final Inventory source = event.getSource();
 
-		// prevent extracting items from death chest using hopper
-		if (plugin.chestManager.isDeathChestInventory(source)) {
+		// prevent extracting items from death chest using hopper, including chests not yet indexed
+		if (plugin.chestManager.isDeathChestInventory(source) || plugin.chestManager.isUnindexedInventory(source)) {
 			event.setCancelled(true);
 			return;
 		}
@@ -166,8 +210,9 @@ public final class InventoryEventListener implements Listener {
 		// prevent inserting items into death chest using hopper if prevent-item-placement configured true
 		if (plugin.getConfig().getBoolean("prevent-item-placement")) {
 
-			// if destination inventory is a death chest, cancel event and return
-			if (plugin.chestManager.isDeathChestInventory(destination)) {
+			// if destination inventory is a death chest, or may be one not yet indexed, cancel event and return
+			if (plugin.chestManager.isDeathChestInventory(destination)
+					|| plugin.chestManager.isUnindexedInventory(destination)) {
 				event.setCancelled(true);
 			}
 		}
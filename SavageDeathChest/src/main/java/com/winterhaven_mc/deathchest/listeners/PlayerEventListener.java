@@ -1,6 +1,7 @@
 package com.winterhaven_mc.deathchest.listeners;
 
 import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.metrics.MetricId;
 import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
 import com.winterhaven_mc.deathchest.chests.ChestBlock;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
@@ -51,8 +52,12 @@ public final class PlayerEventListener implements Listener {
 	@EventHandler(priority=EventPriority.HIGH)
 	public final void onPlayerDeath(final PlayerDeathEvent event) {
 
+		final long startTime = plugin.metrics.start();
+
 		// deploy DeathChest
 		new Deployment(event);
+
+		plugin.metrics.stop(MetricId.PLAYER_DEATH, startTime);
 	}
 
 
@@ -63,6 +68,21 @@ public final class PlayerEventListener implements Listener {
 	@EventHandler(priority=EventPriority.HIGH)
 	public final void onPlayerInteract(final PlayerInteractEvent event) {
 
+		final long startTime = plugin.metrics.start();
+
+		// handle event
+		handlePlayerInteract(event);
+
+		plugin.metrics.stop(MetricId.PLAYER_INTERACT, startTime);
+	}
+
+
+	/**
+	 * Handle PlayerInteractEvent, timed by {@code onPlayerInteract}
+	 * @param event the event being handled by this method
+	 */
+	private void handlePlayerInteract(final PlayerInteractEvent event) {
+
 		// if event is already cancelled, do nothing and return
 		if (event.isCancelled()) {
 			return;
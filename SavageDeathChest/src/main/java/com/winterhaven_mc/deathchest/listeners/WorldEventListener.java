@@ -0,0 +1,93 @@
+package com.winterhaven_mc.deathchest.listeners;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.metrics.MetricId;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+
+/**
+ * A class that contains {@code EventHandler} methods to process world related events
+ */
+public final class WorldEventListener implements Listener {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 */
+	public WorldEventListener(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// register event handlers in this class
+		plugin.getServer().getPluginManager().registerEvents(this, plugin);
+	}
+
+
+	/**
+	 * Chunk load event handler<br>
+	 * remove blocks of expired chests whose removal was deferred until the chunk was loaded,
+	 * and restore archived chests with blocks in the chunk
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler
+	public final void onChunkLoad(final ChunkLoadEvent event) {
+
+		// new chunks cannot contain death chest blocks
+		if (event.isNewChunk()) {
+			return;
+		}
+
+		final long startTime = plugin.metrics.start();
+
+		plugin.chestManager.removePendingBlocks(event.getChunk());
+		plugin.chestManager.restoreArchivedChests(event.getChunk());
+
+		plugin.metrics.stop(MetricId.CHUNK_LOAD, startTime);
+	}
+
+
+	/**
+	 * Chunk unload event handler<br>
+	 * evict chests in unloaded chunks if resident chests are over the configured limit
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler
+	public final void onChunkUnload(final ChunkUnloadEvent event) {
+		plugin.chestManager.scheduleTrimWorkingSet();
+	}
+
+
+	/**
+	 * World load event handler<br>
+	 * load death chests in worlds loaded after startup
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler
+	public final void onWorldLoad(final WorldLoadEvent event) {
+		plugin.chestManager.loadWorld(event.getWorld());
+	}
+
+
+	/**
+	 * World unload event handler<br>
+	 * remove death chests in unloaded world from memory, so the world is not kept reachable
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public final void onWorldUnload(final WorldUnloadEvent event) {
+		plugin.chestManager.unloadWorld(event.getWorld());
+	}
+
+}
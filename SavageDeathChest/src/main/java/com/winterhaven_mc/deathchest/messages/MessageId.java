@@ -26,8 +26,10 @@ public enum MessageId {
 	COMMAND_FAIL_HELP_PERMISSION,
 	COMMAND_FAIL_LIST_PERMISSION,
 	COMMAND_FAIL_LIST_OTHER_PERMISSION,
+	COMMAND_FAIL_METRICS_PERMISSION,
 	COMMAND_FAIL_RELOAD_PERMISSION,
 	COMMAND_FAIL_STATUS_PERMISSION,
+	COMMAND_FAIL_WHERE_PERMISSION,
 	COMMAND_SUCCESS_RELOAD,
 	LIST_HEADER,
 	LIST_FOOTER,
@@ -0,0 +1,163 @@
+package com.winterhaven_mc.deathchest.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A log-linear histogram of non-negative values such as nanosecond durations, in the style of HdrHistogram.
+ * Each power of two range is divided into 32 linear sub-buckets, so recorded values
+ * are reported within about 3% of their true value. Values of 2^41 and above, about 36 minutes
+ * in nanoseconds, are recorded in the last bucket. Safe for concurrent recording from multiple threads.
+ */
+public final class Histogram {
+
+	// number of bits of sub-bucket resolution within each power of two
+	private final static int SUB_BUCKET_BITS = 5;
+	private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	// largest power of two tracked; values at or above 2^(MAX_EXPONENT + 1) are clamped
+	private final static int MAX_EXPONENT = 40;
+	private final static long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+	private final AtomicLongArray counts =
+			new AtomicLongArray(((MAX_EXPONENT - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + SUB_BUCKET_COUNT);
+
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong totalValue = new AtomicLong();
+	private final AtomicLong maxValue = new AtomicLong();
+
+
+	/**
+	 * Record a value
+	 * @param value the value to record; negative values are recorded as zero
+	 */
+	public final void record(final long value) {
+
+		final long clamped = Math.min(Math.max(0L, value), MAX_VALUE);
+
+		counts.incrementAndGet(bucketIndex(clamped));
+		totalCount.incrementAndGet();
+		totalValue.addAndGet(clamped);
+
+		// update maximum
+		long max = maxValue.get();
+		while (clamped > max && !maxValue.compareAndSet(max, clamped)) {
+			max = maxValue.get();
+		}
+	}
+
+
+	/**
+	 * Get the number of recorded values
+	 * @return long - the number of recorded values
+	 */
+	public final long getCount() {
+		return totalCount.get();
+	}
+
+
+	/**
+	 * Get the sum of recorded values
+	 * @return long - the sum of recorded values
+	 */
+	public final long getSum() {
+		return totalValue.get();
+	}
+
+
+	/**
+	 * Get the mean of recorded values
+	 * @return double - the mean, or zero if no values have been recorded
+	 */
+	public final double getMean() {
+		final long count = totalCount.get();
+		return count == 0 ? 0.0 : (double) totalValue.get() / count;
+	}
+
+
+	/**
+	 * Get the largest recorded value
+	 * @return long - the largest recorded value, or zero if no values have been recorded
+	 */
+	public final long getMax() {
+		return maxValue.get();
+	}
+
+
+	/**
+	 * Get the value at a percentile
+	 * @param percentile the percentile, from 0 to 100
+	 * @return long - the upper bound of the bucket containing the percentile, not exceeding the largest
+	 * recorded value; zero if no values have been recorded
+	 */
+	public final long getValueAtPercentile(final double percentile) {
+
+		final long count = totalCount.get();
+		if (count == 0) {
+			return 0L;
+		}
+
+		final long target = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+
+		long seen = 0;
+		for (int index = 0; index < counts.length(); index++) {
+			seen += counts.get(index);
+			if (seen >= target) {
+				return Math.min(bucketUpperBound(index), getMax());
+			}
+		}
+		return getMax();
+	}
+
+
+	/**
+	 * Clear all recorded values
+	 */
+	public final void reset() {
+		for (int index = 0; index < counts.length(); index++) {
+			counts.set(index, 0L);
+		}
+		totalCount.set(0L);
+		totalValue.set(0L);
+		maxValue.set(0L);
+	}
+
+
+	/**
+	 * Get the bucket index for a value
+	 * @param value the value, between zero and MAX_VALUE
+	 * @return int - the bucket index
+	 */
+	private static int bucketIndex(final long value) {
+
+		// values below sub-bucket count have exact buckets
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - SUB_BUCKET_BITS;
+
+		return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+	}
+
+
+	/**
+	 * Get the largest value recorded in a bucket
+	 * @param index the bucket index
+	 * @return long - the largest value in the bucket
+	 */
+	private static long bucketUpperBound(final int index) {
+
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+
+		final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		final long subBucket = SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1));
+
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.winterhaven_mc.deathchest.metrics;
+
+
+/**
+ * An enum whose values represent the timed operations recorded in metrics
+ */
+public enum MetricId {
+
+	PLAYER_DEATH(true),
+	PLAYER_INTERACT(true),
+	BLOCK_BREAK(true),
+	SIGN_DETACH_CHECK(true),
+	BLOCK_PISTON(true),
+	INVENTORY_MOVE_ITEM(true),
+	CHUNK_LOAD(true),
+	EXPIRE_CHEST(true),
+	DATASTORE_LOAD(false),
+	DATASTORE_DELETE_EXPIRED(false),
+	DATASTORE_QUEUE_WAIT(false),
+	DATASTORE_INSERT_CHEST(false),
+	DATASTORE_INSERT_BLOCK(false),
+	DATASTORE_DELETE_CHEST(false),
+	DATASTORE_DELETE_CHEST_BATCH(false),
+	DATASTORE_DELETE_BLOCK(false),
+	DATASTORE_INSERT_PENDING_REMOVAL(false),
+	DATASTORE_DELETE_PENDING_REMOVAL(false),
+	DATASTORE_MAINTENANCE(false);
+
+	// true if operation runs on the main thread
+	private final boolean mainThread;
+
+
+	/**
+	 * Class constructor
+	 * @param mainThread true if operation runs on the main thread
+	 */
+	MetricId(final boolean mainThread) {
+		this.mainThread = mainThread;
+	}
+
+
+	/**
+	 * Check if this operation runs on the main thread, and counts toward the tick budget
+	 * @return {@code true} if the operation runs on the main thread, {@code false} if not
+	 */
+	public final boolean isMainThread() {
+		return mainThread;
+	}
+
+
+	/**
+	 * Get the display name of this metric
+	 * @return String - the metric name in lower case, with words separated by hyphens
+	 */
+	public final String getDisplayName() {
+		return this.name().toLowerCase().replace('_', '-');
+	}
+
+}
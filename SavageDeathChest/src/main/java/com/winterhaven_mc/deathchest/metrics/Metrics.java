@@ -0,0 +1,254 @@
+package com.winterhaven_mc.deathchest.metrics;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import org.bukkit.Location;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A class that records operation timings in histograms when metrics are enabled in the configuration.
+ * Timed code calls {@code start} and passes the result to {@code stop}; when metrics and the tick watchdog
+ * are disabled, {@code start} returns zero without reading the clock, and {@code stop} returns immediately.
+ * Deployment and expiration counters are always maintained, for export.
+ */
+public final class Metrics {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// histogram for each metric, created once and never replaced
+	private final Map<MetricId, Histogram> histograms;
+
+	// histogram of write operations run by the writer thread without going idle
+	private final Histogram writeBatchSizes = new Histogram();
+
+	// histogram of chest records deleted in each batch
+	private final Histogram deleteBatchSizes = new Histogram();
+
+	// count of deployments by result
+	private final Map<String, LongAdder> deploymentCounts = new ConcurrentHashMap<>();
+
+	// count of expired chests
+	private final LongAdder expirationCount = new LongAdder();
+
+	// adds up main thread time of operations in each tick
+	private final TickWatchdog watchdog;
+
+	// true if timings are being recorded in histograms
+	private volatile boolean enabled;
+
+	// true if operations are being timed, for histograms or watchdog
+	private volatile boolean timing;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 */
+	public Metrics(final PluginMain plugin) {
+
+		this.plugin = plugin;
+
+		Map<MetricId, Histogram> map = new EnumMap<>(MetricId.class);
+		for (MetricId metricId : MetricId.values()) {
+			map.put(metricId, new Histogram());
+		}
+		this.histograms = Collections.unmodifiableMap(map);
+
+		this.watchdog = new TickWatchdog(plugin);
+
+		reload();
+	}
+
+
+	/**
+	 * Read enabled setting and tick budget from configuration
+	 */
+	public final void reload() {
+		this.enabled = plugin.getConfig().getBoolean("metrics", false);
+		this.watchdog.reload();
+		this.timing = enabled || watchdog.isEnabled();
+	}
+
+
+	/**
+	 * Check if timings are being recorded
+	 * @return {@code true} if metrics are enabled, {@code false} if not
+	 */
+	public final boolean isEnabled() {
+		return enabled;
+	}
+
+
+	/**
+	 * Check if the tick watchdog is enabled
+	 * @return {@code true} if a tick budget is configured, {@code false} if not
+	 */
+	public final boolean isWatchdogEnabled() {
+		return timing && watchdog.isEnabled();
+	}
+
+
+	/**
+	 * Start timing an operation
+	 * @return long - the start time in nanoseconds, or zero if metrics and the tick watchdog are disabled
+	 */
+	public final long start() {
+		return timing ? System.nanoTime() : 0L;
+	}
+
+
+	/**
+	 * Stop timing an operation, recording the elapsed time in its histogram if metrics are enabled,
+	 * and adding it to the tick watchdog if the operation runs on the main thread
+	 * @param metricId the timed operation
+	 * @param startTime the start time returned by {@code start}; if zero, nothing is recorded
+	 */
+	public final void stop(final MetricId metricId, final long startTime) {
+
+		if (startTime == 0L) {
+			return;
+		}
+
+		final long elapsed = System.nanoTime() - startTime;
+
+		if (enabled) {
+			histograms.get(metricId).record(elapsed);
+		}
+
+		if (metricId.isMainThread()) {
+			watchdog.add(metricId, elapsed);
+		}
+	}
+
+
+	/**
+	 * Describe the location and search probe count of the main thread operation being timed,
+	 * for tick watchdog reports. Must be called on the main thread.
+	 * @param location the location of the operation
+	 * @param probes the number of locations searched, or -1 if not applicable
+	 */
+	public final void describe(final Location location, final int probes) {
+		watchdog.describe(location, probes);
+	}
+
+
+	/**
+	 * Record a duration measured by the caller
+	 * @param metricId the timed operation
+	 * @param nanos the duration in nanoseconds
+	 */
+	public final void record(final MetricId metricId, final long nanos) {
+		if (enabled) {
+			histograms.get(metricId).record(nanos);
+		}
+	}
+
+
+	/**
+	 * Record the size of a datastore write batch
+	 * @param size the number of write operations in the batch
+	 */
+	public final void recordWriteBatch(final int size) {
+		if (enabled) {
+			writeBatchSizes.record(size);
+		}
+	}
+
+
+	/**
+	 * Record the size of a chest record delete batch
+	 * @param size the number of chest records in the batch
+	 */
+	public final void recordDeleteBatch(final int size) {
+		if (enabled) {
+			deleteBatchSizes.record(size);
+		}
+	}
+
+
+	/**
+	 * Count a death chest deployment
+	 * @param result the name of the deployment result
+	 */
+	public final void countDeployment(final String result) {
+		deploymentCounts.computeIfAbsent(result, key -> new LongAdder()).increment();
+	}
+
+
+	/**
+	 * Count an expired death chest
+	 */
+	public final void countExpiration() {
+		expirationCount.increment();
+	}
+
+
+	/**
+	 * Get the histogram for a metric
+	 * @param metricId the metric
+	 * @return Histogram - the histogram of recorded timings
+	 */
+	public final Histogram getHistogram(final MetricId metricId) {
+		return histograms.get(metricId);
+	}
+
+
+	/**
+	 * Get the histogram of datastore write batch sizes
+	 * @return Histogram - the histogram of write batch sizes
+	 */
+	public final Histogram getWriteBatchSizes() {
+		return writeBatchSizes;
+	}
+
+
+	/**
+	 * Get the histogram of chest record delete batch sizes
+	 * @return Histogram - the histogram of delete batch sizes
+	 */
+	public final Histogram getDeleteBatchSizes() {
+		return deleteBatchSizes;
+	}
+
+
+	/**
+	 * Get the number of deployments by result
+	 * @return Map - the deployment count for each result that has occurred, sorted by result name
+	 */
+	public final Map<String, Long> getDeploymentCounts() {
+		Map<String, Long> returnMap = new TreeMap<>();
+		for (Map.Entry<String, LongAdder> entry : deploymentCounts.entrySet()) {
+			returnMap.put(entry.getKey(), entry.getValue().sum());
+		}
+		return returnMap;
+	}
+
+
+	/**
+	 * Get the number of expired death chests
+	 * @return long - the number of chests expired since the plugin was enabled
+	 */
+	public final long getExpirationCount() {
+		return expirationCount.sum();
+	}
+
+
+	/**
+	 * Clear all recorded timings and batch sizes. Counters are not cleared.
+	 */
+	public final void reset() {
+		for (Histogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+		writeBatchSizes.reset();
+		deleteBatchSizes.reset();
+	}
+
+}
@@ -0,0 +1,269 @@
+package com.winterhaven_mc.deathchest.metrics;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * A class that periodically writes metrics to a file in Prometheus text exposition format,
+ * for collection by the node exporter textfile collector. Chest counts are read on the main thread;
+ * the file is formatted and written on an async thread, to a temporary file that is moved into place.
+ */
+public final class MetricsExporter {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// percentiles exported for summaries
+	private final static double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+	// true while an export file is being written
+	private final AtomicBoolean writing = new AtomicBoolean();
+
+	// export task, or null if export is disabled
+	private BukkitTask exportTask;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 */
+	public MetricsExporter(final PluginMain plugin) {
+		this.plugin = plugin;
+		reload();
+	}
+
+
+	/**
+	 * Start or stop export task according to configuration
+	 */
+	public final void reload() {
+
+		// cancel any running export task
+		cancel();
+
+		// if export is not enabled, do nothing and return
+		if (!plugin.getConfig().getBoolean("metrics-export", false)) {
+			return;
+		}
+
+		final long intervalTicks = Math.max(1L, plugin.getConfig().getLong("metrics-export-interval", 30)) * 20L;
+
+		exportTask = new BukkitRunnable() {
+			@Override
+			public void run() {
+				export();
+			}
+		}.runTaskTimer(plugin, intervalTicks, intervalTicks);
+	}
+
+
+	/**
+	 * Stop export task
+	 */
+	public final void cancel() {
+		if (exportTask != null) {
+			exportTask.cancel();
+			exportTask = null;
+		}
+	}
+
+
+	/**
+	 * Read chest counts on main thread, then format and write export file on an async thread.
+	 * If the previous export is still being written, this export is skipped.
+	 */
+	private void export() {
+
+		// if previous export is still being written, skip this export
+		if (!writing.compareAndSet(false, true)) {
+			return;
+		}
+
+		// read chest counts from indexes on main thread
+		final Map<String, Integer> residentCounts = plugin.chestManager.getChestCountByWorld();
+		final Map<String, Integer> archivedCounts = plugin.chestManager.getArchivedChestCountByWorld();
+		final int blockCount = plugin.chestManager.getChestBlockCount();
+		final File file = getFile();
+
+		new BukkitRunnable() {
+			@Override
+			public void run() {
+				try {
+					write(file, format(residentCounts, archivedCounts, blockCount));
+				}
+				finally {
+					writing.set(false);
+				}
+			}
+		}.runTaskAsynchronously(plugin);
+	}
+
+
+	/**
+	 * Get the export file from configuration
+	 * @return File - the configured file; relative paths are resolved against the plugin data folder
+	 */
+	private File getFile() {
+
+		File file = new File(plugin.getConfig().getString("metrics-export-file", "deathchest.prom"));
+
+		if (!file.isAbsolute()) {
+			file = new File(plugin.getDataFolder(), file.getPath());
+		}
+		return file;
+	}
+
+
+	/**
+	 * Format metrics in Prometheus text exposition format
+	 * @param residentCounts number of indexed chests by world name
+	 * @param archivedCounts number of archived chests by world name
+	 * @param blockCount number of indexed chest blocks
+	 * @return String - the formatted metrics
+	 */
+	private String format(final Map<String, Integer> residentCounts,
+						  final Map<String, Integer> archivedCounts,
+						  final int blockCount) {
+
+		final StringBuilder builder = new StringBuilder();
+
+		// chest counts by world and state
+		header(builder, "deathchest_chests", "gauge", "Death chests by world.");
+		for (Map.Entry<String, Integer> entry : residentCounts.entrySet()) {
+			builder.append("deathchest_chests{world=\"").append(escape(entry.getKey()))
+					.append("\",state=\"resident\"} ").append(entry.getValue()).append('\n');
+		}
+		for (Map.Entry<String, Integer> entry : archivedCounts.entrySet()) {
+			builder.append("deathchest_chests{world=\"").append(escape(entry.getKey()))
+					.append("\",state=\"archived\"} ").append(entry.getValue()).append('\n');
+		}
+
+		header(builder, "deathchest_block_index_size", "gauge", "Chest blocks in the block index.");
+		builder.append("deathchest_block_index_size ").append(blockCount).append('\n');
+
+		// deployments by result
+		header(builder, "deathchest_deployments_total", "counter", "Death chest deployments by result.");
+		for (Map.Entry<String, Long> entry : plugin.metrics.getDeploymentCounts().entrySet()) {
+			builder.append("deathchest_deployments_total{result=\"").append(escape(entry.getKey()))
+					.append("\"} ").append(entry.getValue()).append('\n');
+		}
+
+		header(builder, "deathchest_expirations_total", "counter", "Death chests expired.");
+		builder.append("deathchest_expirations_total ").append(plugin.metrics.getExpirationCount()).append('\n');
+
+		// datastore write queue
+		header(builder, "deathchest_write_queue_depth", "gauge", "Datastore write operations waiting to run.");
+		builder.append("deathchest_write_queue_depth ").append(plugin.dataStore.getPendingWriteCount()).append('\n');
+
+		header(builder, "deathchest_write_batch_size", "summary",
+				"Datastore write operations run before the writer thread went idle.");
+		summary(builder, "deathchest_write_batch_size", "", plugin.metrics.getWriteBatchSizes(), 1.0);
+
+		header(builder, "deathchest_delete_batch_size", "summary",
+				"Chest records deleted in each batch of expirations.");
+		summary(builder, "deathchest_delete_batch_size", "", plugin.metrics.getDeleteBatchSizes(), 1.0);
+
+		// operation latency
+		header(builder, "deathchest_operation_duration_seconds", "summary",
+				"Duration of event handlers and datastore operations.");
+		for (MetricId metricId : MetricId.values()) {
+			summary(builder, "deathchest_operation_duration_seconds",
+					"operation=\"" + metricId.getDisplayName() + "\"",
+					plugin.metrics.getHistogram(metricId), 1.0E-9);
+		}
+
+		return builder.toString();
+	}
+
+
+	/**
+	 * Append HELP and TYPE lines for a metric
+	 * @param builder the builder to append to
+	 * @param name the metric name
+	 * @param type the metric type
+	 * @param help the metric description
+	 */
+	private static void header(final StringBuilder builder, final String name, final String type, final String help) {
+		builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+
+	/**
+	 * Append summary quantiles, sum and count for a histogram
+	 * @param builder the builder to append to
+	 * @param name the metric name
+	 * @param labels labels to include before the quantile label, or empty string for none
+	 * @param histogram the histogram
+	 * @param scale the factor converting histogram values to exported units
+	 */
+	private static void summary(final StringBuilder builder,
+								final String name,
+								final String labels,
+								final Histogram histogram,
+								final double scale) {
+
+		final String separator = labels.isEmpty() ? "" : ",";
+
+		for (double quantile : QUANTILES) {
+			builder.append(name).append('{').append(labels).append(separator)
+					.append("quantile=\"").append(quantile).append("\"} ")
+					.append(histogram.getValueAtPercentile(quantile * 100.0) * scale).append('\n');
+		}
+
+		final String labelSet = labels.isEmpty() ? "" : "{" + labels + "}";
+		builder.append(name).append("_sum").append(labelSet).append(' ')
+				.append(histogram.getSum() * scale).append('\n');
+		builder.append(name).append("_count").append(labelSet).append(' ')
+				.append(histogram.getCount()).append('\n');
+	}
+
+
+	/**
+	 * Escape a label value
+	 * @param value the label value
+	 * @return String - the value with backslash, double quote and newline escaped
+	 */
+	private static String escape(final String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+
+	/**
+	 * Write export file to a temporary file and move it into place
+	 * @param file the export file
+	 * @param contents the file contents
+	 */
+	private void write(final File file, final String contents) {
+
+		// write to temporary file in same directory, which textfile collector ignores
+		final File tempFile = new File(file.getPath() + ".tmp");
+
+		try {
+			Files.write(tempFile.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+			Files.move(tempFile.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("An error occurred while writing the metrics export file.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			//noinspection ResultOfMethodCallIgnored
+			tempFile.delete();
+		}
+	}
+
+}
@@ -0,0 +1,227 @@
+package com.winterhaven_mc.deathchest.metrics;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import org.bukkit.Location;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A class that adds up the main thread time of timed plugin operations in each server tick,
+ * and logs a report naming the slowest operation when the total exceeds the configured budget.
+ * All methods must be called on the main thread.
+ */
+final class TickWatchdog {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// minimum time between reports, in milliseconds
+	private final static long REPORT_INTERVAL = 1000L;
+
+	// tick budget in nanoseconds
+	private long budget;
+
+	// task run each tick to check budget, or null if watchdog is disabled
+	private BukkitTask tickTask;
+
+	// main thread time and operation count in current tick
+	private long tickTime;
+	private int operationCount;
+
+	// slowest operation in current tick
+	private MetricId slowestId;
+	private long slowestTime;
+	private String slowestWorld;
+	private int slowestX;
+	private int slowestY;
+	private int slowestZ;
+	private int slowestProbes;
+
+	// location and probe count described for the operation in progress
+	private String pendingWorld;
+	private int pendingX;
+	private int pendingY;
+	private int pendingZ;
+	private int pendingProbes = -1;
+
+	// time of last report, and number of reports skipped since
+	private long lastReportTime;
+	private int suppressedCount;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 */
+	TickWatchdog(final PluginMain plugin) {
+		this.plugin = plugin;
+	}
+
+
+	/**
+	 * Read tick budget from configuration, and start or stop the tick task
+	 */
+	final void reload() {
+
+		budget = (long) (plugin.getConfig().getDouble("tick-budget", 0.0) * TimeUnit.MILLISECONDS.toNanos(1));
+
+		// if watchdog is enabled and not running, start tick task
+		if (budget > 0 && tickTask == null) {
+			tickTask = new BukkitRunnable() {
+				@Override
+				public void run() {
+					endTick();
+				}
+			}.runTaskTimer(plugin, 1L, 1L);
+		}
+
+		// if watchdog is disabled and running, stop tick task
+		else if (budget <= 0 && tickTask != null) {
+			tickTask.cancel();
+			tickTask = null;
+		}
+
+		reset();
+	}
+
+
+	/**
+	 * Check if the watchdog is enabled
+	 * @return {@code true} if a tick budget is configured, {@code false} if not
+	 */
+	final boolean isEnabled() {
+		return tickTask != null;
+	}
+
+
+	/**
+	 * Describe the location and search probe count of the operation in progress
+	 * @param location the location of the operation
+	 * @param probes the number of locations searched, or -1 if not applicable
+	 */
+	final void describe(final Location location, final int probes) {
+
+		if (tickTask == null || location == null) {
+			return;
+		}
+
+		pendingWorld = location.getWorld() == null ? null : location.getWorld().getName();
+		pendingX = location.getBlockX();
+		pendingY = location.getBlockY();
+		pendingZ = location.getBlockZ();
+		pendingProbes = probes;
+	}
+
+
+	/**
+	 * Add main thread time of a completed operation to the current tick
+	 * @param metricId the operation
+	 * @param nanos the operation time in nanoseconds
+	 */
+	final void add(final MetricId metricId, final long nanos) {
+
+		if (tickTask == null) {
+			return;
+		}
+
+		tickTime += nanos;
+		operationCount++;
+
+		// if slowest operation in tick so far, keep its description
+		if (nanos > slowestTime) {
+			slowestId = metricId;
+			slowestTime = nanos;
+			slowestWorld = pendingWorld;
+			slowestX = pendingX;
+			slowestY = pendingY;
+			slowestZ = pendingZ;
+			slowestProbes = pendingProbes;
+		}
+
+		// clear description for next operation
+		pendingWorld = null;
+		pendingProbes = -1;
+	}
+
+
+	/**
+	 * Report the tick just ended if it exceeded the budget, and start a new tick
+	 */
+	private void endTick() {
+
+		if (tickTime > budget) {
+
+			final long now = System.currentTimeMillis();
+
+			// limit reports to one per interval, counting those skipped
+			if (now - lastReportTime < REPORT_INTERVAL) {
+				suppressedCount++;
+			}
+			else {
+				plugin.getLogger().warning(formatReport());
+				lastReportTime = now;
+				suppressedCount = 0;
+			}
+		}
+
+		reset();
+	}
+
+
+	/**
+	 * Format a report of the current tick
+	 * @return String - the report
+	 */
+	private String formatReport() {
+
+		StringBuilder builder = new StringBuilder()
+				.append("Tick budget exceeded: ")
+				.append(formatMillis(tickTime)).append(" in ").append(operationCount).append(" operations")
+				.append(" (budget ").append(formatMillis(budget)).append("); slowest ")
+				.append(slowestId.getDisplayName()).append(' ').append(formatMillis(slowestTime));
+
+		if (slowestWorld != null) {
+			builder.append(" at ").append(slowestWorld).append(' ')
+					.append(slowestX).append(", ").append(slowestY).append(", ").append(slowestZ);
+		}
+
+		if (slowestProbes >= 0) {
+			builder.append(" with ").append(slowestProbes).append(" search probes");
+		}
+
+		if (suppressedCount > 0) {
+			builder.append(" [").append(suppressedCount).append(" earlier reports suppressed]");
+		}
+
+		return builder.toString();
+	}
+
+
+	/**
+	 * Format a duration in milliseconds
+	 * @param nanos the duration in nanoseconds
+	 * @return String - the duration in milliseconds with one decimal place
+	 */
+	private static String formatMillis(final long nanos) {
+		return String.format("%.1f ms", nanos / 1.0E6);
+	}
+
+
+	/**
+	 * Clear totals for a new tick
+	 */
+	private void reset() {
+		tickTime = 0L;
+		operationCount = 0;
+		slowestId = null;
+		slowestTime = 0L;
+		slowestWorld = null;
+		slowestProbes = -1;
+		pendingWorld = null;
+		pendingProbes = -1;
+	}
+
+}
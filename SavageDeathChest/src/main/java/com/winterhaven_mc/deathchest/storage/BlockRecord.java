@@ -0,0 +1,122 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * An immutable block or pending removal record as stored, with its world by name,
+ * so records in worlds that are not loaded can be converted between datastores
+ */
+final class BlockRecord {
+
+	private final UUID chestUUID;
+	private final String worldName;
+	private final int x;
+	private final int y;
+	private final int z;
+
+
+	/**
+	 * Class constructor
+	 * @param chestUUID the UUID of the chest of the block
+	 * @param worldName the name of the world containing the block
+	 * @param x the block x coordinate
+	 * @param y the block y coordinate
+	 * @param z the block z coordinate
+	 */
+	BlockRecord(final UUID chestUUID, final String worldName, final int x, final int y, final int z) {
+		this.chestUUID = chestUUID;
+		this.worldName = worldName;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+
+	/**
+	 * Create a block record from the current row of a result set with ChestUUID, WorldName, X, Y and Z columns
+	 * @param rs the result set
+	 * @return BlockRecord - the block record, or null if the chest UUID is invalid
+	 * @throws SQLException if a column cannot be read
+	 */
+	static BlockRecord read(final ResultSet rs) throws SQLException {
+
+		UUID chestUUID;
+		try {
+			chestUUID = UUID.fromString(rs.getString("ChestUUID"));
+		}
+		catch (Exception e) {
+			return null;
+		}
+		return new BlockRecord(chestUUID, rs.getString("WorldName"), rs.getInt("X"), rs.getInt("Y"), rs.getInt("Z"));
+	}
+
+
+	/**
+	 * Read all rows of a result set of block or pending removal records, passing them to a consumer in batches
+	 * @param rs the result set
+	 * @param batchSize the number of records in each batch
+	 * @param consumer the consumer of record batches
+	 * @throws Exception if a record cannot be read, or the consumer fails
+	 */
+	static void readBatches(final ResultSet rs,
+							final int batchSize,
+							final DataStore.BatchConsumer<BlockRecord> consumer) throws Exception {
+
+		List<BlockRecord> batch = new ArrayList<>(batchSize);
+
+		while (rs.next()) {
+
+			BlockRecord blockRecord = read(rs);
+
+			if (blockRecord != null) {
+				batch.add(blockRecord);
+			}
+
+			if (batch.size() >= batchSize) {
+				consumer.accept(batch);
+				batch = new ArrayList<>(batchSize);
+			}
+		}
+
+		if (!batch.isEmpty()) {
+			consumer.accept(batch);
+		}
+	}
+
+
+	final UUID getChestUUID() {
+		return chestUUID;
+	}
+
+
+	final String getWorldName() {
+		return worldName;
+	}
+
+
+	final int getX() {
+		return x;
+	}
+
+
+	final int getY() {
+		return y;
+	}
+
+
+	final int getZ() {
+		return z;
+	}
+
+
+	@Override
+	public final String toString() {
+		return chestUUID + "," + worldName + "," + x + "," + y + "," + z;
+	}
+
+}
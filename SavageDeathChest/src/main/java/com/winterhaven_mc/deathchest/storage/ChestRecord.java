@@ -0,0 +1,151 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * A chest record with the records of its blocks, as streamed between datastores during conversion
+ */
+final class ChestRecord {
+
+	private final DeathChest deathChest;
+	private final List<BlockRecord> blockRecords;
+
+
+	/**
+	 * Class constructor
+	 * @param deathChest the chest
+	 */
+	private ChestRecord(final DeathChest deathChest) {
+		this.deathChest = deathChest;
+		this.blockRecords = new ArrayList<>(2);
+	}
+
+
+	/**
+	 * Read all rows of a result set of chest records joined with their block records, ordered by chest,
+	 * passing chests with all of their blocks to a consumer in batches
+	 * @param rs the result set
+	 * @param batchSize the number of chests in each batch
+	 * @param consumer the consumer of record batches
+	 * @throws Exception if a record cannot be read, or the consumer fails
+	 */
+	static void readBatches(final ResultSet rs,
+							final int batchSize,
+							final DataStore.BatchConsumer<ChestRecord> consumer) throws Exception {
+
+		List<ChestRecord> batch = new ArrayList<>(batchSize);
+		ChestRecord current = null;
+
+		while (rs.next()) {
+
+			BlockRecord blockRecord = BlockRecord.read(rs);
+
+			// skip rows with invalid chest UUID
+			if (blockRecord == null) {
+				continue;
+			}
+
+			// start a new chest when chest UUID changes
+			if (current == null || !current.getChestUUID().equals(blockRecord.getChestUUID())) {
+
+				// pass full batch to consumer before starting a new chest, so chests are never split
+				if (batch.size() >= batchSize) {
+					consumer.accept(batch);
+					batch = new ArrayList<>(batchSize);
+				}
+
+				current = read(rs, blockRecord.getChestUUID());
+
+				// skip rows of chests with invalid owner UUID
+				if (current == null) {
+					continue;
+				}
+				batch.add(current);
+			}
+
+			current.blockRecords.add(blockRecord);
+		}
+
+		if (!batch.isEmpty()) {
+			consumer.accept(batch);
+		}
+	}
+
+
+	/**
+	 * Create a chest record from the current row of a result set
+	 * @param rs the result set
+	 * @param chestUUID the chest UUID of the row
+	 * @return ChestRecord - the chest record without blocks, or null if the owner UUID is invalid
+	 * @throws SQLException if a column cannot be read
+	 */
+	private static ChestRecord read(final ResultSet rs, final UUID chestUUID) throws SQLException {
+
+		UUID ownerUUID;
+		try {
+			ownerUUID = UUID.fromString(rs.getString("OwnerUUID"));
+		}
+		catch (Exception e) {
+			return null;
+		}
+
+		// set to null if invalid uuid
+		UUID killerUUID;
+		try {
+			killerUUID = UUID.fromString(rs.getString("KillerUUID"));
+		}
+		catch (Exception e) {
+			killerUUID = null;
+		}
+
+		return new ChestRecord(new DeathChest(chestUUID,
+				ownerUUID,
+				killerUUID,
+				rs.getInt("ItemCount"),
+				rs.getLong("PlacementTime"),
+				rs.getLong("ExpirationTime")));
+	}
+
+
+	final UUID getChestUUID() {
+		return deathChest.getChestUUID();
+	}
+
+
+	final DeathChest getDeathChest() {
+		return deathChest;
+	}
+
+
+	final List<BlockRecord> getBlockRecords() {
+		return blockRecords;
+	}
+
+
+	/**
+	 * Get the name of the world containing the chest blocks
+	 * @return String - the world name of the first block record
+	 */
+	final String getWorldName() {
+		return blockRecords.get(0).getWorldName();
+	}
+
+
+	@Override
+	public final String toString() {
+		return deathChest.getChestUUID() + ","
+				+ deathChest.getOwnerUUID() + ","
+				+ deathChest.getKillerUUID() + ","
+				+ deathChest.getItemCount() + ","
+				+ deathChest.getPlacementTime() + ","
+				+ deathChest.getExpirationTime();
+	}
+
+}
@@ -0,0 +1,196 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A small fixed size pool of JDBC connections to a database server.
+ * Connections are opened on demand up to the pool size, checked for validity when borrowed,
+ * and replaced if the server has closed them.
+ */
+final class ConnectionPool {
+
+	// seconds to wait for a connection validity check
+	private final static int VALIDATION_TIMEOUT = 2;
+
+	// database url and connection properties
+	private final String dbUrl;
+	private final Properties properties;
+
+	// maximum number of open connections
+	private final int size;
+
+	// idle connections available to borrow
+	private final BlockingQueue<Connection> idleConnections;
+
+	// number of open connections, idle or borrowed
+	private int openCount;
+
+	// true once the pool has been closed
+	private volatile boolean closed;
+
+
+	/**
+	 * Class constructor
+	 * @param dbUrl the JDBC database url
+	 * @param properties the connection properties, such as user and password
+	 * @param size the maximum number of open connections
+	 */
+	ConnectionPool(final String dbUrl, final Properties properties, final int size) {
+		this.dbUrl = dbUrl;
+		this.properties = properties;
+		this.size = Math.max(1, size);
+		this.idleConnections = new ArrayBlockingQueue<>(this.size);
+	}
+
+
+	/**
+	 * Borrow a connection from the pool, opening a new connection if none are idle
+	 * and the pool is not full, or waiting for one to be returned
+	 * @param timeoutMillis the maximum time to wait for a connection, in milliseconds
+	 * @return Connection - a valid connection in auto-commit mode
+	 * @throws SQLException if the pool is closed, a connection cannot be opened, or the wait times out
+	 */
+	final Connection borrow(final long timeoutMillis) throws SQLException {
+
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+
+		while (!closed) {
+
+			// take an idle connection if one is available
+			Connection connection = idleConnections.poll();
+
+			// open a new connection if pool is not full
+			if (connection == null && reserve()) {
+				try {
+					return DriverManager.getConnection(dbUrl, properties);
+				}
+				catch (SQLException e) {
+					release();
+					throw e;
+				}
+			}
+
+			// wait for a borrowed connection to be returned
+			if (connection == null) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					throw new SQLException("Timed out waiting for a database connection.");
+				}
+				try {
+					connection = idleConnections.poll(remaining, TimeUnit.MILLISECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrupted while waiting for a database connection.");
+				}
+				if (connection == null) {
+					throw new SQLException("Timed out waiting for a database connection.");
+				}
+			}
+
+			// discard connections closed by the server, and try again
+			if (connection.isValid(VALIDATION_TIMEOUT)) {
+				return connection;
+			}
+			discard(connection);
+		}
+
+		throw new SQLException("Connection pool is closed.");
+	}
+
+
+	/**
+	 * Return a borrowed connection to the pool
+	 * @param connection the connection to return
+	 */
+	final void giveBack(final Connection connection) {
+
+		if (connection == null) {
+			return;
+		}
+
+		try {
+			// leave connection in auto-commit mode for the next borrower
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+		}
+		catch (SQLException e) {
+			discard(connection);
+			return;
+		}
+
+		// close connection if pool was closed while it was borrowed
+		if (closed || !idleConnections.offer(connection)) {
+			discard(connection);
+		}
+	}
+
+
+	/**
+	 * Close all idle connections, and any borrowed connections as they are returned
+	 */
+	final void close() {
+
+		closed = true;
+
+		Connection connection;
+		while ((connection = idleConnections.poll()) != null) {
+			discard(connection);
+		}
+	}
+
+
+	/**
+	 * Check if the pool has been closed
+	 * @return {@code true} if the pool is closed, {@code false} if not
+	 */
+	final boolean isClosed() {
+		return closed;
+	}
+
+
+	/**
+	 * Close a connection and release its place in the pool
+	 * @param connection the connection to close
+	 */
+	private void discard(final Connection connection) {
+		try {
+			connection.close();
+		}
+		catch (SQLException e) {
+			// connection is already unusable; nothing more to do
+		}
+		release();
+	}
+
+
+	/**
+	 * Reserve a place in the pool for a new connection
+	 * @return {@code true} if a place was reserved, {@code false} if the pool is full
+	 */
+	private synchronized boolean reserve() {
+		if (openCount >= size) {
+			return false;
+		}
+		openCount++;
+		return true;
+	}
+
+
+	/**
+	 * Release the place in the pool of a closed connection
+	 */
+	private synchronized void release() {
+		openCount--;
+	}
+
+}
@@ -2,7 +2,14 @@ package com.winterhaven_mc.deathchest.storage;
 
 import com.winterhaven_mc.deathchest.chests.ChestBlock;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
+import org.bukkit.World;
 
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -40,17 +47,26 @@ public abstract class DataStore {
 
 
 	/**
-	 * Insert a chest record in the datastore
-	 * @param deathChest the DeathChest object to insert into the datastore
+	 * Retrieve a list of chest records with blocks in a world from the datastore
+	 * @param world the world
+	 * @return List of DeathChest
 	 */
-	public abstract void putChestRecord(final DeathChest deathChest);
+	public abstract List<DeathChest> getChestRecords(final World world);
 
 
 	/**
-	 * Insert a block record in the datastore
-	 * @param blockRecord the BlockChest object to insert in the datastore
+	 * Retrieve a list of block records in a world from the datastore
+	 * @param world the world
+	 * @return List of ChestBlock
 	 */
-	abstract void putBlockRecord(final ChestBlock blockRecord);
+	public abstract List<ChestBlock> getBlockRecords(final World world);
+
+
+	/**
+	 * Insert a chest record in the datastore
+	 * @param deathChest the DeathChest object to insert into the datastore
+	 */
+	public abstract void putChestRecord(final DeathChest deathChest);
 
 
 	/**
@@ -61,10 +77,245 @@ public abstract class DataStore {
 
 
 	/**
-	 * Delete a chest record from the datastore
+	 * Delete a chest record from the datastore; block records are removed by cascade.
+	 * If history is enabled, the chest and its block records are first copied to the history table.
 	 * @param deathChest the chest to delete
+	 * @param reason the reason the chest was removed, or null if it is not recorded in history
+	 */
+	public abstract void deleteChestRecord(final DeathChest deathChest, final RemovalReason reason);
+
+
+	/**
+	 * Delete chest records from the datastore in one batch; block records are removed by cascade.
+	 * If history is enabled, the chests and their block records are first copied to the history table
+	 * in the same transaction.
+	 * @param deathChests the chests to delete
+	 * @param reason the reason the chests were removed, or null if they are not recorded in history
+	 */
+	public abstract void deleteChestRecords(final Collection<DeathChest> deathChests, final RemovalReason reason);
+
+
+	/**
+	 * Delete expired chest records, and orphaned chest records in worlds that no longer exist,
+	 * using one transaction per world. Intended to be run asynchronously before the indexes are built.
+	 * Block records of deleted chests in existing worlds are saved as pending removals,
+	 * and if history is enabled, deleted chests are recorded in history as expired.
+	 * @param currentTime the time in milliseconds since epoch used to determine expiration
+	 * @return List of ChestBlock - the block records of deleted chests in existing worlds
+	 */
+	public abstract List<ChestBlock> deleteExpiredRecords(final long currentTime);
+
+
+	/**
+	 * Retrieve block records of expired chests whose in game blocks have not yet been removed
+	 * because their chunks were not loaded
+	 * @return List of ChestBlock - the pending removals in worlds that are loaded
+	 */
+	public abstract List<ChestBlock> getPendingRemovals();
+
+
+	/**
+	 * Retrieve block records of expired chests in a world whose in game blocks have not yet been removed
+	 * @param world the world
+	 * @return List of ChestBlock - the pending removals in the world
+	 */
+	public abstract List<ChestBlock> getPendingRemovals(final World world);
+
+
+	/**
+	 * Insert a pending removal for an expired chest block in an unloaded chunk
+	 * @param chestBlock the chest block whose in game block is to be removed when its chunk is loaded
+	 */
+	public abstract void putPendingRemoval(final ChestBlock chestBlock);
+
+
+	/**
+	 * Delete a pending removal after the in game block has been removed
+	 * @param chestBlock the chest block whose in game block has been removed
+	 */
+	public abstract void deletePendingRemoval(final ChestBlock chestBlock);
+
+
+	/**
+	 * Retrieve a list of unexpired chests recorded by other servers sharing the datastore,
+	 * with the location of one block of each chest. Datastore types that are not shared return an empty list.
+	 * @param currentTime the current time in milliseconds since epoch
+	 * @return List of RemoteChest
+	 * @throws SQLException if the records cannot be read
+	 */
+	public List<RemoteChest> getRemoteChestRecords(final long currentTime) throws SQLException {
+		return Collections.emptyList();
+	}
+
+
+	/**
+	 * Check if the datastore may be shared with other servers
+	 * @return {@code true} if the datastore is on a database server, {@code false} if it is in local files
+	 */
+	public boolean isShared() {
+		return !this.getType().isLocal();
+	}
+
+
+	/**
+	 * Read all chests that have block records, with their block records, including those in worlds
+	 * that are not loaded, passing them to a consumer in batches. Chests are never split across batches.
+	 * @param batchSize the number of chests in each batch
+	 * @param consumer the consumer of record batches
+	 * @throws Exception if records cannot be read, or the consumer fails
+	 */
+	abstract void exportChests(final int batchSize, final BatchConsumer<ChestRecord> consumer) throws Exception;
+
+
+	/**
+	 * Read all pending removal records, including those in worlds that are not loaded,
+	 * passing them to a consumer in batches
+	 * @param batchSize the number of records in each batch
+	 * @param consumer the consumer of record batches
+	 * @throws Exception if records cannot be read, or the consumer fails
+	 */
+	abstract void exportPendingRemovals(final int batchSize, final BatchConsumer<BlockRecord> consumer) throws Exception;
+
+
+	/**
+	 * Read all chest history records, passing them to a consumer in batches
+	 * @param batchSize the number of records in each batch
+	 * @param consumer the consumer of record batches
+	 * @throws Exception if records cannot be read, or the consumer fails
+	 */
+	abstract void exportHistory(final int batchSize, final BatchConsumer<HistoryRecord> consumer) throws Exception;
+
+
+	/**
+	 * Write a batch of chest records and their block records in one transaction,
+	 * returning when the batch has been written. Chests already in the datastore are skipped,
+	 * so a conversion that did not complete can be retried.
+	 * Used only for conversion, before the datastore is in use.
+	 * @param chestRecords the chest records to write
+	 * @return List of ChestRecord - the chest records written
+	 * @throws Exception if the records cannot be written; no records of the batch are written
+	 */
+	abstract List<ChestRecord> importChests(final List<ChestRecord> chestRecords) throws Exception;
+
+
+	/**
+	 * Write a batch of pending removal records in one transaction, returning when the batch has been written.
+	 * Pending removals already in the datastore are skipped.
+	 * Used only for conversion, before the datastore is in use.
+	 * @param blockRecords the pending removal records to write
+	 * @return List of BlockRecord - the pending removal records written
+	 * @throws Exception if the records cannot be written; no records of the batch are written
+	 */
+	abstract List<BlockRecord> importPendingRemovals(final List<BlockRecord> blockRecords) throws Exception;
+
+
+	/**
+	 * Write a batch of chest history records in one transaction, returning when the batch has been written.
+	 * History records of the same chest block and removal time already in the datastore are skipped.
+	 * Used only for conversion, before the datastore is in use.
+	 * @param historyRecords the history records to write
+	 * @return List of HistoryRecord - the history records written
+	 * @throws Exception if the records cannot be written; no records of the batch are written
+	 */
+	abstract List<HistoryRecord> importHistory(final List<HistoryRecord> historyRecords) throws Exception;
+
+
+	/**
+	 * Check if a lookup statement, with its parameters set, matches a record
+	 * @param preparedStatement the lookup statement
+	 * @return {@code true} if a record matches, {@code false} if none does
+	 * @throws SQLException if the statement cannot be executed
+	 */
+	static boolean recordExists(final PreparedStatement preparedStatement) throws SQLException {
+		try (ResultSet rs = preparedStatement.executeQuery()) {
+			return rs.next();
+		}
+	}
+
+
+	/**
+	 * Count and checksum all records that would be exported
+	 * @param batchSize the number of records read in each batch
+	 * @return RecordSummary - the counts and checksum of all records
+	 * @throws Exception if records cannot be read
+	 */
+	final RecordSummary summarize(final int batchSize) throws Exception {
+
+		final RecordSummary summary = new RecordSummary();
+
+		exportChests(batchSize, summary::addChests);
+		exportPendingRemovals(batchSize, summary::addPendingRemovals);
+		exportHistory(batchSize, summary::addHistory);
+
+		return summary;
+	}
+
+
+	/**
+	 * Write a consistent copy of the datastore to a backup directory without holding the writer thread.
+	 * Datastore types that are not backed up by the plugin return {@code false}.
+	 * @param directory the backup directory
+	 * @return {@code true} if a backup was written, {@code false} if this type is not backed up by the plugin
+	 * @throws Exception if the backup could not be written
+	 */
+	boolean backup(final File directory) throws Exception {
+		return false;
+	}
+
+
+	/**
+	 * Release up to {@code pages} free pages of the datastore files, holding the writer thread
+	 * for one bounded operation. Datastore types that do not release free pages return 0.
+	 * @param pages the maximum number of pages to release
+	 * @return the number of free pages remaining
+	 * @throws Exception if the pages could not be released
+	 */
+	int vacuum(final int pages) throws Exception {
+		return 0;
+	}
+
+
+	/**
+	 * Delete up to {@code limit} history records of chests removed before {@code removalTime},
+	 * as one bounded operation. Datastore types that keep history in several databases
+	 * delete up to {@code limit} records from each.
+	 * @param removalTime the time in milliseconds since epoch before which history records are deleted
+	 * @param limit the maximum number of records to delete
+	 * @return the number of history records deleted
+	 * @throws Exception if the records could not be deleted
+	 */
+	abstract int deleteHistory(final long removalTime, final int limit) throws Exception;
+
+
+	/**
+	 * Refresh the statistics used by the query planner, holding the writer thread for one bounded operation.
+	 * Datastore types that do not keep statistics do nothing.
+	 * @throws Exception if the statistics could not be refreshed
+	 */
+	void analyze() throws Exception {
+		// no action necessary for this storage type
+	}
+
+
+	/**
+	 * Get the datastore generation, a counter that changes whenever chest or block records change
+	 * @return the current generation, or -1 if the generation could not be read
+	 */
+	public abstract long getGeneration();
+
+
+	/**
+	 * Get the number of write operations waiting to be run
+	 * @return the number of pending write operations
 	 */
-	public abstract void deleteChestRecord(final DeathChest deathChest);
+	public abstract int getPendingWriteCount();
+
+
+	/**
+	 * Stop accepting write operations and flush pending write operations within the configured deadline
+	 * @return {@code true} if all pending write operations were saved, {@code false} if any were dropped
+	 */
+	public abstract boolean flush();
 
 
 	/**
@@ -93,6 +344,21 @@ public abstract class DataStore {
 	abstract boolean exists();
 
 	
+	/**
+	 * A consumer of batches of records that may fail
+	 * @param <T> the record type
+	 */
+	interface BatchConsumer<T> {
+
+		/**
+		 * Accept a batch of records
+		 * @param batch the records
+		 * @throws Exception if the batch cannot be processed
+		 */
+		void accept(final List<T> batch) throws Exception;
+	}
+
+
 	/**
 	 * Check if the datastore is initialized
 	 * @return {@code true} if the datastore is initialize, {@code false} if it is not
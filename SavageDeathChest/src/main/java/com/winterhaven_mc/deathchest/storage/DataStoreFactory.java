@@ -1,21 +1,25 @@
 package com.winterhaven_mc.deathchest.storage;
 
 import com.winterhaven_mc.deathchest.PluginMain;
-import com.winterhaven_mc.deathchest.chests.ChestBlock;
-import com.winterhaven_mc.deathchest.chests.DeathChest;
 
-import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 
 /**
  * A factory class for instantiating a data store of the configured type.<br>
- * Note: SQLite is the only available data store type at this time
+ * Available types are SQLite, in one file or one file per world, and MySQL
  */
 public final class DataStoreFactory {
 
 	// static reference to main class instance
 	private final static PluginMain plugin = PluginMain.instance;
 
+	// number of chests, or pending removals, read and written in each conversion batch
+	private final static int CONVERSION_BATCH_SIZE = 500;
+
+	// milliseconds between conversion progress messages
+	private final static long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
 
 	/**
 	 * Create new data store of given type.<br>
@@ -91,7 +95,12 @@ public final class DataStoreFactory {
 
 
 	/**
-	 * convert old data store to new data store
+	 * convert old data store to new data store.<br>
+	 * Records are streamed from the old datastore in batches, each written to the new datastore
+	 * in one transaction. Records already in the new datastore, such as those written by a conversion
+	 * that did not complete, are skipped, so a failed conversion can be retried.
+	 * The old datastore is deleted only if the new datastore then holds
+	 * the same number of records with the same checksum as before plus those converted.
 	 * @param oldDataStore the existing datastore to be converted from
 	 * @param newDataStore the new datastore to be converted to
 	 */
@@ -102,85 +111,153 @@ public final class DataStoreFactory {
 			return;
 		}
 		
-		// if old datastore file exists, attempt to read all records
-		if (oldDataStore.exists()) {
-			
-			plugin.getLogger().info("Converting existing " + oldDataStore.getName() + " datastore to "
-					+ newDataStore.getName() + " datastore...");
-			
-			// initialize old datastore if necessary
-			if (!oldDataStore.isInitialized()) {
-				try {
-					oldDataStore.initialize();
-				} catch (Exception e) {
-					plugin.getLogger().warning("Could not initialize " 
-							+ oldDataStore.getName() + " datastore for conversion.");
-					plugin.getLogger().warning(e.getLocalizedMessage());
-					return;
-				}
+		// if old datastore file does not exist, do nothing and return
+		if (!oldDataStore.exists()) {
+			return;
+		}
+
+		plugin.getLogger().info("Converting existing " + oldDataStore.getName() + " datastore to "
+				+ newDataStore.getName() + " datastore...");
+
+		// initialize old datastore if necessary
+		if (!oldDataStore.isInitialized()) {
+			try {
+				oldDataStore.initialize();
+			} catch (Exception e) {
+				plugin.getLogger().warning("Could not initialize "
+						+ oldDataStore.getName() + " datastore for conversion.");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+				return;
 			}
+		}
 
-			Collection<DeathChest> allChestRecords = oldDataStore.getAllChestRecords();
+		// write pending operations of old datastore, so they are included in the export
+		if (!oldDataStore.flush()) {
+			plugin.getLogger().warning("Could not write pending operations of the " + oldDataStore.getName()
+					+ " datastore. The datastore was not converted.");
+			oldDataStore.close();
+			return;
+		}
 
-			Iterator<DeathChest> chestIterator = allChestRecords.iterator();
+		final long startTime = System.currentTimeMillis();
 
-			int recordCount = 0;
+		// summary of records read from old datastore
+		final RecordSummary exported = new RecordSummary();
 
-			while (chestIterator.hasNext()) {
-				newDataStore.putChestRecord(chestIterator.next());
-				recordCount++;
-			}
+		// summary of records written to new datastore
+		final RecordSummary converted = new RecordSummary();
 
-			plugin.getLogger().info(recordCount + " records converted to "
-					+ newDataStore.getName() + " datastore.");
+		// summary of records in new datastore before and after conversion
+		RecordSummary before;
+		RecordSummary after;
 
-			Collection<ChestBlock> allBlockRecords = oldDataStore.getAllBlockRecords();
+		try {
+			before = newDataStore.summarize(CONVERSION_BATCH_SIZE);
 
-			Iterator<ChestBlock> blockIterator = allBlockRecords.iterator();
+			// time of next progress message
+			final long[] nextReport = { startTime + PROGRESS_INTERVAL };
 
-			recordCount = 0;
+			// stream chests with their blocks, then pending removals and history, writing each batch in one transaction
+			oldDataStore.exportChests(CONVERSION_BATCH_SIZE, batch -> {
+				exported.addChests(batch);
+				converted.addChests(newDataStore.importChests(batch));
+				nextReport[0] = reportProgress(converted, startTime, nextReport[0]);
+			});
 
-			while (blockIterator.hasNext()) {
-				newDataStore.putBlockRecord(blockIterator.next());
-				recordCount++;
-			}
+			oldDataStore.exportPendingRemovals(CONVERSION_BATCH_SIZE, batch -> {
+				exported.addPendingRemovals(batch);
+				converted.addPendingRemovals(newDataStore.importPendingRemovals(batch));
+			});
+
+			oldDataStore.exportHistory(CONVERSION_BATCH_SIZE, batch -> {
+				exported.addHistory(batch);
+				converted.addHistory(newDataStore.importHistory(batch));
+			});
 
-			plugin.getLogger().info(recordCount + " records converted to "
-					+ newDataStore.getName() + " datastore.");
-			
 			newDataStore.sync();
-			
+
+			after = newDataStore.summarize(CONVERSION_BATCH_SIZE);
+		}
+		catch (Exception e) {
+			plugin.getLogger().warning("An error occurred while converting the " + oldDataStore.getName()
+					+ " datastore. The " + oldDataStore.getName() + " datastore was not deleted.");
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
 			oldDataStore.close();
-			oldDataStore.delete();
+			return;
+		}
+
+		long elapsed = Math.max(1L, System.currentTimeMillis() - startTime);
+
+		plugin.getLogger().info("Converted " + converted + " to " + newDataStore.getName() + " datastore in "
+				+ elapsed + " ms (" + (converted.getRecordCount() * 1000L / elapsed) + " records per second).");
+
+		// report records skipped because they were already in new datastore
+		long skipped = exported.getRecordCount() - converted.getRecordCount();
+		if (skipped > 0) {
+			plugin.getLogger().info("Skipped " + skipped + " records already in the "
+					+ newDataStore.getName() + " datastore.");
+		}
+
+		oldDataStore.close();
+
+		// verify new datastore before deleting old datastore
+		if (!after.matches(before.add(converted))) {
+			plugin.getLogger().warning("Verification of converted records failed: expected " + before
+					+ ", found " + after + ". The " + oldDataStore.getName() + " datastore was not deleted.");
+			return;
 		}
+
+		oldDataStore.delete();
+	}
+
+
+	/**
+	 * Log conversion progress if the progress interval has passed
+	 * @param converted the summary of records converted so far
+	 * @param startTime the conversion start time in milliseconds since epoch
+	 * @param nextReport the time of the next progress message in milliseconds since epoch
+	 * @return the time of the next progress message
+	 */
+	private static long reportProgress(final RecordSummary converted, final long startTime, final long nextReport) {
+
+		long currentTime = System.currentTimeMillis();
+
+		if (currentTime < nextReport) {
+			return nextReport;
+		}
+
+		long elapsed = Math.max(1L, currentTime - startTime);
+
+		plugin.getLogger().info("Converted " + converted.getChestCount() + " chests and "
+				+ converted.getBlockCount() + " blocks so far ("
+				+ (converted.getRecordCount() * 1000L / elapsed) + " records per second)...");
+
+		return currentTime + PROGRESS_INTERVAL;
 	}
 
 	
 	/**
-	 * convert all existing data stores to new data store
+	 * convert all existing local data stores to new data store.
+	 * Remote data stores are converted only when the configured type is changed,
+	 * so startup never waits on a database server that is not in use
 	 * @param newDataStore the new datastore to convert all other datastores to
 	 */
 	private static void convertAll(final DataStore newDataStore) {
-		
-		// get array list of all data store types
-		ArrayList<DataStoreType> dataStores = new ArrayList<>(Arrays.asList(DataStoreType.values()));
-		
-		// remove newDataStore from list of types to convert
-		//noinspection SuspiciousMethodCalls
-		dataStores.remove(newDataStore);
 
-		for (DataStoreType type : dataStores) {
+		for (DataStoreType type : DataStoreType.values()) {
 
-			// create oldDataStore holder
-			DataStore oldDataStore = null;
-			
-			if (type.equals(DataStoreType.SQLITE)) {
-				oldDataStore = new DataStoreSQLite(plugin);
+			// skip new datastore type and remote types
+			if (type.equals(newDataStore.getType()) || !type.isLocal()) {
+				continue;
 			}
-			
-			// add additional datastore types here as they become available
-			
-			if (oldDataStore != null && oldDataStore.exists()) {
+
+			// create oldDataStore of type
+			DataStore oldDataStore = type.create();
+
+			if (oldDataStore.exists()) {
 				convertDataStore(oldDataStore, newDataStore);
 			}
 		}
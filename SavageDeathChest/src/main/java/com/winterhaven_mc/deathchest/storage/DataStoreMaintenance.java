@@ -0,0 +1,327 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * A class that runs datastore maintenance on an async thread once a minute.
+ * Rotating backups are written while the server runs, history records past the retention period
+ * are deleted in bounded slices, and during configured quiet hours
+ * free pages are released and query planner statistics refreshed, in slices that each hold
+ * the datastore writer thread for one bounded operation.
+ */
+public final class DataStoreMaintenance {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// ticks between maintenance checks
+	private final static long CHECK_INTERVAL = 1200L;
+
+	// milliseconds to pause between vacuum slices, so queued writes run between them
+	private final static long SLICE_PAUSE = 100L;
+
+	// maximum number of vacuum or history slices in one maintenance check
+	private final static int MAX_SLICES = 50;
+
+	// maximum number of history records deleted in one slice
+	private final static int HISTORY_SLICE_SIZE = 500;
+
+	// backup directory name format; names sort in time order
+	private final static String BACKUP_NAME_FORMAT = "yyyyMMdd-HHmmss";
+
+	// true while maintenance is running
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	// day of year of last analyze, or -1 if not run since startup
+	private int lastAnalyzeDay = -1;
+
+	// maintenance task, or null if maintenance is disabled
+	private volatile BukkitTask maintenanceTask;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 */
+	public DataStoreMaintenance(final PluginMain plugin) {
+		this.plugin = plugin;
+		reload();
+	}
+
+
+	/**
+	 * Start or stop maintenance task according to configuration
+	 */
+	public final void reload() {
+
+		// cancel any running maintenance task
+		cancel();
+
+		// if maintenance is not enabled, do nothing and return
+		if (!plugin.getConfig().getBoolean("maintenance.enabled", true)) {
+			return;
+		}
+
+		maintenanceTask = new BukkitRunnable() {
+			@Override
+			public void run() {
+				runMaintenance();
+			}
+		}.runTaskTimerAsynchronously(plugin, CHECK_INTERVAL, CHECK_INTERVAL);
+	}
+
+
+	/**
+	 * Stop maintenance task. A vacuum in progress stops after its current slice.
+	 */
+	public final void cancel() {
+		if (maintenanceTask != null) {
+			maintenanceTask.cancel();
+			maintenanceTask = null;
+		}
+	}
+
+
+	/**
+	 * Write a backup if one is due, delete expired history, then vacuum and analyze if in quiet hours.
+	 * If the previous maintenance is still running, this check is skipped.
+	 */
+	private void runMaintenance() {
+
+		// if previous maintenance is still running, skip this check
+		if (!running.compareAndSet(false, true)) {
+			return;
+		}
+
+		// datastore may be replaced by a reload; use the same one throughout
+		final DataStore dataStore = plugin.dataStore;
+
+		try {
+			backupIfDue(dataStore);
+
+			deleteExpiredHistory(dataStore);
+
+			Calendar now = Calendar.getInstance();
+
+			if (isQuietHour(now.get(Calendar.HOUR_OF_DAY))) {
+				vacuum(dataStore);
+
+				// analyze once per quiet period
+				if (lastAnalyzeDay != now.get(Calendar.DAY_OF_YEAR)) {
+					dataStore.analyze();
+					lastAnalyzeDay = now.get(Calendar.DAY_OF_YEAR);
+					if (plugin.debug) {
+						plugin.getLogger().info(dataStore.getName() + " datastore statistics refreshed.");
+					}
+				}
+			}
+		}
+		catch (Exception e) {
+			plugin.getLogger().warning("An error occurred during " + dataStore.getName() + " datastore maintenance.");
+			plugin.getLogger().warning(e.getMessage());
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			running.set(false);
+		}
+	}
+
+
+	/**
+	 * Write a backup to a new directory in the backups folder if the newest backup is older than the
+	 * configured interval, then delete the oldest backups over the configured count
+	 * @param dataStore the datastore to back up
+	 * @throws Exception if the backup could not be written
+	 */
+	private void backupIfDue(final DataStore dataStore) throws Exception {
+
+		long interval = TimeUnit.MINUTES.toMillis(plugin.getConfig().getLong("maintenance.backup-interval", 360));
+
+		// if backups are disabled, do nothing and return
+		if (interval <= 0) {
+			return;
+		}
+
+		File backupFolder = new File(plugin.getDataFolder(), "backups");
+		List<File> backups = getBackups(backupFolder);
+
+		// if newest backup is not yet due for replacement, do nothing and return
+		if (!backups.isEmpty()
+				&& System.currentTimeMillis() - backups.get(backups.size() - 1).lastModified() < interval) {
+			return;
+		}
+
+		File target = new File(backupFolder, new SimpleDateFormat(BACKUP_NAME_FORMAT).format(new Date()));
+
+		long startTime = System.currentTimeMillis();
+
+		// if datastore type is not backed up by the plugin, remove empty directory and return
+		if (!dataStore.backup(target)) {
+			deleteRecursively(target);
+			return;
+		}
+
+		plugin.getLogger().info(dataStore.getName() + " datastore backed up to backups" + File.separator
+				+ target.getName() + " in " + (System.currentTimeMillis() - startTime) + " ms.");
+
+		// delete oldest backups over configured count
+		backups = getBackups(backupFolder);
+		int excess = backups.size() - Math.max(1, plugin.getConfig().getInt("maintenance.backup-count", 4));
+		for (int i = 0; i < excess; i++) {
+			deleteRecursively(backups.get(i));
+		}
+	}
+
+
+	/**
+	 * Get existing backup directories, oldest first
+	 * @param backupFolder the backups folder
+	 * @return List of File - the backup directories
+	 */
+	private static List<File> getBackups(final File backupFolder) {
+
+		List<File> backups = new ArrayList<>();
+
+		File[] files = backupFolder.listFiles();
+		if (files == null) {
+			return backups;
+		}
+
+		for (File file : files) {
+			if (file.isDirectory() && file.getName().matches("\\d{8}-\\d{6}")) {
+				backups.add(file);
+			}
+		}
+
+		backups.sort(Comparator.comparing(File::getName));
+		return backups;
+	}
+
+
+	/**
+	 * Delete a file, or a directory and its contents
+	 * @param file the file or directory to delete
+	 */
+	private void deleteRecursively(final File file) {
+
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				deleteRecursively(child);
+			}
+		}
+
+		if (file.exists() && !file.delete()) {
+			plugin.getLogger().warning("Could not delete old backup file " + file.getPath() + ".");
+		}
+	}
+
+
+	/**
+	 * Delete history records older than the configured retention period in slices, pausing between slices,
+	 * until none remain, maintenance is cancelled, or the slice limit for one check is reached
+	 * @param dataStore the datastore to delete history records from
+	 * @throws Exception if history records could not be deleted
+	 */
+	private void deleteExpiredHistory(final DataStore dataStore) throws Exception {
+
+		long retention = TimeUnit.DAYS.toMillis(plugin.getConfig().getLong("history.retention-days", 90));
+
+		// if history is kept indefinitely, do nothing and return
+		if (retention <= 0) {
+			return;
+		}
+
+		final long removalTime = System.currentTimeMillis() - retention;
+
+		int slices = 1;
+		int deleted = dataStore.deleteHistory(removalTime, HISTORY_SLICE_SIZE);
+		int total = deleted;
+
+		while (deleted >= HISTORY_SLICE_SIZE && slices < MAX_SLICES && maintenanceTask != null) {
+
+			Thread.sleep(SLICE_PAUSE);
+			deleted = dataStore.deleteHistory(removalTime, HISTORY_SLICE_SIZE);
+			total += deleted;
+			slices++;
+		}
+
+		if (plugin.debug && total > 0) {
+			plugin.getLogger().info(total + " " + dataStore.getName()
+					+ " datastore history records past retention deleted in " + slices + " slices.");
+		}
+	}
+
+
+	/**
+	 * Release free pages in slices of the configured size, pausing between slices, until none remain,
+	 * quiet hours end, maintenance is cancelled, or the slice limit for one check is reached
+	 * @param dataStore the datastore to vacuum
+	 * @throws Exception if pages could not be released
+	 */
+	private void vacuum(final DataStore dataStore) throws Exception {
+
+		final int pages = Math.max(1, plugin.getConfig().getInt("maintenance.vacuum-pages", 128));
+
+		int slices = 1;
+		int remaining = dataStore.vacuum(pages);
+
+		while (remaining > 0 && slices < MAX_SLICES && maintenanceTask != null
+				&& isQuietHour(Calendar.getInstance().get(Calendar.HOUR_OF_DAY))) {
+
+			Thread.sleep(SLICE_PAUSE);
+			remaining = dataStore.vacuum(pages);
+			slices++;
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info(dataStore.getName() + " datastore vacuum released pages in "
+					+ slices + " slices; " + remaining + " free pages remain.");
+		}
+	}
+
+
+	/**
+	 * Check if an hour is within the configured quiet hours
+	 * @param hour the hour of day, 0 to 23
+	 * @return {@code true} if the hour is within quiet hours, {@code false} if not or if none are configured
+	 */
+	private boolean isQuietHour(final int hour) {
+
+		String quietHours = plugin.getConfig().getString("maintenance.quiet-hours", "");
+
+		// parse start and end hours, as start-end
+		String[] parts = quietHours.split("-");
+		if (parts.length != 2) {
+			return false;
+		}
+
+		int start;
+		int end;
+		try {
+			start = Integer.parseInt(parts[0].trim());
+			end = Integer.parseInt(parts[1].trim());
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+
+		// quiet hours may wrap around midnight
+		if (start <= end) {
+			return hour >= start && hour < end;
+		}
+		return hour >= start || hour < end;
+	}
+
+}
@@ -0,0 +1,1609 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import com.winterhaven_mc.deathchest.metrics.MetricId;
+import org.bukkit.World;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * MySQL implementation of Datastore, for MySQL or MariaDB servers,
+ * for persistent storage of death chests and chest block objects.
+ * The tables may be shared by several servers; each record holds the id of the server that wrote it,
+ * and each server reads and writes only its own records, except for the remote chest view.
+ * Reads borrow a connection from a small connection pool, and writes are run in order
+ * on a single writer thread, with multi-row writes sent as JDBC batches.
+ */
+final class DataStoreMySQL extends DataStore {
+
+	// queries properties file for this datastore type
+	private final static String QUERIES_FILE = "queries-mysql.properties";
+
+	// milliseconds to wait for a pooled connection
+	private final static long BORROW_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// queue for write operations, run in order on a single writer thread
+	private final WriteQueue writeQueue;
+
+	// pool of database connections
+	private ConnectionPool connectionPool;
+
+	// prefix for table names
+	private final String tablePrefix;
+
+	// id of this server, recorded on all records it writes
+	private final String serverId;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 */
+	DataStoreMySQL(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.MYSQL;
+
+		// set filename to database name, for log messages
+		this.filename = plugin.getConfig().getString("mysql.database", "minecraft");
+
+		// set table prefix
+		this.tablePrefix = plugin.getConfig().getString("mysql.table-prefix", "deathchest_");
+
+		// set server id
+		this.serverId = getServerId(plugin);
+
+		// create write queue
+		this.writeQueue = new WriteQueue(plugin, DataStoreType.MYSQL.toString());
+	}
+
+
+	/**
+	 * Class constructor for a datastore on an existing connection pool instead of the configured server,
+	 * such as a pool of connections to an embedded database in MySQL compatibility mode
+	 * @param plugin reference to main class
+	 * @param connectionPool the connection pool
+	 */
+	DataStoreMySQL(final PluginMain plugin, final ConnectionPool connectionPool) {
+		this(plugin);
+		this.connectionPool = connectionPool;
+	}
+
+
+	/**
+	 * Create the connection pool and create tables if they don't already exist
+	 */
+	@Override
+	final void initialize() throws SQLException, ClassNotFoundException {
+
+		openPool();
+
+		Connection connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+		try (Statement statement = connection.createStatement()) {
+
+			// execute table creation statements
+			statement.executeUpdate(getQuery("CreateDeathChestTable"));
+			statement.executeUpdate(getQuery("CreateDeathBlockTable"));
+			statement.executeUpdate(getQuery("CreatePendingRemovalTable"));
+			statement.executeUpdate(getQuery("CreateChestHistoryTable"));
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+
+		// set initialized true
+		setInitialized(true);
+
+		// output log message
+		plugin.getLogger().info(this.getName() + " datastore initialized.");
+	}
+
+
+	/**
+	 * Get the configured server id
+	 * @param plugin reference to main class
+	 * @return String - the server id, or "default" if none is configured
+	 */
+	private static String getServerId(final PluginMain plugin) {
+
+		String serverId = plugin.getConfig().getString("server-id", "");
+
+		if (serverId == null || serverId.trim().isEmpty()) {
+			plugin.getLogger().warning("No server-id is configured. Servers sharing a MySQL datastore "
+					+ "must each have a different server-id.");
+			return "default";
+		}
+
+		// truncate to column width
+		serverId = serverId.trim();
+		return serverId.length() > 64 ? serverId.substring(0, 64) : serverId;
+	}
+
+
+	/**
+	 * Register the driver and create the connection pool from configuration, if not already open
+	 * @throws ClassNotFoundException if the MySQL driver is not available
+	 */
+	private void openPool() throws ClassNotFoundException {
+
+		if (connectionPool != null && !connectionPool.isClosed()) {
+			return;
+		}
+
+		// register the driver bundled with the server
+		final String jdbcDriverName = "com.mysql.jdbc.Driver";
+
+		Class.forName(jdbcDriverName);
+
+		// create database url; batched statements are rewritten as multi-row statements
+		String dbUrl = "jdbc:mysql://"
+				+ plugin.getConfig().getString("mysql.host", "localhost") + ":"
+				+ plugin.getConfig().getInt("mysql.port", 3306) + "/"
+				+ filename
+				+ "?rewriteBatchedStatements=true&useSSL="
+				+ plugin.getConfig().getBoolean("mysql.use-ssl", false);
+
+		Properties properties = new Properties();
+		properties.setProperty("user", plugin.getConfig().getString("mysql.username", ""));
+		properties.setProperty("password", plugin.getConfig().getString("mysql.password", ""));
+
+		connectionPool = new ConnectionPool(dbUrl, properties, plugin.getConfig().getInt("mysql.pool-size", 4));
+	}
+
+
+	/**
+	 * Get a query for this datastore type, with the configured table prefix
+	 * @param query the query name
+	 * @return String - the query
+	 * @throws SQLException if the query cannot be loaded
+	 */
+	private String getQuery(final String query) throws SQLException {
+
+		String queryString = Queries.getQuery(QUERIES_FILE, query);
+
+		if (queryString == null) {
+			throw new SQLException("Query " + query + " not found in " + QUERIES_FILE);
+		}
+		return queryString.replace("{prefix}", tablePrefix);
+	}
+
+
+	/**
+	 * Prepare a statement on records of this server, with the server id set as its first parameter.
+	 * The caller must close the statement.
+	 * @param connection the connection to use
+	 * @param query the query name
+	 * @return PreparedStatement - the prepared statement
+	 * @throws SQLException if the statement cannot be prepared
+	 */
+	private PreparedStatement prepareServerStatement(final Connection connection,
+													 final String query) throws SQLException {
+
+		PreparedStatement preparedStatement = connection.prepareStatement(getQuery(query));
+
+		try {
+			preparedStatement.setString(1, serverId);
+		}
+		catch (SQLException e) {
+			preparedStatement.close();
+			throw e;
+		}
+		return preparedStatement;
+	}
+
+
+	@Override
+	public final List<ChestBlock> getAllBlockRecords() {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		Connection connection = null;
+
+		try {
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			// execute sql query
+			try (PreparedStatement preparedStatement = prepareServerStatement(connection, "SelectAllBlocks");
+				 ResultSet rs = preparedStatement.executeQuery()) {
+
+				while (rs.next()) {
+
+					// skip records in worlds that are not loaded; orphaned records are removed by deleteExpiredRecords
+					World world = plugin.getServer().getWorld(rs.getString("WorldName"));
+					if (world == null) {
+						continue;
+					}
+
+					ChestBlock chestBlock = readBlockRecord(rs, world);
+
+					if (chestBlock != null) {
+						results.add(chestBlock);
+					}
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "fetch all block records from the MySQL database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info(results.size() + " block records fetched from MySQL datastore.");
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<ChestBlock> getBlockRecords(final World world) {
+		return selectBlocksInWorld("SelectBlocksInWorld", world, "block records");
+	}
+
+
+	@Override
+	public final List<DeathChest> getAllChestRecords() {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		Connection connection = null;
+
+		try {
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			// execute sql query
+			try (PreparedStatement preparedStatement = prepareServerStatement(connection, "SelectAllChests");
+				 ResultSet rs = preparedStatement.executeQuery()) {
+
+				while (rs.next()) {
+
+					DeathChest deathChest = readChestRecord(rs, "getAllChestRecords");
+
+					if (deathChest != null) {
+						results.add(deathChest);
+					}
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch all chest records from the MySQL database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info(results.size() + " chest records fetched from MySQL datastore.");
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecords(final World world) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		Connection connection = null;
+
+		try {
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			try (PreparedStatement preparedStatement = prepareServerStatement(connection, "SelectChestsInWorld")) {
+
+				preparedStatement.setString(2, world.getName());
+
+				// execute sql query
+				try (ResultSet rs = preparedStatement.executeQuery()) {
+
+					while (rs.next()) {
+
+						DeathChest deathChest = readChestRecord(rs, "getChestRecords");
+
+						if (deathChest != null) {
+							results.add(deathChest);
+						}
+					}
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch chest records in world "
+					+ world.getName() + " from the MySQL database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info(results.size() + " chest records in world "
+					+ world.getName() + " fetched from MySQL datastore.");
+		}
+		return results;
+	}
+
+
+	/**
+	 * Select block or pending removal records in a world
+	 * @param query the name of the query to run, with the world name as its only parameter
+	 * @param world the world of the records to select
+	 * @param description the description of the records, for log messages
+	 * @return List of ChestBlock - the selected records
+	 */
+	private List<ChestBlock> selectBlocksInWorld(final String query, final World world, final String description) {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		Connection connection = null;
+
+		try {
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			try (PreparedStatement preparedStatement = prepareServerStatement(connection, query)) {
+
+				preparedStatement.setString(2, world.getName());
+
+				// execute sql query
+				try (ResultSet rs = preparedStatement.executeQuery()) {
+
+					while (rs.next()) {
+
+						ChestBlock chestBlock = readBlockRecord(rs, world);
+
+						if (chestBlock != null) {
+							results.add(chestBlock);
+						}
+					}
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch " + description + " in world "
+					+ world.getName() + " from the MySQL database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info(results.size() + " " + description + " in world "
+					+ world.getName() + " fetched from MySQL datastore.");
+		}
+		return results;
+	}
+
+
+	/**
+	 * Create a ChestBlock from the current row of a result set of block or pending removal records
+	 * @param rs the result set
+	 * @param world the world of the record
+	 * @return ChestBlock - the chest block, or null if the chest UUID is invalid
+	 * @throws SQLException if a column cannot be read
+	 */
+	private ChestBlock readBlockRecord(final ResultSet rs, final World world) throws SQLException {
+
+		// try to convert chest uuid from stored string
+		UUID chestUUID;
+		try {
+			chestUUID = UUID.fromString(rs.getString("ChestUUID"));
+		}
+		catch (Exception e) {
+			plugin.getLogger().warning("[MySQL readBlockRecord] An error occurred while trying to set chestUUID.");
+			plugin.getLogger().warning("[MySQL readBlockRecord] chestUUID string: " + rs.getString("ChestUUID"));
+			return null;
+		}
+
+		// create ChestBlock object from database fields
+		return new ChestBlock(chestUUID, world,
+				rs.getInt("X"),
+				rs.getInt("Y"),
+				rs.getInt("Z"));
+	}
+
+
+	/**
+	 * Create a DeathChest from the current row of a result set of chest records
+	 * @param rs the result set
+	 * @param methodName the name of the calling method, for log messages
+	 * @return DeathChest - the chest, or null if the chest or owner UUID is invalid
+	 * @throws SQLException if a column cannot be read
+	 */
+	private DeathChest readChestRecord(final ResultSet rs, final String methodName) throws SQLException {
+
+		UUID chestUUID;
+		UUID ownerUUID;
+		UUID killerUUID;
+
+		// try to convert chest uuid from stored string
+		try {
+			chestUUID = UUID.fromString(rs.getString("ChestUUID"));
+		}
+		catch (Exception e) {
+			plugin.getLogger().warning("[MySQL " + methodName + "] An error occurred while trying to set chestUUID.");
+			plugin.getLogger().warning("[MySQL " + methodName + "] chestUUID string: " + rs.getString("ChestUUID"));
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			return null;
+		}
+
+		// try to convert owner uuid from stored string
+		try {
+			ownerUUID = UUID.fromString(rs.getString("OwnerUUID"));
+		}
+		catch (Exception e) {
+			plugin.getLogger().warning("[MySQL " + methodName + "] An error occurred while trying to set ownerUUID.");
+			plugin.getLogger().warning("[MySQL " + methodName + "] ownerUUID string: " + rs.getString("OwnerUUID"));
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			return null;
+		}
+
+		// try to convert killer uuid from stored string, or set to null if invalid uuid
+		try {
+			killerUUID = UUID.fromString(rs.getString("KillerUUID"));
+		}
+		catch (Exception e) {
+			killerUUID = null;
+		}
+
+		// set other fields in deathChestBlock from database fields
+		int itemCount = rs.getInt("ItemCount");
+		long placementTime = rs.getLong("PlacementTime");
+		long expirationTime = rs.getLong("ExpirationTime");
+
+		return new DeathChest(chestUUID,ownerUUID,killerUUID,itemCount,placementTime,expirationTime);
+	}
+
+
+	@Override
+	public synchronized final void putChestRecord(final DeathChest deathChest) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return;
+		}
+
+		// catch invalid chest and owner uuid exceptions
+		final String chestUUID;
+		final String ownerUUID;
+		try {
+			chestUUID = deathChest.getChestUUID().toString();
+			ownerUUID = deathChest.getOwnerUUID().toString();
+		}
+		catch (Exception e) {
+			plugin.getLogger().warning("DeathChest chest or owner UUID is invalid.");
+			return;
+		}
+
+		// catch invalid killer uuid exception
+		final String killerUUID = deathChest.getKillerUUID() == null ? null : deathChest.getKillerUUID().toString();
+
+		// take read-only snapshot of chest blocks for writer thread
+		final Collection<ChestBlock> chestBlocks = plugin.chestManager.getBlockSet(deathChest.getChestUUID());
+
+		writeQueue.submit(MetricId.DATASTORE_INSERT_CHEST, new Runnable() {
+			@Override
+			public void run() {
+
+				Connection connection = null;
+
+				// true if chest record and all block records are inserted
+				boolean success = false;
+
+				try {
+					connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+					// insert chest record and block records in a single transaction
+					connection.setAutoCommit(false);
+
+					// create prepared statement
+					try (PreparedStatement preparedStatement =
+								 prepareServerStatement(connection, "InsertChestRecord")) {
+
+						preparedStatement.setString(2, chestUUID);
+						preparedStatement.setString(3, ownerUUID);
+						preparedStatement.setString(4, killerUUID);
+						preparedStatement.setInt(5, deathChest.getItemCount());
+						preparedStatement.setLong(6, deathChest.getPlacementTime());
+						preparedStatement.setLong(7, deathChest.getExpirationTime());
+
+						// execute prepared statement
+						preparedStatement.executeUpdate();
+					}
+
+					// insert all chest blocks in one batch
+					try (PreparedStatement blockStatement =
+								 prepareServerStatement(connection, "InsertBlockRecord")) {
+
+						for (ChestBlock chestBlock : chestBlocks) {
+							setBlockParameters(blockStatement, chestBlock);
+							blockStatement.addBatch();
+						}
+						blockStatement.executeBatch();
+					}
+
+					connection.commit();
+					success = true;
+
+					// output debugging information
+					if (plugin.debug) {
+						plugin.getLogger().info("1 chest record and " + chestBlocks.size() + " block records inserted.");
+					}
+				}
+				catch (SQLException e) {
+
+					// output simple error message
+					plugin.getLogger().warning("An error occurred while inserting a DeathChest into the MySQL database.");
+					plugin.getLogger().warning(e.getMessage());
+
+					// if debugging is enabled, output stack trace
+					if (plugin.debug) {
+						e.printStackTrace();
+					}
+				}
+				finally {
+					connectionPool.giveBack(connection);
+				}
+
+				// remove saved deployment from journal
+				if (success) {
+					plugin.deploymentJournal.markPersisted(deathChest.getChestUUID());
+				}
+			}
+		});
+	}
+
+
+	@Override
+	synchronized public final void deleteChestRecord(final DeathChest deathChest, final RemovalReason reason) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return;
+		}
+
+		// resolve history setting and removal time when chest is removed
+		final boolean recordHistory = reason != null && plugin.getConfig().getBoolean("history.enabled", true);
+		final long removalTime = System.currentTimeMillis();
+
+		final String chestUUID = deathChest.getChestUUID().toString();
+
+		writeQueue.submit(MetricId.DATASTORE_DELETE_CHEST, new Runnable() {
+			@Override
+			public void run() {
+
+				Connection connection = null;
+
+				try {
+					connection = connectionPool.borrow(BORROW_TIMEOUT);
+					connection.setAutoCommit(false);
+
+					// copy chest and block records to history before they are deleted
+					if (recordHistory) {
+						try (PreparedStatement historyStatement =
+									 prepareServerStatement(connection, "InsertChestHistoryByUUID")) {
+
+							historyStatement.setString(2, reason.name());
+							historyStatement.setLong(3, removalTime);
+							historyStatement.setString(4, chestUUID);
+							historyStatement.executeUpdate();
+						}
+					}
+
+					// create prepared statement
+					int rowsAffected;
+					try (PreparedStatement preparedStatement =
+								 prepareServerStatement(connection, "DeleteChestByUUID")) {
+
+						preparedStatement.setString(2, chestUUID);
+
+						// execute prepared statement; block records are removed by cascade
+						rowsAffected = preparedStatement.executeUpdate();
+					}
+					connection.commit();
+
+					// output debugging information
+					if (plugin.debug) {
+						plugin.getLogger().info(rowsAffected + " chest records deleted.");
+					}
+				}
+				catch (SQLException e) {
+
+					// output simple error message
+					plugin.getLogger().warning("An error occurred while attempting to "
+							+ "delete a chest record from the " + getName() + " datastore.");
+					plugin.getLogger().warning(e.getMessage());
+
+					// if debugging is enabled, output stack trace
+					if (plugin.debug) {
+						e.printStackTrace();
+					}
+				}
+				finally {
+					connectionPool.giveBack(connection);
+				}
+			}
+		});
+	}
+
+
+	@Override
+	synchronized public final void deleteChestRecords(final Collection<DeathChest> deathChests,
+													  final RemovalReason reason) {
+
+		// if passed collection is null or empty, do nothing and return
+		if (deathChests == null || deathChests.isEmpty()) {
+			return;
+		}
+
+		// resolve history setting and removal time when chests are removed
+		final boolean recordHistory = reason != null && plugin.getConfig().getBoolean("history.enabled", true);
+		final long removalTime = System.currentTimeMillis();
+
+		// copy chest UUIDs for writer thread
+		final List<String> chestUUIDs = new ArrayList<>(deathChests.size());
+		for (DeathChest deathChest : deathChests) {
+			chestUUIDs.add(deathChest.getChestUUID().toString());
+		}
+
+		writeQueue.submit(MetricId.DATASTORE_DELETE_CHEST_BATCH, new Runnable() {
+			@Override
+			public void run() {
+
+				Connection connection = null;
+
+				try {
+					connection = connectionPool.borrow(BORROW_TIMEOUT);
+					connection.setAutoCommit(false);
+
+					// copy chest and block records to history before they are deleted
+					if (recordHistory) {
+						try (PreparedStatement historyStatement =
+									 prepareServerStatement(connection, "InsertChestHistoryByUUID")) {
+
+							for (String chestUUID : chestUUIDs) {
+								historyStatement.setString(2, reason.name());
+								historyStatement.setLong(3, removalTime);
+								historyStatement.setString(4, chestUUID);
+								historyStatement.addBatch();
+							}
+							historyStatement.executeBatch();
+						}
+					}
+
+					// create prepared statement
+					try (PreparedStatement preparedStatement =
+								 prepareServerStatement(connection, "DeleteChestByUUID")) {
+
+						for (String chestUUID : chestUUIDs) {
+							preparedStatement.setString(2, chestUUID);
+							preparedStatement.addBatch();
+						}
+
+						// execute batch in one transaction; block records are removed by cascade
+						preparedStatement.executeBatch();
+					}
+					connection.commit();
+
+					plugin.metrics.recordDeleteBatch(chestUUIDs.size());
+
+					// output debugging information
+					if (plugin.debug) {
+						plugin.getLogger().info(chestUUIDs.size() + " chest records deleted in batch.");
+					}
+				}
+				catch (SQLException e) {
+
+					// output simple error message
+					plugin.getLogger().warning("An error occurred while attempting to "
+							+ "delete a batch of chest records from the " + getName() + " datastore.");
+					plugin.getLogger().warning(e.getMessage());
+
+					// if debugging is enabled, output stack trace
+					if (plugin.debug) {
+						e.printStackTrace();
+					}
+				}
+				finally {
+					connectionPool.giveBack(connection);
+				}
+			}
+		});
+	}
+
+
+	@Override
+	synchronized public final void deleteBlockRecord(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null, do nothing and return
+		if (chestBlock == null) {
+			return;
+		}
+
+		writeQueue.submit(MetricId.DATASTORE_DELETE_BLOCK, new Runnable() {
+			@Override
+			public void run() {
+				executeLocationUpdate("DeleteBlockByLocation", chestBlock, "delete a block record from");
+			}
+		});
+	}
+
+
+	@Override
+	public final List<ChestBlock> deleteExpiredRecords(final long currentTime) {
+
+		final List<ChestBlock> expiredBlocks = new ArrayList<>();
+
+		// orphaned chests in nonexistent worlds are deleted only if expired more than 30 days
+		final long pastDueTime = currentTime - TimeUnit.DAYS.toMillis(30);
+
+		final boolean recordHistory = plugin.getConfig().getBoolean("history.enabled", true);
+
+		int expiredCount = 0;
+		int orphanedCount = 0;
+
+		Connection connection = null;
+
+		try {
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			// delete expired and orphaned chests in one transaction per world
+			for (String worldName : selectBlockWorldNames(connection)) {
+
+				World world = plugin.getServer().getWorld(worldName);
+
+				connection.setAutoCommit(false);
+
+				try {
+					if (world == null) {
+						if (recordHistory) {
+							insertExpiredHistory(connection, worldName, pastDueTime, currentTime);
+						}
+						orphanedCount += executeExpiredUpdate(connection,
+								"DeleteExpiredChestsInWorld", worldName, pastDueTime);
+					}
+					else {
+						expiredBlocks.addAll(selectExpiredBlocks(connection, world, currentTime));
+						executeExpiredUpdate(connection,
+								"InsertExpiredPendingRemovalsInWorld", worldName, currentTime);
+						if (recordHistory) {
+							insertExpiredHistory(connection, worldName, currentTime, currentTime);
+						}
+						expiredCount += executeExpiredUpdate(connection,
+								"DeleteExpiredChestsInWorld", worldName, currentTime);
+					}
+					connection.commit();
+				}
+				catch (SQLException e) {
+					connection.rollback();
+					throw e;
+				}
+				finally {
+					connection.setAutoCommit(true);
+				}
+			}
+
+			// delete any chest records that no longer have block records
+			int emptyCount;
+			try (PreparedStatement preparedStatement =
+						 prepareServerStatement(connection, "DeleteChestsWithoutBlocks")) {
+				emptyCount = preparedStatement.executeUpdate();
+			}
+
+			// output debugging information
+			if (plugin.debug) {
+				plugin.getLogger().info(expiredCount + " expired, "
+						+ orphanedCount + " orphaned and "
+						+ emptyCount + " empty chest records deleted.");
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while attempting to "
+					+ "delete expired chests from the MySQL database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+
+		return expiredBlocks;
+	}
+
+
+	/**
+	 * Select the names of all worlds that contain block records
+	 * @param connection the connection to use
+	 * @return List of String - the world names
+	 * @throws SQLException if the query fails
+	 */
+	private List<String> selectBlockWorldNames(final Connection connection) throws SQLException {
+
+		final List<String> worldNames = new ArrayList<>();
+
+		// execute sql query
+		try (PreparedStatement preparedStatement = prepareServerStatement(connection, "SelectBlockWorldNames");
+			 ResultSet rs = preparedStatement.executeQuery()) {
+
+			while (rs.next()) {
+				worldNames.add(rs.getString("WorldName"));
+			}
+		}
+
+		return worldNames;
+	}
+
+
+	/**
+	 * Select the block records of chests in {@code world} that expired before {@code expireTime}
+	 * @param connection the connection to use
+	 * @param world the world of the block records to select
+	 * @param expireTime the time in milliseconds since epoch before which chests are expired
+	 * @return List of ChestBlock - the block records of expired chests
+	 * @throws SQLException if the query fails
+	 */
+	private List<ChestBlock> selectExpiredBlocks(final Connection connection,
+												 final World world,
+												 final long expireTime) throws SQLException {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		try (PreparedStatement preparedStatement =
+					 prepareServerStatement(connection, "SelectExpiredBlocksInWorld")) {
+
+			preparedStatement.setString(2, world.getName());
+			preparedStatement.setLong(3, expireTime);
+
+			// execute sql query
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+
+				while (rs.next()) {
+
+					ChestBlock chestBlock = readBlockRecord(rs, world);
+
+					if (chestBlock != null) {
+						results.add(chestBlock);
+					}
+				}
+			}
+		}
+
+		return results;
+	}
+
+
+	/**
+	 * Copy the chest and block records of chests in world {@code worldName} that expired before
+	 * {@code expireTime} to history
+	 * @param connection the connection to use
+	 * @param worldName the world name of expired chests
+	 * @param expireTime the time in milliseconds since epoch before which chests are expired
+	 * @param removalTime the time in milliseconds since epoch recorded as the removal time
+	 * @throws SQLException if the statement fails
+	 */
+	private void insertExpiredHistory(final Connection connection,
+									  final String worldName,
+									  final long expireTime,
+									  final long removalTime) throws SQLException {
+
+		try (PreparedStatement preparedStatement =
+					 prepareServerStatement(connection, "InsertExpiredChestHistoryInWorld")) {
+
+			preparedStatement.setString(2, RemovalReason.EXPIRED.name());
+			preparedStatement.setLong(3, removalTime);
+			preparedStatement.setString(4, worldName);
+			preparedStatement.setLong(5, expireTime);
+
+			// execute prepared statement
+			preparedStatement.executeUpdate();
+		}
+	}
+
+
+	/**
+	 * Execute an update on chests in world {@code worldName} that expired before {@code expireTime}
+	 * @param connection the connection to use
+	 * @param query the name of the query, with world name and expire time parameters in that order
+	 * @param worldName the world name of expired chests
+	 * @param expireTime the time in milliseconds since epoch before which chests are expired
+	 * @return the number of rows affected
+	 * @throws SQLException if the statement fails
+	 */
+	private int executeExpiredUpdate(final Connection connection,
+									 final String query,
+									 final String worldName,
+									 final long expireTime) throws SQLException {
+
+		try (PreparedStatement preparedStatement = prepareServerStatement(connection, query)) {
+
+			preparedStatement.setString(2, worldName);
+			preparedStatement.setLong(3, expireTime);
+
+			// execute prepared statement; block records of deleted chests are removed by cascade
+			return preparedStatement.executeUpdate();
+		}
+	}
+
+
+	@Override
+	public final List<ChestBlock> getPendingRemovals() {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		Connection connection = null;
+
+		try {
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			// execute sql query
+			try (PreparedStatement preparedStatement = prepareServerStatement(connection, "SelectPendingRemovals");
+				 ResultSet rs = preparedStatement.executeQuery()) {
+
+				while (rs.next()) {
+
+					// skip records in worlds that are not loaded; they are kept until the world is loaded
+					World world = plugin.getServer().getWorld(rs.getString("WorldName"));
+					if (world == null) {
+						continue;
+					}
+
+					ChestBlock chestBlock = readBlockRecord(rs, world);
+
+					if (chestBlock != null) {
+						results.add(chestBlock);
+					}
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "fetch pending block removals from the MySQL database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info(results.size() + " pending block removals fetched from MySQL datastore.");
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<ChestBlock> getPendingRemovals(final World world) {
+		return selectBlocksInWorld("SelectPendingRemovalsInWorld", world, "pending block removals");
+	}
+
+
+	@Override
+	public synchronized final void putPendingRemoval(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null, do nothing and return
+		if (chestBlock == null) {
+			return;
+		}
+
+		writeQueue.submit(MetricId.DATASTORE_INSERT_PENDING_REMOVAL, new Runnable() {
+			@Override
+			public void run() {
+				executeBlockUpdate("InsertPendingRemoval", chestBlock, "insert a pending block removal in");
+			}
+		});
+	}
+
+
+	@Override
+	public synchronized final void deletePendingRemoval(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null, do nothing and return
+		if (chestBlock == null) {
+			return;
+		}
+
+		writeQueue.submit(MetricId.DATASTORE_DELETE_PENDING_REMOVAL, new Runnable() {
+			@Override
+			public void run() {
+				executeLocationUpdate("DeletePendingRemovalByLocation", chestBlock,
+						"delete a pending block removal from");
+			}
+		});
+	}
+
+
+	/**
+	 * Set chest UUID, world name and coordinate parameters of a block insert statement, after the server id
+	 * @param preparedStatement the statement
+	 * @param chestBlock the chest block
+	 * @throws SQLException if a parameter cannot be set
+	 */
+	private void setBlockParameters(final PreparedStatement preparedStatement,
+									final ChestBlock chestBlock) throws SQLException {
+
+		preparedStatement.setString(2, chestBlock.getChestUUID().toString());
+		preparedStatement.setString(3, chestBlock.getWorldName());
+		preparedStatement.setInt(4, chestBlock.getX());
+		preparedStatement.setInt(5, chestBlock.getY());
+		preparedStatement.setInt(6, chestBlock.getZ());
+	}
+
+
+	/**
+	 * Execute an insert of a chest block record; must be run on the writer thread
+	 * @param query the name of the insert query
+	 * @param chestBlock the chest block
+	 * @param action the description of the action, for log messages
+	 */
+	private void executeBlockUpdate(final String query, final ChestBlock chestBlock, final String action) {
+
+		Connection connection = null;
+
+		try {
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			// create prepared statement
+			try (PreparedStatement preparedStatement = prepareServerStatement(connection, query)) {
+
+				setBlockParameters(preparedStatement, chestBlock);
+
+				// execute prepared statement
+				preparedStatement.executeUpdate();
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while attempting to "
+					+ action + " the " + getName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+	}
+
+
+	/**
+	 * Execute a delete of a record by location; must be run on the writer thread
+	 * @param query the name of the delete query
+	 * @param chestBlock the chest block at the location of the record
+	 * @param action the description of the action, for log messages
+	 */
+	private void executeLocationUpdate(final String query, final ChestBlock chestBlock, final String action) {
+
+		Connection connection = null;
+
+		try {
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			// create prepared statement
+			try (PreparedStatement preparedStatement = prepareServerStatement(connection, query)) {
+
+				preparedStatement.setString(2, chestBlock.getWorldName());
+				preparedStatement.setInt(3, chestBlock.getX());
+				preparedStatement.setInt(4, chestBlock.getY());
+				preparedStatement.setInt(5, chestBlock.getZ());
+
+				// execute prepared statement
+				preparedStatement.executeUpdate();
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while attempting to "
+					+ action + " the " + getName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+	}
+
+
+	@Override
+	final void exportChests(final int batchSize, final BatchConsumer<ChestRecord> consumer) throws Exception {
+
+		Connection connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+		try {
+			try (PreparedStatement preparedStatement = prepareServerStatement(connection, "ExportChests")) {
+
+				// stream rows from server instead of reading all rows into memory
+				setStreaming(preparedStatement);
+
+				try (ResultSet rs = preparedStatement.executeQuery()) {
+					ChestRecord.readBatches(rs, batchSize, consumer);
+				}
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+	}
+
+
+	@Override
+	final void exportPendingRemovals(final int batchSize, final BatchConsumer<BlockRecord> consumer) throws Exception {
+
+		Connection connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+		try {
+			try (PreparedStatement preparedStatement = prepareServerStatement(connection, "ExportPendingRemovals")) {
+
+				// stream rows from server instead of reading all rows into memory
+				setStreaming(preparedStatement);
+
+				try (ResultSet rs = preparedStatement.executeQuery()) {
+					BlockRecord.readBatches(rs, batchSize, consumer);
+				}
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+	}
+
+
+	@Override
+	final List<ChestRecord> importChests(final List<ChestRecord> chestRecords) throws SQLException {
+
+		final List<ChestRecord> written = new ArrayList<>();
+
+		Connection connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+		try {
+			connection.setAutoCommit(false);
+
+			try (PreparedStatement existsStatement = prepareServerStatement(connection, "SelectChestExists");
+				 PreparedStatement chestStatement = prepareServerStatement(connection, "InsertChestRecord");
+				 PreparedStatement blockStatement = prepareServerStatement(connection, "InsertBlockRecord")) {
+
+				for (ChestRecord chestRecord : chestRecords) {
+
+					DeathChest deathChest = chestRecord.getDeathChest();
+
+					// skip chests written by a conversion that did not complete
+					existsStatement.setString(2, deathChest.getChestUUID().toString());
+					if (recordExists(existsStatement)) {
+						continue;
+					}
+
+					chestStatement.setString(2, deathChest.getChestUUID().toString());
+					chestStatement.setString(3, deathChest.getOwnerUUID().toString());
+					chestStatement.setString(4, deathChest.getKillerUUID() == null
+							? null : deathChest.getKillerUUID().toString());
+					chestStatement.setInt(5, deathChest.getItemCount());
+					chestStatement.setLong(6, deathChest.getPlacementTime());
+					chestStatement.setLong(7, deathChest.getExpirationTime());
+					chestStatement.addBatch();
+
+					for (BlockRecord blockRecord : chestRecord.getBlockRecords()) {
+						setBlockRecordParameters(blockStatement, blockRecord);
+						blockStatement.addBatch();
+					}
+					written.add(chestRecord);
+				}
+
+				// chest records are inserted before the block records that reference them
+				chestStatement.executeBatch();
+				blockStatement.executeBatch();
+			}
+			connection.commit();
+		}
+		finally {
+			// uncommitted transaction is rolled back when connection is returned
+			connectionPool.giveBack(connection);
+		}
+		return written;
+	}
+
+
+	@Override
+	final List<BlockRecord> importPendingRemovals(final List<BlockRecord> blockRecords) throws SQLException {
+
+		final List<BlockRecord> written = new ArrayList<>();
+
+		Connection connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+		try {
+			connection.setAutoCommit(false);
+
+			try (PreparedStatement existsStatement = prepareServerStatement(connection, "SelectPendingRemovalExists");
+				 PreparedStatement preparedStatement = prepareServerStatement(connection, "InsertPendingRemoval")) {
+
+				for (BlockRecord blockRecord : blockRecords) {
+
+					existsStatement.setString(2, blockRecord.getWorldName());
+					existsStatement.setInt(3, blockRecord.getX());
+					existsStatement.setInt(4, blockRecord.getY());
+					existsStatement.setInt(5, blockRecord.getZ());
+					if (recordExists(existsStatement)) {
+						continue;
+					}
+
+					setBlockRecordParameters(preparedStatement, blockRecord);
+					preparedStatement.addBatch();
+					written.add(blockRecord);
+				}
+
+				preparedStatement.executeBatch();
+			}
+			connection.commit();
+		}
+		finally {
+			// uncommitted transaction is rolled back when connection is returned
+			connectionPool.giveBack(connection);
+		}
+		return written;
+	}
+
+
+	@Override
+	final void exportHistory(final int batchSize, final BatchConsumer<HistoryRecord> consumer) throws Exception {
+
+		Connection connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+		try {
+			try (PreparedStatement preparedStatement = prepareServerStatement(connection, "ExportChestHistory")) {
+
+				// stream rows from server instead of reading all rows into memory
+				setStreaming(preparedStatement);
+
+				try (ResultSet rs = preparedStatement.executeQuery()) {
+					HistoryRecord.readBatches(rs, batchSize, consumer);
+				}
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+	}
+
+
+	@Override
+	final List<HistoryRecord> importHistory(final List<HistoryRecord> historyRecords) throws SQLException {
+
+		final List<HistoryRecord> written = new ArrayList<>();
+
+		Connection connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+		try {
+			connection.setAutoCommit(false);
+
+			try (PreparedStatement existsStatement = prepareServerStatement(connection, "SelectChestHistoryExists");
+				 PreparedStatement preparedStatement = prepareServerStatement(connection, "InsertChestHistoryRecord")) {
+
+				for (HistoryRecord historyRecord : historyRecords) {
+
+					historyRecord.setKeyParameters(existsStatement, 2);
+					if (recordExists(existsStatement)) {
+						continue;
+					}
+
+					historyRecord.setParameters(preparedStatement, 2);
+					preparedStatement.addBatch();
+					written.add(historyRecord);
+				}
+
+				preparedStatement.executeBatch();
+			}
+			connection.commit();
+		}
+		finally {
+			// uncommitted transaction is rolled back when connection is returned
+			connectionPool.giveBack(connection);
+		}
+		return written;
+	}
+
+
+	/**
+	 * Ask the driver to stream the rows of a query from the server instead of reading all rows into memory.
+	 * Drivers that do not support streaming read rows with their default fetch size.
+	 * @param preparedStatement the statement
+	 */
+	private static void setStreaming(final PreparedStatement preparedStatement) {
+		try {
+			preparedStatement.setFetchSize(Integer.MIN_VALUE);
+		}
+		catch (SQLException e) {
+			// driver rejects negative fetch size; use default fetch size
+		}
+	}
+
+
+	/**
+	 * Set chest UUID, world name and coordinate parameters of a block or pending removal insert statement,
+	 * after the server id
+	 * @param preparedStatement the statement
+	 * @param blockRecord the block record
+	 * @throws SQLException if a parameter cannot be set
+	 */
+	private void setBlockRecordParameters(final PreparedStatement preparedStatement,
+										  final BlockRecord blockRecord) throws SQLException {
+		preparedStatement.setString(2, blockRecord.getChestUUID().toString());
+		preparedStatement.setString(3, blockRecord.getWorldName());
+		preparedStatement.setInt(4, blockRecord.getX());
+		preparedStatement.setInt(5, blockRecord.getY());
+		preparedStatement.setInt(6, blockRecord.getZ());
+	}
+
+
+	@Override
+	public final List<RemoteChest> getRemoteChestRecords(final long currentTime) throws SQLException {
+
+		final List<RemoteChest> results = new ArrayList<>();
+
+		// chest UUIDs already added; chests have a row for each block
+		final Set<UUID> chestUUIDs = new HashSet<>();
+
+		Connection connection = null;
+
+		try {
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			try (PreparedStatement preparedStatement =
+						 prepareServerStatement(connection, "SelectRemoteChests")) {
+
+				preparedStatement.setLong(2, currentTime);
+
+				// execute sql query
+				try (ResultSet rs = preparedStatement.executeQuery()) {
+
+					while (rs.next()) {
+
+						// try to convert chest and owner uuids from stored strings
+						UUID chestUUID;
+						UUID ownerUUID;
+						try {
+							chestUUID = UUID.fromString(rs.getString("ChestUUID"));
+							ownerUUID = UUID.fromString(rs.getString("OwnerUUID"));
+						}
+						catch (Exception e) {
+							continue;
+						}
+
+						if (chestUUIDs.add(chestUUID)) {
+							results.add(new RemoteChest(rs.getString("ServerId"),
+									chestUUID,
+									ownerUUID,
+									rs.getString("WorldName"),
+									rs.getInt("X"),
+									rs.getInt("Y"),
+									rs.getInt("Z"),
+									rs.getLong("ExpirationTime")));
+						}
+					}
+				}
+			}
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+
+		return results;
+	}
+
+
+	/**
+	 * Delete up to {@code limit} history records of this server of chests removed before {@code removalTime},
+	 * on a pooled connection, since history records are not read or written by queued operations
+	 * @param removalTime the time in milliseconds since epoch before which history records are deleted
+	 * @param limit the maximum number of records to delete
+	 * @return the number of history records deleted
+	 * @throws Exception if the records could not be deleted
+	 */
+	@Override
+	final int deleteHistory(final long removalTime, final int limit) throws Exception {
+
+		Connection connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+		try (PreparedStatement preparedStatement =
+					 prepareServerStatement(connection, "DeleteChestHistoryBefore")) {
+
+			preparedStatement.setLong(2, removalTime);
+			preparedStatement.setInt(3, limit);
+
+			return preparedStatement.executeUpdate();
+		}
+		finally {
+			connectionPool.giveBack(connection);
+		}
+	}
+
+
+	/**
+	 * The database may be changed by other servers while this server is stopped,
+	 * so no generation is kept, and the index snapshot is never used with this datastore type
+	 * @return -1
+	 */
+	@Override
+	public final long getGeneration() {
+		return -1;
+	}
+
+
+	@Override
+	public final int getPendingWriteCount() {
+		return writeQueue.getQueueDepth();
+	}
+
+
+	@Override
+	public final boolean flush() {
+		return writeQueue.drain(TimeUnit.SECONDS.toMillis(plugin.getConfig().getLong("shutdown-flush-timeout", 10)));
+	}
+
+
+	/**
+	 * Flush pending write operations within the configured deadline, then close all pooled connections
+	 */
+	@Override
+	public final void close() {
+
+		// stop accepting write operations and flush queue
+		flush();
+
+		if (connectionPool != null) {
+			connectionPool.close();
+			plugin.getLogger().info(this.getName() + " datastore connections closed.");
+		}
+		setInitialized(false);
+	}
+
+
+	@Override
+	final void sync() {
+		// no action necessary for this storage type
+	}
+
+
+	/**
+	 * Delete the records of this server, leaving records of other servers sharing the tables untouched
+	 * @return {@code true} if the records were deleted, {@code false} if not
+	 */
+	@Override
+	final boolean delete() {
+
+		Connection connection = null;
+
+		try {
+			openPool();
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			// delete chest records; block records are removed by cascade
+			try (PreparedStatement chestStatement = prepareServerStatement(connection, "DeleteServerChests");
+				 PreparedStatement pendingStatement = prepareServerStatement(connection, "DeleteServerPendingRemovals")) {
+				chestStatement.executeUpdate();
+				pendingStatement.executeUpdate();
+			}
+			return true;
+		}
+		catch (Exception e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while deleting records of server "
+					+ serverId + " from the MySQL datastore.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			return false;
+		}
+		finally {
+			if (connectionPool != null) {
+				connectionPool.giveBack(connection);
+				connectionPool.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Check if the chest table of this datastore exists in the configured database
+	 * @return {@code true} if the table exists, {@code false} if not or if the database cannot be reached
+	 */
+	@Override
+	final boolean exists() {
+
+		Connection connection = null;
+
+		try {
+			openPool();
+			connection = connectionPool.borrow(BORROW_TIMEOUT);
+
+			// execute sql query
+			try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery("SelectTableCount"));
+				 ResultSet rs = preparedStatement.executeQuery()) {
+
+				return rs.next() && rs.getInt("TableCount") > 0;
+			}
+		}
+		catch (Exception e) {
+			return false;
+		}
+		finally {
+			if (connectionPool != null) {
+				connectionPool.giveBack(connection);
+			}
+		}
+	}
+
+}
@@ -3,15 +3,22 @@ package com.winterhaven_mc.deathchest.storage;
 import com.winterhaven_mc.deathchest.PluginMain;
 import com.winterhaven_mc.deathchest.chests.ChestBlock;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
-import org.bukkit.Location;
-import org.bukkit.scheduler.BukkitRunnable;
+import com.winterhaven_mc.deathchest.metrics.MetricId;
+import org.bukkit.World;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.winterhaven_mc.deathchest.storage.Queries.getQuery;
 
@@ -32,12 +39,44 @@ final class DataStoreSQLite extends DataStore {
 	// database connection object
 	private Connection connection;
 
+	// database url, for opening backup connections
+	private String dbUrl;
+
+	// queue for write operations, run in order on a single writer thread
+	private final WriteQueue writeQueue;
+
+	// true if the database file uses incremental auto vacuum, so free pages can be released in slices
+	private volatile boolean incrementalVacuum;
+
+	// milliseconds to wait for a maintenance operation on the writer thread
+	private final static long MAINTENANCE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+	// first SQLite version that supports analysis_limit, which bounds the rows read by ANALYZE
+	private final static int[] ANALYSIS_LIMIT_VERSION = { 3, 32, 0 };
+
+	// auto_vacuum value of incremental auto vacuum mode
+	private final static int INCREMENTAL_AUTO_VACUUM = 2;
+
+	// tables analyzed one per writer thread operation when analysis_limit is not supported
+	private final static String[] ANALYZE_TABLES = { "Chests", "Blocks", "PendingRemovals", "ChestHistory" };
+
 
 	/**
 	 * Class constructor
 	 * @param plugin reference to main class
 	 */
 	DataStoreSQLite (final PluginMain plugin) {
+		this(plugin, "deathchests.db", DataStoreType.SQLITE.toString());
+	}
+
+
+	/**
+	 * Class constructor for a database file other than the default, such as one world of a sharded datastore
+	 * @param plugin reference to main class
+	 * @param filename the database filename, relative to the plugin data folder
+	 * @param writerName the name used for the writer thread and write queue log messages
+	 */
+	DataStoreSQLite (final PluginMain plugin, final String filename, final String writerName) {
 
 		// set reference to main class
 		this.plugin = plugin;
@@ -46,7 +85,10 @@ final class DataStoreSQLite extends DataStore {
 		this.type = DataStoreType.SQLITE;
 
 		// set filename
-		this.filename = "deathchests.db";
+		this.filename = filename;
+
+		// create write queue
+		this.writeQueue = new WriteQueue(plugin, writerName);
 	}
 
 
@@ -65,19 +107,50 @@ final class DataStoreSQLite extends DataStore {
 		// create database url
 		String deathChestsDb = plugin.getDataFolder() + File.separator + filename;
 		String jdbc = "jdbc:sqlite";
-		String dbUrl = jdbc + ":" + deathChestsDb;
+		dbUrl = jdbc + ":" + deathChestsDb;
 
 		// create a database connection
 		connection = DriverManager.getConnection(dbUrl);
 
-		final Statement statement = connection.createStatement();
+		try (Statement statement = connection.createStatement()) {
+
+			// use incremental auto vacuum, so maintenance can release free pages in bounded slices.
+			// the mode can be set only before tables are created; converting an existing database
+			// takes a full VACUUM, which rewrites the whole file, so it is left to the server administrator
+			incrementalVacuum = selectAutoVacuum(statement) == INCREMENTAL_AUTO_VACUUM;
+			if (!incrementalVacuum) {
+				statement.executeUpdate(getQuery("SetIncrementalAutoVacuum"));
+				incrementalVacuum = selectAutoVacuum(statement) == INCREMENTAL_AUTO_VACUUM;
+			}
 
-		// enable foreign keys
-		statement.executeUpdate(getQuery("EnableForeignKeys"));
+			// enable foreign keys
+			statement.executeUpdate(getQuery("EnableForeignKeys"));
+
+			// execute table creation statements
+			statement.executeUpdate(getQuery("CreateDeathChestTable"));
+			statement.executeUpdate(getQuery("CreateDeathBlockTable"));
+			statement.executeUpdate(getQuery("CreatePendingRemovalTable"));
+
+			// create history of removed chests, indexed for retention, owner and chest lookups
+			statement.executeUpdate(getQuery("CreateChestHistoryTable"));
+			statement.executeUpdate(getQuery("CreateChestHistoryTimeIndex"));
+			statement.executeUpdate(getQuery("CreateChestHistoryOwnerIndex"));
+			statement.executeUpdate(getQuery("CreateChestHistoryChestIndex"));
+
+			// create generation counter, incremented by triggers on every change to chest or block records
+			statement.executeUpdate(getQuery("CreateGenerationTable"));
+			statement.executeUpdate(getQuery("InitializeGeneration"));
+			statement.executeUpdate(getQuery("CreateChestInsertTrigger"));
+			statement.executeUpdate(getQuery("CreateChestDeleteTrigger"));
+			statement.executeUpdate(getQuery("CreateBlockInsertTrigger"));
+			statement.executeUpdate(getQuery("CreateBlockDeleteTrigger"));
+		}
 
-		// execute table creation statements
-		statement.executeUpdate(getQuery("CreateDeathChestTable"));
-		statement.executeUpdate(getQuery("CreateDeathBlockTable"));
+		if (!incrementalVacuum) {
+			plugin.getLogger().info("The database file " + filename + " does not use incremental auto vacuum, "
+					+ "so maintenance does not release its free pages. To convert it, stop the server and run: "
+					+ "sqlite3 " + filename + " \"PRAGMA auto_vacuum = 2; VACUUM;\"");
+		}
 
 		// set initialized true
 		setInitialized(true);
@@ -87,6 +160,20 @@ final class DataStoreSQLite extends DataStore {
 	}
 
 
+	/**
+	 * Read the auto vacuum mode of the database
+	 * @param statement a statement of the database connection
+	 * @return the auto_vacuum value; 0 for none, 1 for full or 2 for incremental
+	 * @throws SQLException if the mode cannot be read
+	 */
+	private static int selectAutoVacuum(final Statement statement) throws SQLException {
+
+		try (ResultSet rs = statement.executeQuery(getQuery("SelectAutoVacuum"))) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+
 	@Override
 	public final List<ChestBlock> getAllBlockRecords() {
 
@@ -118,22 +205,17 @@ final class DataStoreSQLite extends DataStore {
 
 				String worldName = rs.getString("WorldName");
 
-				// check that world is valid
+				// skip records in worlds that are not loaded; orphaned records are removed by deleteExpiredRecords
 				if (plugin.getServer().getWorld(worldName) == null) {
-
-					// delete all records expired more than 30 days in database that have this invalid world
-					deleteOrphanedChests(worldName);
 					continue;
 				}
 
-				// create Location object from database fields
-				Location location = new Location(plugin.getServer().getWorld(worldName),
+				// create ChestBlock object from database fields
+				ChestBlock chestBlock = new ChestBlock(chestUUID, plugin.getServer().getWorld(worldName),
 						rs.getInt("X"),
 						rs.getInt("Y"),
 						rs.getInt("Z"));
 
-				ChestBlock chestBlock = new ChestBlock(chestUUID,location);
-
 				// add DeathChestObject to results ArrayList
 				results.add(chestBlock);
 			}
@@ -158,63 +240,98 @@ final class DataStoreSQLite extends DataStore {
 
 
 	@Override
-	public final List<DeathChest> getAllChestRecords() {
+	public final List<ChestBlock> getBlockRecords(final World world) {
 
-		final List<DeathChest> results = new ArrayList<>();
+		final List<ChestBlock> results = new ArrayList<>();
 
 		try {
 
 			PreparedStatement preparedStatement =
-					connection.prepareStatement(getQuery("SelectAllChests"));
+					connection.prepareStatement(getQuery("SelectBlocksInWorld"));
+
+			preparedStatement.setString(1, world.getName());
 
 			// execute sql query
 			ResultSet rs = preparedStatement.executeQuery();
 
 			while (rs.next()) {
 
-				UUID chestUUID;
-				UUID ownerUUID;
-				UUID killerUUID;
+				ChestBlock chestBlock = readBlockRecord(rs, world);
 
-				// try to convert chest uuid from stored string
-				try {
-					chestUUID = UUID.fromString(rs.getString("ChestUUID"));
-				}
-				catch (Exception e) {
-					plugin.getLogger().warning("[SQLite getAllChestRecords] An error occurred while trying to set chestUUID.");
-					plugin.getLogger().warning("[SQLite getAllChestRecords] chestUUID string: " + rs.getString("ChestUUID"));
-					plugin.getLogger().warning(e.getLocalizedMessage());
-					continue;
+				if (chestBlock != null) {
+					results.add(chestBlock);
 				}
+			}
+		}
+		catch (SQLException e) {
 
-				// try to convert owner uuid from stored string
-				try {
-					ownerUUID = UUID.fromString(rs.getString("OwnerUUID"));
-				}
-				catch (Exception e) {
-					plugin.getLogger().warning("[SQLite getAllChestRecords] An error occurred while trying to set ownerUUID.");
-					plugin.getLogger().warning("[SQLite getAllChestRecords] ownerUUID string: " + rs.getString("OwnerUUID"));
-					plugin.getLogger().warning(e.getLocalizedMessage());
-					continue;
-				}
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch block records in world "
+					+ world.getName() + " from the SQLite database.");
+			plugin.getLogger().warning(e.getMessage());
 
-				// try to convert killer uuid from stored string, or set to null if invalid uuid
-				try {
-					killerUUID = UUID.fromString(rs.getString("KillerUUID"));
-				}
-				catch (Exception e) {
-					killerUUID = null;
-				}
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		if (plugin.debug) {
+			plugin.getLogger().info(results.size() + " block records in world "
+					+ world.getName() + " fetched from SQLite datastore.");
+		}
+		return results;
+	}
+
+
+	/**
+	 * Create a ChestBlock from the current row of a result set of block or pending removal records
+	 * @param rs the result set
+	 * @param world the world of the record
+	 * @return ChestBlock - the chest block, or null if the chest UUID is invalid
+	 * @throws SQLException if a column cannot be read
+	 */
+	private ChestBlock readBlockRecord(final ResultSet rs, final World world) throws SQLException {
+
+		// try to convert chest uuid from stored string
+		UUID chestUUID;
+		try {
+			chestUUID = UUID.fromString(rs.getString("ChestUUID"));
+		}
+		catch (Exception e) {
+			plugin.getLogger().warning("[SQLite readBlockRecord] An error occurred while trying to set chestUUID.");
+			plugin.getLogger().warning("[SQLite readBlockRecord] chestUUID string: " + rs.getString("ChestUUID"));
+			return null;
+		}
+
+		// create ChestBlock object from database fields
+		return new ChestBlock(chestUUID, world,
+				rs.getInt("X"),
+				rs.getInt("Y"),
+				rs.getInt("Z"));
+	}
+
+
+	@Override
+	public final List<DeathChest> getAllChestRecords() {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		try {
+
+			PreparedStatement preparedStatement =
+					connection.prepareStatement(getQuery("SelectAllChests"));
+
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
 
-				// set other fields in deathChestBlock from database fields
-				int itemCount = rs.getInt("ItemCount");
-				long placementTime = rs.getLong("PlacementTime");
-				long expirationTime = rs.getLong("ExpirationTime");
+			while (rs.next()) {
 
-				DeathChest deathChest = new DeathChest(chestUUID,ownerUUID,killerUUID,itemCount,placementTime,expirationTime);
+				DeathChest deathChest = readChestRecord(rs, "getAllChestRecords");
 
 				// add DeathChestObject to results ArrayList
-				results.add(deathChest);
+				if (deathChest != null) {
+					results.add(deathChest);
+				}
 			}
 		}
 		catch (SQLException e) {
@@ -236,14 +353,123 @@ final class DataStoreSQLite extends DataStore {
 
 
 	@Override
-	public synchronized final void putChestRecord(final DeathChest deathChest) {
+	public final List<DeathChest> getChestRecords(final World world) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		try {
+
+			PreparedStatement preparedStatement =
+					connection.prepareStatement(getQuery("SelectChestsInWorld"));
+
+			preparedStatement.setString(1, world.getName());
+
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
+
+			while (rs.next()) {
+
+				DeathChest deathChest = readChestRecord(rs, "getChestRecords");
+
+				if (deathChest != null) {
+					results.add(deathChest);
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch chest records in world "
+					+ world.getName() + " from the SQLite database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		if (plugin.debug) {
+			plugin.getLogger().info(results.size() + " chest records in world "
+					+ world.getName() + " fetched from SQLite datastore.");
+		}
+		return results;
+	}
+
+
+	/**
+	 * Create a DeathChest from the current row of a result set of chest records
+	 * @param rs the result set
+	 * @param methodName the name of the calling method, for log messages
+	 * @return DeathChest - the chest, or null if the chest or owner UUID is invalid
+	 * @throws SQLException if a column cannot be read
+	 */
+	private DeathChest readChestRecord(final ResultSet rs, final String methodName) throws SQLException {
+
+		UUID chestUUID;
+		UUID ownerUUID;
+		UUID killerUUID;
+
+		// try to convert chest uuid from stored string
+		try {
+			chestUUID = UUID.fromString(rs.getString("ChestUUID"));
+		}
+		catch (Exception e) {
+			plugin.getLogger().warning("[SQLite " + methodName + "] An error occurred while trying to set chestUUID.");
+			plugin.getLogger().warning("[SQLite " + methodName + "] chestUUID string: " + rs.getString("ChestUUID"));
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			return null;
+		}
+
+		// try to convert owner uuid from stored string
+		try {
+			ownerUUID = UUID.fromString(rs.getString("OwnerUUID"));
+		}
+		catch (Exception e) {
+			plugin.getLogger().warning("[SQLite " + methodName + "] An error occurred while trying to set ownerUUID.");
+			plugin.getLogger().warning("[SQLite " + methodName + "] ownerUUID string: " + rs.getString("OwnerUUID"));
+			plugin.getLogger().warning(e.getLocalizedMessage());
+			return null;
+		}
+
+		// try to convert killer uuid from stored string, or set to null if invalid uuid
+		try {
+			killerUUID = UUID.fromString(rs.getString("KillerUUID"));
+		}
+		catch (Exception e) {
+			killerUUID = null;
+		}
+
+		// set other fields in deathChestBlock from database fields
+		int itemCount = rs.getInt("ItemCount");
+		long placementTime = rs.getLong("PlacementTime");
+		long expirationTime = rs.getLong("ExpirationTime");
+
+		return new DeathChest(chestUUID,ownerUUID,killerUUID,itemCount,placementTime,expirationTime);
+	}
+
+
+	@Override
+	public final void putChestRecord(final DeathChest deathChest) {
 
 		// if passed deathChestBlock is null, do nothing and return
 		if (deathChest == null) {
 			return;
 		}
 
-		new BukkitRunnable() {
+		// take read-only snapshot of chest blocks for writer thread
+		putChestRecord(deathChest, plugin.chestManager.getBlockSet(deathChest.getChestUUID()));
+	}
+
+
+	/**
+	 * Insert a chest record with a snapshot of its block records taken when the chest was saved,
+	 * so the write may be submitted later from another thread
+	 * @param deathChest the DeathChest object to insert into the datastore
+	 * @param chestBlocks the read-only snapshot of the chest blocks to insert
+	 */
+	synchronized final void putChestRecord(final DeathChest deathChest, final Set<ChestBlock> chestBlocks) {
+
+		writeQueue.submit(MetricId.DATASTORE_INSERT_CHEST, new Runnable() {
 			@Override
 			public void run() {
 
@@ -276,7 +502,13 @@ final class DataStoreSQLite extends DataStore {
 					killerUUID = null;
 				}
 
+				// true if chest record and all block records are committed
+				boolean success = true;
+
 				try {
+					// insert chest record and block records in a single transaction
+					connection.setAutoCommit(false);
+
 					// create prepared statement
 					PreparedStatement preparedStatement =
 							connection.prepareStatement(getQuery("InsertChestRecord"));
@@ -295,9 +527,18 @@ final class DataStoreSQLite extends DataStore {
 					if (plugin.debug) {
 						plugin.getLogger().info(rowsAffected + " chest records inserted.");
 					}
+
+					// insert each chest block into datastore; any failure rolls back the chest record too
+					for (ChestBlock chestBlock : chestBlocks) {
+						insertBlockRecord(chestBlock);
+					}
+
+					connection.commit();
 				}
 				catch (SQLException e) {
 
+					success = false;
+
 					// output simple error message
 					plugin.getLogger().warning("An error occurred while inserting a DeathChest into the SQLite database.");
 					plugin.getLogger().warning(e.getMessage());
@@ -306,117 +547,202 @@ final class DataStoreSQLite extends DataStore {
 					if (plugin.debug) {
 						e.printStackTrace();
 					}
+
+					rollback();
+				}
+				finally {
+					restoreAutoCommit();
 				}
 
-				// insert each chest block into datastore
-				for (ChestBlock chestBlock : plugin.chestManager.getBlockSet(deathChest.getChestUUID())) {
-					putBlockRecord(chestBlock);
+				// remove saved deployment from journal
+				if (success) {
+					plugin.deploymentJournal.markPersisted(deathChest.getChestUUID());
 				}
+			}
+		});
+	}
+
+
+	/**
+	 * Insert a block record in the database; must be run on the writer thread
+	 * @param chestBlock the chest block to insert
+	 * @throws SQLException if the record could not be inserted
+	 */
+	private void insertBlockRecord(final ChestBlock chestBlock) throws SQLException {
+
+		// if chest uuid is invalid, fail the insert
+		if (chestBlock.getChestUUID() == null) {
+			throw new SQLException("ChestBlock chest UUID is invalid.");
+		}
+
+		// create prepared statement
+		try (PreparedStatement preparedStatement =
+					 connection.prepareStatement(getQuery("InsertBlockRecord"))) {
 
+			preparedStatement.setString(1, chestBlock.getChestUUID().toString());
+			preparedStatement.setString(2, chestBlock.getWorldName());
+			preparedStatement.setInt(3, chestBlock.getX());
+			preparedStatement.setInt(4, chestBlock.getY());
+			preparedStatement.setInt(5, chestBlock.getZ());
+
+			// execute prepared statement
+			int rowsAffected = preparedStatement.executeUpdate();
+
+			// output debugging information
+			if (plugin.debug) {
+				plugin.getLogger().info(rowsAffected + " block records inserted.");
 			}
-		}.runTaskAsynchronously(plugin);
+		}
 	}
 
 
 	@Override
-	synchronized void putBlockRecord(final ChestBlock chestBlock) {
+	synchronized public final void deleteChestRecord(final DeathChest deathChest, final RemovalReason reason) {
 
-		// if passed deathChestBlock is null, do nothing and return
-		if (chestBlock == null) {
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
 			return;
 		}
 
-		new BukkitRunnable() {
+		// resolve history setting and removal time when chest is removed
+		final boolean recordHistory = reason != null && plugin.getConfig().getBoolean("history.enabled", true);
+		final long removalTime = System.currentTimeMillis();
+
+		final String chestUUID = deathChest.getChestUUID().toString();
+
+		writeQueue.submit(MetricId.DATASTORE_DELETE_CHEST, new Runnable() {
 			@Override
 			public void run() {
-
-				// catch invalid player uuid exception
-				String chestUUID;
 				try {
-					chestUUID = chestBlock.getChestUUID().toString();
-				}
-				catch (Exception e) {
-					plugin.getLogger().warning("ChestBlock chest UUID is invalid.");
-					return;
-				}
+					connection.setAutoCommit(false);
+
+					// copy chest and block records to history before they are deleted
+					if (recordHistory) {
+						PreparedStatement historyStatement =
+								connection.prepareStatement(getQuery("InsertChestHistoryByUUID"));
+
+						historyStatement.setString(1, reason.name());
+						historyStatement.setLong(2, removalTime);
+						historyStatement.setString(3, chestUUID);
+						historyStatement.executeUpdate();
+					}
 
-				try {
 					// create prepared statement
 					PreparedStatement preparedStatement =
-							connection.prepareStatement(getQuery("InsertBlockRecord"));
+							connection.prepareStatement(getQuery("DeleteChestByUUID"));
 
 					preparedStatement.setString(1, chestUUID);
-					preparedStatement.setString(2, chestBlock.getLocation().getWorld().getName());
-					preparedStatement.setInt(3, chestBlock.getLocation().getBlockX());
-					preparedStatement.setInt(4, chestBlock.getLocation().getBlockY());
-					preparedStatement.setInt(5, chestBlock.getLocation().getBlockZ());
 
-					// execute prepared statement
+					// execute prepared statement; block records are removed by cascade
 					int rowsAffected = preparedStatement.executeUpdate();
+					connection.commit();
 
 					// output debugging information
 					if (plugin.debug) {
-						plugin.getLogger().info(rowsAffected + " block records inserted.");
+						plugin.getLogger().info(rowsAffected + " chest records deleted.");
 					}
 				}
 				catch (SQLException e) {
 
 					// output simple error message
-					plugin.getLogger().warning("An error occurred while "
-							+ "inserting a death chest block into the SQLite database.");
+					plugin.getLogger().warning("An error occurred while attempting to "
+							+ "delete a chest record from the " + getName() + " datastore.");
 					plugin.getLogger().warning(e.getMessage());
 
 					// if debugging is enabled, output stack trace
 					if (plugin.debug) {
 						e.printStackTrace();
 					}
+
+					rollback();
+				}
+				finally {
+					restoreAutoCommit();
 				}
 			}
-		}.runTaskAsynchronously(plugin);
+		});
+
 	}
 
 
 	@Override
-	synchronized public final void deleteChestRecord(final DeathChest deathChest) {
+	synchronized public final void deleteChestRecords(final Collection<DeathChest> deathChests,
+													  final RemovalReason reason) {
 
-		// if passed deathChest is null, do nothing and return
-		if (deathChest == null) {
+		// if passed collection is null or empty, do nothing and return
+		if (deathChests == null || deathChests.isEmpty()) {
 			return;
 		}
 
-		new BukkitRunnable() {
+		// resolve history setting and removal time when chests are removed
+		final boolean recordHistory = reason != null && plugin.getConfig().getBoolean("history.enabled", true);
+		final long removalTime = System.currentTimeMillis();
+
+		// copy chest UUIDs for writer thread
+		final List<String> chestUUIDs = new ArrayList<>(deathChests.size());
+		for (DeathChest deathChest : deathChests) {
+			chestUUIDs.add(deathChest.getChestUUID().toString());
+		}
+
+		writeQueue.submit(MetricId.DATASTORE_DELETE_CHEST_BATCH, new Runnable() {
 			@Override
 			public void run() {
 				try {
+					connection.setAutoCommit(false);
+
+					// copy chest and block records to history before they are deleted
+					if (recordHistory) {
+						PreparedStatement historyStatement =
+								connection.prepareStatement(getQuery("InsertChestHistoryByUUID"));
+
+						for (String chestUUID : chestUUIDs) {
+							historyStatement.setString(1, reason.name());
+							historyStatement.setLong(2, removalTime);
+							historyStatement.setString(3, chestUUID);
+							historyStatement.addBatch();
+						}
+						historyStatement.executeBatch();
+					}
+
 					// create prepared statement
 					PreparedStatement preparedStatement =
 							connection.prepareStatement(getQuery("DeleteChestByUUID"));
 
-					preparedStatement.setString(1, deathChest.getChestUUID().toString());
+					for (String chestUUID : chestUUIDs) {
+						preparedStatement.setString(1, chestUUID);
+						preparedStatement.addBatch();
+					}
 
-					// execute prepared statement
-					int rowsAffected = preparedStatement.executeUpdate();
+					// execute batch in one transaction; block records are removed by cascade
+					preparedStatement.executeBatch();
+					connection.commit();
+
+					plugin.metrics.recordDeleteBatch(chestUUIDs.size());
 
 					// output debugging information
 					if (plugin.debug) {
-						plugin.getLogger().info(rowsAffected + " chest records deleted.");
+						plugin.getLogger().info(chestUUIDs.size() + " chest records deleted in batch.");
 					}
 				}
 				catch (SQLException e) {
 
 					// output simple error message
 					plugin.getLogger().warning("An error occurred while attempting to "
-							+ "delete a chest record from the " + toString() + " datastore.");
+							+ "delete a batch of chest records from the " + getName() + " datastore.");
 					plugin.getLogger().warning(e.getMessage());
 
 					// if debugging is enabled, output stack trace
 					if (plugin.debug) {
 						e.printStackTrace();
 					}
+
+					rollback();
+				}
+				finally {
+					restoreAutoCommit();
 				}
 			}
-		}.runTaskAsynchronously(plugin);
-
+		});
 	}
 
 
@@ -428,10 +754,7 @@ final class DataStoreSQLite extends DataStore {
 			return;
 		}
 
-		// get chest block location
-		final Location location = chestBlock.getLocation();
-
-		new BukkitRunnable() {
+		writeQueue.submit(MetricId.DATASTORE_DELETE_BLOCK, new Runnable() {
 			@Override
 			public void run() {
 				try {
@@ -439,10 +762,10 @@ final class DataStoreSQLite extends DataStore {
 					PreparedStatement preparedStatement =
 							connection.prepareStatement(getQuery("DeleteBlockByLocation"));
 
-					preparedStatement.setString(1, location.getWorld().getName());
-					preparedStatement.setInt(2, location.getBlockX());
-					preparedStatement.setInt(3, location.getBlockY());
-					preparedStatement.setInt(4, location.getBlockZ());
+					preparedStatement.setString(1, chestBlock.getWorldName());
+					preparedStatement.setInt(2, chestBlock.getX());
+					preparedStatement.setInt(3, chestBlock.getY());
+					preparedStatement.setInt(4, chestBlock.getZ());
 
 					// execute prepared statement
 					int rowsAffected = preparedStatement.executeUpdate();
@@ -456,7 +779,7 @@ final class DataStoreSQLite extends DataStore {
 
 					// output simple error message
 					plugin.getLogger().warning("An error occurred while attempting to "
-							+ "delete a record from the " + toString() + " datastore.");
+							+ "delete a record from the " + getName() + " datastore.");
 					plugin.getLogger().warning(e.getMessage());
 
 					// if debugging is enabled, output stack trace
@@ -465,39 +788,112 @@ final class DataStoreSQLite extends DataStore {
 					}
 				}
 			}
-		}.runTaskAsynchronously(plugin);
+		});
 	}
 
 
 	/**
-	 * Delete orphaned chests in nonexistent world {@code worldName}
-	 * @param worldName the world name of orphaned chests to delete
+	 * Delete expired and orphaned records, running the transaction of each world as one operation
+	 * on the writer thread, so it does not share the connection with queued writes arriving during startup
+	 * @param currentTime the time in milliseconds since epoch used to determine expiration
+	 * @return List of ChestBlock - the block records of deleted chests in existing worlds
 	 */
-	private void deleteOrphanedChests(final String worldName) {
+	@Override
+	public final List<ChestBlock> deleteExpiredRecords(final long currentTime) {
 
-		// pastDueTime = current time in milliseconds - 30 days
-		final long pastDueTime = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30);
+		final List<ChestBlock> expiredBlocks = new ArrayList<>();
+
+		// orphaned chests in nonexistent worlds are deleted only if expired more than 30 days
+		final long pastDueTime = currentTime - TimeUnit.DAYS.toMillis(30);
+
+		final boolean recordHistory = plugin.getConfig().getBoolean("history.enabled", true);
+
+		int expiredCount = 0;
+		int orphanedCount = 0;
 
 		try {
-			// create prepared statement
-			PreparedStatement preparedStatement = 
-					connection.prepareStatement(getQuery("DeleteOrphanedChests"));
+			final List<String> worldNames = runOnWriter(new Callable<List<String>>() {
+				@Override
+				public List<String> call() throws SQLException {
+					return selectBlockWorldNames();
+				}
+			});
+
+			// delete expired and orphaned chests in one transaction per world
+			for (final String worldName : worldNames) {
+
+				final World world = plugin.getServer().getWorld(worldName);
+
+				// block records of expired chests, kept only if the world transaction completes
+				final List<ChestBlock> worldBlocks = new ArrayList<>();
+
+				int deletedCount = runOnWriter(new Callable<Integer>() {
+					@Override
+					public Integer call() throws SQLException {
+
+						connection.setAutoCommit(false);
+
+						try {
+							int count;
+							if (world == null) {
+								if (recordHistory) {
+									insertExpiredHistory(worldName, pastDueTime, currentTime);
+								}
+								count = deleteExpiredChests(worldName, pastDueTime);
+							}
+							else {
+								worldBlocks.addAll(selectExpiredBlocks(world, currentTime));
+								insertExpiredPendingRemovals(worldName, currentTime);
+								if (recordHistory) {
+									insertExpiredHistory(worldName, currentTime, currentTime);
+								}
+								count = deleteExpiredChests(worldName, currentTime);
+							}
+							connection.commit();
+							return count;
+						}
+						catch (SQLException e) {
+							rollback();
+							throw e;
+						}
+						finally {
+							restoreAutoCommit();
+						}
+					}
+				});
 
-			preparedStatement.setString(1, worldName);
-			preparedStatement.setLong(2, pastDueTime);
+				if (world == null) {
+					orphanedCount += deletedCount;
+				}
+				else {
+					expiredBlocks.addAll(worldBlocks);
+					expiredCount += deletedCount;
+				}
+			}
 
-			// execute prepared statement
-			int rowsAffected = preparedStatement.executeUpdate();
+			// delete any chest records that no longer have block records
+			int emptyCount = runOnWriter(new Callable<Integer>() {
+				@Override
+				public Integer call() throws SQLException {
+					try (PreparedStatement preparedStatement =
+								 connection.prepareStatement(getQuery("DeleteChestsWithoutBlocks"))) {
+						return preparedStatement.executeUpdate();
+					}
+				}
+			});
 
 			// output debugging information
 			if (plugin.debug) {
-				plugin.getLogger().info(rowsAffected + " rows deleted.");
+				plugin.getLogger().info(expiredCount + " expired, "
+						+ orphanedCount + " orphaned and "
+						+ emptyCount + " empty chest records deleted.");
 			}
 		}
-		catch (SQLException e) {
+		catch (Exception e) {
 
 			// output simple error message
-			plugin.getLogger().warning("An error occurred while attempting to delete orphaned chests from the SQLite database.");
+			plugin.getLogger().warning("An error occurred while attempting to "
+					+ "delete expired chests from the SQLite database.");
 			plugin.getLogger().warning(e.getMessage());
 
 			// if debugging is enabled, output stack trace
@@ -505,14 +901,912 @@ final class DataStoreSQLite extends DataStore {
 				e.printStackTrace();
 			}
 		}
+
+		return expiredBlocks;
 	}
 
 
 	/**
-	 * Close database connection
+	 * Select the names of all worlds that contain block records
+	 * @return List of String - the world names
+	 * @throws SQLException if the query fails
 	 */
-	@Override
-	public final void close() {
+	private List<String> selectBlockWorldNames() throws SQLException {
+
+		final List<String> worldNames = new ArrayList<>();
+
+		PreparedStatement preparedStatement =
+				connection.prepareStatement(getQuery("SelectBlockWorldNames"));
+
+		// execute sql query
+		ResultSet rs = preparedStatement.executeQuery();
+
+		while (rs.next()) {
+			worldNames.add(rs.getString("WorldName"));
+		}
+
+		return worldNames;
+	}
+
+
+	/**
+	 * Select the block records of chests in {@code world} that expired before {@code expireTime}
+	 * @param world the world of the block records to select
+	 * @param expireTime the time in milliseconds since epoch before which chests are expired
+	 * @return List of ChestBlock - the block records of expired chests
+	 * @throws SQLException if the query fails
+	 */
+	private List<ChestBlock> selectExpiredBlocks(final World world, final long expireTime) throws SQLException {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		PreparedStatement preparedStatement =
+				connection.prepareStatement(getQuery("SelectExpiredBlocksInWorld"));
+
+		preparedStatement.setString(1, world.getName());
+		preparedStatement.setLong(2, expireTime);
+
+		// execute sql query
+		ResultSet rs = preparedStatement.executeQuery();
+
+		while (rs.next()) {
+
+			// try to convert chest uuid from stored string
+			UUID chestUUID;
+			try {
+				chestUUID = UUID.fromString(rs.getString("ChestUUID"));
+			}
+			catch (Exception e) {
+				continue;
+			}
+
+			// create ChestBlock object from database fields
+			results.add(new ChestBlock(chestUUID, world,
+					rs.getInt("X"),
+					rs.getInt("Y"),
+					rs.getInt("Z")));
+		}
+
+		return results;
+	}
+
+
+	/**
+	 * Save the block records of chests in world {@code worldName} that expired before {@code expireTime}
+	 * as pending removals, so their in game blocks are removed even if their chunks are not loaded
+	 * before the next restart
+	 * @param worldName the world name of expired chests
+	 * @param expireTime the time in milliseconds since epoch before which chests are expired
+	 * @throws SQLException if the statement fails
+	 */
+	private void insertExpiredPendingRemovals(final String worldName, final long expireTime) throws SQLException {
+
+		// create prepared statement
+		PreparedStatement preparedStatement =
+				connection.prepareStatement(getQuery("InsertExpiredPendingRemovalsInWorld"));
+
+		preparedStatement.setString(1, worldName);
+		preparedStatement.setLong(2, expireTime);
+
+		// execute prepared statement
+		preparedStatement.executeUpdate();
+	}
+
+
+	/**
+	 * Copy the chest and block records of chests in world {@code worldName} that expired before
+	 * {@code expireTime} to history
+	 * @param worldName the world name of expired chests
+	 * @param expireTime the time in milliseconds since epoch before which chests are expired
+	 * @param removalTime the time in milliseconds since epoch recorded as the removal time
+	 * @throws SQLException if the statement fails
+	 */
+	private void insertExpiredHistory(final String worldName,
+									  final long expireTime,
+									  final long removalTime) throws SQLException {
+
+		// create prepared statement
+		PreparedStatement preparedStatement =
+				connection.prepareStatement(getQuery("InsertExpiredChestHistoryInWorld"));
+
+		preparedStatement.setString(1, RemovalReason.EXPIRED.name());
+		preparedStatement.setLong(2, removalTime);
+		preparedStatement.setString(3, worldName);
+		preparedStatement.setLong(4, expireTime);
+
+		// execute prepared statement
+		preparedStatement.executeUpdate();
+	}
+
+
+	/**
+	 * Delete chests with blocks in world {@code worldName} that expired before {@code expireTime}
+	 * @param worldName the world name of expired chests to delete
+	 * @param expireTime the time in milliseconds since epoch before which chests are expired
+	 * @return the number of chest records deleted
+	 * @throws SQLException if the statement fails
+	 */
+	private int deleteExpiredChests(final String worldName, final long expireTime) throws SQLException {
+
+		// create prepared statement
+		PreparedStatement preparedStatement =
+				connection.prepareStatement(getQuery("DeleteExpiredChestsInWorld"));
+
+		preparedStatement.setLong(1, expireTime);
+		preparedStatement.setString(2, worldName);
+
+		// execute prepared statement; block records are removed by cascade
+		return preparedStatement.executeUpdate();
+	}
+
+
+	@Override
+	public final List<ChestBlock> getPendingRemovals() {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		try {
+			PreparedStatement preparedStatement =
+					connection.prepareStatement(getQuery("SelectPendingRemovals"));
+
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
+
+			while (rs.next()) {
+
+				// try to convert chest uuid from stored string
+				UUID chestUUID;
+				try {
+					chestUUID = UUID.fromString(rs.getString("ChestUUID"));
+				}
+				catch (Exception e) {
+					continue;
+				}
+
+				// skip records in worlds that are not loaded; they are kept until the world is loaded
+				World world = plugin.getServer().getWorld(rs.getString("WorldName"));
+				if (world == null) {
+					continue;
+				}
+
+				// create ChestBlock object from database fields
+				results.add(new ChestBlock(chestUUID, world,
+						rs.getInt("X"),
+						rs.getInt("Y"),
+						rs.getInt("Z")));
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "fetch pending block removals from the SQLite database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info(results.size() + " pending block removals fetched from SQLite datastore.");
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<ChestBlock> getPendingRemovals(final World world) {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		try {
+			PreparedStatement preparedStatement =
+					connection.prepareStatement(getQuery("SelectPendingRemovalsInWorld"));
+
+			preparedStatement.setString(1, world.getName());
+
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
+
+			while (rs.next()) {
+
+				ChestBlock chestBlock = readBlockRecord(rs, world);
+
+				if (chestBlock != null) {
+					results.add(chestBlock);
+				}
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch pending block removals in world "
+					+ world.getName() + " from the SQLite database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		return results;
+	}
+
+
+	@Override
+	public synchronized final void putPendingRemoval(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null, do nothing and return
+		if (chestBlock == null) {
+			return;
+		}
+
+		writeQueue.submit(MetricId.DATASTORE_INSERT_PENDING_REMOVAL, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					// create prepared statement
+					PreparedStatement preparedStatement =
+							connection.prepareStatement(getQuery("InsertPendingRemoval"));
+
+					preparedStatement.setString(1, chestBlock.getChestUUID().toString());
+					preparedStatement.setString(2, chestBlock.getWorldName());
+					preparedStatement.setInt(3, chestBlock.getX());
+					preparedStatement.setInt(4, chestBlock.getY());
+					preparedStatement.setInt(5, chestBlock.getZ());
+
+					// execute prepared statement
+					preparedStatement.executeUpdate();
+				}
+				catch (SQLException e) {
+
+					// output simple error message
+					plugin.getLogger().warning("An error occurred while attempting to "
+							+ "insert a pending block removal in the " + getName() + " datastore.");
+					plugin.getLogger().warning(e.getMessage());
+
+					// if debugging is enabled, output stack trace
+					if (plugin.debug) {
+						e.printStackTrace();
+					}
+				}
+			}
+		});
+	}
+
+
+	@Override
+	public synchronized final void deletePendingRemoval(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null, do nothing and return
+		if (chestBlock == null) {
+			return;
+		}
+
+		writeQueue.submit(MetricId.DATASTORE_DELETE_PENDING_REMOVAL, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					// create prepared statement
+					PreparedStatement preparedStatement =
+							connection.prepareStatement(getQuery("DeletePendingRemovalByLocation"));
+
+					preparedStatement.setString(1, chestBlock.getWorldName());
+					preparedStatement.setInt(2, chestBlock.getX());
+					preparedStatement.setInt(3, chestBlock.getY());
+					preparedStatement.setInt(4, chestBlock.getZ());
+
+					// execute prepared statement
+					preparedStatement.executeUpdate();
+				}
+				catch (SQLException e) {
+
+					// output simple error message
+					plugin.getLogger().warning("An error occurred while attempting to "
+							+ "delete a pending block removal from the " + getName() + " datastore.");
+					plugin.getLogger().warning(e.getMessage());
+
+					// if debugging is enabled, output stack trace
+					if (plugin.debug) {
+						e.printStackTrace();
+					}
+				}
+			}
+		});
+	}
+
+
+	@Override
+	final void exportChests(final int batchSize, final BatchConsumer<ChestRecord> consumer) throws Exception {
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery("ExportChests"));
+			 ResultSet rs = preparedStatement.executeQuery()) {
+
+			// read rows as they are passed to consumer
+			ChestRecord.readBatches(rs, batchSize, consumer);
+		}
+	}
+
+
+	@Override
+	final void exportPendingRemovals(final int batchSize, final BatchConsumer<BlockRecord> consumer) throws Exception {
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery("ExportPendingRemovals"));
+			 ResultSet rs = preparedStatement.executeQuery()) {
+
+			// read rows as they are passed to consumer
+			BlockRecord.readBatches(rs, batchSize, consumer);
+		}
+	}
+
+
+	/**
+	 * Write a batch of chest records and their block records in one transaction, as one operation
+	 * on the writer thread, skipping chests already in the datastore
+	 * @param chestRecords the chest records to write
+	 * @return List of ChestRecord - the chest records written
+	 * @throws Exception if the records cannot be written, or the operation does not run before the timeout
+	 */
+	@Override
+	final List<ChestRecord> importChests(final List<ChestRecord> chestRecords) throws Exception {
+
+		return runOnWriter(new Callable<List<ChestRecord>>() {
+			@Override
+			public List<ChestRecord> call() throws SQLException {
+
+				final List<ChestRecord> written = new ArrayList<>();
+
+				connection.setAutoCommit(false);
+
+				try (PreparedStatement existsStatement = connection.prepareStatement(getQuery("SelectChestExists"));
+					 PreparedStatement chestStatement = connection.prepareStatement(getQuery("InsertChestRecord"));
+					 PreparedStatement blockStatement = connection.prepareStatement(getQuery("InsertBlockRecord"))) {
+
+					for (ChestRecord chestRecord : chestRecords) {
+
+						DeathChest deathChest = chestRecord.getDeathChest();
+
+						// skip chests written by a conversion that did not complete
+						existsStatement.setString(1, deathChest.getChestUUID().toString());
+						if (recordExists(existsStatement)) {
+							continue;
+						}
+
+						chestStatement.setString(1, deathChest.getChestUUID().toString());
+						chestStatement.setString(2, deathChest.getOwnerUUID().toString());
+						chestStatement.setString(3, deathChest.getKillerUUID() == null
+								? null : deathChest.getKillerUUID().toString());
+						chestStatement.setInt(4, deathChest.getItemCount());
+						chestStatement.setLong(5, deathChest.getPlacementTime());
+						chestStatement.setLong(6, deathChest.getExpirationTime());
+						chestStatement.addBatch();
+
+						for (BlockRecord blockRecord : chestRecord.getBlockRecords()) {
+							setBlockRecordParameters(blockStatement, blockRecord);
+							blockStatement.addBatch();
+						}
+						written.add(chestRecord);
+					}
+
+					// chest records are inserted before the block records that reference them
+					chestStatement.executeBatch();
+					blockStatement.executeBatch();
+					connection.commit();
+				}
+				catch (SQLException e) {
+					rollback();
+					throw e;
+				}
+				finally {
+					restoreAutoCommit();
+				}
+				return written;
+			}
+		});
+	}
+
+
+	/**
+	 * Write a batch of pending removal records in one transaction, as one operation on the writer thread,
+	 * skipping pending removals already in the datastore
+	 * @param blockRecords the pending removal records to write
+	 * @return List of BlockRecord - the pending removal records written
+	 * @throws Exception if the records cannot be written, or the operation does not run before the timeout
+	 */
+	@Override
+	final List<BlockRecord> importPendingRemovals(final List<BlockRecord> blockRecords) throws Exception {
+
+		return runOnWriter(new Callable<List<BlockRecord>>() {
+			@Override
+			public List<BlockRecord> call() throws SQLException {
+
+				final List<BlockRecord> written = new ArrayList<>();
+
+				connection.setAutoCommit(false);
+
+				try (PreparedStatement existsStatement =
+							 connection.prepareStatement(getQuery("SelectPendingRemovalExists"));
+					 PreparedStatement preparedStatement =
+							 connection.prepareStatement(getQuery("InsertPendingRemoval"))) {
+
+					for (BlockRecord blockRecord : blockRecords) {
+
+						existsStatement.setString(1, blockRecord.getWorldName());
+						existsStatement.setInt(2, blockRecord.getX());
+						existsStatement.setInt(3, blockRecord.getY());
+						existsStatement.setInt(4, blockRecord.getZ());
+						if (recordExists(existsStatement)) {
+							continue;
+						}
+
+						setBlockRecordParameters(preparedStatement, blockRecord);
+						preparedStatement.addBatch();
+						written.add(blockRecord);
+					}
+
+					preparedStatement.executeBatch();
+					connection.commit();
+				}
+				catch (SQLException e) {
+					rollback();
+					throw e;
+				}
+				finally {
+					restoreAutoCommit();
+				}
+				return written;
+			}
+		});
+	}
+
+
+	@Override
+	final void exportHistory(final int batchSize, final BatchConsumer<HistoryRecord> consumer) throws Exception {
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery("ExportChestHistory"));
+			 ResultSet rs = preparedStatement.executeQuery()) {
+
+			// read rows as they are passed to consumer
+			HistoryRecord.readBatches(rs, batchSize, consumer);
+		}
+	}
+
+
+	/**
+	 * Write a batch of chest history records in one transaction, as one operation on the writer thread,
+	 * skipping history records of the same chest block and removal time already in the datastore
+	 * @param historyRecords the history records to write
+	 * @return List of HistoryRecord - the history records written
+	 * @throws Exception if the records cannot be written, or the operation does not run before the timeout
+	 */
+	@Override
+	final List<HistoryRecord> importHistory(final List<HistoryRecord> historyRecords) throws Exception {
+
+		return runOnWriter(new Callable<List<HistoryRecord>>() {
+			@Override
+			public List<HistoryRecord> call() throws SQLException {
+
+				final List<HistoryRecord> written = new ArrayList<>();
+
+				connection.setAutoCommit(false);
+
+				try (PreparedStatement existsStatement =
+							 connection.prepareStatement(getQuery("SelectChestHistoryExists"));
+					 PreparedStatement preparedStatement =
+							 connection.prepareStatement(getQuery("InsertChestHistoryRecord"))) {
+
+					for (HistoryRecord historyRecord : historyRecords) {
+
+						historyRecord.setKeyParameters(existsStatement, 1);
+						if (recordExists(existsStatement)) {
+							continue;
+						}
+
+						historyRecord.setParameters(preparedStatement, 1);
+						preparedStatement.addBatch();
+						written.add(historyRecord);
+					}
+
+					preparedStatement.executeBatch();
+					connection.commit();
+				}
+				catch (SQLException e) {
+					rollback();
+					throw e;
+				}
+				finally {
+					restoreAutoCommit();
+				}
+				return written;
+			}
+		});
+	}
+
+
+	/**
+	 * Set chest UUID, world name and coordinate parameters of a block or pending removal insert statement
+	 * @param preparedStatement the statement
+	 * @param blockRecord the block record
+	 * @throws SQLException if a parameter cannot be set
+	 */
+	private void setBlockRecordParameters(final PreparedStatement preparedStatement,
+										  final BlockRecord blockRecord) throws SQLException {
+		preparedStatement.setString(1, blockRecord.getChestUUID().toString());
+		preparedStatement.setString(2, blockRecord.getWorldName());
+		preparedStatement.setInt(3, blockRecord.getX());
+		preparedStatement.setInt(4, blockRecord.getY());
+		preparedStatement.setInt(5, blockRecord.getZ());
+	}
+
+
+	/**
+	 * Write a consistent copy of the database with the SQLite online backup API, through a separate connection,
+	 * so the writer thread is not held while the copy is made
+	 * @param directory the backup directory; the copy is written to the database filename relative to it
+	 * @return {@code true} if the backup was written
+	 * @throws Exception if the backup could not be written
+	 */
+	@Override
+	final boolean backup(final File directory) throws Exception {
+
+		File target = new File(directory, filename);
+
+		if (!target.getParentFile().isDirectory() && !target.getParentFile().mkdirs()) {
+			throw new IOException("Could not create backup directory " + target.getParentFile().getPath());
+		}
+
+		Connection backupConnection = DriverManager.getConnection(dbUrl);
+
+		try {
+			backupConnection.createStatement()
+					.executeUpdate(String.format(getQuery("Backup"), target.getAbsolutePath()));
+		}
+		finally {
+			backupConnection.close();
+		}
+		return true;
+	}
+
+
+	/**
+	 * Release up to {@code pages} free pages with incremental vacuum, as one operation on the writer thread.
+	 * Database files that do not use incremental auto vacuum are not vacuumed.
+	 * @param pages the maximum number of pages to release
+	 * @return the number of free pages remaining, or 0 if the database file does not use incremental auto vacuum
+	 * @throws Exception if the vacuum fails or does not run before the timeout
+	 */
+	@Override
+	final int vacuum(final int pages) throws Exception {
+
+		// if database file does not use incremental auto vacuum, there are no pages to release
+		if (!incrementalVacuum) {
+			return 0;
+		}
+
+		return runOnWriter(new Callable<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+
+				final int count = Math.min(Math.max(1, pages), selectFreePageCount());
+
+				// if there are no free pages, do nothing and return
+				if (count == 0) {
+					return 0;
+				}
+
+				connection.setAutoCommit(false);
+
+				try (Statement statement = connection.createStatement()) {
+
+					// incremental vacuum releases one page on each step, returning a row with no columns,
+					// and each execution steps it once, so it is executed once for each page in one transaction
+					for (int i = 0; i < count; i++) {
+						statement.execute(getQuery("IncrementalVacuum"));
+					}
+					connection.commit();
+				}
+				catch (SQLException e) {
+					rollback();
+					throw e;
+				}
+				finally {
+					restoreAutoCommit();
+				}
+
+				return selectFreePageCount();
+			}
+		});
+	}
+
+
+	/**
+	 * Delete up to {@code limit} history records of chests removed before {@code removalTime},
+	 * as one operation on the writer thread
+	 * @param removalTime the time in milliseconds since epoch before which history records are deleted
+	 * @param limit the maximum number of records to delete
+	 * @return the number of history records deleted
+	 * @throws Exception if the records could not be deleted or the delete does not run before the timeout
+	 */
+	@Override
+	final int deleteHistory(final long removalTime, final int limit) throws Exception {
+
+		return runOnWriter(new Callable<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+
+				try (PreparedStatement preparedStatement =
+							 connection.prepareStatement(getQuery("DeleteChestHistoryBefore"))) {
+
+					preparedStatement.setLong(1, removalTime);
+					preparedStatement.setInt(2, limit);
+
+					return preparedStatement.executeUpdate();
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Get the number of free pages in the database file that can be released by vacuum,
+	 * read as one operation on the writer thread
+	 * @return the number of free pages, or 0 if the database file does not use incremental auto vacuum
+	 * @throws Exception if the count cannot be read, or the operation does not run before the timeout
+	 */
+	final int getFreePageCount() throws Exception {
+
+		// if database file does not use incremental auto vacuum, free pages cannot be released
+		if (!incrementalVacuum) {
+			return 0;
+		}
+
+		return runOnWriter(new Callable<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+				return selectFreePageCount();
+			}
+		});
+	}
+
+
+	/**
+	 * Read the number of free pages in the database file; must be run on the writer thread
+	 * @return the number of free pages
+	 * @throws SQLException if the count cannot be read
+	 */
+	private int selectFreePageCount() throws SQLException {
+
+		try (Statement statement = connection.createStatement();
+			 ResultSet rs = statement.executeQuery(getQuery("SelectFreePageCount"))) {
+
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+
+	/**
+	 * Refresh table statistics with a bounded ANALYZE, as one operation on the writer thread.
+	 * SQLite versions without analysis_limit read every row of every table in ANALYZE,
+	 * so with those versions each table is analyzed in a separate operation, letting queued writes run between them.
+	 * @throws Exception if the analysis fails or does not run before the timeout
+	 */
+	@Override
+	final void analyze() throws Exception {
+
+		final boolean bounded = runOnWriter(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws SQLException {
+
+				if (!isAnalysisLimitSupported()) {
+					return false;
+				}
+
+				try (Statement statement = connection.createStatement()) {
+					statement.executeUpdate(getQuery("SetAnalysisLimit"));
+					statement.executeUpdate(getQuery("Analyze"));
+				}
+				return true;
+			}
+		});
+
+		if (bounded) {
+			return;
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info("SQLite version does not support analysis_limit; "
+					+ getName() + " datastore tables are analyzed one at a time.");
+		}
+
+		for (final String table : ANALYZE_TABLES) {
+			runOnWriter(new Callable<Integer>() {
+				@Override
+				public Integer call() throws SQLException {
+					try (Statement statement = connection.createStatement()) {
+						statement.executeUpdate(String.format(getQuery("AnalyzeTable"), table));
+					}
+					return 0;
+				}
+			});
+		}
+	}
+
+
+	/**
+	 * Check if the SQLite library supports analysis_limit; must be run on the writer thread
+	 * @return {@code true} if the SQLite version is 3.32.0 or later, {@code false} if not
+	 * @throws SQLException if the version cannot be read
+	 */
+	private boolean isAnalysisLimitSupported() throws SQLException {
+
+		try (Statement statement = connection.createStatement();
+			 ResultSet rs = statement.executeQuery(getQuery("SelectSQLiteVersion"))) {
+
+			return rs.next() && isVersionAtLeast(rs.getString(1), ANALYSIS_LIMIT_VERSION);
+		}
+	}
+
+
+	/**
+	 * Check if a dotted version string is at least a minimum version
+	 * @param version the version string, such as 3.25.2
+	 * @param minimum the minimum version numbers, most significant first
+	 * @return {@code true} if the version is at least the minimum version, {@code false} if not or if it is not valid
+	 */
+	private static boolean isVersionAtLeast(final String version, final int[] minimum) {
+
+		if (version == null) {
+			return false;
+		}
+
+		final String[] parts = version.trim().split("\\.");
+
+		for (int i = 0; i < minimum.length; i++) {
+
+			int number;
+			try {
+				number = i < parts.length ? Integer.parseInt(parts[i]) : 0;
+			}
+			catch (NumberFormatException e) {
+				return false;
+			}
+
+			if (number != minimum[i]) {
+				return number > minimum[i];
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Run an operation on the writer thread, between queued write operations, and wait for its result.
+	 * If the operation does not start before the timeout, it is cancelled.
+	 * @param operation the operation
+	 * @param <T> the result type
+	 * @return the result of the operation
+	 * @throws Exception if the operation fails, the queue is closed, or the timeout passes
+	 */
+	private <T> T runOnWriter(final Callable<T> operation) throws Exception {
+
+		final FutureTask<T> task = new FutureTask<>(operation);
+
+		if (!writeQueue.submit(MetricId.DATASTORE_MAINTENANCE, task)) {
+			throw new SQLException(getName() + " datastore is closed.");
+		}
+
+		try {
+			return task.get(MAINTENANCE_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException e) {
+			task.cancel(false);
+			throw e;
+		}
+		catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+	}
+
+
+	@Override
+	public final long getGeneration() {
+
+		try {
+			PreparedStatement preparedStatement =
+					connection.prepareStatement(getQuery("SelectGeneration"));
+
+			// execute sql query
+			ResultSet rs = preparedStatement.executeQuery();
+
+			if (rs.next()) {
+				return rs.getLong("Value");
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "fetch the generation from the SQLite database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Roll back the current transaction, logging any error
+	 */
+	private void rollback() {
+		try {
+			connection.rollback();
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occurred while rolling back a SQLite transaction.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Restore auto-commit mode after a transaction, logging any error
+	 */
+	private void restoreAutoCommit() {
+		try {
+			connection.setAutoCommit(true);
+		}
+		catch (SQLException e) {
+			plugin.getLogger().warning("An error occurred while restoring SQLite auto-commit mode.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+	}
+
+
+	@Override
+	public final int getPendingWriteCount() {
+		return writeQueue.getQueueDepth();
+	}
+
+
+	@Override
+	public final boolean flush() {
+		return flush(TimeUnit.SECONDS.toMillis(plugin.getConfig().getLong("shutdown-flush-timeout", 10)));
+	}
+
+
+	/**
+	 * Stop accepting write operations and flush pending write operations within a deadline
+	 * @param timeoutMillis the maximum time to wait, in milliseconds
+	 * @return {@code true} if all pending write operations were saved, {@code false} if any were dropped
+	 */
+	final boolean flush(final long timeoutMillis) {
+		return writeQueue.drain(timeoutMillis);
+	}
+
+
+	/**
+	 * Flush pending write operations within the configured deadline, then close database connection
+	 */
+	@Override
+	public final void close() {
+
+		// stop accepting write operations and flush queue
+		flush();
+
+		// if an operation is still running on the writer thread, leave its connection open rather than
+		// closing it under a running transaction; the connection is released when the server exits
+		if (isInitialized() && !writeQueue.isTerminated()) {
+			plugin.getLogger().warning(this.getName()
+					+ " datastore connection left open because a write operation is still running.");
+			setInitialized(false);
+			return;
+		}
 
 		if (isInitialized()) {
 			try {
@@ -0,0 +1,831 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+/**
+ * SQLite implementation of Datastore that keeps the records of each world in a separate database file,
+ * each with its own connection and writer thread, so writes in different worlds run in parallel.
+ * World database files are never opened by write operations; a write to a world whose datastore
+ * is not open is held until the datastore has been opened asynchronously.
+ * The records of a world that no longer exists are removed by deleting its file.
+ */
+final class DataStoreShardedSQLite extends DataStore {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// world database file extension
+	private final static String EXTENSION = ".db";
+
+	// open world datastores, by world name; published and pending writes run under this lock
+	private final Map<String, DataStoreSQLite> shards;
+
+	// write operations waiting for a world datastore to be opened, in submission order, by world name
+	private final Map<String, List<Consumer<DataStoreSQLite>>> pendingWrites;
+
+	// lock held while a world datastore is opened, so each world database file is opened once
+	private final Object openLock = new Object();
+
+	// world name of each chest record read or written, by chest UUID, for routing deletes
+	private final Map<UUID, String> chestWorlds;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 */
+	DataStoreShardedSQLite(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.SQLITE_SHARDED;
+
+		// set directory name for world database files
+		this.filename = "worlds";
+
+		this.shards = new ConcurrentHashMap<>();
+		this.pendingWrites = new HashMap<>();
+		this.chestWorlds = new ConcurrentHashMap<>();
+	}
+
+
+	/**
+	 * Create the directory for world database files; world datastores are opened when first used
+	 */
+	@Override
+	final void initialize() {
+
+		File directory = getDirectory();
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			plugin.getLogger().warning("Could not create directory " + directory.getPath() + " for world datastores.");
+			return;
+		}
+
+		// set initialized true
+		setInitialized(true);
+
+		// output log message
+		plugin.getLogger().info(this.getName() + " datastore initialized.");
+	}
+
+
+	/**
+	 * Get the directory containing world database files
+	 * @return File - the directory
+	 */
+	private File getDirectory() {
+		return new File(plugin.getDataFolder(), filename);
+	}
+
+
+	/**
+	 * Get the database file of a world
+	 * @param worldName the world name
+	 * @return File - the world database file
+	 */
+	private File getShardFile(final String worldName) {
+		return new File(getDirectory(), worldName + EXTENSION);
+	}
+
+
+	/**
+	 * Get the names of all worlds that have a database file
+	 * @return List of String - the world names
+	 */
+	private List<String> getShardNames() {
+
+		List<String> worldNames = new ArrayList<>();
+
+		File[] files = getDirectory().listFiles((dir, name) -> name.endsWith(EXTENSION));
+
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				worldNames.add(name.substring(0, name.length() - EXTENSION.length()));
+			}
+		}
+		return worldNames;
+	}
+
+
+	/**
+	 * Get the datastore of a world, opening it if necessary. Opening creates tables and indexes,
+	 * so this is never called on the main thread while the server is running.
+	 * Write operations held for the world are submitted to its writer thread, in order,
+	 * before the datastore is published.
+	 * @param worldName the world name
+	 * @param create if {@code true}, the world database file is created if it does not exist
+	 * @return DataStoreSQLite - the world datastore, or null if it does not exist and was not created,
+	 * or could not be opened
+	 */
+	private DataStoreSQLite getShard(final String worldName, final boolean create) {
+
+		DataStoreSQLite shard = shards.get(worldName);
+
+		if (shard != null) {
+			return shard;
+		}
+
+		// if world has no database file and one is not to be created, return null
+		if (!create && !getShardFile(worldName).exists()) {
+			return null;
+		}
+
+		synchronized (openLock) {
+
+			shard = shards.get(worldName);
+
+			if (shard != null) {
+				return shard;
+			}
+
+			shard = new DataStoreSQLite(plugin,
+					filename + File.separator + worldName + EXTENSION,
+					getName() + "-" + worldName);
+
+			try {
+				shard.initialize();
+			}
+			catch (Exception e) {
+				plugin.getLogger().warning("Could not open the SQLite datastore for world " + worldName + ".");
+				plugin.getLogger().warning(e.getLocalizedMessage());
+				if (plugin.debug) {
+					e.printStackTrace();
+				}
+
+				// drop write operations held for world, so later writes try to open it again
+				List<Consumer<DataStoreSQLite>> writes;
+				synchronized (shards) {
+					writes = pendingWrites.remove(worldName);
+				}
+				if (writes != null) {
+					plugin.getLogger().warning(writes.size() + " write operations for world "
+							+ worldName + " were not saved.");
+				}
+				return null;
+			}
+
+			// submit held write operations in order, then publish datastore for later writes
+			synchronized (shards) {
+				List<Consumer<DataStoreSQLite>> writes = pendingWrites.remove(worldName);
+				if (writes != null) {
+					for (Consumer<DataStoreSQLite> write : writes) {
+						write.accept(shard);
+					}
+				}
+				shards.put(worldName, shard);
+			}
+		}
+		return shard;
+	}
+
+
+	/**
+	 * Submit a write operation to the datastore of a world. If the datastore is not open, the operation
+	 * is held and the datastore is opened asynchronously, so the caller never waits for a database file
+	 * to be opened.
+	 * @param worldName the world name
+	 * @param write the write operation, which submits its work to the writer thread of the world datastore
+	 */
+	private void submit(final String worldName, final Consumer<DataStoreSQLite> write) {
+
+		DataStoreSQLite shard;
+		boolean open = false;
+
+		synchronized (shards) {
+
+			shard = shards.get(worldName);
+
+			if (shard == null) {
+				List<Consumer<DataStoreSQLite>> writes = pendingWrites.get(worldName);
+				if (writes == null) {
+					writes = new ArrayList<>();
+					pendingWrites.put(worldName, writes);
+					open = true;
+				}
+				writes.add(write);
+			}
+		}
+
+		if (shard != null) {
+			write.accept(shard);
+		}
+		else if (open) {
+			openLater(worldName);
+		}
+	}
+
+
+	/**
+	 * Open the datastore of a world asynchronously. While the plugin is being disabled, tasks cannot
+	 * be scheduled, so the datastore is opened on the calling thread.
+	 * @param worldName the world name
+	 */
+	private void openLater(final String worldName) {
+
+		if (!plugin.isEnabled()) {
+			getShard(worldName, true);
+			return;
+		}
+
+		new BukkitRunnable() {
+			@Override
+			public void run() {
+				getShard(worldName, true);
+			}
+		}.runTaskAsynchronously(plugin);
+	}
+
+
+	/**
+	 * Open the datastores of all worlds with held write operations on the calling thread
+	 */
+	private void openPendingShards() {
+
+		List<String> worldNames;
+		synchronized (shards) {
+			worldNames = new ArrayList<>(pendingWrites.keySet());
+		}
+
+		for (String worldName : worldNames) {
+			getShard(worldName, true);
+		}
+	}
+
+
+	/**
+	 * Get the datastores of all worlds that have a database file, opening them if necessary
+	 * @return List of DataStoreSQLite - the world datastores
+	 */
+	private List<DataStoreSQLite> getAllShards() {
+
+		List<DataStoreSQLite> results = new ArrayList<>();
+
+		for (String worldName : getShardNames()) {
+			DataStoreSQLite shard = getShard(worldName, false);
+			if (shard != null) {
+				results.add(shard);
+			}
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<DeathChest> getAllChestRecords() {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		for (String worldName : getShardNames()) {
+
+			DataStoreSQLite shard = getShard(worldName, false);
+
+			if (shard != null) {
+				for (DeathChest deathChest : shard.getAllChestRecords()) {
+					chestWorlds.put(deathChest.getChestUUID(), worldName);
+					results.add(deathChest);
+				}
+			}
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<ChestBlock> getAllBlockRecords() {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		for (DataStoreSQLite shard : getAllShards()) {
+			results.addAll(shard.getAllBlockRecords());
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecords(final World world) {
+
+		DataStoreSQLite shard = getShard(world.getName(), false);
+
+		// if world has no database file, return empty list
+		if (shard == null) {
+			return new ArrayList<>();
+		}
+
+		List<DeathChest> results = shard.getChestRecords(world);
+
+		for (DeathChest deathChest : results) {
+			chestWorlds.put(deathChest.getChestUUID(), world.getName());
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<ChestBlock> getBlockRecords(final World world) {
+
+		DataStoreSQLite shard = getShard(world.getName(), false);
+
+		// if world has no database file, return empty list
+		if (shard == null) {
+			return new ArrayList<>();
+		}
+		return shard.getBlockRecords(world);
+	}
+
+
+	@Override
+	public final void putChestRecord(final DeathChest deathChest) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return;
+		}
+
+		// take read-only snapshot of chest blocks, which may be written after the world datastore is opened
+		final Set<ChestBlock> chestBlocks = plugin.chestManager.getBlockSet(deathChest.getChestUUID());
+
+		// if chest has no indexed blocks, there is no world to write it to
+		if (chestBlocks.isEmpty()) {
+			plugin.getLogger().warning("DeathChest " + deathChest.getChestUUID()
+					+ " has no blocks in a loaded world and was not saved.");
+			return;
+		}
+
+		final String worldName = chestBlocks.iterator().next().getWorldName();
+
+		chestWorlds.put(deathChest.getChestUUID(), worldName);
+		submit(worldName, shard -> shard.putChestRecord(deathChest, chestBlocks));
+	}
+
+
+	@Override
+	public final void deleteBlockRecord(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null, do nothing and return
+		if (chestBlock == null) {
+			return;
+		}
+
+		submit(chestBlock.getWorldName(), shard -> shard.deleteBlockRecord(chestBlock));
+	}
+
+
+	@Override
+	public final void deleteChestRecord(final DeathChest deathChest, final RemovalReason reason) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return;
+		}
+
+		deleteChestRecords(Collections.singletonList(deathChest), reason);
+	}
+
+
+	@Override
+	public final void deleteChestRecords(final Collection<DeathChest> deathChests, final RemovalReason reason) {
+
+		// group chests by world
+		Map<String, List<DeathChest>> batches = new HashMap<>();
+
+		for (DeathChest deathChest : deathChests) {
+
+			String worldName = chestWorlds.remove(deathChest.getChestUUID());
+
+			// if world of chest record is known, delete from that world only
+			if (worldName != null) {
+				batches.computeIfAbsent(worldName, k -> new ArrayList<>()).add(deathChest);
+			}
+
+			// otherwise delete from every world datastore that is open or has held write operations
+			else {
+				for (String openWorldName : getOpenWorldNames()) {
+					batches.computeIfAbsent(openWorldName, k -> new ArrayList<>()).add(deathChest);
+				}
+			}
+		}
+
+		for (Map.Entry<String, List<DeathChest>> entry : batches.entrySet()) {
+			final List<DeathChest> batch = entry.getValue();
+			if (batch.size() == 1) {
+				submit(entry.getKey(), shard -> shard.deleteChestRecord(batch.get(0), reason));
+			}
+			else {
+				submit(entry.getKey(), shard -> shard.deleteChestRecords(batch, reason));
+			}
+		}
+	}
+
+
+	/**
+	 * Get the names of worlds whose datastores are open or have held write operations
+	 * @return Set of String - the world names
+	 */
+	private Set<String> getOpenWorldNames() {
+		synchronized (shards) {
+			Set<String> worldNames = new HashSet<>(shards.keySet());
+			worldNames.addAll(pendingWrites.keySet());
+			return worldNames;
+		}
+	}
+
+
+	/**
+	 * Delete the database files of worlds that are not loaded and no longer exist on the server,
+	 * then delete expired and orphaned records in each remaining world datastore
+	 * @param currentTime the time in milliseconds since epoch used to determine expiration
+	 * @return List of ChestBlock - the block records of deleted chests in existing worlds
+	 */
+	@Override
+	public final List<ChestBlock> deleteExpiredRecords(final long currentTime) {
+
+		final List<ChestBlock> expiredBlocks = new ArrayList<>();
+
+		for (String worldName : getShardNames()) {
+
+			// if world is not loaded and its world folder no longer exists, delete world database file
+			if (plugin.getServer().getWorld(worldName) == null
+					&& !new File(plugin.getServer().getWorldContainer(), worldName).isDirectory()) {
+				deleteShard(worldName);
+				continue;
+			}
+
+			DataStoreSQLite shard = getShard(worldName, false);
+
+			if (shard != null) {
+				expiredBlocks.addAll(shard.deleteExpiredRecords(currentTime));
+			}
+		}
+		return expiredBlocks;
+	}
+
+
+	/**
+	 * Close and delete the database file of a world that no longer exists
+	 * @param worldName the world name
+	 */
+	private void deleteShard(final String worldName) {
+
+		DataStoreSQLite shard;
+		synchronized (shards) {
+			shard = shards.remove(worldName);
+			pendingWrites.remove(worldName);
+		}
+
+		chestWorlds.values().removeIf(worldName::equals);
+
+		if (shard != null) {
+			shard.close();
+		}
+
+		if (getShardFile(worldName).delete()) {
+			plugin.getLogger().info("Deleted death chest records of world " + worldName + ", which no longer exists.");
+		}
+		else {
+			plugin.getLogger().warning("Could not delete death chest records of world " + worldName + ".");
+		}
+	}
+
+
+	@Override
+	public final List<ChestBlock> getPendingRemovals() {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		for (DataStoreSQLite shard : getAllShards()) {
+			results.addAll(shard.getPendingRemovals());
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<ChestBlock> getPendingRemovals(final World world) {
+
+		DataStoreSQLite shard = getShard(world.getName(), false);
+
+		// if world has no database file, return empty list
+		if (shard == null) {
+			return new ArrayList<>();
+		}
+		return shard.getPendingRemovals(world);
+	}
+
+
+	@Override
+	public final void putPendingRemoval(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null, do nothing and return
+		if (chestBlock == null) {
+			return;
+		}
+
+		submit(chestBlock.getWorldName(), shard -> shard.putPendingRemoval(chestBlock));
+	}
+
+
+	@Override
+	public final void deletePendingRemoval(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null, do nothing and return
+		if (chestBlock == null) {
+			return;
+		}
+
+		submit(chestBlock.getWorldName(), shard -> shard.deletePendingRemoval(chestBlock));
+	}
+
+
+	@Override
+	final void exportChests(final int batchSize, final BatchConsumer<ChestRecord> consumer) throws Exception {
+		for (DataStoreSQLite shard : getAllShards()) {
+			shard.exportChests(batchSize, consumer);
+		}
+	}
+
+
+	@Override
+	final void exportPendingRemovals(final int batchSize, final BatchConsumer<BlockRecord> consumer) throws Exception {
+		for (DataStoreSQLite shard : getAllShards()) {
+			shard.exportPendingRemovals(batchSize, consumer);
+		}
+	}
+
+
+	@Override
+	final List<ChestRecord> importChests(final List<ChestRecord> chestRecords) throws Exception {
+
+		// group chests by world of their blocks
+		Map<String, List<ChestRecord>> batches = new HashMap<>();
+		for (ChestRecord chestRecord : chestRecords) {
+			batches.computeIfAbsent(chestRecord.getWorldName(), k -> new ArrayList<>()).add(chestRecord);
+		}
+
+		final List<ChestRecord> written = new ArrayList<>();
+
+		for (Map.Entry<String, List<ChestRecord>> entry : batches.entrySet()) {
+			written.addAll(getImportShard(entry.getKey()).importChests(entry.getValue()));
+			for (ChestRecord chestRecord : entry.getValue()) {
+				chestWorlds.put(chestRecord.getChestUUID(), entry.getKey());
+			}
+		}
+		return written;
+	}
+
+
+	@Override
+	final List<BlockRecord> importPendingRemovals(final List<BlockRecord> blockRecords) throws Exception {
+
+		// group records by world
+		Map<String, List<BlockRecord>> batches = new HashMap<>();
+		for (BlockRecord blockRecord : blockRecords) {
+			batches.computeIfAbsent(blockRecord.getWorldName(), k -> new ArrayList<>()).add(blockRecord);
+		}
+
+		final List<BlockRecord> written = new ArrayList<>();
+
+		for (Map.Entry<String, List<BlockRecord>> entry : batches.entrySet()) {
+			written.addAll(getImportShard(entry.getKey()).importPendingRemovals(entry.getValue()));
+		}
+		return written;
+	}
+
+
+	@Override
+	final void exportHistory(final int batchSize, final BatchConsumer<HistoryRecord> consumer) throws Exception {
+		for (DataStoreSQLite shard : getAllShards()) {
+			shard.exportHistory(batchSize, consumer);
+		}
+	}
+
+
+	@Override
+	final List<HistoryRecord> importHistory(final List<HistoryRecord> historyRecords) throws Exception {
+
+		// group records by world
+		Map<String, List<HistoryRecord>> batches = new HashMap<>();
+		for (HistoryRecord historyRecord : historyRecords) {
+			batches.computeIfAbsent(historyRecord.getWorldName(), k -> new ArrayList<>()).add(historyRecord);
+		}
+
+		final List<HistoryRecord> written = new ArrayList<>();
+
+		for (Map.Entry<String, List<HistoryRecord>> entry : batches.entrySet()) {
+			written.addAll(getImportShard(entry.getKey()).importHistory(entry.getValue()));
+		}
+		return written;
+	}
+
+
+	/**
+	 * Get the datastore of a world for conversion, creating it if necessary, whether or not the world is loaded
+	 * @param worldName the world name
+	 * @return DataStoreSQLite - the world datastore
+	 * @throws SQLException if the world datastore could not be opened
+	 */
+	private DataStoreSQLite getImportShard(final String worldName) throws SQLException {
+
+		DataStoreSQLite shard = getShard(worldName, true);
+
+		if (shard == null) {
+			throw new SQLException("Could not open the SQLite datastore for world " + worldName + ".");
+		}
+		return shard;
+	}
+
+
+	@Override
+	final boolean backup(final File directory) throws Exception {
+
+		List<DataStoreSQLite> allShards = getAllShards();
+
+		for (DataStoreSQLite shard : allShards) {
+			shard.backup(directory);
+		}
+		return !allShards.isEmpty();
+	}
+
+
+	/**
+	 * Release free pages of one world datastore at a time, so each call holds one writer thread for one slice
+	 * @param pages the maximum number of pages to release
+	 * @return the number of free pages remaining in all world datastores
+	 * @throws Exception if the pages could not be released
+	 */
+	@Override
+	final int vacuum(final int pages) throws Exception {
+
+		int remaining = 0;
+		boolean released = false;
+
+		for (DataStoreSQLite shard : getAllShards()) {
+
+			int freePages = shard.getFreePageCount();
+
+			// release pages of first world with free pages; count free pages of the others
+			if (!released && freePages > 0) {
+				freePages = shard.vacuum(pages);
+				released = true;
+			}
+			remaining += freePages;
+		}
+		return remaining;
+	}
+
+
+	@Override
+	final int deleteHistory(final long removalTime, final int limit) throws Exception {
+
+		int deleted = 0;
+
+		for (DataStoreSQLite shard : getAllShards()) {
+			deleted += shard.deleteHistory(removalTime, limit);
+		}
+		return deleted;
+	}
+
+
+	@Override
+	final void analyze() throws Exception {
+		for (DataStoreSQLite shard : getAllShards()) {
+			shard.analyze();
+		}
+	}
+
+
+	/**
+	 * Get a generation combining the world names and generations of all world datastores,
+	 * so it changes when records in any world change or a world database file is added or deleted
+	 * @return the combined generation, or -1 if the generation of any world could not be read
+	 */
+	@Override
+	public final long getGeneration() {
+
+		List<String> worldNames = getShardNames();
+		Collections.sort(worldNames);
+
+		long generation = 1;
+
+		for (String worldName : worldNames) {
+
+			DataStoreSQLite shard = getShard(worldName, false);
+			long shardGeneration = shard == null ? -1 : shard.getGeneration();
+
+			if (shardGeneration < 0) {
+				return -1;
+			}
+
+			generation = 31 * (31 * generation + worldName.hashCode()) + shardGeneration;
+		}
+		return generation & Long.MAX_VALUE;
+	}
+
+
+	@Override
+	public final int getPendingWriteCount() {
+
+		int count = 0;
+
+		for (DataStoreSQLite shard : shards.values()) {
+			count += shard.getPendingWriteCount();
+		}
+
+		// include write operations held for world datastores that are being opened
+		synchronized (shards) {
+			for (List<Consumer<DataStoreSQLite>> writes : pendingWrites.values()) {
+				count += writes.size();
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * Flush all world datastores within one configured deadline; world writer threads
+	 * continue to run while each is waited for in turn. World datastores with held write operations
+	 * are opened on the calling thread first, so the held operations are included.
+	 * @return {@code true} if all pending write operations were saved, {@code false} if any were dropped
+	 */
+	@Override
+	public final boolean flush() {
+
+		openPendingShards();
+
+		final long deadline = System.currentTimeMillis()
+				+ TimeUnit.SECONDS.toMillis(plugin.getConfig().getLong("shutdown-flush-timeout", 10));
+
+		boolean result = true;
+
+		for (DataStoreSQLite shard : shards.values()) {
+			result = shard.flush(Math.max(0L, deadline - System.currentTimeMillis())) && result;
+		}
+		return result;
+	}
+
+
+	@Override
+	public final void close() {
+
+		// flush all world datastores within one deadline before closing them
+		flush();
+
+		for (DataStoreSQLite shard : shards.values()) {
+			shard.close();
+		}
+
+		shards.clear();
+		chestWorlds.clear();
+
+		if (isInitialized()) {
+			setInitialized(false);
+			plugin.getLogger().info(this.getName() + " datastore closed.");
+		}
+	}
+
+
+	@Override
+	final void sync() {
+		// no action necessary for this storage type
+	}
+
+
+	@Override
+	final boolean delete() {
+
+		boolean result = true;
+
+		for (String worldName : getShardNames()) {
+			result = getShardFile(worldName).delete() && result;
+		}
+
+		File directory = getDirectory();
+		if (directory.exists()) {
+			result = directory.delete() && result;
+		}
+		return result;
+	}
+
+
+	@Override
+	final boolean exists() {
+		return !getShardNames().isEmpty();
+	}
+
+}
@@ -5,11 +5,11 @@ import com.winterhaven_mc.deathchest.PluginMain;
 
 /**
  * An enum whose values represent the types of data store available.<br>
- * Note: Only SQLite data store is implemented at this time.
+ * Local types keep their records in files in the plugin data folder; remote types keep them on a database server.
  */
 enum DataStoreType {
 
-	SQLITE("SQLite") {
+	SQLITE("SQLite", true) {
 
 		@Override
 		public DataStore create() {
@@ -17,10 +17,32 @@ enum DataStoreType {
 			// create new sqlite datastore object
 			return new DataStoreSQLite(plugin);
 		}
+	},
+
+	SQLITE_SHARDED("SQLite-Sharded", true) {
+
+		@Override
+		public DataStore create() {
+
+			// create new sharded sqlite datastore object
+			return new DataStoreShardedSQLite(plugin);
+		}
+	},
+
+	MYSQL("MySQL", false) {
+
+		@Override
+		public DataStore create() {
+
+			// create new mysql datastore object
+			return new DataStoreMySQL(plugin);
+		}
 	};
 
 	private final String displayName;
 
+	private final boolean local;
+
 	private final static PluginMain plugin = PluginMain.instance;
 	
 	private final static DataStoreType defaultType = DataStoreType.SQLITE;
@@ -31,9 +53,20 @@ enum DataStoreType {
 	/**
 	 * Class constructor
 	 * @param displayName the formatted display name of a datastore type
+	 * @param local true if the datastore type keeps its records in the plugin data folder
 	 */
-	DataStoreType(final String displayName) {
+	DataStoreType(final String displayName, final boolean local) {
 		this.displayName = displayName;
+		this.local = local;
+	}
+
+
+	/**
+	 * Check if this datastore type keeps its records in the plugin data folder
+	 * @return {@code true} if records are kept in local files, {@code false} if on a database server
+	 */
+	final boolean isLocal() {
+		return this.local;
 	}
 
 	
@@ -0,0 +1,624 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+
+/**
+ * An append-only journal that records the intent and completion of each death chest deployment,
+ * so that chests placed in game but not yet saved in the datastore can be recovered after a crash.
+ * Entries are closed by appending a record when their records have been saved in the datastore,
+ * and closed entries are removed by compacting the journal after a number of entries have closed, and on close.
+ */
+public final class DeploymentJournal {
+
+	/**
+	 * An enum whose values represent when journal writes are forced to disk
+	 */
+	enum ForcePolicy {
+		ALWAYS,
+		COMPLETION,
+		NEVER;
+
+		static ForcePolicy match(final String name) {
+			for (ForcePolicy policy : ForcePolicy.values()) {
+				if (policy.name().equalsIgnoreCase(name)) {
+					return policy;
+				}
+			}
+			return ALWAYS;
+		}
+	}
+
+	// journal record types
+	private final static String INTENT = "I";
+	private final static String PLACED = "P";
+	private final static String ABORTED = "A";
+	private final static String SAVED = "S";
+
+	// number of entries closed by abort or save records after which the journal is compacted
+	private final static int COMPACT_THRESHOLD = 256;
+
+	// journal field separator
+	private final static String SEPARATOR = "\t";
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// journal file
+	private final File journalFile;
+
+	// true if journal is enabled in config
+	private final boolean enabled;
+
+	// when to force journal writes to disk
+	private final ForcePolicy forcePolicy;
+
+	// incomplete entries, keyed by chest UUID in order of deployment
+	private final Map<UUID, Entry> openEntries = new LinkedHashMap<>();
+
+	// entries found incomplete when journal was opened
+	private final List<Entry> recoveredEntries = new ArrayList<>();
+
+	// channel for appending journal records
+	private FileChannel channel;
+
+	// number of entries closed since the journal was last compacted
+	private int closedCount;
+
+
+	/**
+	 * Class constructor; reads incomplete entries left in the journal file by a previous run
+	 * @param plugin reference to main class
+	 */
+	public DeploymentJournal(final PluginMain plugin) {
+
+		this.plugin = plugin;
+		this.journalFile = new File(plugin.getDataFolder(), "deployments.journal");
+		this.enabled = plugin.getConfig().getBoolean("deployment-journal", true);
+		this.forcePolicy = ForcePolicy.match(plugin.getConfig().getString("journal-force-policy"));
+
+		if (!enabled) {
+			return;
+		}
+
+		// read incomplete entries from previous run
+		readJournal();
+		recoveredEntries.addAll(openEntries.values());
+
+		// open journal for appending
+		try {
+			channel = FileChannel.open(journalFile.toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("Could not open deployment journal; deployments will not be journaled.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Get entries that were incomplete when the journal was opened at startup and have not since been closed
+	 * @return List of Entry - the incomplete entries from the previous run
+	 */
+	public final synchronized List<Entry> getRecoveredEntries() {
+
+		List<Entry> entries = new ArrayList<>();
+
+		for (Entry entry : recoveredEntries) {
+			if (openEntries.containsKey(entry.getChestUUID())) {
+				entries.add(entry);
+			}
+		}
+		return entries;
+	}
+
+
+	/**
+	 * Get entries that were incomplete when the journal was opened at startup and have not since been closed,
+	 * whose chest blocks were placed in a world
+	 * @param worldName the world name
+	 * @return List of Entry - the incomplete entries from the previous run with chest blocks in the world
+	 */
+	public final synchronized List<Entry> getRecoveredEntries(final String worldName) {
+
+		List<Entry> entries = new ArrayList<>();
+
+		for (Entry entry : getRecoveredEntries()) {
+			if (entry.getBlockWorldName().equals(worldName)) {
+				entries.add(entry);
+			}
+		}
+		return entries;
+	}
+
+
+	/**
+	 * Record the intent to deploy a death chest
+	 * @param deathChest the death chest being deployed
+	 * @param location the death location
+	 * @param itemCount the number of dropped items
+	 */
+	public final synchronized void recordIntent(final DeathChest deathChest,
+												final Location location,
+												final int itemCount) {
+
+		if (channel == null || deathChest == null || location == null || location.getWorld() == null) {
+			return;
+		}
+
+		String line = join(INTENT,
+				deathChest.getChestUUID(),
+				deathChest.getOwnerUUID(),
+				deathChest.getKillerUUID() == null ? "-" : deathChest.getKillerUUID(),
+				itemCount,
+				deathChest.getPlacementTime(),
+				deathChest.getExpirationTime(),
+				location.getWorld().getName(),
+				location.getBlockX(),
+				location.getBlockY(),
+				location.getBlockZ());
+
+		Entry entry = Entry.parse(line);
+		if (entry != null) {
+			openEntries.put(entry.getChestUUID(), entry);
+			append(Collections.singletonList(line), forcePolicy.equals(ForcePolicy.ALWAYS));
+		}
+	}
+
+
+	/**
+	 * Record the completed placement of a death chest
+	 * @param deathChest the death chest that was placed
+	 * @param chestBlocks the chest blocks that were placed
+	 */
+	public final synchronized void recordPlacement(final DeathChest deathChest,
+												   final Collection<ChestBlock> chestBlocks) {
+
+		if (channel == null || deathChest == null) {
+			return;
+		}
+
+		Entry entry = openEntries.get(deathChest.getChestUUID());
+		if (entry == null) {
+			return;
+		}
+
+		List<String> lines = new ArrayList<>();
+		for (ChestBlock chestBlock : chestBlocks) {
+			String line = join(PLACED,
+					deathChest.getChestUUID(),
+					chestBlock.getWorldName(),
+					chestBlock.getX(),
+					chestBlock.getY(),
+					chestBlock.getZ());
+			entry.addLine(line);
+			lines.add(line);
+		}
+
+		append(lines, !forcePolicy.equals(ForcePolicy.NEVER));
+	}
+
+
+	/**
+	 * Record that a death chest deployment did not place a chest
+	 * @param chestUUID the chest UUID of the aborted deployment
+	 */
+	public final synchronized void recordAbort(final UUID chestUUID) {
+
+		if (channel == null || openEntries.remove(chestUUID) == null) {
+			return;
+		}
+
+		append(Collections.singletonList(join(ABORTED, chestUUID)), forcePolicy.equals(ForcePolicy.ALWAYS));
+		entryClosed();
+	}
+
+
+	/**
+	 * Close the entry for a chest whose records have been saved in the datastore, by appending a save record.
+	 * Called by the datastore on its writer thread after the chest record transaction commits.
+	 * @param chestUUID the chest UUID of the saved chest
+	 */
+	public final synchronized void markPersisted(final UUID chestUUID) {
+
+		if (channel == null || openEntries.remove(chestUUID) == null) {
+			return;
+		}
+
+		append(Collections.singletonList(join(SAVED, chestUUID)), forcePolicy.equals(ForcePolicy.ALWAYS));
+		entryClosed();
+	}
+
+
+	/**
+	 * Discard a recovered entry that needs no further action
+	 * @param chestUUID the chest UUID of the entry
+	 */
+	public final synchronized void discard(final UUID chestUUID) {
+		markPersisted(chestUUID);
+	}
+
+
+	/**
+	 * Count a closed entry, and compact the journal if enough entries have closed since it was last compacted
+	 */
+	private void entryClosed() {
+
+		closedCount++;
+
+		if (closedCount >= COMPACT_THRESHOLD) {
+			compact();
+		}
+	}
+
+
+	/**
+	 * Compact and close the journal
+	 */
+	public final synchronized void close() {
+
+		if (channel == null) {
+			return;
+		}
+
+		// remove closed entries from journal file
+		if (closedCount > 0) {
+			compact();
+
+			// if journal could not be reopened after compaction, there is nothing to close
+			if (channel == null) {
+				return;
+			}
+		}
+
+		try {
+			channel.force(false);
+			channel.close();
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("An error occurred while closing the deployment journal.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+		channel = null;
+	}
+
+
+	/**
+	 * Read journal file into open entries; records with incomplete or unreadable lines are skipped
+	 */
+	private void readJournal() {
+
+		if (!journalFile.exists()) {
+			return;
+		}
+
+		try {
+			for (String line : Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8)) {
+
+				String[] fields = line.split(SEPARATOR);
+
+				if (fields.length < 2) {
+					continue;
+				}
+
+				UUID chestUUID;
+				try {
+					chestUUID = UUID.fromString(fields[1]);
+				}
+				catch (IllegalArgumentException e) {
+					continue;
+				}
+
+				if (fields[0].equals(INTENT)) {
+					Entry entry = Entry.parse(line);
+					if (entry != null) {
+						openEntries.put(chestUUID, entry);
+					}
+				}
+				else if (fields[0].equals(PLACED) && openEntries.containsKey(chestUUID)) {
+					openEntries.get(chestUUID).addLine(line);
+				}
+				else if (fields[0].equals(ABORTED) || fields[0].equals(SAVED)) {
+					openEntries.remove(chestUUID);
+				}
+			}
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("An error occurred while reading the deployment journal.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Append lines to the journal, forcing them to disk if requested
+	 * @param lines the lines to append
+	 * @param force {@code true} if the write should be forced to disk
+	 */
+	private void append(final List<String> lines, final boolean force) {
+
+		StringBuilder builder = new StringBuilder();
+		for (String line : lines) {
+			builder.append(line).append('\n');
+		}
+
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			if (force) {
+				channel.force(false);
+			}
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("An error occurred while writing to the deployment journal.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Rewrite the journal file with only the open entries, replacing the file atomically
+	 */
+	private void compact() {
+
+		closedCount = 0;
+
+		File tempFile = new File(journalFile.getPath() + ".tmp");
+
+		try {
+			// write open entries to temporary file
+			try (FileChannel tempChannel = FileChannel.open(tempFile.toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+				StringBuilder builder = new StringBuilder();
+				for (Entry entry : openEntries.values()) {
+					for (String line : entry.getLines()) {
+						builder.append(line).append('\n');
+					}
+				}
+				ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+				while (buffer.hasRemaining()) {
+					tempChannel.write(buffer);
+				}
+				if (!forcePolicy.equals(ForcePolicy.NEVER)) {
+					tempChannel.force(false);
+				}
+			}
+
+			// replace journal with temporary file and reopen for appending
+			channel.close();
+			Files.move(tempFile.toPath(), journalFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			channel = FileChannel.open(journalFile.toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("An error occurred while compacting the deployment journal.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// try to keep journal open for appending
+			if (!channel.isOpen()) {
+				try {
+					channel = FileChannel.open(journalFile.toPath(),
+							StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+				}
+				catch (IOException e2) {
+					plugin.getLogger().warning("Could not reopen deployment journal; deployments will not be journaled.");
+					channel = null;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Join fields into a journal record line
+	 * @param fields the fields to join
+	 * @return the record line
+	 */
+	private static String join(final Object... fields) {
+
+		StringBuilder builder = new StringBuilder();
+		for (Object field : fields) {
+			if (builder.length() > 0) {
+				builder.append(SEPARATOR);
+			}
+			builder.append(field);
+		}
+		return builder.toString();
+	}
+
+
+	/**
+	 * A class that represents an incomplete deployment read from the journal
+	 */
+	public static final class Entry {
+
+		private final UUID chestUUID;
+		private final UUID ownerUUID;
+		private final UUID killerUUID;
+		private final int itemCount;
+		private final long placementTime;
+		private final long expirationTime;
+		private final String worldName;
+		private final int x;
+		private final int y;
+		private final int z;
+
+		// journal lines of this entry, for compaction
+		private final List<String> lines = new ArrayList<>();
+
+
+		/**
+		 * Class constructor
+		 */
+		private Entry(final UUID chestUUID, final UUID ownerUUID, final UUID killerUUID,
+					  final int itemCount, final long placementTime, final long expirationTime,
+					  final String worldName, final int x, final int y, final int z) {
+			this.chestUUID = chestUUID;
+			this.ownerUUID = ownerUUID;
+			this.killerUUID = killerUUID;
+			this.itemCount = itemCount;
+			this.placementTime = placementTime;
+			this.expirationTime = expirationTime;
+			this.worldName = worldName;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+
+
+		/**
+		 * Create an entry from an intent record line
+		 * @param line the intent record line
+		 * @return the new entry, or null if the line could not be parsed
+		 */
+		private static Entry parse(final String line) {
+
+			String[] fields = line.split(SEPARATOR);
+
+			if (fields.length != 11 || !fields[0].equals(INTENT)) {
+				return null;
+			}
+
+			try {
+				Entry entry = new Entry(UUID.fromString(fields[1]),
+						UUID.fromString(fields[2]),
+						fields[3].equals("-") ? null : UUID.fromString(fields[3]),
+						Integer.parseInt(fields[4]),
+						Long.parseLong(fields[5]),
+						Long.parseLong(fields[6]),
+						fields[7],
+						Integer.parseInt(fields[8]),
+						Integer.parseInt(fields[9]),
+						Integer.parseInt(fields[10]));
+				entry.addLine(line);
+				return entry;
+			}
+			catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+
+
+		private void addLine(final String line) {
+			lines.add(line);
+		}
+
+		private List<String> getLines() {
+			return lines;
+		}
+
+		public final UUID getChestUUID() {
+			return chestUUID;
+		}
+
+		public final UUID getOwnerUUID() {
+			return ownerUUID;
+		}
+
+		public final UUID getKillerUUID() {
+			return killerUUID;
+		}
+
+		public final int getItemCount() {
+			return itemCount;
+		}
+
+		public final long getPlacementTime() {
+			return placementTime;
+		}
+
+		public final long getExpirationTime() {
+			return expirationTime;
+		}
+
+
+		/**
+		 * Get a description of the death location, for log messages
+		 * @return String - the world name and coordinates of the death location
+		 */
+		public final String getLocationString() {
+			return worldName + " [" + x + ", " + y + ", " + z + "]";
+		}
+
+
+		/**
+		 * Check if the chest blocks of this entry were placed
+		 * @return {@code true} if placement was recorded, {@code false} if not
+		 */
+		public final boolean isPlaced() {
+			return lines.size() > 1;
+		}
+
+
+		/**
+		 * Get the name of the world of the placed chest blocks of this entry
+		 * @return String - the world name of the placed blocks, or of the death location if none were recorded
+		 */
+		public final String getBlockWorldName() {
+
+			for (String line : lines) {
+				String[] fields = line.split(SEPARATOR);
+
+				if (fields.length == 6 && fields[0].equals(PLACED)) {
+					return fields[2];
+				}
+			}
+			return worldName;
+		}
+
+
+		/**
+		 * Get the locations of the placed chest blocks of this entry
+		 * @return List of Location - the placed block locations in loaded worlds
+		 */
+		public final List<Location> getBlockLocations() {
+
+			List<Location> locations = new ArrayList<>();
+
+			for (String line : lines) {
+				String[] fields = line.split(SEPARATOR);
+
+				if (fields.length != 6 || !fields[0].equals(PLACED)) {
+					continue;
+				}
+
+				World world = PluginMain.instance.getServer().getWorld(fields[2]);
+				if (world == null) {
+					continue;
+				}
+
+				try {
+					locations.add(new Location(world,
+							Integer.parseInt(fields[3]),
+							Integer.parseInt(fields[4]),
+							Integer.parseInt(fields[5])));
+				}
+				catch (NumberFormatException e) {
+					// skip unreadable record
+				}
+			}
+			return locations;
+		}
+	}
+
+}
@@ -0,0 +1,141 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * An immutable chest history record as stored, one for each block of a removed chest,
+ * as streamed between datastores during conversion. UUIDs are kept as stored, so records are copied unchanged.
+ */
+final class HistoryRecord {
+
+	private final String chestUUID;
+	private final String ownerUUID;
+	private final String killerUUID;
+	private final int itemCount;
+	private final long placementTime;
+	private final long expirationTime;
+	private final String worldName;
+	private final int x;
+	private final int y;
+	private final int z;
+	private final String reason;
+	private final long removalTime;
+
+
+	/**
+	 * Class constructor
+	 * @param rs the result set, at the row of the record
+	 * @throws SQLException if a column cannot be read
+	 */
+	private HistoryRecord(final ResultSet rs) throws SQLException {
+		this.chestUUID = rs.getString("ChestUUID");
+		this.ownerUUID = rs.getString("OwnerUUID");
+		this.killerUUID = rs.getString("KillerUUID");
+		this.itemCount = rs.getInt("ItemCount");
+		this.placementTime = rs.getLong("PlacementTime");
+		this.expirationTime = rs.getLong("ExpirationTime");
+		this.worldName = rs.getString("WorldName");
+		this.x = rs.getInt("X");
+		this.y = rs.getInt("Y");
+		this.z = rs.getInt("Z");
+		this.reason = rs.getString("Reason");
+		this.removalTime = rs.getLong("RemovalTime");
+	}
+
+
+	/**
+	 * Read all rows of a result set of history records, passing them to a consumer in batches
+	 * @param rs the result set
+	 * @param batchSize the number of records in each batch
+	 * @param consumer the consumer of record batches
+	 * @throws Exception if a record cannot be read, or the consumer fails
+	 */
+	static void readBatches(final ResultSet rs,
+							final int batchSize,
+							final DataStore.BatchConsumer<HistoryRecord> consumer) throws Exception {
+
+		List<HistoryRecord> batch = new ArrayList<>(batchSize);
+
+		while (rs.next()) {
+
+			batch.add(new HistoryRecord(rs));
+
+			if (batch.size() >= batchSize) {
+				consumer.accept(batch);
+				batch = new ArrayList<>(batchSize);
+			}
+		}
+
+		if (!batch.isEmpty()) {
+			consumer.accept(batch);
+		}
+	}
+
+
+	/**
+	 * Set the parameters of a history insert statement, with chest UUID, owner UUID, killer UUID, item count,
+	 * placement time, expiration time, world name, x, y, z, reason and removal time parameters in that order
+	 * @param preparedStatement the statement
+	 * @param firstIndex the index of the chest UUID parameter
+	 * @throws SQLException if a parameter cannot be set
+	 */
+	final void setParameters(final PreparedStatement preparedStatement, final int firstIndex) throws SQLException {
+		int index = firstIndex;
+		preparedStatement.setString(index++, chestUUID);
+		preparedStatement.setString(index++, ownerUUID);
+		preparedStatement.setString(index++, killerUUID);
+		preparedStatement.setInt(index++, itemCount);
+		preparedStatement.setLong(index++, placementTime);
+		preparedStatement.setLong(index++, expirationTime);
+		preparedStatement.setString(index++, worldName);
+		preparedStatement.setInt(index++, x);
+		preparedStatement.setInt(index++, y);
+		preparedStatement.setInt(index++, z);
+		preparedStatement.setString(index++, reason);
+		preparedStatement.setLong(index, removalTime);
+	}
+
+
+	/**
+	 * Set the parameters of a history lookup statement, with chest UUID, world name, x, y, z
+	 * and removal time parameters in that order
+	 * @param preparedStatement the statement
+	 * @param firstIndex the index of the chest UUID parameter
+	 * @throws SQLException if a parameter cannot be set
+	 */
+	final void setKeyParameters(final PreparedStatement preparedStatement, final int firstIndex) throws SQLException {
+		int index = firstIndex;
+		preparedStatement.setString(index++, chestUUID);
+		preparedStatement.setString(index++, worldName);
+		preparedStatement.setInt(index++, x);
+		preparedStatement.setInt(index++, y);
+		preparedStatement.setInt(index++, z);
+		preparedStatement.setLong(index, removalTime);
+	}
+
+
+	final String getWorldName() {
+		return worldName;
+	}
+
+
+	@Override
+	public final String toString() {
+		return chestUUID + ","
+				+ ownerUUID + ","
+				+ killerUUID + ","
+				+ itemCount + ","
+				+ placementTime + ","
+				+ expirationTime + ","
+				+ worldName + ","
+				+ x + "," + y + "," + z + ","
+				+ reason + ","
+				+ removalTime;
+	}
+
+}
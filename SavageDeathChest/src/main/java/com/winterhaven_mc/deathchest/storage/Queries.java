@@ -3,7 +3,9 @@ package com.winterhaven_mc.deathchest.storage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.SQLException;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -12,7 +14,9 @@ import java.util.Properties;
 final class Queries {
 
 	private static final String propFileName = "queries.properties";
-	private static Properties properties;
+
+	// loaded properties, by property file name
+	private static final Map<String, Properties> propertiesMap = new ConcurrentHashMap<>();
 
 	/**
 	 * Private constructor to prevent instantiation of class
@@ -22,23 +26,26 @@ final class Queries {
 	}
 
 
-	private static Properties getQueries() throws SQLException {
+	private static Properties getQueries(final String fileName) throws SQLException {
+
+		// one instance per file
+		Properties properties = propertiesMap.get(fileName);
 
-		// singleton
 		if (properties == null) {
 			properties = new Properties();
 			try {
 
-				InputStream inputStream = Queries.class.getResourceAsStream("/" + propFileName);
+				InputStream inputStream = Queries.class.getResourceAsStream("/" + fileName);
 
 				if (inputStream == null) {
-					throw new SQLException("Unable to load property file: " + propFileName);
+					throw new SQLException("Unable to load property file: " + fileName);
 				}
 				properties.load(inputStream);
 			}
 			catch (IOException e) {
-				throw new SQLException("Unable to load property file: " + propFileName);
+				throw new SQLException("Unable to load property file: " + fileName);
 			}
+			propertiesMap.put(fileName, properties);
 		}
 
 		return properties;
@@ -46,7 +53,19 @@ final class Queries {
 
 
 	static String getQuery(final String query) throws SQLException {
-		return getQueries().getProperty(query);
+		return getQuery(propFileName, query);
+	}
+
+
+	/**
+	 * Get a query from a named queries properties file
+	 * @param fileName the properties file name
+	 * @param query the query name
+	 * @return String - the query, or null if no query with that name exists in the file
+	 * @throws SQLException if the properties file cannot be loaded
+	 */
+	static String getQuery(final String fileName, final String query) throws SQLException {
+		return getQueries(fileName).getProperty(query);
 	}
 
 }
@@ -0,0 +1,122 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+
+/**
+ * Counts and an order independent checksum of the records of a datastore, for verifying a conversion.
+ * The checksum is the sum of the CRC32 of each record, so summaries of disjoint sets of records can be added.
+ */
+final class RecordSummary {
+
+	private long chestCount;
+	private long blockCount;
+	private long pendingRemovalCount;
+	private long historyCount;
+	private long checksum;
+
+
+	/**
+	 * Add a batch of chest records and their block records to the summary
+	 * @param chestRecords the chest records
+	 */
+	final void addChests(final Iterable<ChestRecord> chestRecords) {
+		for (ChestRecord chestRecord : chestRecords) {
+			chestCount++;
+			checksum += crc("C" + chestRecord);
+			for (BlockRecord blockRecord : chestRecord.getBlockRecords()) {
+				blockCount++;
+				checksum += crc("B" + blockRecord);
+			}
+		}
+	}
+
+
+	/**
+	 * Add a batch of pending removal records to the summary
+	 * @param blockRecords the pending removal records
+	 */
+	final void addPendingRemovals(final Iterable<BlockRecord> blockRecords) {
+		for (BlockRecord blockRecord : blockRecords) {
+			pendingRemovalCount++;
+			checksum += crc("P" + blockRecord);
+		}
+	}
+
+
+	/**
+	 * Add a batch of chest history records to the summary
+	 * @param historyRecords the history records
+	 */
+	final void addHistory(final Iterable<HistoryRecord> historyRecords) {
+		for (HistoryRecord historyRecord : historyRecords) {
+			historyCount++;
+			checksum += crc("H" + historyRecord);
+		}
+	}
+
+
+	/**
+	 * Add the counts and checksum of another summary of disjoint records to this summary
+	 * @param other the other summary
+	 * @return RecordSummary - this summary
+	 */
+	final RecordSummary add(final RecordSummary other) {
+		chestCount += other.chestCount;
+		blockCount += other.blockCount;
+		pendingRemovalCount += other.pendingRemovalCount;
+		historyCount += other.historyCount;
+		checksum += other.checksum;
+		return this;
+	}
+
+
+	/**
+	 * Check if this summary has the same counts and checksum as another
+	 * @param other the other summary
+	 * @return {@code true} if counts and checksums match, {@code false} if not
+	 */
+	final boolean matches(final RecordSummary other) {
+		return chestCount == other.chestCount
+				&& blockCount == other.blockCount
+				&& pendingRemovalCount == other.pendingRemovalCount
+				&& historyCount == other.historyCount
+				&& checksum == other.checksum;
+	}
+
+
+	final long getChestCount() {
+		return chestCount;
+	}
+
+
+	final long getBlockCount() {
+		return blockCount;
+	}
+
+
+	final long getHistoryCount() {
+		return historyCount;
+	}
+
+
+	final long getRecordCount() {
+		return chestCount + blockCount + pendingRemovalCount + historyCount;
+	}
+
+
+	private static long crc(final String record) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(record.getBytes(StandardCharsets.UTF_8));
+		return crc32.getValue();
+	}
+
+
+	@Override
+	public final String toString() {
+		return chestCount + " chests, " + blockCount + " blocks, " + pendingRemovalCount
+				+ " pending removals, " + historyCount + " history records, checksum " + Long.toHexString(checksum);
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import java.util.UUID;
+
+
+/**
+ * An immutable record of a death chest on another server sharing the datastore,
+ * with the location of one of its blocks
+ */
+public final class RemoteChest {
+
+	private final String serverId;
+	private final UUID chestUUID;
+	private final UUID ownerUUID;
+	private final String worldName;
+	private final int x;
+	private final int y;
+	private final int z;
+	private final long expirationTime;
+
+
+	/**
+	 * Class constructor
+	 * @param serverId the id of the server the chest is on
+	 * @param chestUUID the chest UUID
+	 * @param ownerUUID the chest owner UUID
+	 * @param worldName the name of the world containing the chest
+	 * @param x the x coordinate of a chest block
+	 * @param y the y coordinate of a chest block
+	 * @param z the z coordinate of a chest block
+	 * @param expirationTime the chest expiration time in milliseconds since epoch, or 0 if it never expires
+	 */
+	RemoteChest(final String serverId,
+				final UUID chestUUID,
+				final UUID ownerUUID,
+				final String worldName,
+				final int x,
+				final int y,
+				final int z,
+				final long expirationTime) {
+		this.serverId = serverId;
+		this.chestUUID = chestUUID;
+		this.ownerUUID = ownerUUID;
+		this.worldName = worldName;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.expirationTime = expirationTime;
+	}
+
+
+	/**
+	 * Get the id of the server the chest is on
+	 * @return String - the server id
+	 */
+	public final String getServerId() {
+		return serverId;
+	}
+
+
+	/**
+	 * Get the chest UUID
+	 * @return UUID - the chest UUID
+	 */
+	public final UUID getChestUUID() {
+		return chestUUID;
+	}
+
+
+	/**
+	 * Get the chest owner UUID
+	 * @return UUID - the owner UUID
+	 */
+	public final UUID getOwnerUUID() {
+		return ownerUUID;
+	}
+
+
+	/**
+	 * Get the name of the world containing the chest
+	 * @return String - the world name
+	 */
+	public final String getWorldName() {
+		return worldName;
+	}
+
+
+	/**
+	 * Get the x coordinate of a chest block
+	 * @return int - the x coordinate
+	 */
+	public final int getX() {
+		return x;
+	}
+
+
+	/**
+	 * Get the y coordinate of a chest block
+	 * @return int - the y coordinate
+	 */
+	public final int getY() {
+		return y;
+	}
+
+
+	/**
+	 * Get the z coordinate of a chest block
+	 * @return int - the z coordinate
+	 */
+	public final int getZ() {
+		return z;
+	}
+
+
+	/**
+	 * Get the chest expiration time
+	 * @return long - the expiration time in milliseconds since epoch, or 0 if the chest never expires
+	 */
+	public final long getExpirationTime() {
+		return expirationTime;
+	}
+
+}
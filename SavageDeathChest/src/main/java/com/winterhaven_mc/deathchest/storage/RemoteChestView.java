@@ -0,0 +1,185 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * A cached view of the death chests of other servers sharing the datastore, indexed by owner.
+ * The view is refreshed periodically on an async thread and replaced as a whole, so lookups
+ * never query the datastore and never see a partly refreshed view.
+ */
+public final class RemoteChestView {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// true while the view is being refreshed
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+
+	// remote chests by owner UUID, replaced on each refresh
+	private volatile Map<UUID, List<RemoteChest>> ownerMap = Collections.emptyMap();
+
+	// time of last completed refresh in milliseconds since epoch, or 0 if never refreshed
+	private volatile long refreshTime;
+
+	// refresh task, or null if datastore is not shared
+	private BukkitTask refreshTask;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 */
+	public RemoteChestView(final PluginMain plugin) {
+		this.plugin = plugin;
+		reload();
+	}
+
+
+	/**
+	 * Start or stop refresh task according to configuration and datastore type
+	 */
+	public final void reload() {
+
+		// cancel any running refresh task
+		cancel();
+
+		// if datastore is not shared, clear view and return
+		if (!plugin.dataStore.isShared()) {
+			ownerMap = Collections.emptyMap();
+			refreshTime = 0;
+			return;
+		}
+
+		final long intervalTicks = Math.max(1L, plugin.getConfig().getLong("remote-view-interval", 60)) * 20L;
+
+		refreshTask = new BukkitRunnable() {
+			@Override
+			public void run() {
+				refresh();
+			}
+		}.runTaskTimerAsynchronously(plugin, 1L, intervalTicks);
+	}
+
+
+	/**
+	 * Stop refresh task
+	 */
+	public final void cancel() {
+		if (refreshTask != null) {
+			refreshTask.cancel();
+			refreshTask = null;
+		}
+	}
+
+
+	/**
+	 * Read chests of other servers from the datastore and replace the view.
+	 * If the previous refresh is still running, this refresh is skipped.
+	 * If the chests cannot be read, the previous view and its refresh time are kept.
+	 */
+	private void refresh() {
+
+		// if previous refresh is still running, skip this refresh
+		if (!refreshing.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			final DataStore dataStore = plugin.dataStore;
+
+			// datastore may have been replaced by a reload
+			if (!dataStore.isShared()) {
+				return;
+			}
+
+			final long currentTime = System.currentTimeMillis();
+
+			final List<RemoteChest> remoteChests;
+			try {
+				remoteChests = dataStore.getRemoteChestRecords(currentTime);
+			}
+			catch (SQLException e) {
+
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while trying to fetch chest records of other servers "
+						+ "from the " + dataStore.getName() + " datastore; the remote chest view was not refreshed.");
+				plugin.getLogger().warning(e.getMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.debug) {
+					e.printStackTrace();
+				}
+				return;
+			}
+
+			final Map<UUID, List<RemoteChest>> newOwnerMap = new HashMap<>();
+
+			for (RemoteChest remoteChest : remoteChests) {
+				newOwnerMap.computeIfAbsent(remoteChest.getOwnerUUID(), k -> new ArrayList<>()).add(remoteChest);
+			}
+
+			ownerMap = newOwnerMap;
+			refreshTime = currentTime;
+
+			if (plugin.debug) {
+				plugin.getLogger().info("Remote chest view refreshed with chests of "
+						+ newOwnerMap.size() + " owners.");
+			}
+		}
+		finally {
+			refreshing.set(false);
+		}
+	}
+
+
+	/**
+	 * Get the unexpired chests of an owner on other servers, as of the last refresh
+	 * @param ownerUUID the owner UUID
+	 * @return List of RemoteChest - the chests, or empty list if none
+	 */
+	public final List<RemoteChest> getChests(final UUID ownerUUID) {
+
+		final List<RemoteChest> ownerChests = ownerMap.get(ownerUUID);
+
+		// if owner has no remote chests, return empty list
+		if (ownerChests == null) {
+			return Collections.emptyList();
+		}
+
+		// exclude chests that have expired since the last refresh
+		final long currentTime = System.currentTimeMillis();
+		final List<RemoteChest> results = new ArrayList<>(ownerChests.size());
+		for (RemoteChest remoteChest : ownerChests) {
+			if (remoteChest.getExpirationTime() == 0 || remoteChest.getExpirationTime() > currentTime) {
+				results.add(remoteChest);
+			}
+		}
+		return results;
+	}
+
+
+	/**
+	 * Check if the view is enabled
+	 * @return {@code true} if the datastore is shared and the view is refreshed, {@code false} if not
+	 */
+	public final boolean isEnabled() {
+		return refreshTask != null;
+	}
+
+
+	/**
+	 * Get the time of the last completed refresh
+	 * @return long - the refresh time in milliseconds since epoch, or 0 if the view has not been refreshed
+	 */
+	public final long getRefreshTime() {
+		return refreshTime;
+	}
+
+}
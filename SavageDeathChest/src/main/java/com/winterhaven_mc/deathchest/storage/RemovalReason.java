@@ -0,0 +1,15 @@
+package com.winterhaven_mc.deathchest.storage;
+
+
+/**
+ * The reasons a death chest is removed, recorded with the chest in the datastore history
+ */
+public enum RemovalReason {
+
+	/** the chest expired */
+	EXPIRED,
+
+	/** the chest was emptied or broken by a player allowed to loot it */
+	LOOTED
+
+}
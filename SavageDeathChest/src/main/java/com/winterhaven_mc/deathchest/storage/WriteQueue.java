@@ -0,0 +1,190 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.metrics.MetricId;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A class that serializes datastore write operations on a single writer thread,
+ * and drains pending operations within a deadline when the datastore is closed.
+ */
+final class WriteQueue {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// name of datastore for log messages
+	private final String name;
+
+	// single thread executor for write operations
+	private final ThreadPoolExecutor executor;
+
+	// milliseconds to wait for an interrupted operation to stop after the drain deadline
+	private final static long INTERRUPT_GRACE = 1000L;
+
+	// count of operations rejected after queue was closed
+	private final AtomicInteger rejectedCount = new AtomicInteger();
+
+	// number of operations run since writer thread was last idle; accessed only by writer thread
+	private int batchSize;
+
+	// true while queue is accepting new operations
+	private volatile boolean accepting = true;
+
+	// true if queue was drained without dropping operations
+	private boolean complete;
+
+
+	/**
+	 * Class constructor
+	 * @param plugin reference to main class
+	 * @param name the datastore name, used for writer thread name and log messages
+	 */
+	WriteQueue(final PluginMain plugin, final String name) {
+
+		this.plugin = plugin;
+		this.name = name;
+
+		this.executor = new ThreadPoolExecutor(1, 1,
+				0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, plugin.getName() + "-" + name + "-writer");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+
+	/**
+	 * Submit a write operation to be run on the writer thread.
+	 * When metrics are enabled, time spent waiting in the queue and running are recorded,
+	 * along with the number of operations run before the writer thread goes idle.
+	 * @param metricId the metric for the operation run time
+	 * @param operation the operation to run
+	 * @return {@code true} if the operation was queued, {@code false} if the queue has been closed
+	 */
+	final boolean submit(final MetricId metricId, final Runnable operation) {
+
+		// if queue is closed, count and report rejected operation
+		if (!accepting || executor.isShutdown()) {
+			rejectedCount.incrementAndGet();
+			plugin.getLogger().warning(name + " datastore is closed; a write operation was dropped.");
+			return false;
+		}
+
+		// get submit time; zero if metrics are disabled
+		final long submitTime = plugin.metrics.isEnabled() ? plugin.metrics.start() : 0L;
+
+		// if metrics are disabled, run operation unwrapped
+		if (submitTime == 0L) {
+			executor.execute(operation);
+			return true;
+		}
+
+		executor.execute(() -> {
+			final long startTime = plugin.metrics.start();
+			plugin.metrics.record(MetricId.DATASTORE_QUEUE_WAIT, startTime - submitTime);
+			operation.run();
+			plugin.metrics.stop(metricId, startTime);
+
+			// if no operations are waiting, record number of operations run since writer was idle
+			batchSize++;
+			if (executor.getQueue().isEmpty()) {
+				plugin.metrics.recordWriteBatch(batchSize);
+				batchSize = 0;
+			}
+		});
+		return true;
+	}
+
+
+	/**
+	 * Get the number of operations waiting to be run
+	 * @return the number of queued operations
+	 */
+	final int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+
+	/**
+	 * Check if the writer thread has stopped after a drain
+	 * @return {@code true} if the queue was drained and no operation is still running, {@code false} if not
+	 */
+	final boolean isTerminated() {
+		return executor.isTerminated();
+	}
+
+
+	/**
+	 * Stop accepting operations and run all queued operations, waiting no longer than the deadline.
+	 * Operations still queued when the deadline passes are dropped, and an operation still running is interrupted
+	 * and given a short grace period to stop; if it has not stopped, the drain is not complete.
+	 * If the queue has already been drained, the result of the first drain is returned.
+	 * @param timeoutMillis the maximum time to wait for queued operations, in milliseconds
+	 * @return {@code true} if no operations were dropped and the writer thread has stopped, {@code false} if not
+	 */
+	final synchronized boolean drain(final long timeoutMillis) {
+
+		// if already drained, return previous result
+		if (!accepting) {
+			return complete;
+		}
+
+		// stop accepting new operations
+		accepting = false;
+
+		// get count of completed operations before drain
+		long completedBefore = executor.getCompletedTaskCount();
+
+		// allow queued operations to run, then wait for completion until deadline
+		executor.shutdown();
+
+		try {
+			executor.awaitTermination(Math.max(0L, timeoutMillis), TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// drop any operations that did not run before deadline, and interrupt any operation still running
+		int droppedCount = executor.shutdownNow().size() + rejectedCount.get();
+
+		// wait briefly for an interrupted operation to stop
+		if (!executor.isTerminated()) {
+			try {
+				executor.awaitTermination(INTERRUPT_GRACE, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		long flushedCount = executor.getCompletedTaskCount() - completedBefore;
+
+		complete = (droppedCount == 0 && executor.isTerminated());
+
+		// report results
+		if (!executor.isTerminated()) {
+			plugin.getLogger().warning(name + " datastore flushed " + flushedCount
+					+ " pending write operations; " + droppedCount + " operations were dropped"
+					+ " and an operation is still running.");
+		}
+		else if (droppedCount > 0) {
+			plugin.getLogger().warning(name + " datastore flushed " + flushedCount
+					+ " pending write operations; " + droppedCount + " operations were dropped.");
+		}
+		else if (flushedCount > 0 || plugin.debug) {
+			plugin.getLogger().info(name + " datastore flushed " + flushedCount + " pending write operations.");
+		}
+
+		return complete;
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.winterhaven_mc.deathchest.tasks;
 
+import com.winterhaven_mc.deathchest.PluginMain;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
 import org.bukkit.scheduler.BukkitRunnable;
 
@@ -29,8 +30,8 @@ public final class ExpireChestTask extends BukkitRunnable {
 		// check for null death chest
 		if (this.deathChest != null) {
 
-			// expire death chest
-			this.deathChest.expire();
+			// queue death chest to be expired under per-tick budget
+			PluginMain.instance.chestManager.queueExpiration(this.deathChest);
 		}
 	}
 
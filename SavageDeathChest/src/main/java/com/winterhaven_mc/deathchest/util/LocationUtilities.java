@@ -160,6 +160,29 @@ public final class LocationUtilities {
 	}
 
 
+	/**
+	 * Get a single long key for chunk coordinates, for use in chunk indexed maps
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @return long key with chunk x in the high 32 bits and chunk z in the low 32 bits
+	 */
+	public static long getChunkKey(final int chunkX, final int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+
+	/**
+	 * Get a single long key for block coordinates, for use in block indexed maps
+	 * @param x the block x coordinate
+	 * @param y the block y coordinate
+	 * @param z the block z coordinate
+	 * @return long key with x in the high 26 bits, z in the next 26 bits and y in the low 12 bits
+	 */
+	public static long getBlockKey(final int x, final int y, final int z) {
+		return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+	}
+
+
 	/**
 	 * Get BlockFace to left of passed BlockFace
 	 * @param blockFace the original BlockFace
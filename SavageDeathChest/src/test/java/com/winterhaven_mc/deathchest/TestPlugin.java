@@ -0,0 +1,244 @@
+package com.winterhaven_mc.deathchest;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+
+/**
+ * Creates plugin instances for tests, running on a stub server installed as the Bukkit server.
+ * The server has only the worlds added by tests, and its scheduler never runs tasks.
+ */
+public final class TestPlugin {
+
+	private static final Logger LOGGER = Logger.getLogger("TestServer");
+
+	// loaded worlds by name
+	private static final Map<String, World> worlds = new ConcurrentHashMap<>();
+
+	// ids of scheduled tasks
+	private static final AtomicInteger taskIds = new AtomicInteger();
+
+	private static Server server;
+
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private TestPlugin() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Create a plugin instance and set it as the plugin instance; the plugin is not enabled
+	 * @param dataFolder the plugin data folder
+	 * @return PluginMain - the plugin instance
+	 * @throws IOException if the plugin description could not be read
+	 * @throws InvalidDescriptionException if the plugin description is not valid
+	 */
+	@SuppressWarnings("deprecation")
+	public static PluginMain create(final File dataFolder) throws IOException, InvalidDescriptionException {
+
+		final PluginDescriptionFile description;
+		try (InputStream inputStream = PluginMain.class.getResourceAsStream("/plugin.yml")) {
+			if (inputStream == null) {
+				throw new IOException("plugin.yml not found on class path");
+			}
+			description = new PluginDescriptionFile(inputStream);
+		}
+
+		final File file;
+		try {
+			file = new File(PluginMain.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		}
+		catch (URISyntaxException e) {
+			throw new IOException(e);
+		}
+
+		PluginMain plugin = new PluginMain(new JavaPluginLoader(install()), description, dataFolder, file);
+		PluginMain.instance = plugin;
+		return plugin;
+	}
+
+
+	/**
+	 * Add a loaded world to the server
+	 * @param name the world name
+	 * @return World - the world
+	 */
+	public static World addWorld(final String name) {
+
+		final UUID uid = UUID.randomUUID();
+
+		World world = proxy(World.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getName":
+					return name;
+				case "getUID":
+					return uid;
+				default:
+					return answerObjectMethod(proxy, method, args);
+			}
+		});
+
+		worlds.put(name, world);
+		return world;
+	}
+
+
+	/**
+	 * Remove a world from the server, as if it were unloaded
+	 * @param name the world name
+	 */
+	public static void removeWorld(final String name) {
+		worlds.remove(name);
+	}
+
+
+	/**
+	 * Install the stub server as the Bukkit server, if it has not already been installed
+	 * @return Server - the installed server
+	 */
+	private static synchronized Server install() {
+
+		if (server != null) {
+			return server;
+		}
+
+		final BukkitScheduler scheduler = proxy(BukkitScheduler.class, (proxy, method, args) -> {
+			if (method.getReturnType() == BukkitTask.class) {
+				return createTask((Plugin) args[0]);
+			}
+			if (method.getReturnType() == int.class && method.getDeclaringClass() == BukkitScheduler.class) {
+				return taskIds.incrementAndGet();
+			}
+			if (method.getReturnType() == boolean.class && method.getDeclaringClass() == BukkitScheduler.class) {
+				return false;
+			}
+			if (method.getReturnType() == void.class) {
+				return null;
+			}
+			return answerObjectMethod(proxy, method, args);
+		});
+
+		server = proxy(Server.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getLogger":
+					return LOGGER;
+				case "getName":
+					return "TestServer";
+				case "getVersion":
+					return "test";
+				case "getBukkitVersion":
+					return "1.13.2-R0.1-SNAPSHOT";
+				case "getScheduler":
+					return scheduler;
+				case "isPrimaryThread":
+					return true;
+				case "getWorlds":
+					return new ArrayList<>(worlds.values());
+				case "getWorld":
+					if (args[0] instanceof String) {
+						return worlds.get(args[0]);
+					}
+					for (World world : worlds.values()) {
+						if (world.getUID().equals(args[0])) {
+							return world;
+						}
+					}
+					return null;
+				default:
+					return answerObjectMethod(proxy, method, args);
+			}
+		});
+
+		Bukkit.setServer(server);
+		return server;
+	}
+
+
+	/**
+	 * Create a scheduled task that never runs
+	 * @param plugin the plugin that scheduled the task
+	 * @return BukkitTask - the task
+	 */
+	private static BukkitTask createTask(final Plugin plugin) {
+
+		final int taskId = taskIds.incrementAndGet();
+
+		return proxy(BukkitTask.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getTaskId":
+					return taskId;
+				case "getOwner":
+					return plugin;
+				case "isSync":
+					return true;
+				case "isCancelled":
+					return false;
+				case "cancel":
+					return null;
+				default:
+					return answerObjectMethod(proxy, method, args);
+			}
+		});
+	}
+
+
+	/**
+	 * Answer the Object methods of a proxy by identity; other methods are not supported
+	 * @param proxy the proxy
+	 * @param method the invoked method
+	 * @param args the method arguments
+	 * @return Object - the method result
+	 */
+	private static Object answerObjectMethod(final Object proxy, final Method method, final Object[] args) {
+
+		switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return method.getDeclaringClass().getSimpleName() + "@"
+						+ Integer.toHexString(System.identityHashCode(proxy));
+			default:
+				throw new UnsupportedOperationException(method.getDeclaringClass().getSimpleName()
+						+ "." + method.getName());
+		}
+	}
+
+
+	/**
+	 * Create a proxy for an interface
+	 * @param type the interface to implement
+	 * @param handler the invocation handler
+	 * @param <T> the interface type
+	 * @return T - the proxy
+	 */
+	private static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+}
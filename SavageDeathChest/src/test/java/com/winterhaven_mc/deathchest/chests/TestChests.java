@@ -0,0 +1,37 @@
+package com.winterhaven_mc.deathchest.chests;
+
+
+/**
+ * Adds chests to the indexes of a chest manager for tests, without placing blocks in a world
+ */
+public final class TestChests {
+
+	// block types of the first and second chest blocks
+	private static final ChestBlockType[] BLOCK_TYPES = { ChestBlockType.LEFT_CHEST, ChestBlockType.RIGHT_CHEST };
+
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private TestChests() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Add a chest and its chest blocks to the chest manager indexes
+	 * @param chestManager the chest manager
+	 * @param deathChest the chest
+	 * @param chestBlocks one or two chest blocks of the chest
+	 */
+	public static void addChest(final ChestManager chestManager,
+								final DeathChest deathChest,
+								final ChestBlock... chestBlocks) {
+
+		for (int i = 0; i < chestBlocks.length; i++) {
+			chestManager.addChestBlock(BLOCK_TYPES[i], chestBlocks[i]);
+		}
+		chestManager.addDeathChest(deathChest);
+	}
+
+}
@@ -0,0 +1,436 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.TestPlugin;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.ChestManager;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import com.winterhaven_mc.deathchest.chests.TestChests;
+import com.winterhaven_mc.deathchest.metrics.Metrics;
+
+import org.bukkit.World;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests of the MySQL datastore against an in-memory H2 database in MySQL compatibility mode
+ */
+public class DataStoreMySQLTest {
+
+	// number of databases created, for unique database names
+	private static final AtomicInteger databaseCount = new AtomicInteger();
+
+	@ClassRule
+	public static final TemporaryFolder dataFolder = new TemporaryFolder();
+
+	private static PluginMain plugin;
+	private static World world;
+
+	// datastores opened by a test, closed after the test
+	private final List<DataStoreMySQL> dataStores = new ArrayList<>();
+
+	private String dbUrl;
+
+
+	@BeforeClass
+	public static void createPlugin() throws Exception {
+
+		plugin = TestPlugin.create(dataFolder.getRoot());
+		plugin.getConfig().set("deployment-journal", false);
+
+		plugin.metrics = new Metrics(plugin);
+		plugin.deploymentJournal = new DeploymentJournal(plugin);
+
+		world = TestPlugin.addWorld("world");
+	}
+
+
+	@Before
+	public void createDatabase() {
+		dbUrl = createDatabaseUrl();
+		plugin.chestManager = new ChestManager(plugin);
+	}
+
+
+	@After
+	public void closeDataStores() {
+		for (DataStoreMySQL dataStore : dataStores) {
+			dataStore.close();
+		}
+		dataStores.clear();
+	}
+
+
+	@Test
+	public void putChestRecordInsertsChestAndBlocks() throws Exception {
+
+		DataStoreMySQL dataStore = openDataStore("alpha", dbUrl);
+
+		DeathChest deathChest = addChest(0L, world, 0);
+		dataStore.putChestRecord(deathChest);
+		assertTrue(dataStore.flush());
+
+		List<DeathChest> chests = dataStore.getAllChestRecords();
+		assertEquals(1, chests.size());
+
+		DeathChest stored = chests.get(0);
+		assertEquals(deathChest.getChestUUID(), stored.getChestUUID());
+		assertEquals(deathChest.getOwnerUUID(), stored.getOwnerUUID());
+		assertEquals(deathChest.getKillerUUID(), stored.getKillerUUID());
+		assertEquals(deathChest.getItemCount(), stored.getItemCount());
+		assertEquals(deathChest.getPlacementTime(), stored.getPlacementTime());
+		assertEquals(deathChest.getExpirationTime(), stored.getExpirationTime());
+
+		List<ChestBlock> blocks = dataStore.getAllBlockRecords();
+		assertEquals(2, blocks.size());
+		for (ChestBlock chestBlock : blocks) {
+			assertEquals(deathChest.getChestUUID(), chestBlock.getChestUUID());
+			assertEquals(world.getName(), chestBlock.getWorldName());
+		}
+	}
+
+
+	@Test
+	public void deleteChestRecordsRemovesBlocksByCascadeAndRecordsHistory() throws Exception {
+
+		DataStoreMySQL dataStore = openDataStore("alpha", dbUrl);
+
+		DeathChest looted = addChest(0L, world, 0);
+		DeathChest kept = addChest(0L, world, 10);
+		dataStore.putChestRecord(looted);
+		dataStore.putChestRecord(kept);
+		dataStore.deleteChestRecords(Collections.singletonList(looted), RemovalReason.LOOTED);
+		assertTrue(dataStore.flush());
+
+		assertEquals(Collections.singleton(kept.getChestUUID()), getChestUUIDs(dataStore.getAllChestRecords()));
+
+		List<ChestBlock> blocks = dataStore.getAllBlockRecords();
+		assertEquals(2, blocks.size());
+		for (ChestBlock chestBlock : blocks) {
+			assertEquals(kept.getChestUUID(), chestBlock.getChestUUID());
+		}
+
+		// history has a record for each block of the deleted chest
+		assertEquals(2, countHistory("alpha", RemovalReason.LOOTED));
+	}
+
+
+	@Test
+	public void deleteExpiredRecordsDeletesExpiredAndPastDueOrphanedChests() throws Exception {
+
+		DataStoreMySQL dataStore = openDataStore("alpha", dbUrl);
+
+		long currentTime = System.currentTimeMillis();
+
+		// chests in a world that is unloaded before expired records are deleted
+		World unloaded = TestPlugin.addWorld("unloaded");
+		DeathChest pastDueOrphan = addChest(currentTime - TimeUnit.DAYS.toMillis(31), unloaded, 0);
+		DeathChest recentOrphan = addChest(currentTime - TimeUnit.DAYS.toMillis(1), unloaded, 10);
+
+		DeathChest expired = addChest(currentTime - TimeUnit.MINUTES.toMillis(1), world, 0);
+		DeathChest unexpired = addChest(currentTime + TimeUnit.HOURS.toMillis(1), world, 10);
+		DeathChest permanent = addChest(0L, world, 20);
+
+		for (DeathChest deathChest : Arrays.asList(pastDueOrphan, recentOrphan, expired, unexpired, permanent)) {
+			dataStore.putChestRecord(deathChest);
+		}
+		assertTrue(dataStore.flush());
+
+		TestPlugin.removeWorld("unloaded");
+
+		List<ChestBlock> expiredBlocks = dataStore.deleteExpiredRecords(currentTime);
+
+		// blocks of expired chests in loaded worlds are returned and kept as pending removals
+		assertEquals(2, expiredBlocks.size());
+		for (ChestBlock chestBlock : expiredBlocks) {
+			assertEquals(expired.getChestUUID(), chestBlock.getChestUUID());
+		}
+		assertEquals(2, dataStore.getPendingRemovals().size());
+
+		assertEquals(new HashSet<>(Arrays.asList(recentOrphan.getChestUUID(),
+						unexpired.getChestUUID(),
+						permanent.getChestUUID())),
+				getChestUUIDs(dataStore.getAllChestRecords()));
+
+		// history has a record for each block of the expired chest and the past due orphaned chest
+		assertEquals(4, countHistory("alpha", RemovalReason.EXPIRED));
+	}
+
+
+	@Test
+	public void exportedRecordsAndHistoryImportIntoAnotherDataStore() throws Exception {
+
+		DataStoreMySQL source = openDataStore("alpha", dbUrl);
+		DataStoreMySQL target = openDataStore("alpha", createDatabaseUrl());
+
+		DeathChest first = addChest(0L, world, 0);
+		DeathChest second = addChest(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1), world, 10);
+		DeathChest looted = addChest(0L, world, 20);
+		source.putChestRecord(first);
+		source.putChestRecord(second);
+		source.putChestRecord(looted);
+		source.deleteChestRecord(looted, RemovalReason.LOOTED);
+		source.putPendingRemoval(new ChestBlock(UUID.randomUUID(), world, 100, 64, 100));
+		assertTrue(source.flush());
+
+		source.exportChests(1, target::importChests);
+		source.exportPendingRemovals(1, target::importPendingRemovals);
+		source.exportHistory(1, target::importHistory);
+
+		RecordSummary sourceSummary = source.summarize(1);
+		RecordSummary targetSummary = target.summarize(1);
+
+		assertEquals(2, sourceSummary.getChestCount());
+		assertEquals(4, sourceSummary.getBlockCount());
+		assertEquals(2, sourceSummary.getHistoryCount());
+		assertTrue(sourceSummary.matches(targetSummary));
+
+		assertEquals(getChestUUIDs(source.getAllChestRecords()), getChestUUIDs(target.getAllChestRecords()));
+		assertEquals(4, target.getAllBlockRecords().size());
+		assertEquals(1, target.getPendingRemovals().size());
+	}
+
+
+	@Test
+	public void repeatedImportSkipsRecordsAlreadyImported() throws Exception {
+
+		DataStoreMySQL source = openDataStore("alpha", dbUrl);
+		DataStoreMySQL target = openDataStore("alpha", createDatabaseUrl());
+
+		DeathChest looted = addChest(0L, world, 0);
+		source.putChestRecord(addChest(0L, world, 10));
+		source.putChestRecord(looted);
+		source.deleteChestRecord(looted, RemovalReason.LOOTED);
+		source.putPendingRemoval(new ChestBlock(UUID.randomUUID(), world, 100, 64, 100));
+		assertTrue(source.flush());
+
+		source.exportChests(1, target::importChests);
+		source.exportPendingRemovals(1, target::importPendingRemovals);
+		source.exportHistory(1, target::importHistory);
+
+		RecordSummary written = new RecordSummary();
+		source.exportChests(1, batch -> written.addChests(target.importChests(batch)));
+		source.exportPendingRemovals(1, batch -> written.addPendingRemovals(target.importPendingRemovals(batch)));
+		source.exportHistory(1, batch -> written.addHistory(target.importHistory(batch)));
+
+		assertEquals(0, written.getRecordCount());
+		assertTrue(source.summarize(1).matches(target.summarize(1)));
+	}
+
+
+	@Test
+	public void recordsAreScopedToServerId() throws Exception {
+
+		DataStoreMySQL alpha = openDataStore("alpha", dbUrl);
+		DataStoreMySQL beta = openDataStore("beta", dbUrl);
+
+		long currentTime = System.currentTimeMillis();
+
+		DeathChest alphaChest = addChest(0L, world, 0);
+		DeathChest betaChest = addChest(currentTime + TimeUnit.HOURS.toMillis(1), world, 10);
+		DeathChest betaExpired = addChest(currentTime - TimeUnit.MINUTES.toMillis(1), world, 20);
+		alpha.putChestRecord(alphaChest);
+		beta.putChestRecord(betaChest);
+		beta.putChestRecord(betaExpired);
+		assertTrue(alpha.flush());
+		assertTrue(beta.flush());
+
+		// each server reads only its own records
+		assertEquals(Collections.singleton(alphaChest.getChestUUID()), getChestUUIDs(alpha.getAllChestRecords()));
+		assertEquals(2, alpha.getAllBlockRecords().size());
+		assertEquals(2, getChestUUIDs(beta.getAllChestRecords()).size());
+
+		// expired chests of other servers are not deleted
+		assertEquals(0, alpha.deleteExpiredRecords(currentTime).size());
+		assertEquals(2, getChestUUIDs(beta.getAllChestRecords()).size());
+
+		// remote view has the unexpired chests of other servers, once for each chest
+		List<RemoteChest> remoteChests = alpha.getRemoteChestRecords(currentTime);
+		assertEquals(1, remoteChests.size());
+		assertEquals("beta", remoteChests.get(0).getServerId());
+		assertEquals(betaChest.getChestUUID(), remoteChests.get(0).getChestUUID());
+		assertEquals(betaChest.getOwnerUUID(), remoteChests.get(0).getOwnerUUID());
+		assertEquals(world.getName(), remoteChests.get(0).getWorldName());
+
+		// deleting a datastore deletes only the records of its server
+		assertTrue(alpha.delete());
+		assertEquals(2, getChestUUIDs(beta.getAllChestRecords()).size());
+		assertEquals(4, beta.getAllBlockRecords().size());
+		assertEquals(0, beta.getRemoteChestRecords(currentTime).size());
+	}
+
+
+	@Test
+	public void remoteChestRecordsHaveUnexpiredChestsOfOtherServers() throws Exception {
+
+		DataStoreMySQL alpha = openDataStore("alpha", dbUrl);
+		DataStoreMySQL beta = openDataStore("beta", dbUrl);
+		DataStoreMySQL gamma = openDataStore("gamma", dbUrl);
+
+		long currentTime = System.currentTimeMillis();
+
+		DeathChest alphaChest = addChest(currentTime + TimeUnit.HOURS.toMillis(1), world, 0);
+		DeathChest betaPermanent = addChest(0L, world, 10);
+		DeathChest betaExpired = addChest(currentTime - TimeUnit.MINUTES.toMillis(1), world, 20);
+		DeathChest gammaChest = addChest(currentTime + TimeUnit.HOURS.toMillis(1), world, 30);
+		alpha.putChestRecord(alphaChest);
+		beta.putChestRecord(betaPermanent);
+		beta.putChestRecord(betaExpired);
+		gamma.putChestRecord(gammaChest);
+		assertTrue(alpha.flush());
+		assertTrue(beta.flush());
+		assertTrue(gamma.flush());
+
+		List<RemoteChest> remoteChests = alpha.getRemoteChestRecords(currentTime);
+
+		// each chest is listed once, although it has a record for each of its blocks
+		Set<UUID> chestUUIDs = new HashSet<>();
+		for (RemoteChest remoteChest : remoteChests) {
+			chestUUIDs.add(remoteChest.getChestUUID());
+			if (remoteChest.getChestUUID().equals(betaPermanent.getChestUUID())) {
+				assertEquals("beta", remoteChest.getServerId());
+				assertEquals(0L, remoteChest.getExpirationTime());
+			}
+			else {
+				assertEquals("gamma", remoteChest.getServerId());
+				assertEquals(gammaChest.getExpirationTime(), remoteChest.getExpirationTime());
+			}
+		}
+		assertEquals(2, remoteChests.size());
+		assertEquals(new HashSet<>(Arrays.asList(betaPermanent.getChestUUID(), gammaChest.getChestUUID())),
+				chestUUIDs);
+	}
+
+
+	@Test(expected = SQLException.class)
+	public void remoteChestRecordsFailWhenDatabaseCannotBeRead() throws Exception {
+
+		DataStoreMySQL alpha = openDataStore("alpha", dbUrl);
+
+		try (Connection connection = DriverManager.getConnection(dbUrl);
+			 Statement statement = connection.createStatement()) {
+			statement.executeUpdate("DROP TABLE deathchest_Blocks");
+		}
+
+		// a failed read is reported, not returned as a view without chests
+		alpha.getRemoteChestRecords(System.currentTimeMillis());
+	}
+
+
+	/**
+	 * Create the url of a new in-memory database in MySQL compatibility mode, kept open until the tests end
+	 * @return String - the database url
+	 */
+	private static String createDatabaseUrl() {
+		return "jdbc:h2:mem:deathchest" + databaseCount.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+	}
+
+
+	/**
+	 * Open a datastore for a server id, closed after the test
+	 * @param serverId the server id
+	 * @param url the database url
+	 * @return DataStoreMySQL - the initialized datastore
+	 * @throws Exception if the datastore cannot be initialized
+	 */
+	private DataStoreMySQL openDataStore(final String serverId, final String url) throws Exception {
+
+		plugin.getConfig().set("server-id", serverId);
+
+		DataStoreMySQL dataStore = new DataStoreMySQL(plugin, new ConnectionPool(url, new Properties(), 2));
+		dataStore.initialize();
+
+		dataStores.add(dataStore);
+		return dataStore;
+	}
+
+
+	/**
+	 * Create a chest with two chest blocks and add it to the chest manager
+	 * @param expirationTime the chest expiration time, or zero if the chest does not expire
+	 * @param world the world of the chest blocks
+	 * @param x the x coordinate of the first chest block
+	 * @return DeathChest - the chest
+	 */
+	private static DeathChest addChest(final long expirationTime, final World world, final int x) {
+
+		DeathChest deathChest = new DeathChest(UUID.randomUUID(),
+				UUID.randomUUID(),
+				null,
+				3,
+				System.currentTimeMillis(),
+				expirationTime);
+
+		TestChests.addChest(plugin.chestManager, deathChest,
+				new ChestBlock(deathChest.getChestUUID(), world, x, 64, 0),
+				new ChestBlock(deathChest.getChestUUID(), world, x + 1, 64, 0));
+
+		return deathChest;
+	}
+
+
+	/**
+	 * Get the chest UUIDs of chests
+	 * @param deathChests the chests
+	 * @return Set of UUID - the chest UUIDs
+	 */
+	private static Set<UUID> getChestUUIDs(final Collection<DeathChest> deathChests) {
+
+		Set<UUID> chestUUIDs = new HashSet<>();
+		for (DeathChest deathChest : deathChests) {
+			chestUUIDs.add(deathChest.getChestUUID());
+		}
+		return chestUUIDs;
+	}
+
+
+	/**
+	 * Count history records of a server with a removal reason
+	 * @param serverId the server id
+	 * @param reason the removal reason
+	 * @return int - the number of history records
+	 * @throws SQLException if the records cannot be counted
+	 */
+	private int countHistory(final String serverId, final RemovalReason reason) throws SQLException {
+
+		try (Connection connection = DriverManager.getConnection(dbUrl);
+			 PreparedStatement preparedStatement = connection.prepareStatement("SELECT COUNT(*) "
+					 + "FROM deathchest_ChestHistory WHERE ServerId = ? AND Reason = ?")) {
+
+			preparedStatement.setString(1, serverId);
+			preparedStatement.setString(2, reason.name());
+
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				rs.next();
+				return rs.getInt(1);
+			}
+		}
+	}
+
+}